@@ -116,7 +116,8 @@ CREATE TABLE `feedback` (
   `deleted` TINYINT DEFAULT 0,
   `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
   `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
-  INDEX idx_user (`user_id`),
+  INDEX idx_user_time (`user_id`, `create_time`, `id`),
+  INDEX idx_create_time (`create_time`, `id`),
   INDEX idx_stall (`stall_id`),
   INDEX idx_type (`type`),
   INDEX idx_status (`status`)
@@ -156,23 +157,147 @@ CREATE TABLE `rental_record` (
   `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
   `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
   INDEX idx_application (`application_id`),
-  INDEX idx_user (`user_id`),
+  INDEX idx_user_time (`user_id`, `create_time`, `id`),
+  INDEX idx_create_time (`create_time`, `id`),
   INDEX idx_stall (`stall_id`),
-  INDEX idx_status (`status`)
+  INDEX idx_status (`status`),
+  INDEX idx_status_end (`status`, `end_date`)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='租赁记录表';
 
--- 系统日志表
+-- 系统日志表（按月分区，分区键需包含在主键中；新分区与过期分区归档由 SystemLogArchiver 定时维护）
 CREATE TABLE `system_log` (
-  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '日志ID',
+  `id` BIGINT AUTO_INCREMENT COMMENT '日志ID',
   `user_id` BIGINT COMMENT '用户ID',
   `username` VARCHAR(50) COMMENT '用户名',
   `operation` VARCHAR(100) COMMENT '操作',
+  `operation_code` INT COMMENT '操作编码（system_log_operation.id）',
   `method` VARCHAR(200) COMMENT '请求方法',
   `params` TEXT COMMENT '请求参数',
   `ip` VARCHAR(50) COMMENT 'IP地址',
   `location` VARCHAR(100) COMMENT '操作地点',
   `time` BIGINT COMMENT '耗时（毫秒）',
+  `create_time` DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (`id`, `create_time`),
+  INDEX idx_user_time (`user_id`, `create_time`, `id`),
+  INDEX idx_create_time (`create_time`, `id`),
+  INDEX idx_operation_time (`operation_code`, `create_time`, `id`),
+  INDEX idx_user_operation_time (`user_id`, `operation_code`, `create_time`, `id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='系统日志表'
+PARTITION BY RANGE (TO_DAYS(`create_time`)) (
+  PARTITION p202601 VALUES LESS THAN (TO_DAYS('2026-02-01')),
+  PARTITION p202602 VALUES LESS THAN (TO_DAYS('2026-03-01')),
+  PARTITION p202603 VALUES LESS THAN (TO_DAYS('2026-04-01')),
+  PARTITION p202604 VALUES LESS THAN (TO_DAYS('2026-05-01')),
+  PARTITION p202605 VALUES LESS THAN (TO_DAYS('2026-06-01')),
+  PARTITION p202606 VALUES LESS THAN (TO_DAYS('2026-07-01')),
+  PARTITION p202607 VALUES LESS THAN (TO_DAYS('2026-08-01')),
+  PARTITION p202608 VALUES LESS THAN (TO_DAYS('2026-09-01')),
+  PARTITION p202609 VALUES LESS THAN (TO_DAYS('2026-10-01')),
+  PARTITION p202610 VALUES LESS THAN (TO_DAYS('2026-11-01')),
+  PARTITION p202611 VALUES LESS THAN (TO_DAYS('2026-12-01')),
+  PARTITION p202612 VALUES LESS THAN (TO_DAYS('2027-01-01')),
+  PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+-- 操作名称字典表
+CREATE TABLE `system_log_operation` (
+  `id` INT PRIMARY KEY AUTO_INCREMENT COMMENT '操作编码',
+  `name` VARCHAR(100) NOT NULL COMMENT '操作名称',
   `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
-  INDEX idx_user (`user_id`),
-  INDEX idx_create_time (`create_time`)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='系统日志表';
+  UNIQUE KEY uk_name (`name`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='操作名称字典表';
+
+-- 操作耗时汇总表（分钟汇总逐级合并为小时/天）
+CREATE TABLE `system_log_latency` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `bucket_time` DATETIME NOT NULL COMMENT '汇总区间起点',
+  `resolution` INT NOT NULL COMMENT '汇总粒度（分钟）：1/60/1440',
+  `operation_code` INT COMMENT '操作编码',
+  `method` VARCHAR(200) COMMENT '请求方法',
+  `call_count` BIGINT NOT NULL COMMENT '调用次数',
+  `total_time` BIGINT NOT NULL COMMENT '总耗时（毫秒）',
+  `max_time` BIGINT NOT NULL COMMENT '最大耗时（毫秒）',
+  `histogram` BLOB NOT NULL COMMENT '耗时直方图',
+  INDEX idx_bucket_time (`bucket_time`),
+  INDEX idx_resolution_time (`resolution`, `bucket_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='操作耗时汇总表';
+
+-- 租金账单表（每个租赁记录每个账期一张）
+CREATE TABLE `rental_invoice` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '账单ID',
+  `invoice_no` VARCHAR(50) NOT NULL COMMENT '账单编号：INV+账期+租赁记录ID',
+  `rental_id` BIGINT NOT NULL COMMENT '租赁记录ID',
+  `user_id` BIGINT NOT NULL COMMENT '租户ID',
+  `stall_id` BIGINT NOT NULL COMMENT '摊位ID',
+  `period` CHAR(7) NOT NULL COMMENT '账期：yyyy-MM',
+  `period_start` DATE NOT NULL COMMENT '计费开始日期',
+  `period_end` DATE NOT NULL COMMENT '计费结束日期',
+  `amount` DECIMAL(10,2) NOT NULL COMMENT '应付金额',
+  `status` TINYINT DEFAULT 0 COMMENT '状态：0-未支付 1-已支付',
+  `billing_run_id` BIGINT COMMENT '生成批次ID',
+  `deleted` TINYINT DEFAULT 0,
+  `create_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_rental_period (`rental_id`, `period`),
+  UNIQUE KEY uk_invoice_no (`invoice_no`),
+  INDEX idx_user_period (`user_id`, `period`),
+  INDEX idx_period_status (`period`, `status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='租金账单表';
+
+-- 账单生成批次表（每个账期一行，记录进度和断点）
+CREATE TABLE `billing_run` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '批次ID',
+  `period` CHAR(7) NOT NULL COMMENT '账期：yyyy-MM',
+  `status` TINYINT NOT NULL DEFAULT 0 COMMENT '状态：0-执行中 1-已完成 2-失败',
+  `total_count` BIGINT NOT NULL DEFAULT 0 COMMENT '待计费租赁记录数（开始时统计）',
+  `processed_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已处理租赁记录数',
+  `invoice_count` BIGINT NOT NULL DEFAULT 0 COMMENT '已生成账单数',
+  `last_rental_id` BIGINT NOT NULL DEFAULT 0 COMMENT '断点：已处理的最大租赁记录ID',
+  `claim_token` VARCHAR(36) COMMENT '当前执行者令牌，创建或接管时更换',
+  `error_message` VARCHAR(500) COMMENT '失败原因',
+  `start_time` DATETIME COMMENT '开始时间',
+  `finish_time` DATETIME COMMENT '完成时间',
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP COMMENT '最近一次进度更新',
+  UNIQUE KEY uk_period (`period`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='账单生成批次表';
+
+-- 租户账务分录表（复式记账，只追加不修改；同一凭证的分录借贷相等，借方为正、贷方为负）
+CREATE TABLE `ledger_entry` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT COMMENT '分录ID',
+  `journal_id` BIGINT NOT NULL COMMENT '凭证ID（同一笔业务的分录相同）',
+  `user_id` BIGINT NOT NULL COMMENT '租户ID',
+  `stall_id` BIGINT COMMENT '摊位ID',
+  `rental_id` BIGINT COMMENT '租赁记录ID',
+  `account` VARCHAR(32) NOT NULL COMMENT '科目：RENT_RECEIVABLE/RENT_INCOME/DEPOSIT_RECEIVABLE/DEPOSIT_HELD/CASH',
+  `amount` DECIMAL(12,2) NOT NULL COMMENT '金额：借方为正，贷方为负',
+  `entry_type` VARCHAR(32) NOT NULL COMMENT '业务类型：RENT_CHARGE/DEPOSIT_CHARGE/PAYMENT/PAYMENT_REVERSAL/DEPOSIT_REFUND',
+  `reference` VARCHAR(64) COMMENT '业务参考号（账单号等）',
+  `create_time` DATETIME NOT NULL COMMENT '记账时间',
+  INDEX idx_user_id (`user_id`, `id`),
+  INDEX idx_rental (`rental_id`),
+  INDEX idx_journal (`journal_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='租户账务分录表';
+
+-- 租户科目余额表（每个租户每个科目一行，随分录同事务更新，也作为租户记账的行锁）
+CREATE TABLE `ledger_balance` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `user_id` BIGINT NOT NULL COMMENT '租户ID',
+  `account` VARCHAR(32) NOT NULL COMMENT '科目',
+  `balance` DECIMAL(14,2) NOT NULL DEFAULT 0 COMMENT '当前余额',
+  `pending_entries` INT NOT NULL DEFAULT 0 COMMENT '上次快照后的分录数',
+  `last_entry_id` BIGINT NOT NULL DEFAULT 0 COMMENT '已计入的最大分录ID',
+  `update_time` DATETIME DEFAULT CURRENT_TIMESTAMP,
+  UNIQUE KEY uk_user_account (`user_id`, `account`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='租户科目余额表';
+
+-- 租户余额快照表（每累计一定分录数做一次，历史余额从最近的快照开始回放）
+CREATE TABLE `ledger_snapshot` (
+  `id` BIGINT PRIMARY KEY AUTO_INCREMENT,
+  `user_id` BIGINT NOT NULL COMMENT '租户ID',
+  `account` VARCHAR(32) NOT NULL COMMENT '科目',
+  `balance` DECIMAL(14,2) NOT NULL COMMENT '快照时余额',
+  `last_entry_id` BIGINT NOT NULL COMMENT '快照包含的最大分录ID',
+  `create_time` DATETIME NOT NULL COMMENT '快照时间',
+  UNIQUE KEY uk_user_entry_account (`user_id`, `last_entry_id`, `account`),
+  INDEX idx_user_time (`user_id`, `create_time`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COMMENT='租户余额快照表';
@@ -3,9 +3,11 @@ package com.stall.platform;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @MapperScan("com.stall.platform.mapper")
+@EnableScheduling
 public class StallPlatformApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,22 @@
+package com.stall.platform.annotation;
+
+import java.lang.annotation.*;
+
+/**
+ * 记录操作日志（用户、方法、参数、IP、耗时），写入 system_log
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface OperationLog {
+    
+    /**
+     * 操作名称
+     */
+    String value();
+    
+    /**
+     * 是否记录请求参数
+     */
+    boolean saveParams() default true;
+}
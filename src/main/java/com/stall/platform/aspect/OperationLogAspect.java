@@ -0,0 +1,136 @@
+package com.stall.platform.aspect;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.entity.SystemLog;
+import com.stall.platform.security.ClientIpResolver;
+import com.stall.platform.security.LoginUser;
+import com.stall.platform.service.SystemLogService;
+import jakarta.servlet.ServletRequest;
+import jakarta.servlet.ServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.validation.BindingResult;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 操作日志切面：记录带 @OperationLog 注解的接口调用
+ * 日志交给 SystemLogService.saveLog 异步批量写入，记录失败不影响业务
+ */
+@Slf4j
+@Aspect
+@Component
+public class OperationLogAspect {
+    
+    private static final int MAX_PARAMS_LENGTH = 2000;
+    private static final String MASK = "******";
+    
+    private final SystemLogService systemLogService;
+    private final ObjectMapper objectMapper;
+    private final ClientIpResolver clientIpResolver;
+    
+    public OperationLogAspect(SystemLogService systemLogService, ObjectMapper objectMapper,
+                              ClientIpResolver clientIpResolver) {
+        this.systemLogService = systemLogService;
+        this.objectMapper = objectMapper;
+        this.clientIpResolver = clientIpResolver;
+    }
+    
+    @Around("@annotation(operationLog)")
+    public Object around(ProceedingJoinPoint joinPoint, OperationLog operationLog) throws Throwable {
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            try {
+                record(joinPoint, operationLog, (System.nanoTime() - start) / 1_000_000);
+            } catch (RuntimeException e) {
+                log.warn("操作日志记录失败: {}", e.getMessage());
+            }
+        }
+    }
+    
+    private void record(ProceedingJoinPoint joinPoint, OperationLog operationLog, long elapsedMillis) {
+        SystemLog entry = new SystemLog();
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof LoginUser loginUser) {
+            entry.setUserId(loginUser.getUserId());
+            entry.setUsername(loginUser.getUsername());
+        }
+        MethodSignature signature = (MethodSignature) joinPoint.getSignature();
+        entry.setOperation(operationLog.value());
+        entry.setMethod(signature.getDeclaringType().getSimpleName() + "." + signature.getName());
+        if (operationLog.saveParams()) {
+            entry.setParams(serializeParams(signature.getParameterNames(), joinPoint.getArgs()));
+        }
+        entry.setIp(clientIp());
+        entry.setTime(elapsedMillis);
+        systemLogService.saveLog(entry);
+    }
+    
+    /**
+     * 参数序列化为JSON，跳过请求/响应/文件等对象，密码类字段打码，超长截断
+     */
+    private String serializeParams(String[] names, Object[] args) {
+        ObjectNode node = objectMapper.createObjectNode();
+        for (int i = 0; i < args.length; i++) {
+            Object arg = args[i];
+            if (arg instanceof ServletRequest || arg instanceof ServletResponse || arg instanceof MultipartFile
+                    || arg instanceof BindingResult) {
+                continue;
+            }
+            String name = names != null && i < names.length ? names[i] : "arg" + i;
+            node.set(name, isSensitive(name) ? node.textNode(MASK) : objectMapper.valueToTree(arg));
+        }
+        mask(node);
+        String json = node.toString();
+        return json.length() > MAX_PARAMS_LENGTH ? json.substring(0, MAX_PARAMS_LENGTH) : json;
+    }
+    
+    private void mask(JsonNode node) {
+        if (node instanceof ObjectNode object) {
+            for (Iterator<Map.Entry<String, JsonNode>> it = object.fields(); it.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = it.next();
+                if (isSensitive(field.getKey()) && !field.getValue().isNull()) {
+                    field.setValue(object.textNode(MASK));
+                } else {
+                    mask(field.getValue());
+                }
+            }
+        } else if (node instanceof ArrayNode array) {
+            array.forEach(this::mask);
+        }
+    }
+    
+    private static boolean isSensitive(String name) {
+        String lower = name.toLowerCase(Locale.ROOT);
+        return lower.contains("password") || lower.contains("token") || lower.equals("authorization");
+    }
+    
+    /**
+     * 与限流使用同一套受信任代理规则，客户端自带的转发头不会写入日志
+     */
+    private String clientIp() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes servletAttributes)) {
+            return null;
+        }
+        return clientIpResolver.resolve(servletAttributes.getRequest());
+    }
+}
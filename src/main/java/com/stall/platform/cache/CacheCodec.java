@@ -0,0 +1,90 @@
+package com.stall.platform.cache;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 缓存值编解码
+ * 紧凑JSON（忽略null字段、时间序列化为数组），超过阈值再GZIP压缩；首字节标记是否压缩
+ */
+public class CacheCodec {
+    
+    private static final byte PLAIN = 0;
+    private static final byte GZIP = 1;
+    
+    private final ObjectMapper objectMapper;
+    private final int compressThreshold;
+    
+    public CacheCodec(int compressThreshold) {
+        this.compressThreshold = compressThreshold;
+        this.objectMapper = new ObjectMapper()
+                .registerModule(new JavaTimeModule())
+                .setSerializationInclusion(JsonInclude.Include.NON_NULL)
+                .enable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+    
+    public byte[] encode(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            if (json.length < compressThreshold) {
+                return prepend(PLAIN, json);
+            }
+            ByteArrayOutputStream out = new ByteArrayOutputStream(json.length / 4 + 16);
+            out.write(GZIP);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(json);
+            }
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        return decode(bytes, objectMapper.constructType(type));
+    }
+    
+    public <T> T decode(byte[] bytes, TypeReference<T> type) {
+        return decode(bytes, objectMapper.constructType(type));
+    }
+    
+    /**
+     * 空值（没有标记字节）视为无法解析，抛出 UncheckedIOException，调用方按未命中处理
+     */
+    private <T> T decode(byte[] bytes, JavaType type) {
+        if (bytes.length == 0) {
+            throw new UncheckedIOException(new IOException("缓存值为空"));
+        }
+        try {
+            if (bytes[0] == GZIP) {
+                try (GZIPInputStream gzip = new GZIPInputStream(
+                        new ByteArrayInputStream(bytes, 1, bytes.length - 1))) {
+                    return objectMapper.readValue(gzip, type);
+                }
+            }
+            return objectMapper.readValue(bytes, 1, bytes.length - 1, type);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    private static byte[] prepend(byte flag, byte[] data) {
+        byte[] result = new byte[data.length + 1];
+        result[0] = flag;
+        System.arraycopy(data, 0, result, 1, data.length);
+        return result;
+    }
+}
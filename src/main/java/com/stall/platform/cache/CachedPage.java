@@ -0,0 +1,22 @@
+package com.stall.platform.cache;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
+import java.util.List;
+
+/**
+ * 分页结果的缓存形态，只保留前端需要的字段
+ */
+public record CachedPage<T>(List<T> records, long total, long current, long size) {
+    
+    public static <T> CachedPage<T> of(IPage<T> page) {
+        return new CachedPage<>(page.getRecords(), page.getTotal(), page.getCurrent(), page.getSize());
+    }
+    
+    public IPage<T> toPage() {
+        Page<T> page = new Page<>(current, size, total);
+        page.setRecords(records);
+        return page;
+    }
+}
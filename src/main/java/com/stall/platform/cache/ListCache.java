@@ -0,0 +1,99 @@
+package com.stall.platform.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 热点列表结果缓存（摊位目录、已发布公告）
+ * 按命名空间维护版本号，写操作递增版本使旧结果整体失效，无需逐个删除键
+ */
+@Slf4j
+@Component
+public class ListCache {
+    
+    private static final String KEY_PREFIX = "stall:list:";
+    private static final String MESSAGE_TYPE = "list";
+    
+    @Value("${cache.shared.list-ttl:60}")
+    private long ttlSeconds;
+    
+    private final SharedCache sharedCache;
+    private final CacheCodec cacheCodec;
+    
+    /**
+     * 本节点已知的各命名空间版本，其他节点递增版本后通过广播清除
+     */
+    private final Map<String, Long> versions = new ConcurrentHashMap<>();
+    
+    public ListCache(SharedCache sharedCache, CacheCodec cacheCodec) {
+        this.sharedCache = sharedCache;
+        this.cacheCodec = cacheCodec;
+        sharedCache.subscribe(message -> {
+            String[] parts = message.split("\\|", 2);
+            if (parts.length == 2 && MESSAGE_TYPE.equals(parts[0])) {
+                versions.remove(parts[1]);
+            }
+        });
+    }
+    
+    public <T> T get(String namespace, String key, TypeReference<T> type, Supplier<T> loader) {
+        if (TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return loader.get();
+        }
+        long version = versions.computeIfAbsent(namespace, ns -> sharedCache.getCounter(versionKey(ns)));
+        String cacheKey = KEY_PREFIX + namespace + ":" + version + ":" + key;
+        byte[] bytes = sharedCache.get(cacheKey);
+        if (bytes != null) {
+            try {
+                return cacheCodec.decode(bytes, type);
+            } catch (UncheckedIOException e) {
+                log.warn("列表缓存数据无法解析，已忽略: {}", cacheKey);
+            }
+        }
+        T value = loader.get();
+        if (value != null && Long.valueOf(version).equals(versions.get(namespace))) {
+            sharedCache.set(cacheKey, cacheCodec.encode(value), ttlSeconds);
+        }
+        return value;
+    }
+    
+    /**
+     * 使命名空间下的全部列表失效；处于事务中时提交后再递增一次版本
+     */
+    public void evict(String namespace) {
+        bumpVersion(namespace);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    bumpVersion(namespace);
+                }
+            });
+        }
+    }
+    
+    private void bumpVersion(String namespace) {
+        long version = sharedCache.incrementCounter(versionKey(namespace));
+        if (version < 0) {
+            // 共享缓存不可用，旧结果依赖TTL过期
+            versions.remove(namespace);
+        } else {
+            versions.put(namespace, version);
+        }
+        sharedCache.publish(MESSAGE_TYPE + "|" + namespace);
+    }
+    
+    private static String versionKey(String namespace) {
+        return KEY_PREFIX + namespace + ":version";
+    }
+}
@@ -0,0 +1,62 @@
+package com.stall.platform.cache;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 单节点/测试环境下的共享缓存替身，数据保存在本进程内存中
+ */
+public class LocalSharedCache implements SharedCache {
+    
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> counters = new ConcurrentHashMap<>();
+    
+    @Override
+    public byte[] get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.expireAt <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            return null;
+        }
+        return entry.value;
+    }
+    
+    @Override
+    public void set(String key, byte[] value, long ttlSeconds) {
+        entries.put(key, new Entry(value, System.currentTimeMillis() + ttlSeconds * 1000));
+    }
+    
+    @Override
+    public void delete(String key) {
+        entries.remove(key);
+    }
+    
+    @Override
+    public long getCounter(String key) {
+        AtomicLong counter = counters.get(key);
+        return counter == null ? 0 : counter.get();
+    }
+    
+    @Override
+    public long incrementCounter(String key) {
+        return counters.computeIfAbsent(key, k -> new AtomicLong()).incrementAndGet();
+    }
+    
+    @Override
+    public void publish(String message) {
+        // 单节点没有其他订阅者
+    }
+    
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        // 单节点没有其他发布者
+    }
+    
+    private record Entry(byte[] value, long expireAt) {
+    }
+}
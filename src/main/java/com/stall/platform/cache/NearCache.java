@@ -0,0 +1,228 @@
+package com.stall.platform.cache;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.io.Serializable;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * 进程内实体缓存（按容量LRU淘汰 + 按TTL过期），可选挂接共享二级缓存
+ * 读写都返回副本，调用方修改返回对象不会污染缓存
+ */
+public class NearCache<V> {
+    
+    private final String name;
+    private final int maxSize;
+    private final long ttlMillis;
+    private final UnaryOperator<V> copier;
+    private final SecondLevel<V> secondLevel;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<String, Entry<V>> entries;
+    
+    /**
+     * 失效代数：加载期间发生过失效则丢弃加载结果，避免旧值回填
+     */
+    private final AtomicLong generation = new AtomicLong();
+    
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    
+    public NearCache(String name, int maxSize, long ttlMillis, UnaryOperator<V> copier) {
+        this(name, maxSize, ttlMillis, copier, null);
+    }
+    
+    public NearCache(String name, int maxSize, long ttlMillis, UnaryOperator<V> copier, SecondLevel<V> secondLevel) {
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+        this.copier = copier;
+        this.secondLevel = secondLevel;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<V>> eldest) {
+                if (size() > NearCache.this.maxSize) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * 读取缓存，本地未命中时依次查二级缓存和loader；loader返回null不缓存
+     */
+    public V get(Serializable id, Function<Serializable, V> loader) {
+        if (id == null) {
+            return null;
+        }
+        String key = String.valueOf(id);
+        V cached = getIfPresent(key);
+        if (cached != null) {
+            hits.increment();
+            return copier.apply(cached);
+        }
+        misses.increment();
+        
+        // 写事务中以数据库为准，且读到的可能是未提交数据，不查也不回填缓存
+        if (inWriteTransaction()) {
+            return loader.apply(id);
+        }
+        long loadGeneration = generation.get();
+        // 二级缓存版本在回源前读取，回填时带上；期间其他节点失效过（版本已递增）则回填的旧值不会再被读到
+        long version = secondLevel != null ? secondLevel.version(key) : 0;
+        V loaded = secondLevel != null ? secondLevel.get(key, version) : null;
+        if (loaded == null) {
+            loaded = loader.apply(id);
+            if (loaded == null) {
+                return null;
+            }
+            if (secondLevel != null && generation.get() == loadGeneration) {
+                secondLevel.put(key, version, loaded);
+            }
+        }
+        put(key, copier.apply(loaded), loadGeneration);
+        return loaded;
+    }
+    
+    /**
+     * 失效指定条目（含二级缓存及其他节点的本地缓存）
+     * 处于事务中时在事务结束后再失效一次，防止提交前被并发读回填旧值
+     */
+    public void invalidate(Serializable id) {
+        if (id == null) {
+            return;
+        }
+        String key = String.valueOf(id);
+        invalidateEverywhere(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateEverywhere(key);
+                }
+            });
+        }
+    }
+    
+    /**
+     * 只失效本节点条目，用于响应其他节点广播的失效消息
+     */
+    public void invalidateLocal(String key) {
+        remove(key);
+    }
+    
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("size", size());
+        stats.put("maxSize", maxSize);
+        stats.put("hits", hitCount);
+        stats.put("misses", missCount);
+        stats.put("evictions", evictions.sum());
+        stats.put("hitRate", total == 0 ? 0.0 : (double) hitCount / total);
+        return stats;
+    }
+    
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private V getIfPresent(String key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt <= System.currentTimeMillis()) {
+                entries.remove(key);
+                evictions.increment();
+                return null;
+            }
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void put(String key, V value, long loadGeneration) {
+        lock.lock();
+        try {
+            if (generation.get() == loadGeneration) {
+                entries.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void remove(String key) {
+        lock.lock();
+        try {
+            generation.incrementAndGet();
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    private void invalidateEverywhere(String key) {
+        remove(key);
+        if (secondLevel != null) {
+            secondLevel.evict(key);
+        }
+    }
+    
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+    
+    private record Entry<V>(V value, long expireAt) {
+    }
+    
+    /**
+     * 二级缓存适配，负责序列化与跨节点失效广播
+     * 每个条目有共享的版本号，读写都按版本进行，失效时递增版本
+     */
+    public interface SecondLevel<V> {
+        
+        long version(String key);
+        
+        V get(String key, long version);
+        
+        void put(String key, long version, V value);
+        
+        void evict(String key);
+    }
+}
@@ -0,0 +1,132 @@
+package com.stall.platform.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 本地缓存注册中心，统一容量/TTL配置，挂接共享二级缓存并汇总命中统计
+ * 二级缓存的键带条目版本号（共享计数器），失效时递增版本，避免其他节点回源期间读到的旧行在失效后写入
+ */
+@Slf4j
+@Component
+public class NearCacheManager {
+    
+    private static final String KEY_PREFIX = "stall:entity:";
+    private static final String VERSION_KEY_PREFIX = "stall:entity-version:";
+    private static final String MESSAGE_TYPE = "entity";
+    
+    @Value("${cache.near.max-size:10000}")
+    private int maxSize;
+    
+    @Value("${cache.near.ttl:300}")
+    private long ttlSeconds;
+    
+    @Value("${cache.shared.entity-ttl:600}")
+    private long sharedTtlSeconds;
+    
+    private final SharedCache sharedCache;
+    private final CacheCodec cacheCodec;
+    private final Map<String, NearCache<?>> caches = new ConcurrentHashMap<>();
+    
+    public NearCacheManager(SharedCache sharedCache, CacheCodec cacheCodec) {
+        this.sharedCache = sharedCache;
+        this.cacheCodec = cacheCodec;
+        // 其他节点修改实体后广播 entity|缓存名|ID，只需清理本地副本
+        sharedCache.subscribe(message -> {
+            String[] parts = message.split("\\|", 3);
+            if (parts.length == 3 && MESSAGE_TYPE.equals(parts[0])) {
+                NearCache<?> cache = caches.get(parts[1]);
+                if (cache != null) {
+                    cache.invalidateLocal(parts[2]);
+                }
+            }
+        });
+    }
+    
+    public <V> NearCache<V> getCache(String name, Class<V> type) {
+        return getCache(name, type, v -> { });
+    }
+    
+    /**
+     * redactor 在写入共享二级缓存前处理副本，用于清除不应离开本进程的字段（如密码哈希）；本地缓存保存完整实体
+     */
+    @SuppressWarnings("unchecked")
+    public <V> NearCache<V> getCache(String name, Class<V> type, Consumer<V> redactor) {
+        return (NearCache<V>) caches.computeIfAbsent(name, n -> new NearCache<V>(n, maxSize, ttlSeconds * 1000,
+                v -> BeanUtil.copyProperties(v, type), new SharedSecondLevel<>(n, type, redactor)));
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        caches.values().forEach(cache -> stats.put(cache.getName(), cache.stats()));
+        return stats;
+    }
+    
+    private class SharedSecondLevel<V> implements NearCache.SecondLevel<V> {
+        
+        private final String name;
+        private final Class<V> type;
+        private final Consumer<V> redactor;
+        
+        SharedSecondLevel(String name, Class<V> type, Consumer<V> redactor) {
+            this.name = name;
+            this.type = type;
+            this.redactor = redactor;
+        }
+        
+        @Override
+        public long version(String key) {
+            return sharedCache.getCounter(versionKey(key));
+        }
+        
+        @Override
+        public V get(String key, long version) {
+            byte[] bytes = sharedCache.get(redisKey(key, version));
+            if (bytes == null) {
+                return null;
+            }
+            try {
+                return cacheCodec.decode(bytes, type);
+            } catch (UncheckedIOException e) {
+                // 实体结构变更后旧格式无法解析，当作未命中
+                log.warn("二级缓存数据无法解析，已忽略: {}", redisKey(key, version));
+                return null;
+            }
+        }
+        
+        @Override
+        public void put(String key, long version, V value) {
+            V shared = BeanUtil.copyProperties(value, type);
+            redactor.accept(shared);
+            sharedCache.set(redisKey(key, version), cacheCodec.encode(shared), sharedTtlSeconds);
+        }
+        
+        /**
+         * 递增版本而不是只删除：并发回源的节点拿着旧版本回填，写入的键不会再被读取
+         */
+        @Override
+        public void evict(String key) {
+            long version = sharedCache.incrementCounter(versionKey(key));
+            if (version > 0) {
+                sharedCache.delete(redisKey(key, version - 1));
+            }
+            sharedCache.publish(MESSAGE_TYPE + "|" + name + "|" + key);
+        }
+        
+        private String redisKey(String key, long version) {
+            return KEY_PREFIX + name + ":" + key + ":" + version;
+        }
+        
+        private String versionKey(String key) {
+            return VERSION_KEY_PREFIX + name + ":" + key;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package com.stall.platform.cache;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Redis实现的共享缓存
+ * Redis不可达时熔断一段时间，期间所有操作直接降级，避免每个请求都等待连接超时
+ */
+@Slf4j
+public class RedisSharedCache implements SharedCache, MessageListener {
+    
+    private static final String CHANNEL = "stall:cache:invalidate";
+    private static final String SEPARATOR = "|";
+    
+    private final RedisTemplate<String, byte[]> redisTemplate;
+    private final long retryIntervalMillis;
+    private final String nodeId = UUID.randomUUID().toString();
+    private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<>();
+    
+    private volatile long unavailableUntil;
+    
+    public RedisSharedCache(RedisTemplate<String, byte[]> redisTemplate, long retryIntervalMillis) {
+        this.redisTemplate = redisTemplate;
+        this.retryIntervalMillis = retryIntervalMillis;
+    }
+    
+    public void listenOn(RedisMessageListenerContainer container) {
+        container.addMessageListener(this, new ChannelTopic(CHANNEL));
+    }
+    
+    public boolean isAvailable() {
+        return System.currentTimeMillis() >= unavailableUntil;
+    }
+    
+    @Override
+    public byte[] get(String key) {
+        return execute(() -> redisTemplate.opsForValue().get(key), null);
+    }
+    
+    @Override
+    public void set(String key, byte[] value, long ttlSeconds) {
+        execute(() -> {
+            redisTemplate.opsForValue().set(key, value, ttlSeconds, TimeUnit.SECONDS);
+            return null;
+        }, null);
+    }
+    
+    @Override
+    public void delete(String key) {
+        execute(() -> redisTemplate.delete(key), null);
+    }
+    
+    @Override
+    public long getCounter(String key) {
+        byte[] value = get(key);
+        return value == null ? 0 : Long.parseLong(new String(value, StandardCharsets.UTF_8));
+    }
+    
+    @Override
+    public long incrementCounter(String key) {
+        Long value = execute(() -> redisTemplate.opsForValue().increment(key), null);
+        return value == null ? -1 : value;
+    }
+    
+    @Override
+    public void publish(String message) {
+        execute(() -> {
+            redisTemplate.convertAndSend(CHANNEL, (nodeId + SEPARATOR + message).getBytes(StandardCharsets.UTF_8));
+            return null;
+        }, null);
+    }
+    
+    @Override
+    public void subscribe(Consumer<String> listener) {
+        listeners.add(listener);
+    }
+    
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        int index = body.indexOf(SEPARATOR);
+        if (index < 0 || body.substring(0, index).equals(nodeId)) {
+            return;
+        }
+        String payload = body.substring(index + 1);
+        for (Consumer<String> listener : listeners) {
+            listener.accept(payload);
+        }
+    }
+    
+    private <T> T execute(Supplier<T> action, T fallback) {
+        if (!isAvailable()) {
+            return fallback;
+        }
+        try {
+            return action.get();
+        } catch (DataAccessException e) {
+            unavailableUntil = System.currentTimeMillis() + retryIntervalMillis;
+            log.warn("Redis不可用，{}ms内降级为直接查询数据库: {}", retryIntervalMillis, e.getMessage());
+            return fallback;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.stall.platform.cache;
+
+import java.util.function.Consumer;
+
+/**
+ * 多节点共享的二级缓存
+ * 实现必须吞掉后端异常：不可用时读返回null、写静默跳过，由调用方回源数据库
+ */
+public interface SharedCache {
+    
+    byte[] get(String key);
+    
+    void set(String key, byte[] value, long ttlSeconds);
+    
+    void delete(String key);
+    
+    /**
+     * 读取计数器，不存在或不可用时返回0
+     */
+    long getCounter(String key);
+    
+    /**
+     * 计数器加一并返回新值，不可用时返回-1
+     */
+    long incrementCounter(String key);
+    
+    /**
+     * 向其他节点广播失效消息，本节点不会收到自己发出的消息
+     */
+    void publish(String message);
+    
+    void subscribe(Consumer<String> listener);
+}
@@ -0,0 +1,31 @@
+package com.stall.platform.common;
+
+/**
+ * 分页总数统计方式
+ */
+public enum CountMode {
+    
+    /** 每次执行 COUNT(*)，结果精确 */
+    EXACT,
+    /** 按表+筛选条件缓存 COUNT 结果，表发生写入时失效 */
+    CACHED,
+    /** 无筛选条件时取表统计信息的估算行数，其余情况同 CACHED */
+    ESTIMATED,
+    /** 不统计总数，多查一条判断是否有下一页 */
+    NONE;
+    
+    /**
+     * 解析请求参数（忽略大小写），为空时使用 EXACT
+     */
+    public static CountMode of(String value) {
+        if (value == null || value.isBlank()) {
+            return EXACT;
+        }
+        for (CountMode mode : values()) {
+            if (mode.name().equalsIgnoreCase(value.trim())) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("不支持的count参数: " + value);
+    }
+}
@@ -0,0 +1,70 @@
+package com.stall.platform.common;
+
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+
+import java.util.List;
+
+/**
+ * 带统计方式的分页结果，在原有分页字段之外返回 countMode 和 hasMore
+ * NONE 方式下 total 只是已知下限，是否有下一页以 hasMore 为准
+ */
+public class CountedPage<T> extends Page<T> {
+    
+    private final CountMode countMode;
+    private Boolean hasMore;
+    
+    /**
+     * 探测模式：查询时多取一条，偏移量仍按原每页条数计算
+     */
+    private boolean probing;
+    
+    public CountedPage(long current, long size, CountMode countMode) {
+        super(current, size);
+        this.countMode = countMode;
+    }
+    
+    public String getCountMode() {
+        return countMode.name().toLowerCase();
+    }
+    
+    public Boolean getHasMore() {
+        return hasMore;
+    }
+    
+    public void setHasMore(Boolean hasMore) {
+        this.hasMore = hasMore;
+    }
+    
+    @Override
+    public long offset() {
+        if (!probing) {
+            return super.offset();
+        }
+        long current = getCurrent();
+        return current <= 1 ? 0L : (current - 1) * (getSize() - 1);
+    }
+    
+    /**
+     * 开始探测查询：每页条数临时加一
+     */
+    public void beginProbe() {
+        setSearchCount(false);
+        probing = true;
+        setSize(getSize() + 1);
+    }
+    
+    /**
+     * 结束探测查询：恢复每页条数，截掉多取的一条并据此设置 hasMore
+     */
+    public void endProbe() {
+        probing = false;
+        setSize(getSize() - 1);
+        List<T> records = getRecords();
+        boolean more = records.size() > getSize();
+        if (more) {
+            setRecords(records.subList(0, (int) getSize()));
+        }
+        setHasMore(more);
+        setTotal(offset() + getRecords().size() + (more ? 1 : 0));
+    }
+}
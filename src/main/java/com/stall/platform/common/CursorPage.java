@@ -0,0 +1,48 @@
+package com.stall.platform.common;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 游标分页结果，不返回总数；hasMore为false时没有下一页
+ */
+@Data
+public class CursorPage<T> {
+    
+    /**
+     * 单页最大条数，超过按最大值返回
+     */
+    public static final int MAX_PAGE_SIZE = 100;
+    public static final int DEFAULT_PAGE_SIZE = 10;
+    
+    private List<T> records;
+    private String nextCursor;
+    private Boolean hasMore;
+    
+    /**
+     * 把请求的每页条数限制在 [1, MAX_PAGE_SIZE]，未指定时取默认值
+     */
+    public static int clampSize(Integer pageSize) {
+        return pageSize == null ? DEFAULT_PAGE_SIZE : Math.min(Math.max(pageSize, 1), MAX_PAGE_SIZE);
+    }
+    
+    /**
+     * 由多查一条的结果构造：rows最多 size+1 条，多出的一条只用于判断是否还有下一页
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int size,
+                                       Function<T, LocalDateTime> timeGetter, Function<T, Long> idGetter) {
+        CursorPage<T> page = new CursorPage<>();
+        boolean hasMore = rows.size() > size;
+        List<T> records = hasMore ? rows.subList(0, size) : rows;
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            T last = records.get(records.size() - 1);
+            page.setNextCursor(new PageCursor(timeGetter.apply(last), idGetter.apply(last)).encode());
+        }
+        return page;
+    }
+}
@@ -1,10 +1,15 @@
 package com.stall.platform.common;
 
+import com.stall.platform.security.LoginBusyException;
+import com.stall.platform.service.support.StallStatusConflictException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.validation.BindException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
 @RestControllerAdvice
@@ -25,6 +30,19 @@ public class GlobalExceptionHandler {
         return Result.error("用户名或密码错误");
     }
     
+    @ExceptionHandler(LoginBusyException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public Result<?> handleLoginBusyException(LoginBusyException e, HttpServletResponse response) {
+        response.setHeader("Retry-After", "1");
+        return Result.error(503, e.getMessage());
+    }
+    
+    @ExceptionHandler(StallStatusConflictException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public Result<?> handleStallStatusConflictException(StallStatusConflictException e) {
+        return Result.error(409, e.getMessage());
+    }
+    
     // 不在这里处理AccessDeniedException，让Spring Security的accessDeniedHandler处理
     // 以便返回HTTP 403状态码
     
@@ -0,0 +1,61 @@
+package com.stall.platform.config;
+
+import com.stall.platform.cache.CacheCodec;
+import com.stall.platform.cache.LocalSharedCache;
+import com.stall.platform.cache.RedisSharedCache;
+import com.stall.platform.cache.SharedCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializer;
+
+@Configuration
+public class CacheConfig {
+    
+    /**
+     * 缓存值编解码器
+     */
+    @Bean
+    public CacheCodec cacheCodec(@Value("${cache.shared.compress-threshold:512}") int compressThreshold) {
+        return new CacheCodec(compressThreshold);
+    }
+    
+    /**
+     * 共享二级缓存：开启Redis且存在连接工厂时使用Redis，否则退化为进程内替身
+     */
+    @Bean
+    public SharedCache sharedCache(ObjectProvider<RedisConnectionFactory> connectionFactoryProvider,
+                                   @Value("${cache.shared.redis-enabled:false}") boolean redisEnabled,
+                                   @Value("${cache.shared.retry-interval:30}") long retryIntervalSeconds) {
+        RedisConnectionFactory connectionFactory = connectionFactoryProvider.getIfAvailable();
+        if (!redisEnabled || connectionFactory == null) {
+            return new LocalSharedCache();
+        }
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        return new RedisSharedCache(template, retryIntervalSeconds * 1000);
+    }
+    
+    /**
+     * 订阅其他节点的缓存失效广播
+     */
+    @Bean
+    @ConditionalOnProperty(name = "cache.shared.redis-enabled", havingValue = "true")
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory connectionFactory,
+                                                                           SharedCache sharedCache) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        if (sharedCache instanceof RedisSharedCache redisSharedCache) {
+            redisSharedCache.listenOn(container);
+        }
+        return container;
+    }
+}
@@ -0,0 +1,62 @@
+package com.stall.platform.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 接口限流配置
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+    
+    private boolean enabled = true;
+    
+    /**
+     * 令牌桶数量上限，超过后先清理空闲桶，仍超过时新来源共用一个溢出桶
+     */
+    private int maxBuckets = 100000;
+    
+    /**
+     * 空闲多久（秒）且令牌已回满的桶可以清理
+     */
+    private long idleTimeout = 600;
+    
+    private List<Rule> rules = new ArrayList<>();
+    
+    @Data
+    public static class Rule {
+        
+        private String name;
+        
+        /**
+         * Ant风格路径（不含context-path）
+         */
+        private String path;
+        
+        /**
+         * HTTP方法，为空时不限
+         */
+        private String method;
+        
+        /**
+         * 限流维度：ip 或 user（未登录时按ip）
+         */
+        private String key = "ip";
+        
+        /**
+         * 桶容量，即允许的突发请求数
+         */
+        private int capacity = 10;
+        
+        /**
+         * 每分钟补充的令牌数
+         */
+        private double refillPerMinute = 10;
+    }
+}
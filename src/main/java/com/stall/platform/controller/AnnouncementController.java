@@ -1,6 +1,8 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.Announcement;
 import com.stall.platform.security.LoginUser;
@@ -42,11 +44,14 @@ public class AnnouncementController {
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
             @RequestParam(required = false) Integer type,
-            @RequestParam(required = false) Integer status) {
-        IPage<Announcement> page = announcementService.pageList(pageNum, pageSize, type, status);
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String count) {
+        IPage<Announcement> page = announcementService.pageList(pageNum, pageSize, type, status,
+                CountMode.of(count));
         return Result.success(page);
     }
     
+    @OperationLog("新增公告")
     @PostMapping("/admin")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> publish(@RequestBody Announcement announcement) {
@@ -59,6 +64,7 @@ public class AnnouncementController {
         return success ? Result.success("发布成功") : Result.error("发布失败");
     }
     
+    @OperationLog("修改公告")
     @PutMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> update(@PathVariable Long id, @RequestBody Announcement announcement) {
@@ -67,6 +73,7 @@ public class AnnouncementController {
         return success ? Result.success("更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("修改公告状态")
     @PutMapping("/admin/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updateStatus(@PathVariable Long id, @RequestParam Integer status) {
@@ -74,6 +81,7 @@ public class AnnouncementController {
         return success ? Result.success("状态更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("删除公告")
     @DeleteMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> delete(@PathVariable Long id) {
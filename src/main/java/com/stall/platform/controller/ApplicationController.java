@@ -1,6 +1,8 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.StallApplication;
 import com.stall.platform.security.LoginUser;
@@ -11,6 +13,8 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/application")
 public class ApplicationController {
@@ -21,6 +25,7 @@ public class ApplicationController {
         this.applicationService = applicationService;
     }
     
+    @OperationLog("提交摊位申请")
     @PostMapping("/submit")
     public Result<?> submit(@RequestBody StallApplication application) {
         LoginUser loginUser = getCurrentUser();
@@ -55,6 +60,7 @@ public class ApplicationController {
         return Result.error("申请不存在");
     }
     
+    @OperationLog("取消摊位申请")
     @DeleteMapping("/{id}")
     public Result<?> cancel(@PathVariable Long id) {
         LoginUser loginUser = getCurrentUser();
@@ -72,11 +78,14 @@ public class ApplicationController {
     public Result<?> adminList(
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
-            @RequestParam(required = false) Integer status) {
-        IPage<StallApplication> page = applicationService.pageListForAdmin(pageNum, pageSize, status);
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String count) {
+        IPage<StallApplication> page = applicationService.pageListForAdmin(pageNum, pageSize, status,
+                CountMode.of(count));
         return Result.success(page);
     }
     
+    @OperationLog("审核摊位申请")
     @PutMapping("/admin/{id}/review")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> review(@PathVariable Long id, @RequestBody ReviewDTO reviewDTO) {
@@ -89,6 +98,17 @@ public class ApplicationController {
         return success ? Result.success("审核完成") : Result.error("审核失败");
     }
     
+    @OperationLog("批量审核摊位申请")
+    @PutMapping("/admin/review/batch")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> reviewBatch(@RequestBody List<StallApplicationService.ReviewItem> items) {
+        LoginUser loginUser = getCurrentUser();
+        if (loginUser == null) {
+            return Result.error(401, "未登录");
+        }
+        return Result.success(applicationService.reviewBatch(items, loginUser.getUserId()));
+    }
+    
     private LoginUser getCurrentUser() {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication != null && authentication.getPrincipal() instanceof LoginUser) {
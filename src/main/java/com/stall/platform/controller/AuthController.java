@@ -1,13 +1,15 @@
 package com.stall.platform.controller;
 
+import com.stall.platform.annotation.OperationLog;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.User;
+import com.stall.platform.security.JwtClaims;
 import com.stall.platform.security.JwtUtil;
+import com.stall.platform.security.LoginProcessor;
 import com.stall.platform.security.LoginUser;
+import com.stall.platform.security.TokenRevocationStore;
 import com.stall.platform.service.UserService;
 import lombok.Data;
-import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -20,25 +22,25 @@ import java.util.Map;
 @RequestMapping("/auth")
 public class AuthController {
     
-    private final AuthenticationManager authenticationManager;
+    private final LoginProcessor loginProcessor;
     private final JwtUtil jwtUtil;
     private final UserService userService;
+    private final TokenRevocationStore revocationStore;
     
-    public AuthController(AuthenticationManager authenticationManager, JwtUtil jwtUtil, 
-                          UserService userService) {
-        this.authenticationManager = authenticationManager;
+    public AuthController(LoginProcessor loginProcessor, JwtUtil jwtUtil, 
+                          UserService userService, TokenRevocationStore revocationStore) {
+        this.loginProcessor = loginProcessor;
         this.jwtUtil = jwtUtil;
         this.userService = userService;
+        this.revocationStore = revocationStore;
     }
     
+    @OperationLog("用户登录")
     @PostMapping("/login")
     public Result<?> login(@RequestBody LoginDTO loginDTO) {
         try {
-            Authentication authentication = authenticationManager.authenticate(
-                    new UsernamePasswordAuthenticationToken(loginDTO.getUsername(), loginDTO.getPassword())
-            );
-            
-            User user = userService.findByUsername(loginDTO.getUsername());
+            // 繁忙时抛出的 LoginBusyException 由全局异常处理返回503
+            User user = loginProcessor.authenticate(loginDTO.getUsername(), loginDTO.getPassword());
             String token = jwtUtil.generateToken(user.getUsername(), user.getId(), user.getRole());
             
             Map<String, Object> data = new HashMap<>();
@@ -54,6 +56,7 @@ public class AuthController {
         }
     }
     
+    @OperationLog("用户注册")
     @PostMapping("/register")
     public Result<?> register(@RequestBody RegisterDTO registerDTO) {
         User user = new User();
@@ -69,8 +72,27 @@ public class AuthController {
         return Result.error("用户名已存在");
     }
     
+    @GetMapping("/check-username")
+    public Result<?> checkUsername(@RequestParam String username) {
+        if (username.isBlank()) {
+            throw new IllegalArgumentException("用户名不能为空");
+        }
+        Map<String, Object> data = new HashMap<>();
+        data.put("username", username);
+        data.put("available", userService.isUsernameAvailable(username));
+        return Result.success(data);
+    }
+    
+    @OperationLog("用户登出")
     @PostMapping("/logout")
-    public Result<?> logout() {
+    public Result<?> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        // 吊销当前Token，此后在有效期内也不能再使用
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            JwtClaims claims = jwtUtil.verify(authorization.substring(7));
+            if (claims != null) {
+                revocationStore.revokeToken(claims);
+            }
+        }
         SecurityContextHolder.clearContext();
         return Result.success("登出成功");
     }
@@ -89,6 +111,7 @@ public class AuthController {
         return Result.error(401, "未登录");
     }
     
+    @OperationLog("修改密码")
     @PutMapping("/password")
     public Result<?> updatePassword(@RequestBody PasswordDTO passwordDTO) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -0,0 +1,40 @@
+package com.stall.platform.controller;
+
+import com.stall.platform.cache.NearCacheManager;
+import com.stall.platform.common.Result;
+import com.stall.platform.service.StallTypeService;
+import com.stall.platform.service.support.StallTypeCatalog;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/cache")
+public class CacheController {
+    
+    private final NearCacheManager nearCacheManager;
+    private final StallTypeService stallTypeService;
+    
+    public CacheController(NearCacheManager nearCacheManager, StallTypeService stallTypeService) {
+        this.nearCacheManager = nearCacheManager;
+        this.stallTypeService = stallTypeService;
+    }
+    
+    // ========== 管理员接口 ==========
+    
+    @GetMapping("/admin/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> stats() {
+        Map<String, Object> stats = nearCacheManager.stats();
+        StallTypeCatalog catalog = stallTypeService.catalog();
+        Map<String, Object> catalogStats = new LinkedHashMap<>();
+        catalogStats.put("version", catalog.version());
+        catalogStats.put("size", catalog.size());
+        stats.put("stallTypeCatalog", catalogStats);
+        return Result.success(stats);
+    }
+}
@@ -1,6 +1,8 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.Feedback;
 import com.stall.platform.security.LoginUser;
@@ -21,6 +23,7 @@ public class FeedbackController {
         this.feedbackService = feedbackService;
     }
     
+    @OperationLog("提交反馈")
     @PostMapping("/submit")
     public Result<?> submit(@RequestBody Feedback feedback) {
         LoginUser loginUser = getCurrentUser();
@@ -37,11 +40,16 @@ public class FeedbackController {
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
             @RequestParam(required = false) Integer type,
-            @RequestParam(required = false) Integer status) {
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String cursor) {
         LoginUser loginUser = getCurrentUser();
         if (loginUser == null) {
             return Result.error(401, "未登录");
         }
+        // 传入cursor（第一页传空串）时使用游标分页
+        if (cursor != null) {
+            return Result.success(feedbackService.cursorList(cursor, pageSize, loginUser.getUserId(), type, status));
+        }
         IPage<Feedback> page = feedbackService.pageList(pageNum, pageSize, 
                 loginUser.getUserId(), type, status);
         return Result.success(page);
@@ -64,11 +72,18 @@ public class FeedbackController {
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
             @RequestParam(required = false) Integer type,
-            @RequestParam(required = false) Integer status) {
-        IPage<Feedback> page = feedbackService.pageListForAdmin(pageNum, pageSize, type, status);
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count) {
+        if (cursor != null) {
+            return Result.success(feedbackService.cursorList(cursor, pageSize, null, type, status));
+        }
+        IPage<Feedback> page = feedbackService.pageListForAdmin(pageNum, pageSize, type, status,
+                CountMode.of(count));
         return Result.success(page);
     }
     
+    @OperationLog("回复反馈")
     @PutMapping("/admin/{id}/reply")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> reply(@PathVariable Long id, @RequestBody ReplyDTO replyDTO) {
@@ -80,6 +95,7 @@ public class FeedbackController {
         return success ? Result.success("回复成功") : Result.error("回复失败");
     }
     
+    @OperationLog("修改反馈状态")
     @PutMapping("/admin/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updateStatus(@PathVariable Long id, @RequestParam Integer status) {
@@ -1,6 +1,8 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.HygieneInspection;
 import com.stall.platform.security.LoginUser;
@@ -25,8 +27,10 @@ public class HygieneInspectionController {
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
             @RequestParam(required = false) Long stallId,
-            @RequestParam(required = false) String result) {
-        IPage<HygieneInspection> page = hygieneInspectionService.pageList(pageNum, pageSize, stallId, result);
+            @RequestParam(required = false) String result,
+            @RequestParam(required = false) String count) {
+        IPage<HygieneInspection> page = hygieneInspectionService.pageList(pageNum, pageSize, stallId, result,
+                CountMode.of(count));
         return Result.success(page);
     }
     
@@ -41,6 +45,7 @@ public class HygieneInspectionController {
     
     // ========== 管理员接口 ==========
     
+    @OperationLog("新增卫生检查")
     @PostMapping("/admin")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> add(@RequestBody HygieneInspection inspection) {
@@ -53,6 +58,7 @@ public class HygieneInspectionController {
         return success ? Result.success("添加成功") : Result.error("添加失败");
     }
     
+    @OperationLog("修改卫生检查")
     @PutMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> update(@PathVariable Long id, @RequestBody HygieneInspection inspection) {
@@ -61,6 +67,7 @@ public class HygieneInspectionController {
         return success ? Result.success("更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("登记整改")
     @PutMapping("/admin/{id}/rectification")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updateRectification(@PathVariable Long id, @RequestParam Integer status) {
@@ -68,6 +75,7 @@ public class HygieneInspectionController {
         return success ? Result.success("状态更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("删除卫生检查")
     @DeleteMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> delete(@PathVariable Long id) {
@@ -0,0 +1,87 @@
+package com.stall.platform.controller;
+
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.Result;
+import com.stall.platform.entity.BillingRun;
+import com.stall.platform.security.LoginUser;
+import com.stall.platform.service.RentalInvoiceService;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
+
+@RestController
+@RequestMapping("/invoice")
+public class InvoiceController {
+    
+    private final RentalInvoiceService invoiceService;
+    
+    public InvoiceController(RentalInvoiceService invoiceService) {
+        this.invoiceService = invoiceService;
+    }
+    
+    @GetMapping("/my")
+    public Result<?> myList(
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String period,
+            @RequestParam(required = false) Integer status) {
+        LoginUser loginUser = getCurrentUser();
+        if (loginUser == null) {
+            return Result.error(401, "未登录");
+        }
+        return Result.success(invoiceService.pageList(pageNum, pageSize, loginUser.getUserId(), period, status));
+    }
+    
+    // ========== 管理员接口 ==========
+    
+    @GetMapping("/admin/list")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> adminList(
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String period,
+            @RequestParam(required = false) Long rentalId,
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String count) {
+        return Result.success(invoiceService.pageListForAdmin(pageNum, pageSize, period, rentalId, status,
+                CountMode.of(count)));
+    }
+    
+    /**
+     * 后台生成账期（yyyy-MM）账单，返回批次状态；重复调用不会重复生成，失败或中断的批次从断点继续
+     */
+    @OperationLog("生成月度账单")
+    @PostMapping("/admin/billing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> startBilling(@RequestParam String period) {
+        return Result.success(invoiceService.startBilling(parsePeriod(period)));
+    }
+    
+    @GetMapping("/admin/billing")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> billingProgress(@RequestParam String period) {
+        BillingRun run = invoiceService.getBillingRun(parsePeriod(period));
+        return run != null ? Result.success(run) : Result.error("该账期尚未生成账单");
+    }
+    
+    private static YearMonth parsePeriod(String period) {
+        try {
+            return YearMonth.parse(period);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("账期格式应为 yyyy-MM");
+        }
+    }
+    
+    private LoginUser getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof LoginUser) {
+            return (LoginUser) authentication.getPrincipal();
+        }
+        return null;
+    }
+}
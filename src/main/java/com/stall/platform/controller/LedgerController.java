@@ -0,0 +1,91 @@
+package com.stall.platform.controller;
+
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.Result;
+import com.stall.platform.security.LoginUser;
+import com.stall.platform.service.LedgerService;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/ledger")
+public class LedgerController {
+    
+    private final LedgerService ledgerService;
+    
+    public LedgerController(LedgerService ledgerService) {
+        this.ledgerService = ledgerService;
+    }
+    
+    /**
+     * 我的余额：应付未付的租金和押金、已付未退的押金；传 at 时返回该时刻的余额
+     */
+    @GetMapping("/my/balance")
+    public Result<?> myBalance(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        LoginUser loginUser = getCurrentUser();
+        if (loginUser == null) {
+            return Result.error(401, "未登录");
+        }
+        return Result.success(balance(loginUser.getUserId(), at));
+    }
+    
+    @GetMapping("/my/entries")
+    public Result<?> myEntries(
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) Long rentalId) {
+        LoginUser loginUser = getCurrentUser();
+        if (loginUser == null) {
+            return Result.error(401, "未登录");
+        }
+        return Result.success(ledgerService.pageEntries(pageNum, pageSize, loginUser.getUserId(), rentalId));
+    }
+    
+    // ========== 管理员接口 ==========
+    
+    @GetMapping("/admin/balance/{userId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> adminBalance(
+            @PathVariable Long userId,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        return Result.success(balance(userId, at));
+    }
+    
+    @GetMapping("/admin/entries")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> adminEntries(
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) Long rentalId) {
+        return Result.success(ledgerService.pageEntries(pageNum, pageSize, userId, rentalId));
+    }
+    
+    /**
+     * 退还已结束租赁的押金，返回退还金额；未收的押金一并核销
+     */
+    @OperationLog("退还押金")
+    @PostMapping("/admin/rental/{rentalId}/refund-deposit")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> refundDeposit(@PathVariable Long rentalId) {
+        return Result.success(ledgerService.refundDeposit(rentalId));
+    }
+    
+    private LedgerService.TenantBalance balance(Long userId, LocalDateTime at) {
+        return at == null ? ledgerService.getBalance(userId) : ledgerService.getBalanceAt(userId, at);
+    }
+    
+    private LoginUser getCurrentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof LoginUser) {
+            return (LoginUser) authentication.getPrincipal();
+        }
+        return null;
+    }
+}
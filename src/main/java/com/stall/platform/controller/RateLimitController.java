@@ -0,0 +1,27 @@
+package com.stall.platform.controller;
+
+import com.stall.platform.common.Result;
+import com.stall.platform.security.RateLimitFilter;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/rate-limit")
+public class RateLimitController {
+    
+    private final RateLimitFilter rateLimitFilter;
+    
+    public RateLimitController(RateLimitFilter rateLimitFilter) {
+        this.rateLimitFilter = rateLimitFilter;
+    }
+    
+    // ========== 管理员接口 ==========
+    
+    @GetMapping("/admin/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> stats() {
+        return Result.success(rateLimitFilter.stats());
+    }
+}
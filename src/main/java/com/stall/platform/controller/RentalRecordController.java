@@ -1,6 +1,8 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.RentalRecord;
 import com.stall.platform.security.LoginUser;
@@ -9,6 +11,14 @@ import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
 
 @RestController
 @RequestMapping("/rental")
@@ -23,11 +33,16 @@ public class RentalRecordController {
     @GetMapping("/my")
     public Result<?> myList(
             @RequestParam(defaultValue = "1") Integer pageNum,
-            @RequestParam(defaultValue = "10") Integer pageSize) {
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) String cursor) {
         LoginUser loginUser = getCurrentUser();
         if (loginUser == null) {
             return Result.error(401, "未登录");
         }
+        // 传入cursor（第一页传空串）时使用游标分页
+        if (cursor != null) {
+            return Result.success(rentalRecordService.cursorList(cursor, pageSize, loginUser.getUserId(), null, null));
+        }
         IPage<RentalRecord> page = rentalRecordService.pageList(pageNum, pageSize, 
                 loginUser.getUserId(), null);
         return Result.success(page);
@@ -50,11 +65,18 @@ public class RentalRecordController {
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
             @RequestParam(required = false) Long stallId,
-            @RequestParam(required = false) Integer status) {
-        IPage<RentalRecord> page = rentalRecordService.pageListForAdmin(pageNum, pageSize, stallId, status);
+            @RequestParam(required = false) Integer status,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count) {
+        if (cursor != null) {
+            return Result.success(rentalRecordService.cursorList(cursor, pageSize, null, stallId, status));
+        }
+        IPage<RentalRecord> page = rentalRecordService.pageListForAdmin(pageNum, pageSize, stallId, status,
+                CountMode.of(count));
         return Result.success(page);
     }
     
+    @OperationLog("登记缴费")
     @PutMapping("/admin/{id}/payment")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updatePayment(@PathVariable Long id, @RequestParam Integer paymentStatus) {
@@ -62,6 +84,31 @@ public class RentalRecordController {
         return success ? Result.success("支付状态更新成功") : Result.error("更新失败");
     }
     
+    /**
+     * 导入银行流水 CSV 批量对账，表头需包含参考号列和金额列；charset 默认 UTF-8，网银导出的文件多为 GBK
+     */
+    @OperationLog("银行流水对账")
+    @PostMapping("/admin/payment/reconcile")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> reconcilePayments(@RequestParam("file") MultipartFile file,
+                                       @RequestParam(defaultValue = "UTF-8") String charset) {
+        if (file.isEmpty()) {
+            return Result.error(400, "请上传流水文件");
+        }
+        Charset encoding;
+        try {
+            encoding = Charset.forName(charset);
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            throw new IllegalArgumentException("不支持的文件编码: " + charset);
+        }
+        try (Reader reader = new InputStreamReader(file.getInputStream(), encoding)) {
+            return Result.success(rentalRecordService.reconcilePayments(reader));
+        } catch (IOException e) {
+            return Result.error("读取流水文件失败: " + e.getMessage());
+        }
+    }
+    
+    @OperationLog("终止租赁")
     @PutMapping("/admin/{id}/terminate")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> terminate(@PathVariable Long id) {
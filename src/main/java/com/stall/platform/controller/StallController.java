@@ -1,12 +1,16 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.Stall;
 import com.stall.platform.service.StallService;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+
 @RestController
 @RequestMapping("/stall")
 public class StallController {
@@ -28,6 +32,23 @@ public class StallController {
         return Result.success(page);
     }
     
+    @GetMapping("/nearby")
+    public Result<?> nearby(
+            @RequestParam Double lat,
+            @RequestParam Double lng,
+            @RequestParam(required = false) Double radius,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) Long typeId,
+            @RequestParam(required = false) Integer status) {
+        if (radius != null && !(radius > 0)) {
+            throw new IllegalArgumentException("半径必须大于0");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("数量必须大于0");
+        }
+        return Result.success(stallService.listNearby(lat, lng, radius, limit, typeId, status));
+    }
+    
     @GetMapping("/{id}")
     public Result<?> getById(@PathVariable Long id) {
         Stall stall = stallService.getDetailById(id);
@@ -42,8 +63,32 @@ public class StallController {
         return Result.success(stallService.listAvailable());
     }
     
+    /**
+     * 指定日期范围内可租的摊位，按ID游标分页；includePending=true 时有待审核申请的摊位也排除
+     */
+    @GetMapping("/free")
+    public Result<?> listFree(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(required = false) Long typeId,
+            @RequestParam(defaultValue = "false") boolean includePending,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "10") Integer pageSize) {
+        return Result.success(stallService.listFree(startDate, endDate, typeId, includePending, cursor, pageSize));
+    }
+    
+    @GetMapping("/{id}/free")
+    public Result<?> isFree(
+            @PathVariable Long id,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate startDate,
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate endDate,
+            @RequestParam(defaultValue = "false") boolean includePending) {
+        return Result.success(stallService.isFree(id, startDate, endDate, includePending));
+    }
+    
     // ========== 管理员接口 ==========
     
+    @OperationLog("新增摊位")
     @PostMapping("/admin")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> add(@RequestBody Stall stall) {
@@ -52,14 +97,18 @@ public class StallController {
         return success ? Result.success("添加成功") : Result.error("添加失败");
     }
     
+    @OperationLog("修改摊位")
     @PutMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> update(@PathVariable Long id, @RequestBody Stall stall) {
         stall.setId(id);
+        // 状态只能通过状态接口或申请/租赁流程按状态机转换
+        stall.setStatus(null);
         boolean success = stallService.updateById(stall);
         return success ? Result.success("更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("修改摊位状态")
     @PutMapping("/admin/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updateStatus(@PathVariable Long id, @RequestParam Integer status) {
@@ -67,6 +116,7 @@ public class StallController {
         return success ? Result.success("状态更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("删除摊位")
     @DeleteMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> delete(@PathVariable Long id) {
@@ -1,5 +1,6 @@
 package com.stall.platform.controller;
 
+import com.stall.platform.annotation.OperationLog;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.StallType;
 import com.stall.platform.service.StallTypeService;
@@ -32,6 +33,7 @@ public class StallTypeController {
     
     // ========== 管理员接口 ==========
     
+    @OperationLog("新增摊位类型")
     @PostMapping("/admin")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> add(@RequestBody StallType stallType) {
@@ -39,6 +41,7 @@ public class StallTypeController {
         return success ? Result.success("添加成功") : Result.error("添加失败");
     }
     
+    @OperationLog("修改摊位类型")
     @PutMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> update(@PathVariable Long id, @RequestBody StallType stallType) {
@@ -47,6 +50,7 @@ public class StallTypeController {
         return success ? Result.success("更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("删除摊位类型")
     @DeleteMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> delete(@PathVariable Long id) {
@@ -0,0 +1,74 @@
+package com.stall.platform.controller;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.Result;
+import com.stall.platform.entity.SystemLog;
+import com.stall.platform.service.SystemLogService;
+import com.stall.platform.service.support.SystemLogWriter;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+
+@RestController
+@RequestMapping("/log")
+public class SystemLogController {
+    
+    private final SystemLogService systemLogService;
+    private final SystemLogWriter systemLogWriter;
+    
+    public SystemLogController(SystemLogService systemLogService, SystemLogWriter systemLogWriter) {
+        this.systemLogService = systemLogService;
+        this.systemLogWriter = systemLogWriter;
+    }
+    
+    // ========== 管理员接口 ==========
+    
+    @GetMapping("/admin/list")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> adminList(
+            @RequestParam(defaultValue = "1") Integer pageNum,
+            @RequestParam(defaultValue = "10") Integer pageSize,
+            @RequestParam(required = false) Long userId,
+            @RequestParam(required = false) String operation,
+            @RequestParam(required = false) String operationPrefix,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) String count) {
+        // operation 精确匹配、operationPrefix 前缀匹配；日志量大，深翻页建议传入cursor（第一页传空串）使用游标分页；带时间范围可只扫描相关月份分区
+        if (cursor != null) {
+            return Result.success(systemLogService.cursorList(cursor, pageSize, userId, operation, operationPrefix,
+                    startTime, endTime));
+        }
+        IPage<SystemLog> page = systemLogService.pageList(pageNum, pageSize, userId, operation, operationPrefix,
+                startTime, endTime, CountMode.of(count));
+        return Result.success(page);
+    }
+    
+    /**
+     * 耗时分析：p50/p90/p99/最大耗时与调用次数，groupBy=operation|method，按p99降序
+     */
+    @GetMapping("/admin/latency")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> latency(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime startTime,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime endTime,
+            @RequestParam(defaultValue = "operation") String groupBy,
+            @RequestParam(required = false) String operation,
+            @RequestParam(required = false) String operationPrefix,
+            @RequestParam(defaultValue = "50") Integer limit) {
+        return Result.success(systemLogService.latency(startTime, endTime, groupBy, operation, operationPrefix, limit));
+    }
+    
+    /**
+     * 日志写入队列状态：积压、丢弃、写入失败数量
+     */
+    @GetMapping("/admin/writer-stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public Result<?> writerStats() {
+        return Result.success(systemLogWriter.stats());
+    }
+}
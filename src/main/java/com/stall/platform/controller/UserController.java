@@ -1,9 +1,12 @@
 package com.stall.platform.controller;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.annotation.OperationLog;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.common.Result;
 import com.stall.platform.entity.User;
 import com.stall.platform.security.LoginUser;
+import com.stall.platform.security.TokenRevocationStore;
 import com.stall.platform.service.UserService;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -15,9 +18,11 @@ import org.springframework.web.bind.annotation.*;
 public class UserController {
     
     private final UserService userService;
+    private final TokenRevocationStore revocationStore;
     
-    public UserController(UserService userService) {
+    public UserController(UserService userService, TokenRevocationStore revocationStore) {
         this.userService = userService;
+        this.revocationStore = revocationStore;
     }
     
     @GetMapping("/profile")
@@ -34,6 +39,7 @@ public class UserController {
         return Result.error(401, "未登录");
     }
     
+    @OperationLog("修改个人信息")
     @PutMapping("/profile")
     public Result<?> updateProfile(@RequestBody User user) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
@@ -56,8 +62,9 @@ public class UserController {
             @RequestParam(defaultValue = "1") Integer pageNum,
             @RequestParam(defaultValue = "10") Integer pageSize,
             @RequestParam(required = false) String keyword,
-            @RequestParam(required = false) String role) {
-        IPage<User> page = userService.pageList(pageNum, pageSize, keyword, role);
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String count) {
+        IPage<User> page = userService.pageList(pageNum, pageSize, keyword, role, CountMode.of(count));
         // 清除密码信息
         page.getRecords().forEach(u -> u.setPassword(null));
         return Result.success(page);
@@ -74,6 +81,7 @@ public class UserController {
         return Result.error("用户不存在");
     }
     
+    @OperationLog("修改用户")
     @PutMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updateUser(@PathVariable Long id, @RequestBody User user) {
@@ -83,6 +91,7 @@ public class UserController {
         return success ? Result.success("更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("重置密码")
     @PutMapping("/admin/{id}/reset-password")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> resetPassword(@PathVariable Long id) {
@@ -90,6 +99,7 @@ public class UserController {
         return success ? Result.success("密码已重置为123456") : Result.error("重置失败");
     }
     
+    @OperationLog("修改用户状态")
     @PutMapping("/admin/{id}/status")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> updateStatus(@PathVariable Long id, @RequestParam Integer status) {
@@ -97,13 +107,21 @@ public class UserController {
         user.setId(id);
         user.setStatus(status);
         boolean success = userService.updateById(user);
+        if (success && !Integer.valueOf(1).equals(status)) {
+            // 禁用后已签发的Token立即失效
+            revocationStore.revokeUser(id);
+        }
         return success ? Result.success("状态更新成功") : Result.error("更新失败");
     }
     
+    @OperationLog("删除用户")
     @DeleteMapping("/admin/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public Result<?> deleteUser(@PathVariable Long id) {
         boolean success = userService.removeById(id);
+        if (success) {
+            revocationStore.revokeUser(id);
+        }
         return success ? Result.success("删除成功") : Result.error("删除失败");
     }
 }
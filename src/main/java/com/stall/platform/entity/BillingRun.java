@@ -0,0 +1,44 @@
+package com.stall.platform.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("billing_run")
+public class BillingRun {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    private String period; // 账期 yyyy-MM
+    
+    private Integer status; // 0-执行中 1-已完成 2-失败
+    
+    /**
+     * 开始时统计的待计费租赁记录数，用于显示进度
+     */
+    private Long totalCount;
+    
+    private Long processedCount;
+    
+    private Long invoiceCount;
+    
+    /**
+     * 断点：已提交批次中最大的租赁记录ID，续跑时从其后继续
+     */
+    private Long lastRentalId;
+    
+    /**
+     * 当前执行者的令牌，创建或接管时更换；进度和状态更新都以它为条件
+     */
+    private String claimToken;
+    
+    private String errorMessage;
+    
+    private LocalDateTime startTime;
+    
+    private LocalDateTime finishTime;
+    
+    private LocalDateTime updateTime;
+}
@@ -0,0 +1,38 @@
+package com.stall.platform.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * 账务分录（只追加，不修改不删除）
+ */
+@Data
+@TableName("ledger_entry")
+public class LedgerEntry {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 凭证ID，同一笔业务的分录相同且借贷相等
+     */
+    private Long journalId;
+    
+    private Long userId;
+    
+    private Long stallId;
+    
+    private Long rentalId;
+    
+    private String account;
+    
+    private BigDecimal amount; // 借方为正，贷方为负
+    
+    private String entryType;
+    
+    private String reference;
+    
+    private LocalDateTime createTime;
+}
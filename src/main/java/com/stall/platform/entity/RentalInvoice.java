@@ -0,0 +1,44 @@
+package com.stall.platform.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("rental_invoice")
+public class RentalInvoice {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    private String invoiceNo;
+    
+    private Long rentalId;
+    
+    private Long userId;
+    
+    private Long stallId;
+    
+    private String period; // 账期 yyyy-MM
+    
+    private LocalDate periodStart;
+    
+    private LocalDate periodEnd;
+    
+    private BigDecimal amount;
+    
+    private Integer status; // 0-未支付 1-已支付
+    
+    private Long billingRunId;
+    
+    @TableLogic
+    private Integer deleted;
+    
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+    
+    @TableField(fill = FieldFill.INSERT_UPDATE)
+    private LocalDateTime updateTime;
+}
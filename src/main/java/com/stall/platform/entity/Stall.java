@@ -46,4 +46,7 @@ public class Stall {
     // 非数据库字段
     @TableField(exist = false)
     private String typeName;
+    
+    @TableField(exist = false)
+    private Double distance; // 附近查询时距查询点的距离（米）
 }
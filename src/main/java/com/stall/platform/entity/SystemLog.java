@@ -17,6 +17,11 @@ public class SystemLog {
     
     private String operation;
     
+    /**
+     * 操作名称在 system_log_operation 中的编码，用于索引过滤
+     */
+    private Integer operationCode;
+    
     private String method;
     
     private String params;
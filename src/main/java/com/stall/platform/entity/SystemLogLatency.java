@@ -0,0 +1,38 @@
+package com.stall.platform.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("system_log_latency")
+public class SystemLogLatency {
+    
+    @TableId(type = IdType.AUTO)
+    private Long id;
+    
+    /**
+     * 汇总区间起点
+     */
+    private LocalDateTime bucketTime;
+    
+    /**
+     * 汇总粒度（分钟）：1、60、1440
+     */
+    private Integer resolution;
+    
+    private Integer operationCode;
+    
+    private String method;
+    
+    private Long callCount;
+    
+    private Long totalTime;
+    
+    private Long maxTime;
+    
+    /**
+     * LatencyHistogram 编码
+     */
+    private byte[] histogram;
+}
@@ -0,0 +1,18 @@
+package com.stall.platform.entity;
+
+import com.baomidou.mybatisplus.annotation.*;
+import lombok.Data;
+import java.time.LocalDateTime;
+
+@Data
+@TableName("system_log_operation")
+public class SystemLogOperation {
+    
+    @TableId(type = IdType.AUTO)
+    private Integer id;
+    
+    private String name;
+    
+    @TableField(fill = FieldFill.INSERT)
+    private LocalDateTime createTime;
+}
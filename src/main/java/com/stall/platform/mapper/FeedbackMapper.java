@@ -8,20 +8,44 @@ import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Mapper
 public interface FeedbackMapper extends BaseMapper<Feedback> {
     
-    @Select("SELECT f.*, u.username, s.name as stall_name, h.nickname as handler_name " +
+    String SELECT_WITH_DETAILS = "SELECT f.*, u.username, s.name as stall_name, h.nickname as handler_name " +
             "FROM feedback f " +
-            "LEFT JOIN user u ON f.user_id = u.id " +
-            "LEFT JOIN stall s ON f.stall_id = s.id " +
-            "LEFT JOIN user h ON f.handler_id = h.id " +
+            "LEFT JOIN user u ON f.user_id = u.id AND u.deleted = 0 " +
+            "LEFT JOIN stall s ON f.stall_id = s.id AND s.deleted = 0 " +
+            "LEFT JOIN user h ON f.handler_id = h.id AND h.deleted = 0 " +
             "WHERE f.deleted = 0 " +
-            "AND (#{userId} IS NULL OR f.user_id = #{userId}) " +
-            "AND (#{type} IS NULL OR f.type = #{type}) " +
-            "AND (#{status} IS NULL OR f.status = #{status})")
+            "<if test='userId != null'>AND f.user_id = #{userId} </if>" +
+            "<if test='type != null'>AND f.type = #{type} </if>" +
+            "<if test='status != null'>AND f.status = #{status} </if>";
+    
+    @Select("<script>" + SELECT_WITH_DETAILS +
+            "ORDER BY f.create_time DESC, f.id DESC" +
+            "</script>")
     IPage<Feedback> selectPageWithDetails(Page<Feedback> page, 
                                            @Param("userId") Long userId,
                                            @Param("type") Integer type, 
                                            @Param("status") Integer status);
+    
+    /**
+     * 游标分页：从(afterTime, afterId)之后继续读取，走 (create_time, id) 索引定位，不扫描前面的行
+     */
+    @Select("<script>" + SELECT_WITH_DETAILS +
+            "<if test='afterId != null'>" +
+            "AND (f.create_time &lt; #{afterTime} OR (f.create_time = #{afterTime} AND f.id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY f.create_time DESC, f.id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<Feedback> selectListAfter(@Param("userId") Long userId,
+                                   @Param("type") Integer type,
+                                   @Param("status") Integer status,
+                                   @Param("afterTime") LocalDateTime afterTime,
+                                   @Param("afterId") Long afterId,
+                                   @Param("limit") int limit);
 }
@@ -11,13 +11,16 @@ import org.apache.ibatis.annotations.Select;
 @Mapper
 public interface HygieneInspectionMapper extends BaseMapper<HygieneInspection> {
     
-    @Select("SELECT h.*, s.name as stall_name, s.stall_no, u.nickname as inspector_name " +
+    @Select("<script>" +
+            "SELECT h.*, s.name as stall_name, s.stall_no, u.nickname as inspector_name " +
             "FROM hygiene_inspection h " +
-            "LEFT JOIN stall s ON h.stall_id = s.id " +
-            "LEFT JOIN user u ON h.inspector_id = u.id " +
+            "LEFT JOIN stall s ON h.stall_id = s.id AND s.deleted = 0 " +
+            "LEFT JOIN user u ON h.inspector_id = u.id AND u.deleted = 0 " +
             "WHERE h.deleted = 0 " +
-            "AND (#{stallId} IS NULL OR h.stall_id = #{stallId}) " +
-            "AND (#{result} IS NULL OR h.result = #{result})")
+            "<if test='stallId != null'>AND h.stall_id = #{stallId} </if>" +
+            "<if test='result != null and result != \"\"'>AND h.result = #{result} </if>" +
+            "ORDER BY h.inspection_date DESC" +
+            "</script>")
     IPage<HygieneInspection> selectPageWithDetails(Page<HygieneInspection> page, 
                                                      @Param("stallId") Long stallId, 
                                                      @Param("result") String result);
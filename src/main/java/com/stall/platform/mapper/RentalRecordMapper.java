@@ -5,20 +5,67 @@ import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.stall.platform.entity.RentalRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.mapping.ResultSetType;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
 
 @Mapper
 public interface RentalRecordMapper extends BaseMapper<RentalRecord> {
     
-    @Select("SELECT r.*, u.username, s.name as stall_name, s.stall_no " +
+    String SELECT_WITH_DETAILS = "SELECT r.*, u.username, s.name as stall_name, s.stall_no " +
             "FROM rental_record r " +
-            "LEFT JOIN user u ON r.user_id = u.id " +
-            "LEFT JOIN stall s ON r.stall_id = s.id " +
+            "LEFT JOIN user u ON r.user_id = u.id AND u.deleted = 0 " +
+            "LEFT JOIN stall s ON r.stall_id = s.id AND s.deleted = 0 " +
             "WHERE r.deleted = 0 " +
-            "AND (#{userId} IS NULL OR r.user_id = #{userId}) " +
-            "AND (#{stallId} IS NULL OR r.stall_id = #{stallId})")
+            "<if test='userId != null'>AND r.user_id = #{userId} </if>" +
+            "<if test='stallId != null'>AND r.stall_id = #{stallId} </if>" +
+            "<if test='status != null'>AND r.status = #{status} </if>";
+    
+    @Select("<script>" + SELECT_WITH_DETAILS +
+            "ORDER BY r.create_time DESC, r.id DESC" +
+            "</script>")
     IPage<RentalRecord> selectPageWithDetails(Page<RentalRecord> page, 
                                                 @Param("userId") Long userId, 
-                                                @Param("stallId") Long stallId);
+                                                @Param("stallId") Long stallId,
+                                                @Param("status") Integer status);
+    
+    /**
+     * 游标分页：从(afterTime, afterId)之后继续读取，走 (create_time, id) 索引定位，不扫描前面的行
+     */
+    @Select("<script>" + SELECT_WITH_DETAILS +
+            "<if test='afterId != null'>" +
+            "AND (r.create_time &lt; #{afterTime} OR (r.create_time = #{afterTime} AND r.id &lt; #{afterId})) " +
+            "</if>" +
+            "ORDER BY r.create_time DESC, r.id DESC " +
+            "LIMIT #{limit}" +
+            "</script>")
+    List<RentalRecord> selectListAfter(@Param("userId") Long userId,
+                                       @Param("stallId") Long stallId,
+                                       @Param("status") Integer status,
+                                       @Param("afterTime") LocalDateTime afterTime,
+                                       @Param("afterId") Long afterId,
+                                       @Param("limit") int limit);
+    
+    String BILLABLE_CONDITION = "WHERE deleted = 0 AND status IN (1, 2) " +
+            "AND start_date &lt;= #{periodEnd} AND end_date &gt;= #{periodStart} ";
+    
+    /**
+     * 与账期有交集的租赁中/已到期记录，按ID顺序流式读取（MySQL需在连接串开启 useCursorFetch 才按批取数）
+     * 须在事务内遍历，事务结束时游标关闭
+     */
+    @Select("<script>SELECT id, user_id, stall_id, start_date, end_date, rent_amount FROM rental_record " +
+            BILLABLE_CONDITION + "AND id &gt; #{afterId} ORDER BY id</script>")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    Cursor<RentalRecord> selectBillableCursor(@Param("periodStart") LocalDate periodStart,
+                                              @Param("periodEnd") LocalDate periodEnd,
+                                              @Param("afterId") long afterId);
+    
+    @Select("<script>SELECT COUNT(*) FROM rental_record " + BILLABLE_CONDITION + "</script>")
+    long countBillable(@Param("periodStart") LocalDate periodStart, @Param("periodEnd") LocalDate periodEnd);
 }
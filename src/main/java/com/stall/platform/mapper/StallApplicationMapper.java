@@ -11,13 +11,16 @@ import org.apache.ibatis.annotations.Select;
 @Mapper
 public interface StallApplicationMapper extends BaseMapper<StallApplication> {
     
-    @Select("SELECT a.*, u.username, s.name as stall_name, s.stall_no " +
+    @Select("<script>" +
+            "SELECT a.*, u.username, s.name as stall_name, s.stall_no " +
             "FROM stall_application a " +
-            "LEFT JOIN user u ON a.user_id = u.id " +
-            "LEFT JOIN stall s ON a.stall_id = s.id " +
+            "LEFT JOIN user u ON a.user_id = u.id AND u.deleted = 0 " +
+            "LEFT JOIN stall s ON a.stall_id = s.id AND s.deleted = 0 " +
             "WHERE a.deleted = 0 " +
-            "AND (#{userId} IS NULL OR a.user_id = #{userId}) " +
-            "AND (#{status} IS NULL OR a.status = #{status})")
+            "<if test='userId != null'>AND a.user_id = #{userId} </if>" +
+            "<if test='status != null'>AND a.status = #{status} </if>" +
+            "ORDER BY a.create_time DESC" +
+            "</script>")
     IPage<StallApplication> selectPageWithDetails(Page<StallApplication> page, 
                                                     @Param("userId") Long userId, 
                                                     @Param("status") Integer status);
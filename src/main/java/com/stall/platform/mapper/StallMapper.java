@@ -7,16 +7,30 @@ import com.stall.platform.entity.Stall;
 import org.apache.ibatis.annotations.Mapper;
 import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
 
 @Mapper
 public interface StallMapper extends BaseMapper<Stall> {
     
-    @Select("SELECT s.*, t.name as type_name FROM stall s " +
-            "LEFT JOIN stall_type t ON s.type_id = t.id " +
+    @Select("<script>" +
+            "SELECT s.*, t.name as type_name FROM stall s " +
+            "LEFT JOIN stall_type t ON s.type_id = t.id AND t.deleted = 0 " +
             "WHERE s.deleted = 0 " +
-            "AND (#{typeId} IS NULL OR s.type_id = #{typeId}) " +
-            "AND (#{status} IS NULL OR s.status = #{status}) " +
-            "AND (#{keyword} IS NULL OR s.name LIKE CONCAT('%', #{keyword}, '%') OR s.stall_no LIKE CONCAT('%', #{keyword}, '%'))")
+            "<if test='typeId != null'>AND s.type_id = #{typeId} </if>" +
+            "<if test='status != null'>AND s.status = #{status} </if>" +
+            "<if test='keyword != null and keyword != \"\"'>" +
+            "AND (s.name LIKE CONCAT('%', #{keyword}, '%') OR s.stall_no LIKE CONCAT('%', #{keyword}, '%') " +
+            "OR s.location LIKE CONCAT('%', #{keyword}, '%')) " +
+            "</if>" +
+            "ORDER BY s.stall_no ASC" +
+            "</script>")
     IPage<Stall> selectPageWithType(Page<Stall> page, @Param("typeId") Long typeId, 
                                      @Param("status") Integer status, @Param("keyword") String keyword);
+    
+    /**
+     * 状态为 expected 时改为 target，返回影响行数
+     */
+    @Update("UPDATE stall SET status = #{target}, update_time = NOW() " +
+            "WHERE id = #{id} AND status = #{expected} AND deleted = 0")
+    int compareAndSetStatus(@Param("id") Long id, @Param("expected") int expected, @Param("target") int target);
 }
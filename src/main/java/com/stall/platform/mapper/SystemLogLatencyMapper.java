@@ -0,0 +1,26 @@
+package com.stall.platform.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.stall.platform.entity.SystemLogLatency;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+@Mapper
+public interface SystemLogLatencyMapper extends BaseMapper<SystemLogLatency> {
+    
+    /**
+     * 多行插入
+     */
+    @Insert("<script>" +
+            "INSERT INTO system_log_latency (bucket_time, resolution, operation_code, method, call_count, total_time, " +
+            "max_time, histogram) VALUES " +
+            "<foreach collection='rows' item='r' separator=','>" +
+            "(#{r.bucketTime}, #{r.resolution}, #{r.operationCode}, #{r.method}, #{r.callCount}, #{r.totalTime}, " +
+            "#{r.maxTime}, #{r.histogram})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("rows") List<SystemLogLatency> rows);
+}
@@ -2,8 +2,24 @@ package com.stall.platform.mapper;
 
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.stall.platform.entity.SystemLog;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface SystemLogMapper extends BaseMapper<SystemLog> {
+    
+    /**
+     * 多行插入
+     */
+    @Insert("<script>" +
+            "INSERT INTO system_log (user_id, username, operation, operation_code, method, params, ip, location, time, create_time) VALUES " +
+            "<foreach collection='logs' item='l' separator=','>" +
+            "(#{l.userId}, #{l.username}, #{l.operation}, #{l.operationCode}, #{l.method}, #{l.params}, #{l.ip}, #{l.location}, " +
+            "#{l.time}, #{l.createTime})" +
+            "</foreach>" +
+            "</script>")
+    int insertBatch(@Param("logs") List<SystemLog> logs);
 }
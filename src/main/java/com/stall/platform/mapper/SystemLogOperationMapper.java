@@ -0,0 +1,9 @@
+package com.stall.platform.mapper;
+
+import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import com.stall.platform.entity.SystemLogOperation;
+import org.apache.ibatis.annotations.Mapper;
+
+@Mapper
+public interface SystemLogOperationMapper extends BaseMapper<SystemLogOperation> {
+}
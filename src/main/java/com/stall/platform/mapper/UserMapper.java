@@ -3,7 +3,20 @@ package com.stall.platform.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.stall.platform.entity.User;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Options;
+import org.apache.ibatis.annotations.ResultType;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.mapping.ResultSetType;
+import org.apache.ibatis.session.ResultHandler;
 
 @Mapper
 public interface UserMapper extends BaseMapper<User> {
+    
+    /**
+     * 逐行读取全部用户名（含已逻辑删除的，唯一约束同样覆盖这些行）
+     */
+    @Select("SELECT username FROM user")
+    @Options(resultSetType = ResultSetType.FORWARD_ONLY, fetchSize = 1000)
+    @ResultType(String.class)
+    void scanUsernames(ResultHandler<String> handler);
 }
@@ -0,0 +1,75 @@
+package com.stall.platform.security;
+
+import cn.hutool.core.lang.Validator;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.List;
+
+/**
+ * 客户端IP解析（限流和操作日志共用）
+ * 只有直连地址属于受信任代理（client-ip.trusted-proxies，支持 CIDR）时才读取代理设置的请求头，否则直接取直连地址：
+ * X-Real-IP 取整个值；X-Forwarded-For 从右往左跳过受信任代理，取第一个不受信任的地址
+ * 请求头中不是IP字面量的值一律忽略，不做域名解析
+ */
+@Component
+public class ClientIpResolver {
+    
+    private static final String FORWARDED_FOR = "X-Forwarded-For";
+    
+    private final List<IpAddressMatcher> trustedProxies;
+    private final String header;
+    
+    public ClientIpResolver(@Value("${client-ip.trusted-proxies:127.0.0.1,::1}") List<String> trustedProxies,
+                            @Value("${client-ip.header:X-Real-IP}") String header) {
+        this.trustedProxies = trustedProxies.stream().filter(StringUtils::hasText)
+                .map(String::trim).map(IpAddressMatcher::new).toList();
+        this.header = header;
+    }
+    
+    public String resolve(HttpServletRequest request) {
+        String remote = request.getRemoteAddr();
+        if (!isTrusted(remote)) {
+            return remote;
+        }
+        String value = request.getHeader(header);
+        if (!StringUtils.hasText(value)) {
+            return remote;
+        }
+        if (!FORWARDED_FOR.equalsIgnoreCase(header)) {
+            String ip = value.trim();
+            return isIpLiteral(ip) ? ip : remote;
+        }
+        String[] hops = value.split(",");
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String ip = hops[i].trim();
+            if (!isIpLiteral(ip)) {
+                // 无法识别的一跳之前的内容都不可信
+                return remote;
+            }
+            if (!isTrusted(ip)) {
+                return ip;
+            }
+        }
+        return remote;
+    }
+    
+    private boolean isTrusted(String ip) {
+        if (!isIpLiteral(ip)) {
+            return false;
+        }
+        for (IpAddressMatcher matcher : trustedProxies) {
+            if (matcher.matches(ip)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    private static boolean isIpLiteral(String ip) {
+        return ip != null && (Validator.isIpv4(ip) || Validator.isIpv6(ip));
+    }
+}
@@ -18,9 +18,11 @@ import java.util.Collections;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
     
     private final JwtUtil jwtUtil;
+    private final TokenRevocationStore revocationStore;
     
-    public JwtAuthenticationFilter(JwtUtil jwtUtil) {
+    public JwtAuthenticationFilter(JwtUtil jwtUtil, TokenRevocationStore revocationStore) {
         this.jwtUtil = jwtUtil;
+        this.revocationStore = revocationStore;
     }
     
     @Override
@@ -28,14 +30,16 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                                     FilterChain filterChain) throws ServletException, IOException {
         String token = getTokenFromRequest(request);
         
-        if (StringUtils.hasText(token) && jwtUtil.validateToken(token)) {
-            String username = jwtUtil.getUsernameFromToken(token);
-            Long userId = jwtUtil.getUserIdFromToken(token);
-            String role = jwtUtil.getRoleFromToken(token);
+        // 一次验签同时取出全部声明
+        JwtClaims claims = StringUtils.hasText(token) ? jwtUtil.verify(token) : null;
+        // 已登出或用户已被禁用的Token按未登录处理
+        if (claims != null && !revocationStore.isRevoked(claims)) {
+            String username = claims.username();
+            String role = claims.role();
             
             if (username != null) {
                 // 创建认证用户信息
-                LoginUser loginUser = new LoginUser(userId, username, role);
+                LoginUser loginUser = new LoginUser(claims.userId(), username, role);
                 
                 UsernamePasswordAuthenticationToken authentication = 
                         new UsernamePasswordAuthenticationToken(
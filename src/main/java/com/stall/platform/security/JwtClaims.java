@@ -0,0 +1,15 @@
+package com.stall.platform.security;
+
+/**
+ * 已验签的Token声明（不可变），一次解析后供认证过滤器使用
+ *
+ * @param tokenId   Token唯一标识（jti），用于登出吊销
+ * @param issuedAt  签发时间（毫秒时间戳，精确到秒）
+ * @param expiresAt 过期时间（毫秒时间戳）
+ */
+public record JwtClaims(String tokenId, String username, Long userId, String role, long issuedAt, long expiresAt) {
+    
+    public boolean isExpired(long now) {
+        return now >= expiresAt;
+    }
+}
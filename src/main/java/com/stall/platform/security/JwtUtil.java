@@ -7,22 +7,42 @@ import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
-import java.util.Date;
-import java.util.HashMap;
-import java.util.Map;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
 
 @Component
 public class JwtUtil {
     
-    @Value("${jwt.secret}")
-    private String secret;
+    private final long expiration;
+    private final SecretKey signingKey;
+    private final JwtParser parser;
     
-    @Value("${jwt.expiration}")
-    private Long expiration;
+    /**
+     * 已验签Token缓存：键为Token的SHA-256摘要，条目在Token过期或缓存TTL到期时失效（取较早者）
+     */
+    private final int cacheMaxSize;
+    private final long cacheTtlMillis;
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final LinkedHashMap<String, Verified> verified;
     
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = secret.getBytes(StandardCharsets.UTF_8);
-        return Keys.hmacShaKeyFor(keyBytes);
+    public JwtUtil(@Value("${jwt.secret}") String secret,
+                   @Value("${jwt.expiration}") long expiration,
+                   @Value("${jwt.cache.max-size:10000}") int cacheMaxSize,
+                   @Value("${jwt.cache.ttl:300}") long cacheTtlSeconds) {
+        this.expiration = expiration;
+        // 密钥和解析器线程安全，启动时构建一次
+        this.signingKey = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        this.parser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.cacheMaxSize = cacheMaxSize;
+        this.cacheTtlMillis = cacheTtlSeconds * 1000;
+        this.verified = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Verified> eldest) {
+                return size() > JwtUtil.this.cacheMaxSize;
+            }
+        };
     }
     
     public String generateToken(String username, Long userId, String role) {
@@ -32,49 +52,132 @@ public class JwtUtil {
         
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(username)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration * 1000))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
     
+    /**
+     * 验签并提取声明，Token无效或已过期时返回null
+     * 同一Token在缓存有效期内只做一次HMAC验签和JSON解析
+     */
+    public JwtClaims verify(String token) {
+        if (token == null || token.isEmpty()) {
+            return null;
+        }
+        long now = System.currentTimeMillis();
+        String key = cacheMaxSize > 0 ? digest(token) : null;
+        if (key != null) {
+            JwtClaims cached = getCached(key, now);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        JwtClaims claims = parse(token);
+        if (claims == null || claims.isExpired(now)) {
+            return null;
+        }
+        if (key != null) {
+            long validUntil = Math.min(claims.expiresAt(), now + cacheTtlMillis);
+            cacheLock.lock();
+            try {
+                verified.put(key, new Verified(claims, validUntil));
+            } finally {
+                cacheLock.unlock();
+            }
+        }
+        return claims;
+    }
+    
     public String getUsernameFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims != null ? claims.getSubject() : null;
+        JwtClaims claims = verify(token);
+        return claims != null ? claims.username() : null;
     }
     
     public Long getUserIdFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims != null ? claims.get("userId", Long.class) : null;
+        JwtClaims claims = verify(token);
+        return claims != null ? claims.userId() : null;
     }
     
     public String getRoleFromToken(String token) {
-        Claims claims = getClaimsFromToken(token);
-        return claims != null ? claims.get("role", String.class) : null;
+        JwtClaims claims = verify(token);
+        return claims != null ? claims.role() : null;
     }
     
     public boolean validateToken(String token) {
+        return verify(token) != null;
+    }
+    
+    /**
+     * 清空已验签缓存
+     */
+    public void clearCache() {
+        cacheLock.lock();
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException | IllegalArgumentException e) {
-            return false;
+            verified.clear();
+        } finally {
+            cacheLock.unlock();
         }
     }
     
-    private Claims getClaimsFromToken(String token) {
+    /**
+     * Token有效期（秒）
+     */
+    public long getExpiration() {
+        return expiration;
+    }
+    
+    public int cacheSize() {
+        cacheLock.lock();
         try {
-            return Jwts.parserBuilder()
-                    .setSigningKey(getSigningKey())
-                    .build()
-                    .parseClaimsJws(token)
-                    .getBody();
+            return verified.size();
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+    
+    private JwtClaims getCached(String key, long now) {
+        cacheLock.lock();
+        try {
+            Verified entry = verified.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (now >= entry.validUntil) {
+                verified.remove(key);
+                return null;
+            }
+            return entry.claims;
+        } finally {
+            cacheLock.unlock();
+        }
+    }
+    
+    private JwtClaims parse(String token) {
+        try {
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            Date iat = claims.getIssuedAt();
+            Date exp = claims.getExpiration();
+            return new JwtClaims(claims.getId(), claims.getSubject(), claims.get("userId", Long.class),
+                    claims.get("role", String.class), iat != null ? iat.getTime() : 0,
+                    exp != null ? exp.getTime() : Long.MAX_VALUE);
         } catch (JwtException | IllegalArgumentException e) {
             return null;
         }
     }
+    
+    private static String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.US_ASCII));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+    
+    private record Verified(JwtClaims claims, long validUntil) {
+    }
 }
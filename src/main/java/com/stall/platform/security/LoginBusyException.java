@@ -0,0 +1,11 @@
+package com.stall.platform.security;
+
+/**
+ * 登录校验线程池已满或等待超时，请求应以503快速拒绝
+ */
+public class LoginBusyException extends RuntimeException {
+    
+    public LoginBusyException(String message) {
+        super(message);
+    }
+}
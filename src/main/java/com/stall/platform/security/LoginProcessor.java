@@ -0,0 +1,123 @@
+package com.stall.platform.security;
+
+import com.stall.platform.entity.User;
+import com.stall.platform.service.UserService;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 登录校验
+ * 用户只查询一次；BCrypt校验在独立的有界线程池中执行，不占用Tomcat请求线程太久，
+ * 队列满时立即拒绝（503）而不是排队拖慢其他接口；校验通过后如哈希强度低于当前配置则顺带重新哈希
+ */
+@Slf4j
+@Component
+public class LoginProcessor {
+    
+    private final UserService userService;
+    private final PasswordEncoder passwordEncoder;
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMillis;
+    
+    /**
+     * 用户不存在时也做一次等价的哈希校验，避免通过响应时间探测用户名
+     */
+    private final String dummyHash;
+    
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder rehashed = new LongAdder();
+    
+    public LoginProcessor(UserService userService, PasswordEncoder passwordEncoder,
+                          @Value("${auth.login.workers:0}") int workers,
+                          @Value("${auth.login.queue-capacity:64}") int queueCapacity,
+                          @Value("${auth.login.timeout:5000}") long timeoutMillis) {
+        this.userService = userService;
+        this.passwordEncoder = passwordEncoder;
+        this.timeoutMillis = timeoutMillis;
+        this.dummyHash = passwordEncoder.encode("dummy-password");
+        int threads = workers > 0 ? workers : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(queueCapacity, 1)), r -> {
+                    Thread thread = new Thread(r, "login-bcrypt-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.AbortPolicy());
+    }
+    
+    /**
+     * 校验用户名密码，成功返回用户；失败抛出 BadCredentialsException，繁忙时抛出 LoginBusyException
+     */
+    public User authenticate(String username, String password) {
+        if (username == null || password == null) {
+            throw new BadCredentialsException("用户名或密码错误");
+        }
+        User user = userService.findByUsername(username);
+        boolean usable = user != null && user.getPassword() != null && Integer.valueOf(1).equals(user.getStatus());
+        String hash = usable ? user.getPassword() : dummyHash;
+        
+        Future<String> future;
+        try {
+            future = executor.submit(() -> verify(password, hash));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new LoginBusyException("登录人数过多，请稍后重试");
+        }
+        String upgradedHash;
+        try {
+            upgradedHash = future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            rejected.increment();
+            throw new LoginBusyException("登录人数过多，请稍后重试");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LoginBusyException("登录已中断");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("密码校验失败", e.getCause());
+        }
+        if (!usable || upgradedHash == null) {
+            throw new BadCredentialsException("用户名或密码错误");
+        }
+        if (!upgradedHash.equals(hash) && userService.upgradePasswordHash(user.getId(), hash, upgradedHash)) {
+            rehashed.increment();
+            user.setPassword(upgradedHash);
+        }
+        return user;
+    }
+    
+    public int queueDepth() {
+        return executor.getQueue().size();
+    }
+    
+    public long rejectedCount() {
+        return rejected.sum();
+    }
+    
+    public long rehashedCount() {
+        return rehashed.sum();
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 在工作线程中执行：不匹配返回null，匹配返回应保存的哈希（无需升级时即原哈希）
+     */
+    private String verify(String password, String hash) {
+        if (!passwordEncoder.matches(password, hash)) {
+            return null;
+        }
+        return passwordEncoder.upgradeEncoding(hash) ? passwordEncoder.encode(password) : hash;
+    }
+}
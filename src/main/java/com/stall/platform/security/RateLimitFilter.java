@@ -0,0 +1,145 @@
+package com.stall.platform.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stall.platform.common.Result;
+import com.stall.platform.config.RateLimitProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.util.StringUtils;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 接口限流过滤器，位于JWT认证之后，可按登录用户或客户端IP限流
+ * 客户端IP经 ClientIpResolver 解析，反向代理后的不同客户端不会共用一个桶
+ * 超出限制返回HTTP 429及统一响应格式，并附带 Retry-After
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+    
+    private static final AntPathMatcher PATH_MATCHER = new AntPathMatcher();
+    
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final List<CompiledRule> rules;
+    private final TokenBucketStore store;
+    private final ClientIpResolver clientIpResolver;
+    
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper,
+                           ClientIpResolver clientIpResolver) {
+        this.objectMapper = objectMapper;
+        this.clientIpResolver = clientIpResolver;
+        this.enabled = properties.isEnabled();
+        this.rules = properties.getRules().stream().map(CompiledRule::new).toList();
+        this.store = new TokenBucketStore(properties.getMaxBuckets(),
+                TimeUnit.SECONDS.toNanos(properties.getIdleTimeout()));
+    }
+    
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        if (enabled) {
+            long now = System.nanoTime();
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            for (CompiledRule rule : rules) {
+                if (!rule.matches(request.getMethod(), path)) {
+                    continue;
+                }
+                long waitNanos = store.tryAcquire(rule.name + "|" + rule.resolveKey(request, clientIpResolver),
+                        rule.capacity, rule.intervalNanos, now);
+                if (waitNanos > 0) {
+                    rule.rejected.increment();
+                    reject(response, waitNanos);
+                    return;
+                }
+                rule.allowed.increment();
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+    
+    /**
+     * 定时清理空闲的令牌桶
+     */
+    @Scheduled(fixedDelayString = "${rate-limit.evict-interval:60000}")
+    public void evictIdle() {
+        store.evictIdle(System.nanoTime());
+    }
+    
+    /**
+     * 各规则的放行/拒绝次数及当前桶数量
+     */
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("buckets", store.size());
+        Map<String, Object> ruleStats = new LinkedHashMap<>();
+        for (CompiledRule rule : rules) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("allowed", rule.allowed.sum());
+            item.put("rejected", rule.rejected.sum());
+            ruleStats.put(rule.name, item);
+        }
+        stats.put("rules", ruleStats);
+        return stats;
+    }
+    
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos - 1) + 1)));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(objectMapper.writeValueAsString(Result.error(429, "请求过于频繁，请稍后重试")));
+    }
+    
+    private static final class CompiledRule {
+        
+        private final String name;
+        private final String pattern;
+        private final String method;
+        private final boolean byUser;
+        private final int capacity;
+        private final long intervalNanos;
+        private final LongAdder allowed = new LongAdder();
+        private final LongAdder rejected = new LongAdder();
+        
+        private CompiledRule(RateLimitProperties.Rule rule) {
+            this.name = rule.getName() != null ? rule.getName() : rule.getPath();
+            this.pattern = rule.getPath();
+            this.method = StringUtils.hasText(rule.getMethod()) ? rule.getMethod().toUpperCase() : null;
+            this.byUser = "user".equalsIgnoreCase(rule.getKey());
+            this.capacity = Math.max(rule.getCapacity(), 1);
+            this.intervalNanos = (long) (TimeUnit.MINUTES.toNanos(1) / Math.max(rule.getRefillPerMinute(), 1e-3));
+        }
+        
+        private boolean matches(String requestMethod, String path) {
+            return (method == null || method.equals(requestMethod)) && PATH_MATCHER.match(pattern, path);
+        }
+        
+        private String resolveKey(HttpServletRequest request, ClientIpResolver clientIpResolver) {
+            if (byUser) {
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                if (authentication != null && authentication.getPrincipal() instanceof LoginUser loginUser
+                        && loginUser.getUserId() != null) {
+                    return "u:" + loginUser.getUserId();
+                }
+            }
+            return "ip:" + clientIpResolver.resolve(request);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.stall.platform.security;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.stall.platform.common.Result;
 import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.MediaType;
@@ -23,16 +24,22 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 public class SecurityConfig {
     
     private final JwtAuthenticationFilter jwtAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final ObjectMapper objectMapper;
     
-    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, ObjectMapper objectMapper) {
+    public SecurityConfig(JwtAuthenticationFilter jwtAuthenticationFilter, RateLimitFilter rateLimitFilter,
+                          ObjectMapper objectMapper) {
         this.jwtAuthenticationFilter = jwtAuthenticationFilter;
+        this.rateLimitFilter = rateLimitFilter;
         this.objectMapper = objectMapper;
     }
     
+    /**
+     * 调高强度后，旧哈希在用户下次登录成功时自动升级
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public PasswordEncoder passwordEncoder(@Value("${auth.password.bcrypt-strength:10}") int strength) {
+        return new BCryptPasswordEncoder(strength);
     }
     
     @Bean
@@ -62,8 +69,9 @@ public class SecurityConfig {
             )
             .authorizeHttpRequests(auth -> auth
                 // 公开接口
-                .requestMatchers("/auth/login", "/auth/register", "/auth/logout").permitAll()
-                .requestMatchers("/stall/list", "/stall/{id}", "/stall/available").permitAll()
+                .requestMatchers("/auth/login", "/auth/register", "/auth/logout", "/auth/check-username").permitAll()
+                .requestMatchers("/stall/list", "/stall/{id}", "/stall/available", "/stall/nearby",
+                        "/stall/free", "/stall/{id}/free").permitAll()
                 .requestMatchers("/announcement/list", "/announcement/{id}").permitAll()
                 .requestMatchers("/stall-type/list").permitAll()
                 // 管理员接口（如 /user/admin/**、/stall/admin/**）
@@ -71,7 +79,9 @@ public class SecurityConfig {
                 // 其他接口需要认证
                 .anyRequest().authenticated()
             )
-            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
+            .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+            // 认证之后限流，才能按登录用户区分
+            .addFilterAfter(rateLimitFilter, JwtAuthenticationFilter.class);
         
         return http.build();
     }
@@ -0,0 +1,101 @@
+package com.stall.platform.security;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 无锁令牌桶集合
+ * 每个桶只有一个原子变量：理论到达时间（GCRA算法，与令牌桶等价）。
+ * 每次请求把它推后一个补充间隔，推后后超出“当前时间 + 容量 × 间隔”即桶已空，CAS失败时重试
+ * 桶数量有上限：超过时清理已回满且空闲的桶，仍超过时新来源共用溢出桶
+ */
+public class TokenBucketStore {
+    
+    private static final String OVERFLOW_KEY = "\u0000overflow";
+    
+    private final int maxBuckets;
+    private final long idleNanos;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    
+    public TokenBucketStore(int maxBuckets, long idleNanos) {
+        this.maxBuckets = maxBuckets;
+        this.idleNanos = idleNanos;
+    }
+    
+    /**
+     * 尝试取一个令牌
+     *
+     * @param intervalNanos 补充一个令牌的间隔
+     * @return 0 表示放行，否则为需要等待的纳秒数
+     */
+    public long tryAcquire(String key, int capacity, long intervalNanos, long now) {
+        Bucket bucket = buckets.get(key);
+        if (bucket == null) {
+            bucket = createBucket(key, now);
+        }
+        bucket.lastAccess = now;
+        long limit = (long) capacity * intervalNanos;
+        while (true) {
+            long tat = bucket.tat.get();
+            long next = Math.max(tat, now) + intervalNanos;
+            long excess = next - now - limit;
+            if (excess > 0) {
+                return excess;
+            }
+            if (bucket.tat.compareAndSet(tat, next)) {
+                return 0;
+            }
+        }
+    }
+    
+    /**
+     * 清理令牌已回满且超过空闲时间的桶，清理后再来的请求拿到新桶，结果与保留时一致
+     */
+    public int evictIdle(long now) {
+        int removed = 0;
+        for (Iterator<Map.Entry<String, Bucket>> it = buckets.entrySet().iterator(); it.hasNext(); ) {
+            Bucket bucket = it.next().getValue();
+            if (bucket.tat.get() <= now && now - bucket.lastAccess >= idleNanos) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+    
+    public int size() {
+        return buckets.size();
+    }
+    
+    private Bucket createBucket(String key, long now) {
+        if (buckets.size() >= maxBuckets) {
+            evictIdle(now);
+            if (buckets.size() >= maxBuckets) {
+                // 各来源共用同一个溢出桶，宁可误限也不无限增长
+                String overflowKey = key.substring(0, key.indexOf('|') + 1) + OVERFLOW_KEY;
+                return buckets.computeIfAbsent(overflowKey, k -> new Bucket(now));
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+    
+    private static final class Bucket {
+        
+        /**
+         * 理论到达时间：不晚于当前时间表示桶已回满
+         */
+        private final AtomicLong tat;
+        
+        /**
+         * 仅用于空闲清理，无需精确
+         */
+        private volatile long lastAccess;
+        
+        private Bucket(long now) {
+            this.tat = new AtomicLong(now);
+            this.lastAccess = now;
+        }
+    }
+}
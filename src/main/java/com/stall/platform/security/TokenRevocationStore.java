@@ -0,0 +1,191 @@
+package com.stall.platform.security;
+
+import com.stall.platform.cache.CacheCodec;
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.common.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token吊销表（内存），认证过滤器每次请求都会检查，不访问数据库
+ * 按Token吊销：登出时记录jti直到Token过期，先查布隆过滤器，命中再查精确集合
+ * 按用户吊销：禁用/删除用户时记录“生效起点”，之前签发的Token全部失效（签发时间精确到秒，同一秒内新签发的也会被拒）
+ * 变更通过共享缓存广播给其他节点，并保存一份快照供节点重启后恢复；过期条目定时清理
+ */
+@Slf4j
+@Component
+public class TokenRevocationStore {
+    
+    private static final String MESSAGE_TYPE = "revoke";
+    private static final String SNAPSHOT_KEY = "auth:revocations";
+    
+    private final SharedCache sharedCache;
+    private final CacheCodec cacheCodec;
+    private final long expirationMillis;
+    private final int expectedTokens;
+    
+    /**
+     * jti -> Token过期时间
+     */
+    private final Map<String, Long> revokedTokens = new ConcurrentHashMap<>();
+    
+    /**
+     * 用户ID -> 生效起点，早于该时间签发的Token无效
+     */
+    private final Map<Long, Long> userNotBefore = new ConcurrentHashMap<>();
+    
+    /**
+     * 只增不删，清理过期条目时整体重建；写入与重建在同一把锁内，读路径无锁
+     */
+    private volatile BloomFilter tokenFilter;
+    
+    public TokenRevocationStore(SharedCache sharedCache, CacheCodec cacheCodec,
+                                @Value("${jwt.expiration}") long expiration,
+                                @Value("${jwt.revocation.expected-tokens:100000}") int expectedTokens) {
+        this.sharedCache = sharedCache;
+        this.cacheCodec = cacheCodec;
+        this.expirationMillis = expiration * 1000;
+        this.expectedTokens = expectedTokens;
+        this.tokenFilter = new BloomFilter(expectedTokens, 0.001);
+        sharedCache.subscribe(this::onMessage);
+        restore();
+    }
+    
+    /**
+     * Token是否已被吊销
+     */
+    public boolean isRevoked(JwtClaims claims) {
+        if (claims.userId() != null) {
+            Long notBefore = userNotBefore.get(claims.userId());
+            if (notBefore != null && claims.issuedAt() < notBefore) {
+                return true;
+            }
+        }
+        String tokenId = claims.tokenId();
+        return tokenId != null && tokenFilter.mightContain(tokenId) && revokedTokens.containsKey(tokenId);
+    }
+    
+    /**
+     * 吊销单个Token（登出）
+     */
+    public void revokeToken(JwtClaims claims) {
+        if (claims.tokenId() == null) {
+            return;
+        }
+        applyToken(claims.tokenId(), claims.expiresAt());
+        sharedCache.publish(MESSAGE_TYPE + "|token|" + claims.tokenId() + "|" + claims.expiresAt());
+        saveSnapshot();
+    }
+    
+    /**
+     * 吊销用户此前签发的全部Token（禁用、删除用户）
+     */
+    public void revokeUser(Long userId) {
+        long notBefore = System.currentTimeMillis();
+        applyUser(userId, notBefore);
+        sharedCache.publish(MESSAGE_TYPE + "|user|" + userId + "|" + notBefore);
+        saveSnapshot();
+    }
+    
+    /**
+     * 清理已过期的条目：Token过期后吊销记录无意义，用户生效起点超过一个有效期后之前的Token均已过期
+     */
+    @Scheduled(fixedDelayString = "${jwt.revocation.prune-interval:60000}")
+    public void prune() {
+        long now = System.currentTimeMillis();
+        userNotBefore.entrySet().removeIf(e -> e.getValue() + expirationMillis <= now);
+        synchronized (this) {
+            if (revokedTokens.entrySet().removeIf(e -> e.getValue() <= now)
+                    || revokedTokens.size() > expectedTokens) {
+                BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, revokedTokens.size() * 2), 0.001);
+                revokedTokens.keySet().forEach(rebuilt::add);
+                tokenFilter = rebuilt;
+            }
+        }
+    }
+    
+    public int revokedTokenCount() {
+        return revokedTokens.size();
+    }
+    
+    public int revokedUserCount() {
+        return userNotBefore.size();
+    }
+    
+    private synchronized void applyToken(String tokenId, long expiresAt) {
+        if (expiresAt > System.currentTimeMillis()) {
+            revokedTokens.merge(tokenId, expiresAt, Math::max);
+            tokenFilter.add(tokenId);
+        }
+    }
+    
+    private void applyUser(Long userId, long notBefore) {
+        userNotBefore.merge(userId, notBefore, Math::max);
+    }
+    
+    private void onMessage(String message) {
+        String[] parts = message.split("\\|");
+        if (parts.length != 4 || !MESSAGE_TYPE.equals(parts[0])) {
+            return;
+        }
+        try {
+            if ("token".equals(parts[1])) {
+                applyToken(parts[2], Long.parseLong(parts[3]));
+            } else if ("user".equals(parts[1])) {
+                applyUser(Long.valueOf(parts[2]), Long.parseLong(parts[3]));
+            }
+        } catch (NumberFormatException e) {
+            log.warn("无法解析的吊销消息: {}", message);
+        }
+    }
+    
+    private void restore() {
+        Snapshot snapshot = readSnapshot();
+        if (snapshot != null) {
+            snapshot.tokens().forEach(this::applyToken);
+            snapshot.users().forEach(this::applyUser);
+        }
+    }
+    
+    /**
+     * 与共享快照合并后写回；多节点并发写入时快照可能漏记，在线节点仍以广播为准
+     */
+    private synchronized void saveSnapshot() {
+        long now = System.currentTimeMillis();
+        Map<String, Long> tokens = new HashMap<>();
+        Map<Long, Long> users = new HashMap<>();
+        Snapshot previous = readSnapshot();
+        if (previous != null) {
+            tokens.putAll(previous.tokens());
+            users.putAll(previous.users());
+        }
+        revokedTokens.forEach((k, v) -> tokens.merge(k, v, Math::max));
+        userNotBefore.forEach((k, v) -> users.merge(k, v, Math::max));
+        tokens.values().removeIf(exp -> exp <= now);
+        users.values().removeIf(nb -> nb + expirationMillis <= now);
+        sharedCache.set(SNAPSHOT_KEY, cacheCodec.encode(new Snapshot(tokens, users)), expirationMillis / 1000);
+    }
+    
+    private Snapshot readSnapshot() {
+        byte[] bytes = sharedCache.get(SNAPSHOT_KEY);
+        if (bytes == null) {
+            return null;
+        }
+        try {
+            return cacheCodec.decode(bytes, Snapshot.class);
+        } catch (UncheckedIOException e) {
+            log.warn("吊销快照无法解析，已忽略");
+            return null;
+        }
+    }
+    
+    private record Snapshot(Map<String, Long> tokens, Map<Long, Long> users) {
+    }
+}
@@ -2,13 +2,18 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.Announcement;
 
 import java.util.List;
 
 public interface AnnouncementService extends IService<Announcement> {
     
-    IPage<Announcement> pageList(Integer pageNum, Integer pageSize, Integer type, Integer status);
+    default IPage<Announcement> pageList(Integer pageNum, Integer pageSize, Integer type, Integer status) {
+        return pageList(pageNum, pageSize, type, status, CountMode.EXACT);
+    }
+    
+    IPage<Announcement> pageList(Integer pageNum, Integer pageSize, Integer type, Integer status, CountMode countMode);
     
     List<Announcement> listPublished(Integer type);
     
@@ -2,6 +2,8 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CursorPage;
 import com.stall.platform.entity.Feedback;
 
 public interface FeedbackService extends IService<Feedback> {
@@ -10,7 +12,17 @@ public interface FeedbackService extends IService<Feedback> {
     
     IPage<Feedback> pageList(Integer pageNum, Integer pageSize, Long userId, Integer type, Integer status);
     
-    IPage<Feedback> pageListForAdmin(Integer pageNum, Integer pageSize, Integer type, Integer status);
+    default IPage<Feedback> pageListForAdmin(Integer pageNum, Integer pageSize, Integer type, Integer status) {
+        return pageListForAdmin(pageNum, pageSize, type, status, CountMode.EXACT);
+    }
+    
+    IPage<Feedback> pageListForAdmin(Integer pageNum, Integer pageSize, Integer type, Integer status,
+                                     CountMode countMode);
+    
+    /**
+     * 游标分页，cursor为空串表示第一页；userId为null时不限定提交人
+     */
+    CursorPage<Feedback> cursorList(String cursor, Integer pageSize, Long userId, Integer type, Integer status);
     
     boolean reply(Long id, String reply, Long handlerId);
     
@@ -2,11 +2,17 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.HygieneInspection;
 
 public interface HygieneInspectionService extends IService<HygieneInspection> {
     
-    IPage<HygieneInspection> pageList(Integer pageNum, Integer pageSize, Long stallId, String result);
+    default IPage<HygieneInspection> pageList(Integer pageNum, Integer pageSize, Long stallId, String result) {
+        return pageList(pageNum, pageSize, stallId, result, CountMode.EXACT);
+    }
+    
+    IPage<HygieneInspection> pageList(Integer pageNum, Integer pageSize, Long stallId, String result,
+                                      CountMode countMode);
     
     boolean addInspection(HygieneInspection inspection);
     
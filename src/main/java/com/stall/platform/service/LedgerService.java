@@ -0,0 +1,72 @@
+package com.stall.platform.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.entity.LedgerEntry;
+import com.stall.platform.entity.RentalRecord;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 租户账务：复式记账分录只追加，余额随分录同事务更新，定期做余额快照
+ */
+public interface LedgerService extends IService<LedgerEntry> {
+    
+    String RENT_RECEIVABLE = "RENT_RECEIVABLE";
+    String RENT_INCOME = "RENT_INCOME";
+    String DEPOSIT_RECEIVABLE = "DEPOSIT_RECEIVABLE";
+    String DEPOSIT_HELD = "DEPOSIT_HELD";
+    String CASH = "CASH";
+    List<String> ACCOUNTS = List.of(CASH, DEPOSIT_HELD, DEPOSIT_RECEIVABLE, RENT_INCOME, RENT_RECEIVABLE);
+    
+    /**
+     * 新租赁记录入账：应收租金、应收押金；已入账的记录跳过
+     */
+    void chargeRentals(List<RentalRecord> records);
+    
+    /**
+     * 登记收款（冲减应收）；租赁记录尚未入账时先补记应收
+     */
+    void recordPayments(List<Payment> payments);
+    
+    /**
+     * 结清租赁记录剩余的应收租金和押金
+     */
+    void settleRental(Long rentalId);
+    
+    /**
+     * 撤销租赁记录已登记的收款（已退还的押金除外）
+     */
+    void reversePayments(Long rentalId);
+    
+    /**
+     * 退还租赁记录已收的押金并核销未收部分，返回退还金额
+     */
+    BigDecimal refundDeposit(Long rentalId);
+    
+    /**
+     * 当前余额，直接读余额表
+     */
+    TenantBalance getBalance(Long userId);
+    
+    /**
+     * 某一时刻的余额：取该时刻前最近的快照，只回放快照之后的分录
+     */
+    TenantBalance getBalanceAt(Long userId, LocalDateTime at);
+    
+    IPage<LedgerEntry> pageEntries(Integer pageNum, Integer pageSize, Long userId, Long rentalId);
+    
+    record Payment(Long rentalId, BigDecimal rent, BigDecimal deposit, String reference) {
+    }
+    
+    /**
+     * outstanding 为应付未付（租金+押金），depositHeld 为已付且未退的押金，accounts 为各科目余额（借方为正）
+     */
+    record TenantBalance(Long userId, BigDecimal outstanding, BigDecimal rentOutstanding,
+                         BigDecimal depositOutstanding, BigDecimal depositHeld, Map<String, BigDecimal> accounts,
+                         LocalDateTime asOf) {
+    }
+}
@@ -0,0 +1,29 @@
+package com.stall.platform.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.entity.BillingRun;
+import com.stall.platform.entity.RentalInvoice;
+
+import java.time.YearMonth;
+
+public interface RentalInvoiceService extends IService<RentalInvoice> {
+    
+    IPage<RentalInvoice> pageList(Integer pageNum, Integer pageSize, Long userId, String period, Integer status);
+    
+    IPage<RentalInvoice> pageListForAdmin(Integer pageNum, Integer pageSize, String period, Long rentalId,
+                                          Integer status, CountMode countMode);
+    
+    /**
+     * 后台生成账期账单，立即返回批次当前状态；已完成的账期不会重复生成
+     */
+    BillingRun startBilling(YearMonth period);
+    
+    /**
+     * 同步生成账期账单，返回批次最终状态
+     */
+    BillingRun runBilling(YearMonth period);
+    
+    BillingRun getBillingRun(YearMonth period);
+}
@@ -2,17 +2,52 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CursorPage;
 import com.stall.platform.entity.RentalRecord;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.List;
+
 public interface RentalRecordService extends IService<RentalRecord> {
     
     IPage<RentalRecord> pageList(Integer pageNum, Integer pageSize, Long userId, Long stallId);
     
-    IPage<RentalRecord> pageListForAdmin(Integer pageNum, Integer pageSize, Long stallId, Integer status);
+    default IPage<RentalRecord> pageListForAdmin(Integer pageNum, Integer pageSize, Long stallId, Integer status) {
+        return pageListForAdmin(pageNum, pageSize, stallId, status, CountMode.EXACT);
+    }
+    
+    IPage<RentalRecord> pageListForAdmin(Integer pageNum, Integer pageSize, Long stallId, Integer status,
+                                         CountMode countMode);
+    
+    /**
+     * 游标分页，cursor为空串表示第一页；userId为null时不限定租户
+     */
+    CursorPage<RentalRecord> cursorList(String cursor, Integer pageSize, Long userId, Long stallId, Integer status);
     
     boolean updatePaymentStatus(Long id, Integer paymentStatus);
     
+    /**
+     * 银行流水对账：按参考号（账单号 INVyyyyMM-租赁ID 或租赁编号 RENT-租赁ID）和金额匹配未支付的账单/租赁记录，
+     * 一个事务内批量登记为已支付，返回汇总及未匹配、有歧义、已支付等异常行
+     */
+    ReconcileReport reconcilePayments(Reader statement) throws IOException;
+    
     boolean terminate(Long id);
     
     RentalRecord getDetailById(Long id);
+    
+    enum ReconcileIssueType {
+        INVALID, UNMATCHED, AMBIGUOUS, PAID
+    }
+    
+    record ReconcileIssue(int lineNo, String reference, BigDecimal amount, ReconcileIssueType type,
+                          String message) {
+    }
+    
+    record ReconcileReport(int totalLines, int matchedLines, int invoicesPaid, int rentalsPaid,
+                           BigDecimal matchedAmount, List<ReconcileIssue> issues) {
+    }
 }
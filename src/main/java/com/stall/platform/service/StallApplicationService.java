@@ -2,19 +2,38 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.StallApplication;
 
+import java.util.List;
+
 public interface StallApplicationService extends IService<StallApplication> {
     
     boolean submit(StallApplication application);
     
     IPage<StallApplication> pageList(Integer pageNum, Integer pageSize, Long userId, Integer status);
     
-    IPage<StallApplication> pageListForAdmin(Integer pageNum, Integer pageSize, Integer status);
+    default IPage<StallApplication> pageListForAdmin(Integer pageNum, Integer pageSize, Integer status) {
+        return pageListForAdmin(pageNum, pageSize, status, CountMode.EXACT);
+    }
+    
+    IPage<StallApplication> pageListForAdmin(Integer pageNum, Integer pageSize, Integer status, CountMode countMode);
     
     boolean review(Long id, Integer status, String reviewOpinion, Long reviewerId);
     
+    /**
+     * 批量审核：一个事务内批量更新申请和摊位状态、批量生成租赁记录，按请求顺序返回每条的结果
+     * 单条失败（申请不存在/已处理、摊位不可出租或同批次已分配）不影响其他条目
+     */
+    List<ReviewResult> reviewBatch(List<ReviewItem> items, Long reviewerId);
+    
     boolean cancel(Long id, Long userId);
     
     StallApplication getDetailById(Long id);
+    
+    record ReviewItem(Long id, Integer status, String reviewOpinion) {
+    }
+    
+    record ReviewResult(Long id, boolean success, String message) {
+    }
 }
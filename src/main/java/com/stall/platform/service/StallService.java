@@ -2,8 +2,11 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CursorPage;
 import com.stall.platform.entity.Stall;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 public interface StallService extends IService<Stall> {
@@ -12,7 +15,42 @@ public interface StallService extends IService<Stall> {
     
     List<Stall> listAvailable();
     
+    /**
+     * 在 [startDate, endDate] 内没有租赁（includePending 时也没有待审核申请）且不在维护中的摊位，按ID游标分页
+     */
+    CursorPage<Stall> listFree(LocalDate startDate, LocalDate endDate, Long typeId, boolean includePending,
+                               String cursor, Integer pageSize);
+    
+    /**
+     * 摊位在 [startDate, endDate] 内是否没有租赁
+     */
+    boolean isFree(Long id, LocalDate startDate, LocalDate endDate, boolean includePending);
+    
+    /**
+     * 附近摊位：传radius（米）时返回半径内的摊位，否则返回最近的limit个；按距离由近到远
+     */
+    List<Stall> listNearby(double latitude, double longitude, Double radius, Integer limit, Long typeId, Integer status);
+    
     Stall getDetailById(Long id);
     
+    /**
+     * 按当前状态校验后转换到 status（已是该状态视为成功），并发修改时重读重试
+     */
     boolean updateStatus(Long id, Integer status);
+    
+    /**
+     * 摊位当前为 expected 时改为 target；被其他请求抢先返回false
+     */
+    boolean compareAndSetStatus(Long id, int expected, int target);
+    
+    /**
+     * 批量条件转换（一条JDBC批量语句），返回各摊位是否成功
+     */
+    boolean[] compareAndSetStatusBatch(List<Long> ids, int expected, int target);
+    
+    /**
+     * 按ID顺序锁定摊位行（SELECT ... FOR UPDATE）并返回数据库当前值，须在事务中调用；
+     * 同一摊位的审核通过与租赁结束在此串行
+     */
+    List<Stall> lockByIds(Collection<Long> ids);
 }
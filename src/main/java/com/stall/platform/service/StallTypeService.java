@@ -2,10 +2,16 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.stall.platform.entity.StallType;
+import com.stall.platform.service.support.StallTypeCatalog;
 
 import java.util.List;
 
 public interface StallTypeService extends IService<StallType> {
     
     List<StallType> listAll();
+    
+    /**
+     * 当前类型目录快照，用于按ID查类型名称
+     */
+    StallTypeCatalog catalog();
 }
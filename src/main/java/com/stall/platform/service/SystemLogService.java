@@ -2,11 +2,51 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CursorPage;
 import com.stall.platform.entity.SystemLog;
+import com.stall.platform.service.support.LatencyAggregator;
+
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface SystemLogService extends IService<SystemLog> {
     
-    IPage<SystemLog> pageList(Integer pageNum, Integer pageSize, Long userId, String operation);
+    default IPage<SystemLog> pageList(Integer pageNum, Integer pageSize, Long userId, String operation) {
+        return pageList(pageNum, pageSize, userId, operation, null, null, null, CountMode.EXACT);
+    }
+    
+    default IPage<SystemLog> pageList(Integer pageNum, Integer pageSize, Long userId, String operation,
+                                      CountMode countMode) {
+        return pageList(pageNum, pageSize, userId, operation, null, null, null, countMode);
+    }
+    
+    /**
+     * operation 精确匹配、operationPrefix 前缀匹配，均转换为操作编码走索引；
+     * 按时间范围 [startTime, endTime) 查询时只扫描对应月份的分区
+     */
+    IPage<SystemLog> pageList(Integer pageNum, Integer pageSize, Long userId, String operation,
+                              String operationPrefix, LocalDateTime startTime, LocalDateTime endTime,
+                              CountMode countMode);
     
+    default CursorPage<SystemLog> cursorList(String cursor, Integer pageSize, Long userId, String operation) {
+        return cursorList(cursor, pageSize, userId, operation, null, null, null);
+    }
+    
+    /**
+     * 游标分页，cursor为空串表示第一页
+     */
+    CursorPage<SystemLog> cursorList(String cursor, Integer pageSize, Long userId, String operation,
+                                     String operationPrefix, LocalDateTime startTime, LocalDateTime endTime);
+    
+    /**
+     * 异步批量写入，队列满时按配置丢弃
+     */
     void saveLog(SystemLog log);
+    
+    /**
+     * 时间窗口内各操作（或方法）的调用次数与耗时分位数，由分钟汇总直方图合并得出；默认最近一天
+     */
+    List<LatencyAggregator.LatencySummary> latency(LocalDateTime startTime, LocalDateTime endTime, String groupBy,
+                                                   String operation, String operationPrefix, int limit);
 }
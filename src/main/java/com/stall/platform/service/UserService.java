@@ -2,6 +2,7 @@ package com.stall.platform.service;
 
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.service.IService;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.User;
 
 public interface UserService extends IService<User> {
@@ -10,9 +11,23 @@ public interface UserService extends IService<User> {
     
     boolean register(User user);
     
-    IPage<User> pageList(Integer pageNum, Integer pageSize, String keyword, String role);
+    /**
+     * 用户名是否可注册，多数未占用的用户名无需查库即可判定
+     */
+    boolean isUsernameAvailable(String username);
+    
+    default IPage<User> pageList(Integer pageNum, Integer pageSize, String keyword, String role) {
+        return pageList(pageNum, pageSize, keyword, role, CountMode.EXACT);
+    }
+    
+    IPage<User> pageList(Integer pageNum, Integer pageSize, String keyword, String role, CountMode countMode);
     
     boolean updatePassword(Long userId, String oldPassword, String newPassword);
     
     boolean resetPassword(Long userId);
+    
+    /**
+     * 以更高强度重新哈希后替换密码，库中密码已被修改时不覆盖
+     */
+    boolean upgradePasswordHash(Long userId, String oldHash, String newHash);
 }
@@ -2,30 +2,44 @@ package com.stall.platform.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.stall.platform.cache.ListCache;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.Announcement;
 import com.stall.platform.entity.User;
 import com.stall.platform.mapper.AnnouncementMapper;
 import com.stall.platform.service.AnnouncementService;
-import com.stall.platform.service.UserService;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.ReferenceResolver;
 import org.springframework.stereotype.Service;
 
+import java.io.Serializable;
 import java.time.LocalDateTime;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class AnnouncementServiceImpl extends ServiceImpl<AnnouncementMapper, Announcement> 
         implements AnnouncementService {
     
-    private final UserService userService;
+    private static final String LIST_NAMESPACE = "announcement";
     
-    public AnnouncementServiceImpl(UserService userService) {
-        this.userService = userService;
+    private final ReferenceResolver referenceResolver;
+    private final ListCache listCache;
+    private final PageCounter pageCounter;
+    
+    public AnnouncementServiceImpl(ReferenceResolver referenceResolver, ListCache listCache,
+                                   PageCounter pageCounter) {
+        this.referenceResolver = referenceResolver;
+        this.listCache = listCache;
+        this.pageCounter = pageCounter;
     }
     
     @Override
-    public IPage<Announcement> pageList(Integer pageNum, Integer pageSize, Integer type, Integer status) {
+    public IPage<Announcement> pageList(Integer pageNum, Integer pageSize, Integer type, Integer status,
+                                        CountMode countMode) {
         LambdaQueryWrapper<Announcement> wrapper = new LambdaQueryWrapper<>();
         if (type != null) {
             wrapper.eq(Announcement::getType, type);
@@ -34,22 +48,46 @@ public class AnnouncementServiceImpl extends ServiceImpl<AnnouncementMapper, Ann
             wrapper.eq(Announcement::getStatus, status);
         }
         wrapper.orderByDesc(Announcement::getPriority).orderByDesc(Announcement::getPublishTime);
-        IPage<Announcement> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillPublisherName);
+        IPage<Announcement> page = pageCounter.page("announcement", countMode, pageNum, pageSize,
+                p -> page(p, wrapper), type, status);
+        fillPublisherName(page.getRecords());
         return page;
     }
     
     @Override
     public List<Announcement> listPublished(Integer type) {
-        LambdaQueryWrapper<Announcement> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Announcement::getStatus, 1); // 已发布
-        if (type != null) {
-            wrapper.eq(Announcement::getType, type);
-        }
-        wrapper.orderByDesc(Announcement::getPriority).orderByDesc(Announcement::getPublishTime);
-        List<Announcement> list = list(wrapper);
-        list.forEach(this::fillPublisherName);
-        return list;
+        return listCache.get(LIST_NAMESPACE, "published:" + type, new TypeReference<List<Announcement>>() {}, () -> {
+            LambdaQueryWrapper<Announcement> wrapper = new LambdaQueryWrapper<>();
+            wrapper.eq(Announcement::getStatus, 1); // 已发布
+            if (type != null) {
+                wrapper.eq(Announcement::getType, type);
+            }
+            wrapper.orderByDesc(Announcement::getPriority).orderByDesc(Announcement::getPublishTime);
+            List<Announcement> list = list(wrapper);
+            fillPublisherName(list);
+            return list;
+        });
+    }
+    
+    @Override
+    public boolean save(Announcement entity) {
+        boolean result = super.save(entity);
+        listCache.evict(LIST_NAMESPACE);
+        return result;
+    }
+    
+    @Override
+    public boolean updateById(Announcement entity) {
+        boolean result = super.updateById(entity);
+        listCache.evict(LIST_NAMESPACE);
+        return result;
+    }
+    
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        listCache.evict(LIST_NAMESPACE);
+        return result;
     }
     
     @Override
@@ -74,14 +112,15 @@ public class AnnouncementServiceImpl extends ServiceImpl<AnnouncementMapper, Ann
     public Announcement getDetailById(Long id) {
         Announcement announcement = getById(id);
         if (announcement != null) {
-            fillPublisherName(announcement);
+            fillPublisherName(Collections.singletonList(announcement));
         }
         return announcement;
     }
     
-    private void fillPublisherName(Announcement announcement) {
-        if (announcement.getPublisherId() != null) {
-            User user = userService.getById(announcement.getPublisherId());
+    private void fillPublisherName(List<Announcement> announcements) {
+        Map<Long, User> users = referenceResolver.users(announcements, Announcement::getPublisherId);
+        for (Announcement announcement : announcements) {
+            User user = users.get(announcement.getPublisherId());
             if (user != null) {
                 announcement.setPublisherName(user.getNickname());
             }
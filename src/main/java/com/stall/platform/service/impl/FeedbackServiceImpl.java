@@ -1,29 +1,34 @@
 package com.stall.platform.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CursorPage;
+import com.stall.platform.common.PageCursor;
 import com.stall.platform.entity.Feedback;
 import com.stall.platform.entity.Stall;
 import com.stall.platform.entity.User;
 import com.stall.platform.mapper.FeedbackMapper;
 import com.stall.platform.service.FeedbackService;
-import com.stall.platform.service.StallService;
-import com.stall.platform.service.UserService;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.ReferenceResolver;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class FeedbackServiceImpl extends ServiceImpl<FeedbackMapper, Feedback> implements FeedbackService {
     
-    private final StallService stallService;
-    private final UserService userService;
+    private final ReferenceResolver referenceResolver;
+    private final PageCounter pageCounter;
     
-    public FeedbackServiceImpl(StallService stallService, UserService userService) {
-        this.stallService = stallService;
-        this.userService = userService;
+    public FeedbackServiceImpl(ReferenceResolver referenceResolver, PageCounter pageCounter) {
+        this.referenceResolver = referenceResolver;
+        this.pageCounter = pageCounter;
     }
     
     @Override
@@ -34,33 +39,27 @@ public class FeedbackServiceImpl extends ServiceImpl<FeedbackMapper, Feedback> i
     
     @Override
     public IPage<Feedback> pageList(Integer pageNum, Integer pageSize, Long userId, Integer type, Integer status) {
-        LambdaQueryWrapper<Feedback> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(Feedback::getUserId, userId);
-        if (type != null) {
-            wrapper.eq(Feedback::getType, type);
+        if (userId == null) {
+            // 用户端必须限定提交人，不能退化为全量查询
+            return new Page<>(pageNum, pageSize);
         }
-        if (status != null) {
-            wrapper.eq(Feedback::getStatus, status);
-        }
-        wrapper.orderByDesc(Feedback::getCreateTime);
-        IPage<Feedback> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+        return baseMapper.selectPageWithDetails(new Page<>(pageNum, pageSize), userId, type, status);
     }
     
     @Override
-    public IPage<Feedback> pageListForAdmin(Integer pageNum, Integer pageSize, Integer type, Integer status) {
-        LambdaQueryWrapper<Feedback> wrapper = new LambdaQueryWrapper<>();
-        if (type != null) {
-            wrapper.eq(Feedback::getType, type);
-        }
-        if (status != null) {
-            wrapper.eq(Feedback::getStatus, status);
-        }
-        wrapper.orderByDesc(Feedback::getCreateTime);
-        IPage<Feedback> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+    public IPage<Feedback> pageListForAdmin(Integer pageNum, Integer pageSize, Integer type, Integer status,
+                                            CountMode countMode) {
+        return pageCounter.page("feedback", countMode, pageNum, pageSize,
+                page -> baseMapper.selectPageWithDetails(page, null, type, status), type, status);
+    }
+    
+    @Override
+    public CursorPage<Feedback> cursorList(String cursor, Integer pageSize, Long userId, Integer type, Integer status) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.clampSize(pageSize);
+        List<Feedback> rows = baseMapper.selectListAfter(userId, type, status,
+                after == null ? null : after.createTime(), after == null ? null : after.id(), size + 1);
+        return CursorPage.of(rows, size, Feedback::getCreateTime, Feedback::getId);
     }
     
     @Override
@@ -88,26 +87,25 @@ public class FeedbackServiceImpl extends ServiceImpl<FeedbackMapper, Feedback> i
     public Feedback getDetailById(Long id) {
         Feedback feedback = getById(id);
         if (feedback != null) {
-            fillDetails(feedback);
+            fillDetails(Collections.singletonList(feedback));
         }
         return feedback;
     }
     
-    private void fillDetails(Feedback feedback) {
-        if (feedback.getUserId() != null) {
-            User user = userService.getById(feedback.getUserId());
+    private void fillDetails(List<Feedback> feedbacks) {
+        // 提交人与处理人合并为一次用户查询
+        Map<Long, User> users = referenceResolver.users(feedbacks, Feedback::getUserId, Feedback::getHandlerId);
+        Map<Long, Stall> stalls = referenceResolver.stalls(feedbacks, Feedback::getStallId);
+        for (Feedback feedback : feedbacks) {
+            User user = users.get(feedback.getUserId());
             if (user != null) {
                 feedback.setUsername(user.getUsername());
             }
-        }
-        if (feedback.getStallId() != null) {
-            Stall stall = stallService.getById(feedback.getStallId());
+            Stall stall = stalls.get(feedback.getStallId());
             if (stall != null) {
                 feedback.setStallName(stall.getName());
             }
-        }
-        if (feedback.getHandlerId() != null) {
-            User handler = userService.getById(feedback.getHandlerId());
+            User handler = users.get(feedback.getHandlerId());
             if (handler != null) {
                 feedback.setHandlerName(handler.getNickname());
             }
@@ -1,44 +1,40 @@
 package com.stall.platform.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.HygieneInspection;
 import com.stall.platform.entity.Stall;
 import com.stall.platform.entity.User;
 import com.stall.platform.mapper.HygieneInspectionMapper;
 import com.stall.platform.service.HygieneInspectionService;
-import com.stall.platform.service.StallService;
-import com.stall.platform.service.UserService;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.ReferenceResolver;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 @Service
 public class HygieneInspectionServiceImpl extends ServiceImpl<HygieneInspectionMapper, HygieneInspection> 
         implements HygieneInspectionService {
     
-    private final StallService stallService;
-    private final UserService userService;
+    private final ReferenceResolver referenceResolver;
+    private final PageCounter pageCounter;
     
-    public HygieneInspectionServiceImpl(StallService stallService, UserService userService) {
-        this.stallService = stallService;
-        this.userService = userService;
+    public HygieneInspectionServiceImpl(ReferenceResolver referenceResolver, PageCounter pageCounter) {
+        this.referenceResolver = referenceResolver;
+        this.pageCounter = pageCounter;
     }
     
     @Override
-    public IPage<HygieneInspection> pageList(Integer pageNum, Integer pageSize, Long stallId, String result) {
-        LambdaQueryWrapper<HygieneInspection> wrapper = new LambdaQueryWrapper<>();
-        if (stallId != null) {
-            wrapper.eq(HygieneInspection::getStallId, stallId);
-        }
-        if (StringUtils.hasText(result)) {
-            wrapper.eq(HygieneInspection::getResult, result);
-        }
-        wrapper.orderByDesc(HygieneInspection::getInspectionDate);
-        IPage<HygieneInspection> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+    public IPage<HygieneInspection> pageList(Integer pageNum, Integer pageSize, Long stallId, String result,
+                                             CountMode countMode) {
+        String r = StringUtils.hasText(result) ? result : null;
+        return pageCounter.page("hygiene_inspection", countMode, pageNum, pageSize,
+                page -> baseMapper.selectPageWithDetails(page, stallId, r), stallId, r);
     }
     
     @Override
@@ -73,21 +69,21 @@ public class HygieneInspectionServiceImpl extends ServiceImpl<HygieneInspectionM
     public HygieneInspection getDetailById(Long id) {
         HygieneInspection inspection = getById(id);
         if (inspection != null) {
-            fillDetails(inspection);
+            fillDetails(Collections.singletonList(inspection));
         }
         return inspection;
     }
     
-    private void fillDetails(HygieneInspection inspection) {
-        if (inspection.getStallId() != null) {
-            Stall stall = stallService.getById(inspection.getStallId());
+    private void fillDetails(List<HygieneInspection> inspections) {
+        Map<Long, Stall> stalls = referenceResolver.stalls(inspections, HygieneInspection::getStallId);
+        Map<Long, User> users = referenceResolver.users(inspections, HygieneInspection::getInspectorId);
+        for (HygieneInspection inspection : inspections) {
+            Stall stall = stalls.get(inspection.getStallId());
             if (stall != null) {
                 inspection.setStallName(stall.getName());
                 inspection.setStallNo(stall.getStallNo());
             }
-        }
-        if (inspection.getInspectorId() != null) {
-            User user = userService.getById(inspection.getInspectorId());
+            User user = users.get(inspection.getInspectorId());
             if (user != null) {
                 inspection.setInspectorName(user.getNickname());
             }
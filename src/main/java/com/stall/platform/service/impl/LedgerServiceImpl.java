@@ -0,0 +1,429 @@
+package com.stall.platform.service.impl;
+
+import cn.hutool.core.util.IdUtil;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.entity.LedgerEntry;
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.mapper.LedgerEntryMapper;
+import com.stall.platform.mapper.RentalRecordMapper;
+import com.stall.platform.service.LedgerService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * 租户账务
+ * 分录按租户记账：先锁定余额行（不存在时先插入），再批量追加分录、在内存中累加后批量写回余额；
+ * 同一租户的记账因此串行，余额表始终等于全部分录之和。某租户上次快照后的分录数达到 ledger.snapshot-interval 时，
+ * 在同一事务中把各科目余额写入快照表，历史余额最多回放一个快照间隔的分录
+ */
+@Service
+public class LedgerServiceImpl extends ServiceImpl<LedgerEntryMapper, LedgerEntry> implements LedgerService {
+    
+    private static final String BALANCE_IDS_SQL = "SELECT id, user_id FROM ledger_balance WHERE user_id IN (%s)";
+    private static final String LOCK_BALANCE_SQL = "SELECT user_id, account, balance, pending_entries "
+            + "FROM ledger_balance WHERE id IN (%s) ORDER BY id FOR UPDATE";
+    private static final String INSERT_BALANCE_SQL = "INSERT IGNORE INTO ledger_balance "
+            + "(user_id, account, balance, pending_entries, last_entry_id, update_time) VALUES (?, ?, 0, 0, 0, ?)";
+    private static final String UPDATE_BALANCE_SQL = "UPDATE ledger_balance SET balance = ?, pending_entries = ?, "
+            + "last_entry_id = ?, update_time = ? WHERE user_id = ? AND account = ?";
+    private static final String INSERT_SNAPSHOT_SQL = "INSERT INTO ledger_snapshot "
+            + "(user_id, account, balance, last_entry_id, create_time) VALUES (?, ?, ?, ?, ?)";
+    private static final String CURRENT_BALANCE_SQL = "SELECT account, balance FROM ledger_balance WHERE user_id = ?";
+    private static final String NEAREST_SNAPSHOT_SQL = "SELECT account, balance, last_entry_id FROM ledger_snapshot "
+            + "WHERE user_id = ? AND last_entry_id = (SELECT MAX(last_entry_id) FROM ledger_snapshot "
+            + "WHERE user_id = ? AND create_time <= ?)";
+    private static final String REPLAY_SQL = "SELECT account, SUM(amount) FROM ledger_entry "
+            + "WHERE user_id = ? AND id > ? AND create_time <= ? GROUP BY account";
+    private static final String RENTAL_POSITION_SQL = "SELECT rental_id, account, SUM(amount) FROM ledger_entry "
+            + "WHERE rental_id IN (%s) GROUP BY rental_id, account";
+    private static final int IN_CHUNK = 1000;
+    
+    private final RentalRecordMapper rentalRecordMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final int snapshotInterval;
+    
+    public LedgerServiceImpl(RentalRecordMapper rentalRecordMapper, JdbcTemplate jdbcTemplate,
+                             @Value("${ledger.snapshot-interval:100}") int snapshotInterval) {
+        this.rentalRecordMapper = rentalRecordMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.snapshotInterval = Math.max(snapshotInterval, 1);
+    }
+    
+    @Override
+    @Transactional
+    public void chargeRentals(List<RentalRecord> records) {
+        if (records == null || records.isEmpty()) {
+            return;
+        }
+        Map<Long, Map<String, Balance>> balances = lock(records.stream().map(RentalRecord::getUserId).toList());
+        Map<Long, Map<String, BigDecimal>> positions = positions(records.stream().map(RentalRecord::getId).toList());
+        List<Journal> journals = new ArrayList<>();
+        Set<Long> charged = new HashSet<>(positions.keySet());
+        for (RentalRecord record : records) {
+            if (charged.add(record.getId())) {
+                journals.addAll(charges(record));
+            }
+        }
+        append(journals, balances);
+    }
+    
+    @Override
+    @Transactional
+    public void recordPayments(List<Payment> payments) {
+        if (payments == null || payments.isEmpty()) {
+            return;
+        }
+        Map<Long, RentalRecord> rentals = rentals(payments.stream().map(Payment::rentalId).toList());
+        Map<Long, Map<String, Balance>> balances = lock(rentals.values().stream()
+                .map(RentalRecord::getUserId).toList());
+        Map<Long, Map<String, BigDecimal>> positions = positions(rentals.keySet());
+        List<Journal> journals = new ArrayList<>();
+        for (RentalRecord record : rentals.values()) {
+            if (!positions.containsKey(record.getId())) {
+                journals.addAll(charges(record));
+            }
+        }
+        for (Payment payment : payments) {
+            RentalRecord record = rentals.get(payment.rentalId());
+            if (record == null) {
+                continue;
+            }
+            BigDecimal rent = nonNull(payment.rent());
+            BigDecimal deposit = nonNull(payment.deposit());
+            journals.add(new Journal(record, "PAYMENT", payment.reference(), postings(map -> {
+                map.put(CASH, rent.add(deposit));
+                map.put(RENT_RECEIVABLE, rent.negate());
+                map.put(DEPOSIT_RECEIVABLE, deposit.negate());
+            })));
+        }
+        append(journals, balances);
+    }
+    
+    @Override
+    @Transactional
+    public void settleRental(Long rentalId) {
+        RentalRecord record = rentalRecordMapper.selectById(rentalId);
+        if (record == null) {
+            return;
+        }
+        Map<Long, Map<String, Balance>> balances = lock(List.of(record.getUserId()));
+        List<Journal> journals = new ArrayList<>();
+        Map<String, BigDecimal> position = position(record, journals);
+        BigDecimal rentDue = position.getOrDefault(RENT_RECEIVABLE, BigDecimal.ZERO).max(BigDecimal.ZERO);
+        BigDecimal depositDue = position.getOrDefault(DEPOSIT_RECEIVABLE, BigDecimal.ZERO).max(BigDecimal.ZERO);
+        journals.add(new Journal(record, "PAYMENT", null, postings(map -> {
+            map.put(CASH, rentDue.add(depositDue));
+            map.put(RENT_RECEIVABLE, rentDue.negate());
+            map.put(DEPOSIT_RECEIVABLE, depositDue.negate());
+        })));
+        append(journals, balances);
+    }
+    
+    @Override
+    @Transactional
+    public void reversePayments(Long rentalId) {
+        RentalRecord record = rentalRecordMapper.selectById(rentalId);
+        if (record == null) {
+            return;
+        }
+        Map<Long, Map<String, Balance>> balances = lock(List.of(record.getUserId()));
+        Map<String, BigDecimal> position = positions(List.of(rentalId)).get(rentalId);
+        if (position == null) {
+            return;
+        }
+        // 已收 = 已确认的应收 - 尚欠；押金已退还（应付押金已冲销）的部分不在其中
+        BigDecimal rentPaid = position.getOrDefault(RENT_INCOME, BigDecimal.ZERO).negate()
+                .subtract(position.getOrDefault(RENT_RECEIVABLE, BigDecimal.ZERO)).max(BigDecimal.ZERO);
+        BigDecimal depositPaid = position.getOrDefault(DEPOSIT_HELD, BigDecimal.ZERO).negate()
+                .subtract(position.getOrDefault(DEPOSIT_RECEIVABLE, BigDecimal.ZERO)).max(BigDecimal.ZERO);
+        append(List.of(new Journal(record, "PAYMENT_REVERSAL", null, postings(map -> {
+            map.put(RENT_RECEIVABLE, rentPaid);
+            map.put(DEPOSIT_RECEIVABLE, depositPaid);
+            map.put(CASH, rentPaid.add(depositPaid).negate());
+        }))), balances);
+    }
+    
+    @Override
+    @Transactional
+    public BigDecimal refundDeposit(Long rentalId) {
+        RentalRecord record = rentalRecordMapper.selectById(rentalId);
+        if (record == null) {
+            throw new IllegalArgumentException("租赁记录不存在");
+        }
+        if (Integer.valueOf(1).equals(record.getStatus())) {
+            throw new IllegalArgumentException("租赁中的记录不能退还押金");
+        }
+        Map<Long, Map<String, Balance>> balances = lock(List.of(record.getUserId()));
+        List<Journal> journals = new ArrayList<>();
+        Map<String, BigDecimal> position = position(record, journals);
+        BigDecimal held = position.getOrDefault(DEPOSIT_HELD, BigDecimal.ZERO).negate();
+        if (held.signum() <= 0) {
+            throw new IllegalArgumentException("该租赁记录没有可退还的押金");
+        }
+        // 冲销应付押金：已收部分退还现金，未收部分核销应收
+        BigDecimal due = position.getOrDefault(DEPOSIT_RECEIVABLE, BigDecimal.ZERO);
+        BigDecimal refund = held.subtract(due);
+        journals.add(new Journal(record, "DEPOSIT_REFUND", null, postings(map -> {
+            map.put(DEPOSIT_HELD, held);
+            map.put(DEPOSIT_RECEIVABLE, due.negate());
+            map.put(CASH, refund.negate());
+        })));
+        append(journals, balances);
+        return refund;
+    }
+    
+    @Override
+    public TenantBalance getBalance(Long userId) {
+        Map<String, BigDecimal> accounts = new HashMap<>();
+        jdbcTemplate.query(CURRENT_BALANCE_SQL, rs -> {
+            accounts.put(rs.getString(1), rs.getBigDecimal(2));
+        }, userId);
+        return tenantBalance(userId, accounts, LocalDateTime.now());
+    }
+    
+    @Override
+    public TenantBalance getBalanceAt(Long userId, LocalDateTime at) {
+        Timestamp time = Timestamp.valueOf(at);
+        Map<String, BigDecimal> accounts = new HashMap<>();
+        long[] lastEntryId = {0};
+        jdbcTemplate.query(NEAREST_SNAPSHOT_SQL, rs -> {
+            accounts.put(rs.getString(1), rs.getBigDecimal(2));
+            lastEntryId[0] = rs.getLong(3);
+        }, userId, userId, time);
+        jdbcTemplate.query(REPLAY_SQL, rs -> {
+            accounts.merge(rs.getString(1), rs.getBigDecimal(2), BigDecimal::add);
+        }, userId, lastEntryId[0], time);
+        return tenantBalance(userId, accounts, at);
+    }
+    
+    @Override
+    public IPage<LedgerEntry> pageEntries(Integer pageNum, Integer pageSize, Long userId, Long rentalId) {
+        return lambdaQuery()
+                .eq(userId != null, LedgerEntry::getUserId, userId)
+                .eq(rentalId != null, LedgerEntry::getRentalId, rentalId)
+                .orderByDesc(LedgerEntry::getId)
+                .page(new Page<>(pageNum, pageSize));
+    }
+    
+    /**
+     * 锁定租户的余额行：先用非锁定读找出还没有余额行的租户并插入，再按主键顺序锁定已存在的行
+     * 不能对尚不存在的行做锁定读：InnoDB 会加间隙锁，两个新租户同时首次记账时落在同一间隙，
+     * 各自持有间隙锁后再插入会互相等待而死锁；按主键锁定只加记录锁
+     */
+    private Map<Long, Map<String, Balance>> lock(Collection<Long> userIds) {
+        List<Long> users = userIds.stream().filter(Objects::nonNull).distinct().sorted().toList();
+        Map<Long, List<Long>> rowIds = balanceRowIds(users);
+        List<Long> missing = users.stream()
+                .filter(id -> rowIds.getOrDefault(id, Collections.emptyList()).size() < ACCOUNTS.size())
+                .toList();
+        if (!missing.isEmpty()) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            List<Object[]> rows = new ArrayList<>(missing.size() * ACCOUNTS.size());
+            for (Long userId : missing) {
+                for (String account : ACCOUNTS) {
+                    rows.add(new Object[]{userId, account, now});
+                }
+            }
+            jdbcTemplate.batchUpdate(INSERT_BALANCE_SQL, rows);
+            rowIds.putAll(balanceRowIds(missing));
+        }
+        List<Long> ids = rowIds.values().stream().flatMap(List::stream).sorted().toList();
+        Map<Long, Map<String, Balance>> locked = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += IN_CHUNK) {
+            List<Long> chunk = ids.subList(i, Math.min(i + IN_CHUNK, ids.size()));
+            jdbcTemplate.query(String.format(LOCK_BALANCE_SQL, placeholders(chunk.size())), rs -> {
+                locked.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                        .put(rs.getString(2), new Balance(rs.getBigDecimal(3), rs.getInt(4)));
+            }, chunk.toArray());
+        }
+        return locked;
+    }
+    
+    private Map<Long, List<Long>> balanceRowIds(List<Long> users) {
+        Map<Long, List<Long>> rowIds = new HashMap<>();
+        for (int i = 0; i < users.size(); i += IN_CHUNK) {
+            List<Long> chunk = users.subList(i, Math.min(i + IN_CHUNK, users.size()));
+            jdbcTemplate.query(String.format(BALANCE_IDS_SQL, placeholders(chunk.size())), rs -> {
+                rowIds.computeIfAbsent(rs.getLong(2), k -> new ArrayList<>()).add(rs.getLong(1));
+            }, chunk.toArray());
+        }
+        return rowIds;
+    }
+    
+    /**
+     * 追加分录并写回余额（调用方已锁定涉及租户的余额行），达到快照间隔的租户同时写快照
+     */
+    private void append(List<Journal> journals, Map<Long, Map<String, Balance>> balances) {
+        LocalDateTime now = LocalDateTime.now();
+        List<LedgerEntry> entries = new ArrayList<>();
+        for (Journal journal : journals) {
+            BigDecimal sum = journal.postings().values().stream().reduce(BigDecimal.ZERO, BigDecimal::add);
+            if (sum.signum() != 0) {
+                throw new IllegalStateException("凭证借贷不平衡: " + journal.postings());
+            }
+            long journalId = IdUtil.getSnowflakeNextId();
+            journal.postings().forEach((account, amount) -> {
+                if (amount.signum() == 0) {
+                    return;
+                }
+                LedgerEntry entry = new LedgerEntry();
+                entry.setJournalId(journalId);
+                entry.setUserId(journal.record().getUserId());
+                entry.setStallId(journal.record().getStallId());
+                entry.setRentalId(journal.record().getId());
+                entry.setAccount(account);
+                entry.setAmount(amount);
+                entry.setEntryType(journal.entryType());
+                entry.setReference(journal.reference());
+                entry.setCreateTime(now);
+                entries.add(entry);
+            });
+        }
+        if (entries.isEmpty()) {
+            return;
+        }
+        saveBatch(entries);
+        
+        Map<Long, Long> lastEntryIds = new HashMap<>();
+        for (LedgerEntry entry : entries) {
+            Balance balance = balances.get(entry.getUserId()).get(entry.getAccount());
+            balance.amount = balance.amount.add(entry.getAmount());
+            balance.pending++;
+            lastEntryIds.merge(entry.getUserId(), entry.getId(), Math::max);
+        }
+        Timestamp time = Timestamp.valueOf(now);
+        List<Object[]> updates = new ArrayList<>();
+        List<Object[]> snapshots = new ArrayList<>();
+        lastEntryIds.forEach((userId, lastEntryId) -> {
+            Map<String, Balance> accounts = balances.get(userId);
+            boolean snapshot = accounts.values().stream().mapToInt(b -> b.pending).sum() >= snapshotInterval;
+            for (String account : ACCOUNTS) {
+                Balance balance = accounts.get(account);
+                if (snapshot) {
+                    snapshots.add(new Object[]{userId, account, balance.amount, lastEntryId, time});
+                    balance.pending = 0;
+                }
+                updates.add(new Object[]{balance.amount, balance.pending, lastEntryId, time, userId, account});
+            }
+        });
+        jdbcTemplate.batchUpdate(UPDATE_BALANCE_SQL, updates);
+        if (!snapshots.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SNAPSHOT_SQL, snapshots);
+        }
+    }
+    
+    /**
+     * 租赁记录各科目的合计；尚未入账时把入账凭证加入 journals 并按其计算
+     */
+    private Map<String, BigDecimal> position(RentalRecord record, List<Journal> journals) {
+        Map<String, BigDecimal> position = positions(List.of(record.getId())).get(record.getId());
+        if (position != null) {
+            return position;
+        }
+        Map<String, BigDecimal> charged = new HashMap<>();
+        for (Journal journal : charges(record)) {
+            journals.add(journal);
+            journal.postings().forEach((account, amount) -> charged.merge(account, amount, BigDecimal::add));
+        }
+        return charged;
+    }
+    
+    private Map<Long, Map<String, BigDecimal>> positions(Collection<Long> rentalIds) {
+        List<Long> ids = rentalIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, Map<String, BigDecimal>> positions = new HashMap<>();
+        for (int i = 0; i < ids.size(); i += IN_CHUNK) {
+            List<Long> chunk = ids.subList(i, Math.min(i + IN_CHUNK, ids.size()));
+            jdbcTemplate.query(String.format(RENTAL_POSITION_SQL, placeholders(chunk.size())), rs -> {
+                positions.computeIfAbsent(rs.getLong(1), k -> new HashMap<>())
+                        .put(rs.getString(2), rs.getBigDecimal(3));
+            }, chunk.toArray());
+        }
+        return positions;
+    }
+    
+    private Map<Long, RentalRecord> rentals(Collection<Long> rentalIds) {
+        List<Long> ids = rentalIds.stream().filter(Objects::nonNull).distinct().toList();
+        Map<Long, RentalRecord> rentals = new LinkedHashMap<>();
+        for (int i = 0; i < ids.size(); i += IN_CHUNK) {
+            rentalRecordMapper.selectBatchIds(ids.subList(i, Math.min(i + IN_CHUNK, ids.size())))
+                    .forEach(record -> rentals.put(record.getId(), record));
+        }
+        return rentals;
+    }
+    
+    /**
+     * 入账：借应收租金、贷租金收入；借应收押金、贷应付押金
+     */
+    private static List<Journal> charges(RentalRecord record) {
+        BigDecimal rent = nonNull(record.getRentAmount());
+        BigDecimal deposit = nonNull(record.getDeposit());
+        List<Journal> journals = new ArrayList<>(2);
+        if (rent.signum() != 0) {
+            journals.add(new Journal(record, "RENT_CHARGE", null, postings(map -> {
+                map.put(RENT_RECEIVABLE, rent);
+                map.put(RENT_INCOME, rent.negate());
+            })));
+        }
+        if (deposit.signum() != 0) {
+            journals.add(new Journal(record, "DEPOSIT_CHARGE", null, postings(map -> {
+                map.put(DEPOSIT_RECEIVABLE, deposit);
+                map.put(DEPOSIT_HELD, deposit.negate());
+            })));
+        }
+        return journals;
+    }
+    
+    private static TenantBalance tenantBalance(Long userId, Map<String, BigDecimal> balances, LocalDateTime asOf) {
+        Map<String, BigDecimal> accounts = new LinkedHashMap<>();
+        for (String account : ACCOUNTS) {
+            accounts.put(account, balances.getOrDefault(account, BigDecimal.ZERO).setScale(2, RoundingMode.HALF_UP));
+        }
+        BigDecimal rentOutstanding = accounts.get(RENT_RECEIVABLE);
+        BigDecimal depositOutstanding = accounts.get(DEPOSIT_RECEIVABLE);
+        BigDecimal depositHeld = accounts.get(DEPOSIT_HELD).negate().subtract(depositOutstanding);
+        return new TenantBalance(userId, rentOutstanding.add(depositOutstanding), rentOutstanding,
+                depositOutstanding, depositHeld, accounts, asOf);
+    }
+    
+    private static Map<String, BigDecimal> postings(Consumer<Map<String, BigDecimal>> builder) {
+        Map<String, BigDecimal> postings = new LinkedHashMap<>();
+        builder.accept(postings);
+        return postings;
+    }
+    
+    private static BigDecimal nonNull(BigDecimal value) {
+        return value == null ? BigDecimal.ZERO : value;
+    }
+    
+    private static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+    
+    private record Journal(RentalRecord record, String entryType, String reference, Map<String, BigDecimal> postings) {
+    }
+    
+    /**
+     * 已锁定的余额行，记账期间在内存中累加
+     */
+    private static final class Balance {
+        
+        private BigDecimal amount;
+        private int pending;
+        
+        private Balance(BigDecimal amount, int pending) {
+            this.amount = amount;
+            this.pending = pending;
+        }
+    }
+}
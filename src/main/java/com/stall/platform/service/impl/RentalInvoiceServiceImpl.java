@@ -0,0 +1,72 @@
+package com.stall.platform.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.entity.BillingRun;
+import com.stall.platform.entity.RentalInvoice;
+import com.stall.platform.mapper.RentalInvoiceMapper;
+import com.stall.platform.service.RentalInvoiceService;
+import com.stall.platform.service.support.BillingEngine;
+import com.stall.platform.service.support.PageCounter;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import java.time.YearMonth;
+
+@Service
+public class RentalInvoiceServiceImpl extends ServiceImpl<RentalInvoiceMapper, RentalInvoice>
+        implements RentalInvoiceService {
+    
+    private final BillingEngine billingEngine;
+    private final PageCounter pageCounter;
+    
+    public RentalInvoiceServiceImpl(BillingEngine billingEngine, PageCounter pageCounter) {
+        this.billingEngine = billingEngine;
+        this.pageCounter = pageCounter;
+    }
+    
+    @Override
+    public IPage<RentalInvoice> pageList(Integer pageNum, Integer pageSize, Long userId, String period,
+                                         Integer status) {
+        if (userId == null) {
+            // 用户端必须限定租户，不能退化为全量查询
+            return new Page<>(pageNum, pageSize);
+        }
+        return page(new Page<>(pageNum, pageSize), wrapper(period, null, status).eq(RentalInvoice::getUserId, userId));
+    }
+    
+    @Override
+    public IPage<RentalInvoice> pageListForAdmin(Integer pageNum, Integer pageSize, String period, Long rentalId,
+                                                 Integer status, CountMode countMode) {
+        LambdaQueryWrapper<RentalInvoice> wrapper = wrapper(period, rentalId, status);
+        return pageCounter.page("rental_invoice", countMode, pageNum, pageSize, p -> page(p, wrapper),
+                period, rentalId, status);
+    }
+    
+    @Override
+    public BillingRun startBilling(YearMonth period) {
+        return billingEngine.start(period);
+    }
+    
+    @Override
+    public BillingRun runBilling(YearMonth period) {
+        return billingEngine.run(period);
+    }
+    
+    @Override
+    public BillingRun getBillingRun(YearMonth period) {
+        return billingEngine.find(period);
+    }
+    
+    private static LambdaQueryWrapper<RentalInvoice> wrapper(String period, Long rentalId, Integer status) {
+        return new LambdaQueryWrapper<RentalInvoice>()
+                .eq(StringUtils.hasText(period), RentalInvoice::getPeriod, period)
+                .eq(rentalId != null, RentalInvoice::getRentalId, rentalId)
+                .eq(status != null, RentalInvoice::getStatus, status)
+                .orderByDesc(RentalInvoice::getPeriod)
+                .orderByDesc(RentalInvoice::getId);
+    }
+}
@@ -4,80 +4,214 @@ import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CursorPage;
+import com.stall.platform.common.PageCursor;
+import com.stall.platform.entity.RentalInvoice;
 import com.stall.platform.entity.RentalRecord;
 import com.stall.platform.entity.Stall;
 import com.stall.platform.entity.User;
+import com.stall.platform.mapper.RentalInvoiceMapper;
 import com.stall.platform.mapper.RentalRecordMapper;
+import com.stall.platform.service.LedgerService;
 import com.stall.platform.service.RentalRecordService;
 import com.stall.platform.service.StallService;
-import com.stall.platform.service.UserService;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.ReferenceResolver;
+import com.stall.platform.service.support.StallCalendar;
+import com.stall.platform.service.support.StallStateMachine;
+import com.stall.platform.service.support.StatementReader;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+@Slf4j
 @Service
 public class RentalRecordServiceImpl extends ServiceImpl<RentalRecordMapper, RentalRecord> 
         implements RentalRecordService {
     
-    private final UserService userService;
+    public static final int MAX_STATEMENT_LINES = 100_000;
+    
+    private static final String RENTAL_REFERENCE_PREFIX = "RENT-";
+    private static final Pattern PAYMENT_REFERENCE = Pattern.compile(
+            "(?<![A-Z0-9])(INV\\d{6}-\\d{1,18}|" + RENTAL_REFERENCE_PREFIX + "\\d{1,18})(?!\\d)");
+    private static final String PAY_INVOICE_SQL = "UPDATE rental_invoice SET status = 1, update_time = ? "
+            + "WHERE id = ? AND status = 0 AND deleted = 0";
+    private static final String PAY_RENTAL_SQL = "UPDATE rental_record SET payment_status = 1, update_time = ? "
+            + "WHERE id = ? AND payment_status = 0 AND deleted = 0";
+    private static final int LOAD_CHUNK = 1000;
+    
     private final StallService stallService;
+    private final ReferenceResolver referenceResolver;
+    private final PageCounter pageCounter;
+    private final StallCalendar calendar;
+    private final RentalInvoiceMapper invoiceMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final LedgerService ledgerService;
     
-    public RentalRecordServiceImpl(UserService userService, @Lazy StallService stallService) {
-        this.userService = userService;
+    public RentalRecordServiceImpl(@Lazy StallService stallService, ReferenceResolver referenceResolver,
+                                   PageCounter pageCounter, StallCalendar calendar,
+                                   RentalInvoiceMapper invoiceMapper, JdbcTemplate jdbcTemplate,
+                                   LedgerService ledgerService) {
         this.stallService = stallService;
+        this.referenceResolver = referenceResolver;
+        this.pageCounter = pageCounter;
+        this.calendar = calendar;
+        this.invoiceMapper = invoiceMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.ledgerService = ledgerService;
     }
     
     @Override
     public IPage<RentalRecord> pageList(Integer pageNum, Integer pageSize, Long userId, Long stallId) {
-        LambdaQueryWrapper<RentalRecord> wrapper = new LambdaQueryWrapper<>();
-        if (userId != null) {
-            wrapper.eq(RentalRecord::getUserId, userId);
-        }
-        if (stallId != null) {
-            wrapper.eq(RentalRecord::getStallId, stallId);
-        }
-        wrapper.orderByDesc(RentalRecord::getCreateTime);
-        IPage<RentalRecord> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+        return baseMapper.selectPageWithDetails(new Page<>(pageNum, pageSize), userId, stallId, null);
     }
     
     @Override
-    public IPage<RentalRecord> pageListForAdmin(Integer pageNum, Integer pageSize, Long stallId, Integer status) {
-        LambdaQueryWrapper<RentalRecord> wrapper = new LambdaQueryWrapper<>();
-        if (stallId != null) {
-            wrapper.eq(RentalRecord::getStallId, stallId);
+    public IPage<RentalRecord> pageListForAdmin(Integer pageNum, Integer pageSize, Long stallId, Integer status,
+                                                CountMode countMode) {
+        return pageCounter.page("rental_record", countMode, pageNum, pageSize,
+                page -> baseMapper.selectPageWithDetails(page, null, stallId, status), stallId, status);
+    }
+    
+    @Override
+    public CursorPage<RentalRecord> cursorList(String cursor, Integer pageSize, Long userId, Long stallId,
+                                               Integer status) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.clampSize(pageSize);
+        List<RentalRecord> rows = baseMapper.selectListAfter(userId, stallId, status,
+                after == null ? null : after.createTime(), after == null ? null : after.id(), size + 1);
+        return CursorPage.of(rows, size, RentalRecord::getCreateTime, RentalRecord::getId);
+    }
+    
+    @Override
+    @Transactional
+    public boolean updatePaymentStatus(Long id, Integer paymentStatus) {
+        RentalRecord record = getById(id);
+        if (record == null) {
+            return false;
         }
-        if (status != null) {
-            wrapper.eq(RentalRecord::getStatus, status);
+        Integer previous = record.getPaymentStatus();
+        if (Objects.equals(previous, paymentStatus)) {
+            return true;
         }
-        wrapper.orderByDesc(RentalRecord::getCreateTime);
-        IPage<RentalRecord> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+        // 以原状态为条件更新，并发登记时只有一个生效并记账
+        boolean result = lambdaUpdate()
+                .set(RentalRecord::getPaymentStatus, paymentStatus)
+                .set(RentalRecord::getUpdateTime, LocalDateTime.now())
+                .eq(RentalRecord::getId, id)
+                .eq(previous != null, RentalRecord::getPaymentStatus, previous)
+                .isNull(previous == null, RentalRecord::getPaymentStatus)
+                .update();
+        if (result && Integer.valueOf(1).equals(paymentStatus)) {
+            ledgerService.settleRental(id);
+        } else if (result && Integer.valueOf(1).equals(previous)) {
+            ledgerService.reversePayments(id);
+        }
+        return result;
     }
     
     @Override
-    public boolean updatePaymentStatus(Long id, Integer paymentStatus) {
-        RentalRecord record = new RentalRecord();
-        record.setId(id);
-        record.setPaymentStatus(paymentStatus);
-        return updateById(record);
+    @Transactional
+    public ReconcileReport reconcilePayments(Reader statement) throws IOException {
+        // 边读边按块匹配：每 LOAD_CHUNK 行加载一次涉及的账单和租赁记录，异常行直接记下，只保留匹配上的行
+        List<ReconcileIssue> issues = new ArrayList<>();
+        Map<String, List<Claim>> claims = new LinkedHashMap<>();
+        List<StatementReader.Line> chunk = new ArrayList<>(LOAD_CHUNK);
+        int[] read = new int[1];
+        int total = StatementReader.read(statement, line -> {
+            if (read[0]++ >= MAX_STATEMENT_LINES) {
+                throw new IllegalArgumentException("单个流水文件最多" + MAX_STATEMENT_LINES + "行");
+            }
+            chunk.add(line);
+            if (chunk.size() == LOAD_CHUNK) {
+                matchChunk(chunk, claims, issues);
+                chunk.clear();
+            }
+        });
+        matchChunk(chunk, claims, issues);
+        
+        // 多行流水对应同一笔应付款时无法判断哪一行有效，全部列为异常由财务核对；要看完整个文件才能确定，登记放在最后
+        List<Claim> invoiceClaims = new ArrayList<>();
+        List<Claim> rentalClaims = new ArrayList<>();
+        for (Map.Entry<String, List<Claim>> entry : claims.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                entry.getValue().forEach(claim -> issues.add(issue(claim.line(), ReconcileIssueType.AMBIGUOUS,
+                        "多行流水对应同一笔应付款 " + entry.getKey())));
+            } else {
+                Claim claim = entry.getValue().get(0);
+                (claim.payable().invoice() ? invoiceClaims : rentalClaims).add(claim);
+            }
+        }
+        
+        // 条件更新只登记仍未支付的，期间已被其他操作登记的行列为已支付
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Claim> paid = new ArrayList<>(invoiceClaims.size() + rentalClaims.size());
+        int invoicesPaid = markPaid(PAY_INVOICE_SQL, invoiceClaims, paid, issues, now);
+        int rentalsPaid = markPaid(PAY_RENTAL_SQL, rentalClaims, paid, issues, now);
+        List<LedgerService.Payment> payments = new ArrayList<>(paid.size());
+        BigDecimal matchedAmount = BigDecimal.ZERO;
+        paid.sort(Comparator.comparingInt(claim -> claim.line().lineNo()));
+        for (Claim claim : paid) {
+            // 租赁记录按金额区分只付租金还是租金加押金，账单只冲减租金
+            BigDecimal amount = claim.line().amount();
+            BigDecimal rent = claim.payable().invoice() ? amount : claim.payable().amounts().get(0);
+            payments.add(new LedgerService.Payment(claim.payable().rentalId(), rent, amount.subtract(rent),
+                    claim.payable().reference()));
+            matchedAmount = matchedAmount.add(amount);
+        }
+        ledgerService.recordPayments(payments);
+        if (invoicesPaid > 0) {
+            pageCounter.invalidate("rental_invoice");
+        }
+        if (rentalsPaid > 0) {
+            pageCounter.invalidate("rental_record");
+        }
+        
+        issues.sort(Comparator.comparingInt(ReconcileIssue::lineNo));
+        return new ReconcileReport(total, invoicesPaid + rentalsPaid, invoicesPaid, rentalsPaid,
+                matchedAmount, issues);
     }
     
     @Override
     @Transactional
     public boolean terminate(Long id) {
-        RentalRecord record = getById(id);
+        // 锁定读取，之后查其他租赁时读到并发审核已提交的记录（同 StallApplicationServiceImpl.review）
+        RentalRecord record = lambdaQuery().eq(RentalRecord::getId, id).last("FOR UPDATE").one();
         if (record == null || record.getStatus() != 1) {
             return false;
         }
-        record.setStatus(3); // 提前终止
-        boolean result = updateById(record);
+        // 只终止仍在租赁中的记录，并发终止时只有一个成功
+        boolean result = lambdaUpdate()
+                .set(RentalRecord::getStatus, 3) // 提前终止
+                .set(RentalRecord::getUpdateTime, LocalDateTime.now())
+                .eq(RentalRecord::getId, id)
+                .eq(RentalRecord::getStatus, 1)
+                .update();
+        if (result) {
+            calendar.markDirty(record.getStallId());
+        }
         
-        // 释放摊位
+        // 释放摊位；锁定摊位后仍有其他租赁（已批准的后续日期）或已被改为其他状态（如维护中）时保持不变
         if (result) {
-            stallService.updateStatus(record.getStallId(), 0);
+            stallService.lockByIds(List.of(record.getStallId()));
+            if (calendar.rentedStalls(List.of(record.getStallId())).isEmpty()
+                    && !stallService.compareAndSetStatus(record.getStallId(), StallStateMachine.RENTED,
+                    StallStateMachine.IDLE)) {
+                log.info("租赁记录 {} 终止时摊位 {} 不是已租用状态，未释放", id, record.getStallId());
+            }
         }
         return result;
     }
@@ -86,24 +220,200 @@ public class RentalRecordServiceImpl extends ServiceImpl<RentalRecordMapper, Ren
     public RentalRecord getDetailById(Long id) {
         RentalRecord record = getById(id);
         if (record != null) {
-            fillDetails(record);
+            fillDetails(Collections.singletonList(record));
         }
         return record;
     }
     
-    private void fillDetails(RentalRecord record) {
-        if (record.getUserId() != null) {
-            User user = userService.getById(record.getUserId());
+    private void fillDetails(List<RentalRecord> records) {
+        Map<Long, User> users = referenceResolver.users(records, RentalRecord::getUserId);
+        Map<Long, Stall> stalls = referenceResolver.stalls(records, RentalRecord::getStallId);
+        for (RentalRecord record : records) {
+            User user = users.get(record.getUserId());
             if (user != null) {
                 record.setUsername(user.getUsername());
             }
-        }
-        if (record.getStallId() != null) {
-            Stall stall = stallService.getById(record.getStallId());
+            Stall stall = stalls.get(record.getStallId());
             if (stall != null) {
                 record.setStallName(stall.getName());
                 record.setStallNo(stall.getStallNo());
             }
         }
     }
+    
+    private Map<String, Payable> loadPayables(Set<String> invoiceNos, Set<Long> rentalIds) {
+        Map<String, Payable> payables = new HashMap<>();
+        List<String> nos = new ArrayList<>(invoiceNos);
+        for (int i = 0; i < nos.size(); i += LOAD_CHUNK) {
+            List<RentalInvoice> invoices = invoiceMapper.selectList(new LambdaQueryWrapper<RentalInvoice>()
+                    .select(RentalInvoice::getId, RentalInvoice::getInvoiceNo, RentalInvoice::getRentalId,
+                            RentalInvoice::getAmount, RentalInvoice::getStatus)
+                    .in(RentalInvoice::getInvoiceNo, nos.subList(i, Math.min(i + LOAD_CHUNK, nos.size()))));
+            for (RentalInvoice invoice : invoices) {
+                payables.put(invoice.getInvoiceNo(), new Payable(true, invoice.getId(), invoice.getRentalId(),
+                        invoice.getInvoiceNo(), Integer.valueOf(1).equals(invoice.getStatus()),
+                        List.of(invoice.getAmount())));
+            }
+        }
+        List<Long> ids = new ArrayList<>(rentalIds);
+        for (int i = 0; i < ids.size(); i += LOAD_CHUNK) {
+            List<RentalRecord> records = lambdaQuery()
+                    .select(RentalRecord::getId, RentalRecord::getRentAmount, RentalRecord::getDeposit,
+                            RentalRecord::getPaymentStatus)
+                    .in(RentalRecord::getId, ids.subList(i, Math.min(i + LOAD_CHUNK, ids.size())))
+                    .list();
+            for (RentalRecord record : records) {
+                // 租赁记录可只付租金，也可租金和押金一起付
+                BigDecimal rent = Objects.requireNonNullElse(record.getRentAmount(), BigDecimal.ZERO);
+                BigDecimal deposit = Objects.requireNonNullElse(record.getDeposit(), BigDecimal.ZERO);
+                String reference = RENTAL_REFERENCE_PREFIX + record.getId();
+                payables.put(reference, new Payable(false, record.getId(), record.getId(), reference,
+                        Integer.valueOf(1).equals(record.getPaymentStatus()),
+                        deposit.signum() == 0 ? List.of(rent) : List.of(rent, rent.add(deposit))));
+            }
+        }
+        return payables;
+    }
+    
+    /**
+     * 匹配一块流水：只加载本块出现的账单和租赁记录，按 参考号|金额 建哈希索引；
+     * 匹配上的行按应付款参考号收集，其余行记为异常
+     */
+    private void matchChunk(List<StatementReader.Line> chunk, Map<String, List<Claim>> claims,
+                            List<ReconcileIssue> issues) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<List<String>> lineReferences = new ArrayList<>(chunk.size());
+        Set<String> invoiceNos = new HashSet<>();
+        Set<Long> rentalIds = new HashSet<>();
+        for (StatementReader.Line line : chunk) {
+            List<String> references = references(line.reference());
+            for (String reference : references) {
+                if (reference.startsWith(RENTAL_REFERENCE_PREFIX)) {
+                    rentalIds.add(Long.valueOf(reference.substring(RENTAL_REFERENCE_PREFIX.length())));
+                } else {
+                    invoiceNos.add(reference);
+                }
+            }
+            lineReferences.add(references);
+        }
+        Map<String, Payable> byReference = loadPayables(invoiceNos, rentalIds);
+        Map<String, Payable> index = new HashMap<>(byReference.size() * 3);
+        for (Payable payable : byReference.values()) {
+            payable.amounts().forEach(amount -> index.put(key(payable.reference(), amount), payable));
+        }
+        
+        for (int i = 0; i < chunk.size(); i++) {
+            StatementReader.Line line = chunk.get(i);
+            if (line.error() != null) {
+                issues.add(issue(line, ReconcileIssueType.INVALID, line.error()));
+                continue;
+            }
+            if (line.amount().signum() <= 0) {
+                issues.add(issue(line, ReconcileIssueType.INVALID, "非入账金额"));
+                continue;
+            }
+            List<String> references = lineReferences.get(i);
+            if (references.isEmpty()) {
+                issues.add(issue(line, ReconcileIssueType.UNMATCHED, "未识别到账单号或租赁编号"));
+                continue;
+            }
+            Set<Payable> hits = new LinkedHashSet<>();
+            for (String reference : references) {
+                Payable payable = index.get(key(reference, line.amount()));
+                if (payable != null) {
+                    hits.add(payable);
+                }
+            }
+            if (hits.isEmpty()) {
+                issues.add(issue(line, ReconcileIssueType.UNMATCHED, describeMiss(references, byReference)));
+            } else if (hits.size() > 1) {
+                issues.add(issue(line, ReconcileIssueType.AMBIGUOUS, "金额同时匹配多笔应付款: "
+                        + String.join(", ", hits.stream().map(Payable::reference).toList())));
+            } else {
+                Payable payable = hits.iterator().next();
+                if (payable.paid()) {
+                    issues.add(issue(line, ReconcileIssueType.PAID, payable.reference() + " 已支付，可能重复付款"));
+                } else {
+                    claims.computeIfAbsent(payable.reference(), k -> new ArrayList<>(1)).add(new Claim(line, payable));
+                }
+            }
+        }
+    }
+    
+    /**
+     * 批量条件更新登记支付，登记成功的加入 paid；依赖逐行影响行数判断，驱动不返回时整批回滚，避免账务重复入账
+     */
+    private int markPaid(String sql, List<Claim> claims, List<Claim> paid, List<ReconcileIssue> issues,
+                         Timestamp now) {
+        if (claims.isEmpty()) {
+            return 0;
+        }
+        int[] counts = jdbcTemplate.batchUpdate(sql, claims.stream()
+                .map(claim -> new Object[]{now, claim.payable().id()}).toList());
+        int count = 0;
+        for (int k = 0; k < counts.length; k++) {
+            Claim claim = claims.get(k);
+            if (counts[k] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("数据库驱动未返回批量更新的逐行影响行数，无法判断支付登记结果");
+            }
+            if (counts[k] != 1) {
+                issues.add(issue(claim.line(), ReconcileIssueType.PAID,
+                        claim.payable().reference() + " 已支付，可能重复付款"));
+            } else {
+                paid.add(claim);
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    private static List<String> references(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> references = new ArrayList<>(1);
+        Matcher matcher = PAYMENT_REFERENCE.matcher(text.toUpperCase(Locale.ROOT));
+        while (matcher.find()) {
+            if (!references.contains(matcher.group(1))) {
+                references.add(matcher.group(1));
+            }
+        }
+        return references;
+    }
+    
+    private static String describeMiss(List<String> references, Map<String, Payable> byReference) {
+        List<String> known = new ArrayList<>();
+        for (String reference : references) {
+            Payable payable = byReference.get(reference);
+            if (payable != null) {
+                known.add(reference + " 应付 " + payable.amounts().stream().map(BigDecimal::toPlainString)
+                        .reduce((a, b) -> a + " 或 " + b).orElse(""));
+            }
+        }
+        return known.isEmpty() ? "账单号或租赁编号不存在: " + String.join(", ", references)
+                : "金额与应付金额不符: " + String.join("; ", known);
+    }
+    
+    private static String key(String reference, BigDecimal amount) {
+        return reference + "|" + amount.stripTrailingZeros().toPlainString();
+    }
+    
+    private static ReconcileIssue issue(StatementReader.Line line, ReconcileIssueType type, String message) {
+        return new ReconcileIssue(line.lineNo(), line.reference(), line.amount(), type, message);
+    }
+    
+    /**
+     * 应付款：账单或租赁记录；amounts 为可接受的付款金额
+     */
+    private record Payable(boolean invoice, Long id, Long rentalId, String reference, boolean paid,
+                           List<BigDecimal> amounts) {
+    }
+    
+    /**
+     * 匹配到某笔应付款的流水行
+     */
+    private record Claim(StatementReader.Line line, Payable payable) {
+    }
 }
@@ -1,108 +1,296 @@
 package com.stall.platform.service.impl;
 
 import cn.hutool.core.util.IdUtil;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.*;
 import com.stall.platform.mapper.StallApplicationMapper;
 import com.stall.platform.service.*;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.ReferenceResolver;
+import com.stall.platform.service.support.RentalExpiryScheduler;
+import com.stall.platform.service.support.StallCalendar;
+import com.stall.platform.service.support.StallStateMachine;
+import com.stall.platform.service.support.StallStatusConflictException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.sql.Types;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 public class StallApplicationServiceImpl extends ServiceImpl<StallApplicationMapper, StallApplication> 
         implements StallApplicationService {
     
+    /**
+     * 单次批量审核的最大条数
+     */
+    public static final int MAX_BATCH_REVIEW = 500;
+    
+    private static final String REVIEW_SQL = "UPDATE stall_application SET status = ?, review_opinion = ?, "
+            + "reviewer_id = ?, review_time = ?, update_time = ? WHERE id = ? AND status = 0 AND deleted = 0";
+    private static final String REVERT_SQL = "UPDATE stall_application SET status = 0, review_opinion = NULL, "
+            + "reviewer_id = NULL, review_time = NULL, update_time = ? WHERE id = ? AND status = 1";
+    
     private final StallService stallService;
-    private final UserService userService;
     private final RentalRecordService rentalRecordService;
+    private final ReferenceResolver referenceResolver;
+    private final PageCounter pageCounter;
+    private final JdbcTemplate jdbcTemplate;
+    private final StallCalendar calendar;
+    private final RentalExpiryScheduler expiryScheduler;
+    private final LedgerService ledgerService;
     
-    public StallApplicationServiceImpl(StallService stallService, UserService userService,
-                                         RentalRecordService rentalRecordService) {
+    public StallApplicationServiceImpl(StallService stallService, RentalRecordService rentalRecordService,
+                                         ReferenceResolver referenceResolver, PageCounter pageCounter,
+                                         JdbcTemplate jdbcTemplate, StallCalendar calendar,
+                                         RentalExpiryScheduler expiryScheduler, LedgerService ledgerService) {
         this.stallService = stallService;
-        this.userService = userService;
         this.rentalRecordService = rentalRecordService;
+        this.referenceResolver = referenceResolver;
+        this.pageCounter = pageCounter;
+        this.jdbcTemplate = jdbcTemplate;
+        this.calendar = calendar;
+        this.expiryScheduler = expiryScheduler;
+        this.ledgerService = ledgerService;
     }
     
     @Override
     public boolean submit(StallApplication application) {
+        if (application.getStartDate() == null || application.getEndDate() == null
+                || application.getEndDate().isBefore(application.getStartDate())) {
+            throw new IllegalArgumentException("租赁日期无效");
+        }
+        // 与已生效的租赁日期重叠的申请直接拒绝，待审核的申请之间仍可竞争
+        if (!calendar.isFree(application.getStallId(), application.getStartDate(), application.getEndDate(), false)) {
+            throw new StallStatusConflictException("该摊位在所选日期已被租用");
+        }
         // 生成申请编号
         application.setApplicationNo("APP" + IdUtil.getSnowflakeNextIdStr());
         application.setStatus(0); // 待审核
-        return save(application);
+        boolean result = save(application);
+        calendar.markDirty(application.getStallId());
+        return result;
     }
     
     @Override
     public IPage<StallApplication> pageList(Integer pageNum, Integer pageSize, Long userId, Integer status) {
-        LambdaQueryWrapper<StallApplication> wrapper = new LambdaQueryWrapper<>();
-        wrapper.eq(StallApplication::getUserId, userId);
-        if (status != null) {
-            wrapper.eq(StallApplication::getStatus, status);
-        }
-        wrapper.orderByDesc(StallApplication::getCreateTime);
-        IPage<StallApplication> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+        if (userId == null) {
+            // 用户端必须限定申请人，不能退化为全量查询
+            return new Page<>(pageNum, pageSize);
+        }
+        return baseMapper.selectPageWithDetails(new Page<>(pageNum, pageSize), userId, status);
     }
     
     @Override
-    public IPage<StallApplication> pageListForAdmin(Integer pageNum, Integer pageSize, Integer status) {
-        LambdaQueryWrapper<StallApplication> wrapper = new LambdaQueryWrapper<>();
-        if (status != null) {
-            wrapper.eq(StallApplication::getStatus, status);
-        }
-        wrapper.orderByDesc(StallApplication::getCreateTime);
-        IPage<StallApplication> page = page(new Page<>(pageNum, pageSize), wrapper);
-        page.getRecords().forEach(this::fillDetails);
-        return page;
+    public IPage<StallApplication> pageListForAdmin(Integer pageNum, Integer pageSize, Integer status,
+                                                    CountMode countMode) {
+        return pageCounter.page("stall_application", countMode, pageNum, pageSize,
+                page -> baseMapper.selectPageWithDetails(page, null, status), status);
     }
     
     @Override
     @Transactional
     public boolean review(Long id, Integer status, String reviewOpinion, Long reviewerId) {
-        StallApplication application = getById(id);
+        // 先锁定申请和摊位再做日历检查：可重复读隔离下快照在首次普通读取时建立，要晚于拿到摊位锁才能读到并发审核已提交的租赁
+        StallApplication application = lambdaQuery().eq(StallApplication::getId, id).last("FOR UPDATE").one();
         if (application == null || application.getStatus() != 0) {
             return false;
         }
+        Stall stall = null;
+        if (status == 1) {
+            // 同一摊位的审核通过在摊位行锁上串行，按所申请的日期判断是否已被租用，不看摊位当前状态
+            stall = stallService.lockByIds(List.of(application.getStallId())).stream().findFirst().orElse(null);
+            if (stall == null || Integer.valueOf(StallStateMachine.MAINTENANCE).equals(stall.getStatus())) {
+                throw new StallStatusConflictException("摊位不存在或维护中，不可出租");
+            }
+            if (!calendar.isFree(application.getStallId(), application.getStartDate(), application.getEndDate(),
+                    false)) {
+                throw new StallStatusConflictException("该摊位在所选日期已被租用");
+            }
+        }
         
         application.setStatus(status);
         application.setReviewOpinion(reviewOpinion);
         application.setReviewerId(reviewerId);
         application.setReviewTime(LocalDateTime.now());
-        boolean result = updateById(application);
+        // 只有仍为待审核时才更新，同一申请被并发审核时只有一个成功
+        boolean result = lambdaUpdate()
+                .set(StallApplication::getStatus, status)
+                .set(StallApplication::getReviewOpinion, reviewOpinion)
+                .set(StallApplication::getReviewerId, reviewerId)
+                .set(StallApplication::getReviewTime, application.getReviewTime())
+                .set(StallApplication::getUpdateTime, application.getReviewTime())
+                .eq(StallApplication::getId, id)
+                .eq(StallApplication::getStatus, 0)
+                .update();
+        if (result) {
+            calendar.markDirty(application.getStallId());
+        }
         
-        // 如果审核通过，更新摊位状态为已租用，并创建租赁记录
+        // 如果审核通过，空闲摊位改为已租用（已有其他日期的租赁时保持已租用），并创建租赁记录
         if (result && status == 1) {
-            stallService.updateStatus(application.getStallId(), 1);
+            if (Integer.valueOf(StallStateMachine.IDLE).equals(stall.getStatus()) && !stallService.compareAndSetStatus(
+                    application.getStallId(), StallStateMachine.IDLE, StallStateMachine.RENTED)) {
+                throw new StallStatusConflictException("摊位已被租用或不可出租");
+            }
             
             // 创建租赁记录
-            Stall stall = stallService.getById(application.getStallId());
-            RentalRecord record = new RentalRecord();
-            record.setApplicationId(application.getId());
-            record.setUserId(application.getUserId());
-            record.setStallId(application.getStallId());
-            record.setStartDate(application.getStartDate());
-            record.setEndDate(application.getEndDate());
-            
-            // 计算租金
-            long months = ChronoUnit.MONTHS.between(application.getStartDate(), application.getEndDate());
-            if (months < 1) months = 1;
-            record.setRentAmount(stall.getRentPrice().multiply(BigDecimal.valueOf(months)));
-            record.setDeposit(stall.getRentPrice());
-            record.setPaymentStatus(0);
-            record.setStatus(1);
+            RentalRecord record = newRentalRecord(application, stall);
             rentalRecordService.save(record);
+            ledgerService.chargeRentals(List.of(record));
+            expiryScheduler.schedule(record.getId(), record.getEndDate());
         }
         
         return result;
     }
     
+    @Override
+    @Transactional
+    public List<ReviewResult> reviewBatch(List<ReviewItem> items, Long reviewerId) {
+        if (items == null || items.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (items.size() > MAX_BATCH_REVIEW) {
+            throw new IllegalArgumentException("单次最多审核" + MAX_BATCH_REVIEW + "条申请");
+        }
+        String[] messages = new String[items.size()];
+        // 与单条审核相同，先锁定申请和摊位（按ID顺序）再做日历检查
+        List<Long> ids = items.stream().map(ReviewItem::id).filter(Objects::nonNull).distinct().toList();
+        Map<Long, StallApplication> applications = (ids.isEmpty() ? Collections.<StallApplication>emptyList()
+                : lambdaQuery().in(StallApplication::getId, ids).orderByAsc(StallApplication::getId)
+                .last("FOR UPDATE").list()).stream()
+                .collect(Collectors.toMap(StallApplication::getId, Function.identity()));
+        Map<Long, Stall> stalls = stallService.lockByIds(items.stream()
+                        .filter(item -> Integer.valueOf(1).equals(item.status()))
+                        .map(item -> applications.get(item.id())).filter(Objects::nonNull)
+                        .map(StallApplication::getStallId).distinct().toList()).stream()
+                .collect(Collectors.toMap(Stall::getId, Function.identity()));
+        
+        // 预校验：按所申请的日期查日历，本批次中同一摊位日期重叠的只通过请求顺序上的第一个
+        List<Integer> accepted = new ArrayList<>(items.size());
+        Set<Long> seen = new HashSet<>();
+        Map<Long, List<StallApplication>> claimed = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            ReviewItem item = items.get(i);
+            StallApplication application = applications.get(item.id());
+            if (item.status() == null || item.status() != 1 && item.status() != 2) {
+                messages[i] = "审核状态无效";
+            } else if (!seen.add(item.id())) {
+                messages[i] = "重复的申请";
+            } else if (application == null) {
+                messages[i] = "申请不存在";
+            } else if (application.getStatus() != 0) {
+                messages[i] = "申请已处理";
+            } else if (item.status() == 1) {
+                Stall stall = stalls.get(application.getStallId());
+                List<StallApplication> sameStall = claimed.computeIfAbsent(application.getStallId(),
+                        k -> new ArrayList<>());
+                if (stall == null) {
+                    messages[i] = "摊位不存在";
+                } else if (Integer.valueOf(StallStateMachine.MAINTENANCE).equals(stall.getStatus())) {
+                    messages[i] = "摊位维护中，不可出租";
+                } else if (sameStall.stream().anyMatch(other -> overlaps(other, application))) {
+                    messages[i] = "摊位在所选日期已分配给本批次中的其他申请";
+                } else if (!calendar.isFree(stall.getId(), application.getStartDate(), application.getEndDate(),
+                        false)) {
+                    messages[i] = "该摊位在所选日期已被租用";
+                } else {
+                    sameStall.add(application);
+                    accepted.add(i);
+                }
+            } else {
+                accepted.add(i);
+            }
+        }
+        
+        // 申请条件更新，仍为待审核的才生效
+        LocalDateTime now = LocalDateTime.now();
+        int[] counts = batchUpdate(REVIEW_SQL, accepted, (ps, i) -> {
+            ReviewItem item = items.get(i);
+            ps.setInt(1, item.status());
+            ps.setString(2, item.reviewOpinion());
+            if (reviewerId != null) {
+                ps.setLong(3, reviewerId);
+            } else {
+                ps.setNull(3, Types.BIGINT);
+            }
+            ps.setTimestamp(4, Timestamp.valueOf(now));
+            ps.setTimestamp(5, Timestamp.valueOf(now));
+            ps.setLong(6, item.id());
+        });
+        List<Integer> approved = new ArrayList<>();
+        for (int k = 0; k < accepted.size(); k++) {
+            int i = accepted.get(k);
+            // 条件更新依赖逐行影响行数，驱动不返回时整批回滚
+            if (counts[k] == Statement.SUCCESS_NO_INFO) {
+                throw new IllegalStateException("数据库驱动未返回批量更新的逐行影响行数，无法判断审核结果");
+            }
+            if (counts[k] != 1) {
+                messages[i] = "申请已处理";
+            } else if (items.get(i).status() == 1) {
+                approved.add(i);
+            }
+        }
+        
+        // 空闲摊位批量改为已租用（已有其他日期租赁的保持已租用），失败的（摊位行已锁定，正常不会发生）把申请恢复为待审核
+        List<Long> idleStalls = approved.stream()
+                .map(i -> applications.get(items.get(i).id()).getStallId()).distinct()
+                .filter(stallId -> Integer.valueOf(StallStateMachine.IDLE).equals(stalls.get(stallId).getStatus()))
+                .toList();
+        boolean[] rented = stallService.compareAndSetStatusBatch(idleStalls, StallStateMachine.IDLE,
+                StallStateMachine.RENTED);
+        Set<Long> failedStalls = new HashSet<>();
+        for (int k = 0; k < rented.length; k++) {
+            if (!rented[k]) {
+                failedStalls.add(idleStalls.get(k));
+            }
+        }
+        List<Integer> reverted = new ArrayList<>();
+        List<RentalRecord> records = new ArrayList<>(approved.size());
+        for (int i : approved) {
+            StallApplication application = applications.get(items.get(i).id());
+            if (failedStalls.contains(application.getStallId())) {
+                messages[i] = "摊位已被租用或不可出租";
+                reverted.add(i);
+            } else {
+                records.add(newRentalRecord(application, stalls.get(application.getStallId())));
+            }
+        }
+        batchUpdate(REVERT_SQL, reverted, (ps, i) -> {
+            ps.setTimestamp(1, Timestamp.valueOf(now));
+            ps.setLong(2, items.get(i).id());
+        });
+        rentalRecordService.saveBatch(records);
+        ledgerService.chargeRentals(records);
+        records.forEach(record -> expiryScheduler.schedule(record.getId(), record.getEndDate()));
+        for (int i : accepted) {
+            calendar.markDirty(applications.get(items.get(i).id()).getStallId());
+        }
+        // JDBC 批量更新不经过 MyBatis 拦截器，手动失效分页总数缓存
+        pageCounter.invalidate("stall_application");
+        
+        List<ReviewResult> results = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            results.add(new ReviewResult(items.get(i).id(), messages[i] == null,
+                    messages[i] == null ? "审核完成" : messages[i]));
+        }
+        return results;
+    }
+    
     @Override
     public boolean cancel(Long id, Long userId) {
         StallApplication application = getById(id);
@@ -110,31 +298,81 @@ public class StallApplicationServiceImpl extends ServiceImpl<StallApplicationMap
             return false;
         }
         application.setStatus(3); // 已取消
-        return updateById(application);
+        boolean result = updateById(application);
+        calendar.markDirty(application.getStallId());
+        return result;
     }
     
     @Override
     public StallApplication getDetailById(Long id) {
         StallApplication application = getById(id);
         if (application != null) {
-            fillDetails(application);
+            fillDetails(Collections.singletonList(application));
         }
         return application;
     }
     
-    private void fillDetails(StallApplication application) {
-        if (application.getUserId() != null) {
-            User user = userService.getById(application.getUserId());
+    private int[] batchUpdate(String sql, List<Integer> indexes, RowSetter setter) {
+        if (indexes.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(sql, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                setter.set(ps, indexes.get(i));
+            }
+            
+            @Override
+            public int getBatchSize() {
+                return indexes.size();
+            }
+        });
+    }
+    
+    private static boolean overlaps(StallApplication a, StallApplication b) {
+        return !a.getStartDate().isAfter(b.getEndDate()) && !b.getStartDate().isAfter(a.getEndDate());
+    }
+    
+    /**
+     * 按申请生成租赁记录：租金按整月计算（不足一月按一月），押金为一个月租金
+     */
+    private static RentalRecord newRentalRecord(StallApplication application, Stall stall) {
+        RentalRecord record = new RentalRecord();
+        record.setApplicationId(application.getId());
+        record.setUserId(application.getUserId());
+        record.setStallId(application.getStallId());
+        record.setStartDate(application.getStartDate());
+        record.setEndDate(application.getEndDate());
+        
+        // 计算租金
+        long months = ChronoUnit.MONTHS.between(application.getStartDate(), application.getEndDate());
+        if (months < 1) months = 1;
+        record.setRentAmount(stall.getRentPrice().multiply(BigDecimal.valueOf(months)));
+        record.setDeposit(stall.getRentPrice());
+        record.setPaymentStatus(0);
+        record.setStatus(1);
+        return record;
+    }
+    
+    private void fillDetails(List<StallApplication> applications) {
+        Map<Long, User> users = referenceResolver.users(applications, StallApplication::getUserId);
+        Map<Long, Stall> stalls = referenceResolver.stalls(applications, StallApplication::getStallId);
+        for (StallApplication application : applications) {
+            User user = users.get(application.getUserId());
             if (user != null) {
                 application.setUsername(user.getUsername());
             }
-        }
-        if (application.getStallId() != null) {
-            Stall stall = stallService.getById(application.getStallId());
+            Stall stall = stalls.get(application.getStallId());
             if (stall != null) {
                 application.setStallName(stall.getName());
                 application.setStallNo(stall.getStallNo());
             }
         }
     }
+    
+    @FunctionalInterface
+    private interface RowSetter {
+        
+        void set(PreparedStatement ps, int index) throws SQLException;
+    }
 }
@@ -1,76 +1,416 @@
 package com.stall.platform.service.impl;
 
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.stall.platform.cache.CachedPage;
+import com.stall.platform.cache.ListCache;
+import com.stall.platform.cache.NearCache;
+import com.stall.platform.cache.NearCacheManager;
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.common.CursorPage;
 import com.stall.platform.entity.Stall;
 import com.stall.platform.entity.StallType;
 import com.stall.platform.mapper.StallMapper;
 import com.stall.platform.service.StallService;
 import com.stall.platform.service.StallTypeService;
+import com.stall.platform.service.support.StallCalendar;
+import com.stall.platform.service.support.StallGeoIndex;
+import com.stall.platform.service.support.StallSearchIndex;
+import com.stall.platform.service.support.StallStateMachine;
+import com.stall.platform.service.support.StallTypeCatalog;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 
-import java.util.List;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Service
 public class StallServiceImpl extends ServiceImpl<StallMapper, Stall> implements StallService {
     
+    static final String LIST_NAMESPACE = "stall";
+    private static final String INDEX_MESSAGE_PREFIX = "index|stall|";
+    private static final int NEARBY_DEFAULT_K = 10;
+    private static final int NEARBY_RADIUS_LIMIT = 50;
+    private static final int NEARBY_MAX_LIMIT = 200;
+    private static final int FREE_MAX_BATCH = 1000;
+    private static final int STATUS_UPDATE_ATTEMPTS = 3;
+    
     private final StallTypeService stallTypeService;
+    private final NearCache<Stall> stallCache;
+    private final ListCache listCache;
+    private final SharedCache sharedCache;
+    private final StallStateMachine stateMachine;
+    private final StallCalendar calendar;
+    
+    /**
+     * 关键词索引和经纬度网格索引，首次使用时全量构建；之后只刷新有过写入的摊位
+     */
+    private final StallSearchIndex searchIndex = new StallSearchIndex();
+    private final StallGeoIndex geoIndex;
+    private final double geoCellMeters;
+    private final double nearestMaxDistance;
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+    private volatile boolean indexBuilt;
     
-    public StallServiceImpl(StallTypeService stallTypeService) {
+    public StallServiceImpl(StallTypeService stallTypeService, NearCacheManager nearCacheManager,
+                            ListCache listCache, SharedCache sharedCache, StallStateMachine stateMachine,
+                            StallCalendar calendar,
+                            @Value("${stall.geo.cell-size:200}") double geoCellMeters,
+                            @Value("${stall.geo.nearest-max-distance:50000}") double nearestMaxDistance) {
         this.stallTypeService = stallTypeService;
+        this.stallCache = nearCacheManager.getCache("stall", Stall.class);
+        this.listCache = listCache;
+        this.sharedCache = sharedCache;
+        this.stateMachine = stateMachine;
+        this.calendar = calendar;
+        this.geoCellMeters = geoCellMeters;
+        this.nearestMaxDistance = nearestMaxDistance;
+        this.geoIndex = new StallGeoIndex(geoCellMeters);
+        // 其他节点修改摊位后广播，本节点标记为待刷新
+        sharedCache.subscribe(message -> {
+            if (message.startsWith(INDEX_MESSAGE_PREFIX)) {
+                dirtyIds.add(Long.valueOf(message.substring(INDEX_MESSAGE_PREFIX.length())));
+            }
+        });
+    }
+    
+    @Override
+    public Stall getById(Serializable id) {
+        return stallCache.get(id, super::getById);
+    }
+    
+    @Override
+    public boolean save(Stall entity) {
+        boolean result = super.save(entity);
+        listCache.evict(LIST_NAMESPACE);
+        markDirty(entity.getId());
+        return result;
+    }
+    
+    @Override
+    public boolean updateById(Stall entity) {
+        boolean result = super.updateById(entity);
+        stallCache.invalidate(entity.getId());
+        listCache.evict(LIST_NAMESPACE);
+        markDirty(entity.getId());
+        return result;
+    }
+    
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        stallCache.invalidate(id);
+        listCache.evict(LIST_NAMESPACE);
+        markDirty(id);
+        return result;
     }
     
     @Override
     public IPage<Stall> pageList(Integer pageNum, Integer pageSize, Long typeId, Integer status, String keyword) {
-        LambdaQueryWrapper<Stall> wrapper = new LambdaQueryWrapper<>();
-        if (typeId != null) {
-            wrapper.eq(Stall::getTypeId, typeId);
-        }
-        if (status != null) {
-            wrapper.eq(Stall::getStatus, status);
-        }
-        if (StringUtils.hasText(keyword)) {
-            wrapper.and(w -> w.like(Stall::getName, keyword)
-                    .or().like(Stall::getStallNo, keyword)
-                    .or().like(Stall::getLocation, keyword));
-        }
-        wrapper.orderByAsc(Stall::getStallNo);
-        IPage<Stall> page = page(new Page<>(pageNum, pageSize), wrapper);
-        // 填充类型名称
-        page.getRecords().forEach(this::fillTypeName);
-        return page;
+        String kw = StringUtils.hasText(keyword) ? keyword : null;
+        String key = typeId + ":" + status + ":" + kw + ":" + pageNum + ":" + pageSize;
+        // 类型名称由连接查询直接带出；关键词搜索走内存索引，写事务中索引可能滞后，仍查库
+        return listCache.get(LIST_NAMESPACE, key, new TypeReference<CachedPage<Stall>>() {}, () -> CachedPage.of(
+                kw != null && !inWriteTransaction()
+                        ? searchPage(pageNum, pageSize, typeId, status, kw)
+                        : baseMapper.selectPageWithType(new Page<>(pageNum, pageSize), typeId, status, kw)))
+                .toPage();
     }
     
     @Override
     public List<Stall> listAvailable() {
-        List<Stall> list = lambdaQuery().eq(Stall::getStatus, 0).list();
-        list.forEach(this::fillTypeName);
-        return list;
+        return listCache.get(LIST_NAMESPACE, "available", new TypeReference<List<Stall>>() {}, () -> {
+            List<Stall> list = lambdaQuery().eq(Stall::getStatus, 0).list();
+            fillTypeName(list);
+            return list;
+        });
+    }
+    
+    @Override
+    public CursorPage<Stall> listFree(LocalDate startDate, LocalDate endDate, Long typeId, boolean includePending,
+                                      String cursor, Integer pageSize) {
+        long afterId = freeCursor(cursor);
+        int size = CursorPage.clampSize(pageSize);
+        Set<Long> busy = calendar.busyStalls(startDate, endDate, includePending);
+        // 按ID顺序分批读取（有类型时走 type_id 索引），跳过被占用的，凑满一页多一条为止
+        List<Stall> free = new ArrayList<>(size + 1);
+        int batch = size + 1;
+        while (free.size() <= size) {
+            List<Stall> rows = lambdaQuery()
+                    .ne(Stall::getStatus, StallStateMachine.MAINTENANCE)
+                    .eq(typeId != null, Stall::getTypeId, typeId)
+                    .gt(Stall::getId, afterId)
+                    .orderByAsc(Stall::getId)
+                    .last("LIMIT " + batch)
+                    .list();
+            for (Stall stall : rows) {
+                if (!busy.contains(stall.getId()) && free.size() <= size) {
+                    free.add(stall);
+                }
+            }
+            if (rows.size() < batch) {
+                break;
+            }
+            afterId = rows.get(rows.size() - 1).getId();
+            batch = Math.min(batch * 2, FREE_MAX_BATCH);
+        }
+        CursorPage<Stall> page = new CursorPage<>();
+        boolean hasMore = free.size() > size;
+        List<Stall> records = hasMore ? new ArrayList<>(free.subList(0, size)) : free;
+        fillTypeName(records);
+        page.setRecords(records);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            page.setNextCursor(String.valueOf(records.get(records.size() - 1).getId()));
+        }
+        return page;
+    }
+    
+    private static long freeCursor(String cursor) {
+        if (!StringUtils.hasText(cursor)) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cursor);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("无效的分页游标");
+        }
+    }
+    
+    @Override
+    public boolean isFree(Long id, LocalDate startDate, LocalDate endDate, boolean includePending) {
+        return calendar.isFree(id, startDate, endDate, includePending);
+    }
+    
+    @Override
+    public List<Stall> listNearby(double latitude, double longitude, Double radius, Integer limit,
+                                  Long typeId, Integer status) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("经纬度超出范围");
+        }
+        if (radius != null && !(radius > 0)) {
+            throw new IllegalArgumentException("半径必须大于0");
+        }
+        if (limit != null && limit < 1) {
+            throw new IllegalArgumentException("数量必须大于0");
+        }
+        StallGeoIndex index = geoIndex;
+        if (inWriteTransaction()) {
+            // 写事务中可能有未提交的摊位变更，用当前事务可见的数据临时建索引
+            index = new StallGeoIndex(geoCellMeters);
+            index.rebuild(loadIndexColumns());
+        } else {
+            refreshIndexes();
+        }
+        List<StallGeoIndex.Hit> hits = radius != null
+                ? index.withinRadius(latitude, longitude, radius, typeId, status,
+                        Math.min(limit != null ? limit : NEARBY_RADIUS_LIMIT, NEARBY_MAX_LIMIT))
+                : index.nearest(latitude, longitude,
+                        Math.min(limit != null ? limit : NEARBY_DEFAULT_K, NEARBY_MAX_LIMIT), nearestMaxDistance,
+                        typeId, status);
+        if (hits.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (StallGeoIndex.Hit hit : hits) {
+            ids.add(hit.id());
+        }
+        List<Stall> stalls = loadInOrder(ids);
+        Map<Long, Double> distances = new HashMap<>();
+        for (StallGeoIndex.Hit hit : hits) {
+            distances.put(hit.id(), Math.round(hit.distance() * 10) / 10.0);
+        }
+        for (Stall stall : stalls) {
+            stall.setDistance(distances.get(stall.getId()));
+        }
+        fillTypeName(stalls);
+        return stalls;
     }
     
     @Override
     public Stall getDetailById(Long id) {
         Stall stall = getById(id);
         if (stall != null) {
-            fillTypeName(stall);
+            fillTypeName(Collections.singletonList(stall));
         }
         return stall;
     }
     
     @Override
     public boolean updateStatus(Long id, Integer status) {
-        Stall stall = new Stall();
-        stall.setId(id);
-        stall.setStatus(status);
-        return updateById(stall);
+        if (!StallStateMachine.isValid(status)) {
+            throw new IllegalArgumentException("无效的摊位状态: " + status);
+        }
+        for (int attempt = 0; attempt < STATUS_UPDATE_ATTEMPTS; attempt++) {
+            // 以数据库当前状态为准，不读缓存
+            Stall current = super.getById(id);
+            if (current == null) {
+                return false;
+            }
+            if (status.equals(current.getStatus())) {
+                return true;
+            }
+            if (!StallStateMachine.canTransition(current.getStatus(), status)) {
+                return false;
+            }
+            if (compareAndSetStatus(id, current.getStatus(), status)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean compareAndSetStatus(Long id, int expected, int target) {
+        if (!stateMachine.compareAndSet(id, expected, target)) {
+            return false;
+        }
+        stallCache.invalidate(id);
+        listCache.evict(LIST_NAMESPACE);
+        markDirty(id);
+        return true;
+    }
+    
+    @Override
+    public boolean[] compareAndSetStatusBatch(List<Long> ids, int expected, int target) {
+        boolean[] result = stateMachine.compareAndSetAll(ids, expected, target);
+        for (int i = 0; i < result.length; i++) {
+            if (result[i]) {
+                stallCache.invalidate(ids.get(i));
+                markDirty(ids.get(i));
+            }
+        }
+        listCache.evict(LIST_NAMESPACE);
+        return result;
+    }
+    
+    @Override
+    public List<Stall> lockByIds(Collection<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return lambdaQuery()
+                .in(Stall::getId, new TreeSet<>(ids))
+                .orderByAsc(Stall::getId)
+                .last("FOR UPDATE")
+                .list();
+    }
+    
+    /**
+     * 由索引得到按编号排序的候选ID，只回表加载当前页
+     */
+    private IPage<Stall> searchPage(Integer pageNum, Integer pageSize, Long typeId, Integer status, String keyword) {
+        refreshIndexes();
+        List<Long> ids = searchIndex.search(keyword, typeId, status);
+        Page<Stall> page = new Page<>(pageNum, pageSize, ids.size());
+        int from = (int) Math.min(page.offset(), ids.size());
+        int to = (int) Math.min(from + page.getSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+        if (pageIds.isEmpty()) {
+            return page;
+        }
+        List<Stall> records = loadInOrder(pageIds);
+        fillTypeName(records);
+        page.setRecords(records);
+        return page;
+    }
+    
+    private List<Stall> loadInOrder(List<Long> ids) {
+        Map<Long, Stall> loaded = new HashMap<>();
+        for (Stall stall : listByIds(ids)) {
+            loaded.put(stall.getId(), stall);
+        }
+        List<Stall> records = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            Stall stall = loaded.get(id);
+            if (stall != null) {
+                records.add(stall);
+            }
+        }
+        return records;
+    }
+    
+    /**
+     * 首次使用时全量构建索引，之后按待刷新ID批量回表，查不到的（已删除）移出索引
+     */
+    private void refreshIndexes() {
+        if (!indexBuilt) {
+            synchronized (searchIndex) {
+                if (!indexBuilt) {
+                    dirtyIds.clear();
+                    List<Stall> stalls = loadIndexColumns();
+                    searchIndex.rebuild(stalls);
+                    geoIndex.rebuild(stalls);
+                    indexBuilt = true;
+                    return;
+                }
+            }
+        }
+        if (dirtyIds.isEmpty()) {
+            return;
+        }
+        // 串行刷新，避免先读到旧数据的线程后写入索引
+        synchronized (searchIndex) {
+            List<Long> ids = new ArrayList<>(dirtyIds);
+            dirtyIds.removeAll(ids);
+            Set<Long> missing = new HashSet<>(ids);
+            for (Stall stall : listByIds(ids)) {
+                searchIndex.put(stall);
+                geoIndex.put(stall);
+                missing.remove(stall.getId());
+            }
+            for (Long id : missing) {
+                searchIndex.remove(id);
+                geoIndex.remove(id);
+            }
+        }
+    }
+    
+    private List<Stall> loadIndexColumns() {
+        return lambdaQuery()
+                .select(Stall::getId, Stall::getName, Stall::getStallNo, Stall::getLocation,
+                        Stall::getLatitude, Stall::getLongitude, Stall::getTypeId, Stall::getStatus)
+                .list();
+    }
+    
+    /**
+     * 摊位有写入：立即及事务结束后各标记一次待刷新，并通知其他节点
+     */
+    private void markDirty(Serializable id) {
+        if (id == null) {
+            return;
+        }
+        Long stallId = Long.valueOf(id.toString());
+        dirtyIds.add(stallId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    dirtyIds.add(stallId);
+                    sharedCache.publish(INDEX_MESSAGE_PREFIX + stallId);
+                }
+            });
+        } else {
+            sharedCache.publish(INDEX_MESSAGE_PREFIX + stallId);
+        }
+    }
+    
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
     }
     
-    private void fillTypeName(Stall stall) {
-        if (stall.getTypeId() != null) {
-            StallType type = stallTypeService.getById(stall.getTypeId());
+    private void fillTypeName(List<Stall> stalls) {
+        StallTypeCatalog catalog = stallTypeService.catalog();
+        for (Stall stall : stalls) {
+            StallType type = catalog.get(stall.getTypeId());
             if (type != null) {
                 stall.setTypeName(type.getName());
             }
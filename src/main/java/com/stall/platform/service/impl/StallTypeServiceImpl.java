@@ -1,18 +1,149 @@
 package com.stall.platform.service.impl;
 
+import cn.hutool.core.bean.BeanUtil;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.cache.ListCache;
+import com.stall.platform.cache.SharedCache;
 import com.stall.platform.entity.StallType;
 import com.stall.platform.mapper.StallTypeMapper;
 import com.stall.platform.service.StallTypeService;
+import com.stall.platform.service.support.StallTypeCatalog;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.Serializable;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 public class StallTypeServiceImpl extends ServiceImpl<StallTypeMapper, StallType> implements StallTypeService {
     
+    private static final String RELOAD_MESSAGE = "catalog|stallType";
+    
+    private final ListCache listCache;
+    private final SharedCache sharedCache;
+    
+    /**
+     * 当前生效的类型目录快照，首次读取时加载
+     */
+    private final AtomicReference<StallTypeCatalog> catalog = new AtomicReference<>();
+    
+    /**
+     * 失效次数：加载期间发生过失效则丢弃加载结果，避免旧快照覆盖
+     */
+    private long invalidations;
+    private long version;
+    
+    public StallTypeServiceImpl(ListCache listCache, SharedCache sharedCache) {
+        this.listCache = listCache;
+        this.sharedCache = sharedCache;
+        // 其他节点修改类型后广播，本节点丢弃快照，下次读取时重新加载
+        sharedCache.subscribe(message -> {
+            if (RELOAD_MESSAGE.equals(message)) {
+                invalidate();
+            }
+        });
+    }
+    
     @Override
     public List<StallType> listAll() {
-        return lambdaQuery().orderByAsc(StallType::getSortOrder).list();
+        return catalog().list();
+    }
+    
+    @Override
+    public StallType getById(Serializable id) {
+        if (inWriteTransaction()) {
+            return super.getById(id);
+        }
+        StallType type = catalog().get(toLong(id));
+        return type == null ? null : BeanUtil.copyProperties(type, StallType.class);
+    }
+    
+    @Override
+    public StallTypeCatalog catalog() {
+        // 写事务中可能已有未提交的类型变更，直接以数据库为准
+        if (inWriteTransaction()) {
+            return StallTypeCatalog.of(-1, list());
+        }
+        StallTypeCatalog current = catalog.get();
+        return current != null ? current : load();
+    }
+    
+    @Override
+    public boolean save(StallType entity) {
+        boolean result = super.save(entity);
+        onChanged();
+        return result;
+    }
+    
+    @Override
+    public boolean updateById(StallType entity) {
+        boolean result = super.updateById(entity);
+        onChanged();
+        return result;
+    }
+    
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        onChanged();
+        return result;
+    }
+    
+    /**
+     * 整表加载新快照，查询在锁外执行，只有替换动作加锁
+     */
+    private StallTypeCatalog load() {
+        long stamp;
+        synchronized (this) {
+            stamp = invalidations;
+        }
+        List<StallType> types = lambdaQuery().list();
+        synchronized (this) {
+            StallTypeCatalog next = StallTypeCatalog.of(++version, types);
+            if (invalidations == stamp) {
+                catalog.set(next);
+            }
+            return next;
+        }
+    }
+    
+    private synchronized void invalidate() {
+        invalidations++;
+        catalog.set(null);
+    }
+    
+    /**
+     * 类型变更：立即及事务结束后各丢弃一次快照并通知其他节点，摊位列表中带有类型名称一并失效
+     */
+    private void onChanged() {
+        listCache.evict(StallServiceImpl.LIST_NAMESPACE);
+        invalidateEverywhere();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    invalidateEverywhere();
+                }
+            });
+        }
+    }
+    
+    private void invalidateEverywhere() {
+        invalidate();
+        sharedCache.publish(RELOAD_MESSAGE);
+    }
+    
+    private static Long toLong(Serializable id) {
+        if (id == null) {
+            return null;
+        }
+        return id instanceof Number number ? number.longValue() : Long.valueOf(id.toString());
+    }
+    
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
     }
 }
@@ -2,34 +2,133 @@ package com.stall.platform.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CursorPage;
+import com.stall.platform.common.PageCursor;
 import com.stall.platform.entity.SystemLog;
 import com.stall.platform.mapper.SystemLogMapper;
 import com.stall.platform.service.SystemLogService;
-import org.springframework.scheduling.annotation.Async;
+import com.stall.platform.service.support.LatencyAggregator;
+import com.stall.platform.service.support.OperationDictionary;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.SystemLogWriter;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
 @Service
 public class SystemLogServiceImpl extends ServiceImpl<SystemLogMapper, SystemLog> implements SystemLogService {
     
+    private final PageCounter pageCounter;
+    private final SystemLogWriter systemLogWriter;
+    private final OperationDictionary operationDictionary;
+    private final LatencyAggregator latencyAggregator;
+    
+    public SystemLogServiceImpl(PageCounter pageCounter, SystemLogWriter systemLogWriter,
+                                OperationDictionary operationDictionary, LatencyAggregator latencyAggregator) {
+        this.pageCounter = pageCounter;
+        this.systemLogWriter = systemLogWriter;
+        this.operationDictionary = operationDictionary;
+        this.latencyAggregator = latencyAggregator;
+    }
+    
     @Override
-    public IPage<SystemLog> pageList(Integer pageNum, Integer pageSize, Long userId, String operation) {
+    public IPage<SystemLog> pageList(Integer pageNum, Integer pageSize, Long userId, String operation,
+                                     String operationPrefix, LocalDateTime startTime, LocalDateTime endTime,
+                                     CountMode countMode) {
+        LambdaQueryWrapper<SystemLog> wrapper = buildWrapper(userId, operation, operationPrefix, startTime, endTime);
+        wrapper.orderByDesc(SystemLog::getCreateTime).orderByDesc(SystemLog::getId);
+        return pageCounter.page("system_log", countMode, pageNum, pageSize, page -> page(page, wrapper),
+                userId, operation, operationPrefix, startTime, endTime);
+    }
+    
+    @Override
+    public CursorPage<SystemLog> cursorList(String cursor, Integer pageSize, Long userId, String operation,
+                                            String operationPrefix, LocalDateTime startTime, LocalDateTime endTime) {
+        PageCursor after = PageCursor.decode(cursor);
+        int size = CursorPage.clampSize(pageSize);
+        LambdaQueryWrapper<SystemLog> wrapper = buildWrapper(userId, operation, operationPrefix, startTime, endTime);
+        if (after != null) {
+            // 从上一页最后一条之后继续，走 (create_time, id) 索引定位
+            wrapper.and(w -> w.lt(SystemLog::getCreateTime, after.createTime())
+                    .or(o -> o.eq(SystemLog::getCreateTime, after.createTime()).lt(SystemLog::getId, after.id())));
+        }
+        wrapper.orderByDesc(SystemLog::getCreateTime).orderByDesc(SystemLog::getId)
+                .last("LIMIT " + (size + 1));
+        List<SystemLog> rows = list(wrapper);
+        return CursorPage.of(rows, size, SystemLog::getCreateTime, SystemLog::getId);
+    }
+    
+    /**
+     * create_time 是分区键，带上时间范围时MySQL只访问相关月份的分区；
+     * 操作条件换成编码后由 (operation_code, create_time, id) 索引定位，不再对 operation 做 LIKE 扫描；
+     * 同时按用户和操作筛选时走 (user_id, operation_code, create_time, id)
+     */
+    private LambdaQueryWrapper<SystemLog> buildWrapper(Long userId, String operation, String operationPrefix,
+                                                       LocalDateTime startTime, LocalDateTime endTime) {
+        if (startTime != null && endTime != null && !startTime.isBefore(endTime)) {
+            throw new IllegalArgumentException("开始时间必须早于结束时间");
+        }
         LambdaQueryWrapper<SystemLog> wrapper = new LambdaQueryWrapper<>();
+        wrapper.ge(startTime != null, SystemLog::getCreateTime, startTime);
+        wrapper.lt(endTime != null, SystemLog::getCreateTime, endTime);
         if (userId != null) {
             wrapper.eq(SystemLog::getUserId, userId);
         }
         if (StringUtils.hasText(operation)) {
-            wrapper.like(SystemLog::getOperation, operation);
+            Integer code = operationDictionary.find(operation);
+            if (code == null) {
+                // 未登记的操作不可能有日志
+                wrapper.apply("1 = 0");
+            } else {
+                wrapper.eq(SystemLog::getOperationCode, code);
+            }
         }
-        wrapper.orderByDesc(SystemLog::getCreateTime);
-        return page(new Page<>(pageNum, pageSize), wrapper);
+        if (StringUtils.hasText(operationPrefix)) {
+            List<Integer> codes = operationDictionary.codesWithPrefix(operationPrefix);
+            if (codes.isEmpty()) {
+                wrapper.apply("1 = 0");
+            } else {
+                wrapper.in(SystemLog::getOperationCode, codes);
+            }
+        }
+        return wrapper;
+    }
+    
+    @Override
+    public boolean save(SystemLog entity) {
+        entity.setOperationCode(operationDictionary.codeOf(entity.getOperation()));
+        return super.save(entity);
     }
     
     @Override
-    @Async
     public void saveLog(SystemLog log) {
-        save(log);
+        // 编码只在首次出现的操作名称时查库登记，其余为内存查找
+        log.setOperationCode(operationDictionary.codeOf(log.getOperation()));
+        // 放入队列由后台线程批量写入，不占用请求线程
+        systemLogWriter.submit(log);
+        latencyAggregator.record(log);
+    }
+    
+    @Override
+    public List<LatencyAggregator.LatencySummary> latency(LocalDateTime startTime, LocalDateTime endTime,
+                                                          String groupBy, String operation, String operationPrefix,
+                                                          int limit) {
+        LocalDateTime end = endTime != null ? endTime : LocalDateTime.now();
+        LocalDateTime start = startTime != null ? startTime : end.minusDays(1);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("开始时间必须早于结束时间");
+        }
+        List<Integer> codes = null;
+        if (StringUtils.hasText(operation)) {
+            Integer code = operationDictionary.find(operation);
+            codes = code == null ? List.of() : List.of(code);
+        } else if (StringUtils.hasText(operationPrefix)) {
+            codes = operationDictionary.codesWithPrefix(operationPrefix);
+        }
+        return latencyAggregator.query(start, end, groupBy, codes, Math.min(Math.max(limit, 1), 1000));
     }
 }
@@ -2,22 +2,56 @@ package com.stall.platform.service.impl;
 
 import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.core.metadata.IPage;
-import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.stall.platform.cache.NearCache;
+import com.stall.platform.cache.NearCacheManager;
+import com.stall.platform.common.CountMode;
 import com.stall.platform.entity.User;
 import com.stall.platform.mapper.UserMapper;
 import com.stall.platform.service.UserService;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.UsernameRegistry;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.io.Serializable;
+
 @Service
 public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements UserService {
     
     private final PasswordEncoder passwordEncoder;
+    private final NearCache<User> userCache;
+    private final PageCounter pageCounter;
+    private final UsernameRegistry usernameRegistry;
     
-    public UserServiceImpl(PasswordEncoder passwordEncoder) {
+    public UserServiceImpl(PasswordEncoder passwordEncoder, NearCacheManager nearCacheManager,
+                           PageCounter pageCounter, UsernameRegistry usernameRegistry) {
         this.passwordEncoder = passwordEncoder;
+        // 密码哈希不写入共享二级缓存，从二级缓存读到的用户没有密码
+        this.userCache = nearCacheManager.getCache("user", User.class, user -> user.setPassword(null));
+        this.pageCounter = pageCounter;
+        this.usernameRegistry = usernameRegistry;
+    }
+    
+    @Override
+    public User getById(Serializable id) {
+        return userCache.get(id, super::getById);
+    }
+    
+    @Override
+    public boolean updateById(User entity) {
+        boolean result = super.updateById(entity);
+        userCache.invalidate(entity.getId());
+        return result;
+    }
+    
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        userCache.invalidate(id);
+        return result;
     }
     
     @Override
@@ -27,19 +61,31 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     
     @Override
     public boolean register(User user) {
-        // 检查用户名是否已存在
-        if (findByUsername(user.getUsername()) != null) {
+        // 过滤器判定可能已存在时才查库，明显重复的用户名不必再计算BCrypt
+        if (usernameRegistry.mightExist(user.getUsername()) && findByUsername(user.getUsername()) != null) {
             return false;
         }
         // 加密密码
         user.setPassword(passwordEncoder.encode(user.getPassword()));
         user.setRole("USER");
         user.setStatus(1);
-        return save(user);
+        try {
+            save(user);
+        } catch (DuplicateKeyException e) {
+            // 并发注册同名用户或与已删除用户重名，以唯一约束为准
+            return false;
+        }
+        usernameRegistry.add(user.getUsername());
+        return true;
+    }
+    
+    @Override
+    public boolean isUsernameAvailable(String username) {
+        return !usernameRegistry.mightExist(username) || findByUsername(username) == null;
     }
     
     @Override
-    public IPage<User> pageList(Integer pageNum, Integer pageSize, String keyword, String role) {
+    public IPage<User> pageList(Integer pageNum, Integer pageSize, String keyword, String role, CountMode countMode) {
         LambdaQueryWrapper<User> wrapper = new LambdaQueryWrapper<>();
         if (StringUtils.hasText(keyword)) {
             wrapper.and(w -> w.like(User::getUsername, keyword)
@@ -50,12 +96,13 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
             wrapper.eq(User::getRole, role);
         }
         wrapper.orderByDesc(User::getCreateTime);
-        return page(new Page<>(pageNum, pageSize), wrapper);
+        return pageCounter.page("user", countMode, pageNum, pageSize, page -> page(page, wrapper), keyword, role);
     }
     
     @Override
     public boolean updatePassword(Long userId, String oldPassword, String newPassword) {
-        User user = getById(userId);
+        // 缓存中的用户可能不含密码，校验旧密码直接查库
+        User user = super.getById(userId);
         if (user == null || !passwordEncoder.matches(oldPassword, user.getPassword())) {
             return false;
         }
@@ -73,4 +120,15 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         user.setPassword(passwordEncoder.encode("123456"));
         return updateById(user);
     }
+    
+    @Override
+    public boolean upgradePasswordHash(Long userId, String oldHash, String newHash) {
+        boolean result = lambdaUpdate()
+                .set(User::getPassword, newHash)
+                .eq(User::getId, userId)
+                .eq(User::getPassword, oldHash)
+                .update();
+        userCache.invalidate(userId);
+        return result;
+    }
 }
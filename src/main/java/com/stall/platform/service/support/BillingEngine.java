@@ -0,0 +1,345 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.stall.platform.entity.BillingRun;
+import com.stall.platform.entity.RentalInvoice;
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.mapper.BillingRunMapper;
+import com.stall.platform.mapper.RentalInvoiceMapper;
+import com.stall.platform.mapper.RentalRecordMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 月度账单生成
+ * 以 MyBatis 游标按ID顺序流式读取与账期有交集的租赁记录（内存占用与记录数无关），每 batch-size 条为一批：
+ * 在独立事务中用 JDBC 批量 INSERT IGNORE 写入账单，并在同一事务里把断点（最大租赁记录ID）和进度写入 billing_run
+ * 账单按 (rental_id, period) 唯一，中途失败或宕机后再次执行同一账期从断点继续，已生成的不会重复；
+ * 执行中的批次超过租约时间没有进度更新视为已中断，可被任意节点接管；接管时换新的 claim_token，
+ * 断点、完成、失败的更新都以 claim_token 为条件，被接管的节点发现后直接退出，不改动新执行者的批次
+ * 金额：租金总额按租期天数分摊，账期金额 = 截至账期末的累计分摊额 - 截至上一账期末的累计分摊额（各自四舍五入到分），
+ * 各账期账单之和恰好等于租金总额，尾差落在最后一个账期
+ */
+@Slf4j
+@Component
+public class BillingEngine {
+    
+    public static final int RUNNING = 0;
+    public static final int COMPLETED = 1;
+    public static final int FAILED = 2;
+    
+    private static final DateTimeFormatter INVOICE_PERIOD = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final String INSERT_SQL = "INSERT IGNORE INTO rental_invoice (invoice_no, rental_id, user_id, "
+            + "stall_id, period, period_start, period_end, amount, status, billing_run_id, deleted, create_time, "
+            + "update_time) VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, ?, 0, ?, ?)";
+    
+    private final RentalRecordMapper rentalRecordMapper;
+    private final RentalInvoiceMapper invoiceMapper;
+    private final BillingRunMapper runMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final PageCounter pageCounter;
+    private final TransactionTemplate readTransaction;
+    private final TransactionTemplate chunkTransaction;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "billing-run");
+        thread.setDaemon(true);
+        return thread;
+    });
+    
+    public BillingEngine(RentalRecordMapper rentalRecordMapper, RentalInvoiceMapper invoiceMapper,
+                         BillingRunMapper runMapper, JdbcTemplate jdbcTemplate, PageCounter pageCounter,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${billing.enabled:true}") boolean enabled,
+                         @Value("${billing.batch-size:1000}") int batchSize,
+                         @Value("${billing.lease-seconds:300}") long leaseSeconds) {
+        this.rentalRecordMapper = rentalRecordMapper;
+        this.invoiceMapper = invoiceMapper;
+        this.runMapper = runMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.pageCounter = pageCounter;
+        this.readTransaction = new TransactionTemplate(transactionManager);
+        this.readTransaction.setReadOnly(true);
+        // 批次写入使用新连接，不影响游标所在的读事务
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        this.leaseSeconds = Math.max(leaseSeconds, 1);
+    }
+    
+    /**
+     * 每月1日生成当月账单
+     */
+    @Scheduled(cron = "${billing.cron:0 0 2 1 * ?}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            BillingRun run = run(YearMonth.now());
+            log.info("账期 {} 账单生成结束: 状态 {}，处理 {} 条，账单 {} 张", run.getPeriod(), run.getStatus(),
+                    run.getProcessedCount(), run.getInvoiceCount());
+        } catch (RuntimeException e) {
+            log.error("账单生成失败", e);
+        }
+    }
+    
+    /**
+     * 同步生成账期账单，返回批次最终状态；已完成或其他节点正在执行时直接返回当前状态
+     */
+    public BillingRun run(YearMonth period) {
+        Claim claim = claim(period);
+        return claim.owned() ? process(claim.run(), period) : claim.run();
+    }
+    
+    /**
+     * 后台生成账期账单，立即返回批次当前状态
+     */
+    public BillingRun start(YearMonth period) {
+        Claim claim = claim(period);
+        if (claim.owned()) {
+            executor.submit(() -> {
+                try {
+                    process(claim.run(), period);
+                } catch (RuntimeException e) {
+                    log.error("账期 {} 账单生成失败", period, e);
+                }
+            });
+        }
+        return claim.run();
+    }
+    
+    public BillingRun find(YearMonth period) {
+        return runMapper.selectOne(new LambdaQueryWrapper<BillingRun>().eq(BillingRun::getPeriod, period.toString()));
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+    
+    /**
+     * 新建批次，或接管失败/租约过期的批次；已完成或其他节点正在执行时 owned 为 false
+     */
+    Claim claim(YearMonth period) {
+        LocalDate periodStart = period.atDay(1);
+        LocalDate periodEnd = period.atEndOfMonth();
+        LocalDateTime now = LocalDateTime.now();
+        BillingRun existing = find(period);
+        if (existing == null) {
+            BillingRun run = new BillingRun();
+            run.setPeriod(period.toString());
+            run.setStatus(RUNNING);
+            run.setTotalCount(rentalRecordMapper.countBillable(periodStart, periodEnd));
+            run.setProcessedCount(0L);
+            run.setInvoiceCount(0L);
+            run.setLastRentalId(0L);
+            run.setClaimToken(UUID.randomUUID().toString());
+            run.setStartTime(now);
+            run.setUpdateTime(now);
+            try {
+                runMapper.insert(run);
+                return new Claim(run, true);
+            } catch (DuplicateKeyException e) {
+                // 其他节点同时创建了同一账期的批次
+                return new Claim(find(period), false);
+            }
+        }
+        boolean stale = existing.getStatus() == RUNNING
+                && existing.getUpdateTime().isBefore(now.minusSeconds(leaseSeconds));
+        if (existing.getStatus() == FAILED || stale) {
+            // 以读到的 update_time 为版本号接管，多个节点同时接管时只有一个成功
+            String token = UUID.randomUUID().toString();
+            int updated = runMapper.update(null, new LambdaUpdateWrapper<BillingRun>()
+                    .set(BillingRun::getStatus, RUNNING)
+                    .set(BillingRun::getClaimToken, token)
+                    .set(BillingRun::getErrorMessage, null)
+                    .set(BillingRun::getUpdateTime, now)
+                    .eq(BillingRun::getId, existing.getId())
+                    .eq(BillingRun::getUpdateTime, existing.getUpdateTime()));
+            if (updated == 1) {
+                existing.setStatus(RUNNING);
+                existing.setClaimToken(token);
+                existing.setErrorMessage(null);
+                existing.setUpdateTime(now);
+                log.info("账期 {} 从租赁记录 {} 之后继续生成账单", period, existing.getLastRentalId());
+                return new Claim(existing, true);
+            }
+            return new Claim(find(period), false);
+        }
+        return new Claim(existing, false);
+    }
+    
+    BillingRun process(BillingRun run, YearMonth period) {
+        LocalDate periodStart = period.atDay(1);
+        LocalDate periodEnd = period.atEndOfMonth();
+        try {
+            readTransaction.executeWithoutResult(status -> {
+                try (Cursor<RentalRecord> cursor = rentalRecordMapper.selectBillableCursor(periodStart, periodEnd,
+                        run.getLastRentalId())) {
+                    List<RentalRecord> chunk = new ArrayList<>(batchSize);
+                    for (RentalRecord record : cursor) {
+                        chunk.add(record);
+                        if (chunk.size() == batchSize) {
+                            writeChunk(run, period, chunk);
+                            chunk.clear();
+                        }
+                    }
+                    if (!chunk.isEmpty()) {
+                        writeChunk(run, period, chunk);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            long invoices = invoiceMapper.selectCount(new LambdaQueryWrapper<RentalInvoice>()
+                    .eq(RentalInvoice::getPeriod, period.toString()));
+            runMapper.update(null, new LambdaUpdateWrapper<BillingRun>()
+                    .set(BillingRun::getStatus, COMPLETED)
+                    .set(BillingRun::getInvoiceCount, invoices)
+                    .set(BillingRun::getFinishTime, LocalDateTime.now())
+                    .set(BillingRun::getUpdateTime, LocalDateTime.now())
+                    .eq(BillingRun::getId, run.getId())
+                    .eq(BillingRun::getClaimToken, run.getClaimToken())
+                    .eq(BillingRun::getLastRentalId, run.getLastRentalId()));
+        } catch (LeaseLostException e) {
+            // 批次已归新的执行者，保持其状态不变
+            log.info("账期 {} 的账单生成已被其他节点接管，本节点停止", period);
+        } catch (RuntimeException e) {
+            String message = String.valueOf(e.getMessage());
+            runMapper.update(null, new LambdaUpdateWrapper<BillingRun>()
+                    .set(BillingRun::getStatus, FAILED)
+                    .set(BillingRun::getErrorMessage, message.length() > 500 ? message.substring(0, 500) : message)
+                    .set(BillingRun::getUpdateTime, LocalDateTime.now())
+                    .eq(BillingRun::getId, run.getId())
+                    .eq(BillingRun::getClaimToken, run.getClaimToken()));
+            throw e;
+        } finally {
+            // 账单通过 JDBC 写入，不经过 MyBatis 拦截器
+            pageCounter.invalidate("rental_invoice");
+        }
+        return runMapper.selectById(run.getId());
+    }
+    
+    /**
+     * 一批账单与断点在同一事务提交；claim_token 或断点与本节点持有的不一致说明批次已被其他节点接管，整批回滚并停止
+     */
+    private void writeChunk(BillingRun run, YearMonth period, List<RentalRecord> chunk) {
+        LocalDate periodStart = period.atDay(1);
+        LocalDate periodEnd = period.atEndOfMonth();
+        String invoicePrefix = "INV" + period.format(INVOICE_PERIOD) + "-";
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        long lastId = chunk.get(chunk.size() - 1).getId();
+        chunkTransaction.executeWithoutResult(status -> {
+            int[] counts = jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    RentalRecord record = chunk.get(i);
+                    LocalDate from = record.getStartDate().isAfter(periodStart) ? record.getStartDate() : periodStart;
+                    LocalDate to = record.getEndDate().isBefore(periodEnd) ? record.getEndDate() : periodEnd;
+                    ps.setString(1, invoicePrefix + record.getId());
+                    ps.setLong(2, record.getId());
+                    ps.setLong(3, record.getUserId());
+                    ps.setLong(4, record.getStallId());
+                    ps.setString(5, period.toString());
+                    ps.setDate(6, Date.valueOf(from));
+                    ps.setDate(7, Date.valueOf(to));
+                    ps.setBigDecimal(8, amount(record, from, to));
+                    ps.setLong(9, run.getId());
+                    ps.setTimestamp(10, now);
+                    ps.setTimestamp(11, now);
+                }
+                
+                @Override
+                public int getBatchSize() {
+                    return chunk.size();
+                }
+            });
+            long inserted = 0;
+            for (int count : counts) {
+                // 驱动改写为多行 INSERT 时只返回 SUCCESS_NO_INFO，完成时再按账期重新统计
+                if (count > 0 || count == Statement.SUCCESS_NO_INFO) {
+                    inserted++;
+                }
+            }
+            int updated = runMapper.update(null, new LambdaUpdateWrapper<BillingRun>()
+                    .setSql("processed_count = processed_count + " + chunk.size())
+                    .setSql("invoice_count = invoice_count + " + inserted)
+                    .set(BillingRun::getLastRentalId, lastId)
+                    .set(BillingRun::getUpdateTime, now.toLocalDateTime())
+                    .eq(BillingRun::getId, run.getId())
+                    .eq(BillingRun::getClaimToken, run.getClaimToken())
+                    .eq(BillingRun::getLastRentalId, run.getLastRentalId())
+                    .eq(BillingRun::getStatus, RUNNING));
+            if (updated != 1) {
+                throw new LeaseLostException();
+            }
+        });
+        run.setLastRentalId(lastId);
+    }
+    
+    /**
+     * 账期内 [from, to] 的租金：租金总额按租期天数分摊，取两个累计额之差，同一租赁各账期之和等于租金总额
+     */
+    static BigDecimal amount(RentalRecord record, LocalDate from, LocalDate to) {
+        if (record.getRentAmount() == null) {
+            return BigDecimal.ZERO.setScale(2, RoundingMode.HALF_UP);
+        }
+        long totalDays = ChronoUnit.DAYS.between(record.getStartDate(), record.getEndDate()) + 1;
+        long daysBefore = ChronoUnit.DAYS.between(record.getStartDate(), from);
+        long daysThrough = ChronoUnit.DAYS.between(record.getStartDate(), to) + 1;
+        return share(record.getRentAmount(), daysThrough, totalDays)
+                .subtract(share(record.getRentAmount(), daysBefore, totalDays));
+    }
+    
+    private static BigDecimal share(BigDecimal total, long days, long totalDays) {
+        return total.multiply(BigDecimal.valueOf(days)).divide(BigDecimal.valueOf(totalDays), 2, RoundingMode.HALF_UP);
+    }
+    
+    record Claim(BillingRun run, boolean owned) {
+    }
+    
+    /**
+     * 批次已被其他节点接管
+     */
+    private static final class LeaseLostException extends RuntimeException {
+        
+        private LeaseLostException() {
+            super("账单生成批次已被其他节点接管");
+        }
+    }
+}
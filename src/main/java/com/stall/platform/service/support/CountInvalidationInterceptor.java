@@ -0,0 +1,43 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.metadata.TableInfo;
+import com.baomidou.mybatisplus.core.metadata.TableInfoHelper;
+import com.baomidou.mybatisplus.extension.plugins.inner.InnerInterceptor;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 拦截 insert/update/delete，使对应表的缓存计数失效
+ * 更新也会改变按状态等条件筛选的计数，因此同样触发失效
+ */
+public class CountInvalidationInterceptor implements InnerInterceptor {
+    
+    private final PageCounter pageCounter;
+    
+    /**
+     * Mapper命名空间 -> 表名
+     */
+    private final Map<String, Optional<String>> tables = new ConcurrentHashMap<>();
+    
+    public CountInvalidationInterceptor(PageCounter pageCounter) {
+        this.pageCounter = pageCounter;
+    }
+    
+    @Override
+    public void beforeUpdate(Executor executor, MappedStatement ms, Object parameter) {
+        String id = ms.getId();
+        String namespace = id.substring(0, id.lastIndexOf('.'));
+        tables.computeIfAbsent(namespace, CountInvalidationInterceptor::tableOf).ifPresent(pageCounter::invalidate);
+    }
+    
+    private static Optional<String> tableOf(String namespace) {
+        return TableInfoHelper.getTableInfos().stream()
+                .filter(info -> namespace.equals(info.getCurrentNamespace()))
+                .map(TableInfo::getTableName)
+                .findFirst();
+    }
+}
@@ -0,0 +1,200 @@
+package com.stall.platform.service.support;
+
+import java.util.function.LongConsumer;
+import java.util.function.LongPredicate;
+
+/**
+ * 闭区间树（按起点排序的 treap，每个节点记录子树内的最大终点）
+ * 区间以 long 表示（日期取 epochDay），每个区间带一个唯一 key；
+ * 插入、删除期望 O(log n)，重叠查询 O(log n + k)，子树最大终点小于查询起点时整棵跳过
+ * 优先级由 key 哈希得到，同样的数据总是得到同样的树形；非线程安全，由调用方保证
+ */
+public final class IntervalTree {
+    
+    private Node root;
+    private int size;
+    
+    public void add(long start, long end, long key) {
+        if (end < start) {
+            throw new IllegalArgumentException("区间终点不能早于起点");
+        }
+        root = insert(root, new Node(start, end, key));
+        size++;
+    }
+    
+    /**
+     * 按起点和 key 删除，返回是否存在
+     */
+    public boolean remove(long start, long key) {
+        boolean[] removed = {false};
+        root = delete(root, start, key, removed);
+        if (removed[0]) {
+            size--;
+        }
+        return removed[0];
+    }
+    
+    public int size() {
+        return size;
+    }
+    
+    /**
+     * 是否存在与 [from, to] 重叠且 key 满足条件的区间
+     */
+    public boolean overlaps(long from, long to, LongPredicate filter) {
+        return anyOverlap(root, from, to, filter);
+    }
+    
+    /**
+     * 依次回调与 [from, to] 重叠的区间的 key（按起点升序）
+     */
+    public void forEachOverlap(long from, long to, LongConsumer action) {
+        visit(root, from, to, action);
+    }
+    
+    private static Node insert(Node node, Node added) {
+        if (node == null) {
+            return added;
+        }
+        if (compare(added.start, added.key, node) < 0) {
+            node.left = insert(node.left, added);
+            if (node.left.priority > node.priority) {
+                node = rotateRight(node);
+            }
+        } else {
+            node.right = insert(node.right, added);
+            if (node.right.priority > node.priority) {
+                node = rotateLeft(node);
+            }
+        }
+        update(node);
+        return node;
+    }
+    
+    private static Node delete(Node node, long start, long key, boolean[] removed) {
+        if (node == null) {
+            return null;
+        }
+        int c = compare(start, key, node);
+        if (c < 0) {
+            node.left = delete(node.left, start, key, removed);
+        } else if (c > 0) {
+            node.right = delete(node.right, start, key, removed);
+        } else {
+            removed[0] = true;
+            return merge(node.left, node.right);
+        }
+        update(node);
+        return node;
+    }
+    
+    /**
+     * 合并两棵树，left 中的节点都排在 right 之前
+     */
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            update(left);
+            return left;
+        }
+        right.left = merge(left, right.left);
+        update(right);
+        return right;
+    }
+    
+    private static boolean anyOverlap(Node node, long from, long to, LongPredicate filter) {
+        if (node == null || node.maxEnd < from) {
+            return false;
+        }
+        if (anyOverlap(node.left, from, to, filter)) {
+            return true;
+        }
+        if (node.start > to) {
+            return false;
+        }
+        if (node.end >= from && filter.test(node.key)) {
+            return true;
+        }
+        return anyOverlap(node.right, from, to, filter);
+    }
+    
+    private static void visit(Node node, long from, long to, LongConsumer action) {
+        if (node == null || node.maxEnd < from) {
+            return;
+        }
+        visit(node.left, from, to, action);
+        if (node.start > to) {
+            return;
+        }
+        if (node.end >= from) {
+            action.accept(node.key);
+        }
+        visit(node.right, from, to, action);
+    }
+    
+    private static Node rotateRight(Node node) {
+        Node left = node.left;
+        node.left = left.right;
+        update(node);
+        left.right = node;
+        update(left);
+        return left;
+    }
+    
+    private static Node rotateLeft(Node node) {
+        Node right = node.right;
+        node.right = right.left;
+        update(node);
+        right.left = node;
+        update(right);
+        return right;
+    }
+    
+    private static void update(Node node) {
+        long max = node.end;
+        if (node.left != null) {
+            max = Math.max(max, node.left.maxEnd);
+        }
+        if (node.right != null) {
+            max = Math.max(max, node.right.maxEnd);
+        }
+        node.maxEnd = max;
+    }
+    
+    private static int compare(long start, long key, Node node) {
+        int c = Long.compare(start, node.start);
+        return c != 0 ? c : Long.compare(key, node.key);
+    }
+    
+    private static final class Node {
+        
+        private final long start;
+        private final long end;
+        private final long key;
+        private final long priority;
+        private long maxEnd;
+        private Node left;
+        private Node right;
+        
+        private Node(long start, long end, long key) {
+            this.start = start;
+            this.end = end;
+            this.key = key;
+            this.priority = mix(key);
+            this.maxEnd = end;
+        }
+        
+        private static long mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            h ^= h >>> 33;
+            h *= 0xFF51AFD7ED558CCDL;
+            return h ^ (h >>> 33);
+        }
+    }
+}
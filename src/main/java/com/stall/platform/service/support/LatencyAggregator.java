@@ -0,0 +1,277 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.stall.platform.entity.SystemLog;
+import com.stall.platform.entity.SystemLogLatency;
+import com.stall.platform.mapper.SystemLogLatencyMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 操作耗时汇总
+ * 记录日志时按（分钟, 操作编码, 方法）累加到内存直方图，已结束的分钟定期写入 system_log_latency；
+ * 超过 hourly-after-days 的分钟汇总合并为小时、超过 daily-after-days 的合并为天，一年数据只有数万行
+ * 查询时合并窗口内的汇总行与内存中尚未写入的分钟，不扫描原始日志；小时/天汇总与窗口有交集即整体计入
+ */
+@Slf4j
+@Component
+public class LatencyAggregator {
+    
+    private static final int MINUTE = 1;
+    private static final int HOUR = 60;
+    private static final int DAY = 1440;
+    private static final int INSERT_CHUNK = 500;
+    
+    private final SystemLogLatencyMapper latencyMapper;
+    private final OperationDictionary operationDictionary;
+    private final TransactionTemplate transactionTemplate;
+    private final int hourlyAfterDays;
+    private final int dailyAfterDays;
+    
+    /**
+     * 尚未写入的分钟汇总；直方图只在 compute 内修改，写库时整项移除
+     */
+    private final ConcurrentHashMap<Key, LatencyHistogram> minutes = new ConcurrentHashMap<>();
+    
+    public LatencyAggregator(SystemLogLatencyMapper latencyMapper, OperationDictionary operationDictionary,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${system-log.latency.hourly-after-days:2}") int hourlyAfterDays,
+                             @Value("${system-log.latency.daily-after-days:60}") int dailyAfterDays) {
+        this.latencyMapper = latencyMapper;
+        this.operationDictionary = operationDictionary;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.hourlyAfterDays = Math.max(hourlyAfterDays, 1);
+        this.dailyAfterDays = Math.max(dailyAfterDays, this.hourlyAfterDays + 1);
+    }
+    
+    /**
+     * 记录一条日志的耗时（需已设置 operationCode 和 createTime）
+     */
+    public void record(SystemLog entry) {
+        if (entry.getTime() == null) {
+            return;
+        }
+        LocalDateTime at = entry.getCreateTime() != null ? entry.getCreateTime() : LocalDateTime.now();
+        Key key = new Key(epochMinute(at), entry.getOperationCode(), entry.getMethod());
+        long elapsed = entry.getTime();
+        minutes.compute(key, (k, histogram) -> {
+            LatencyHistogram target = histogram != null ? histogram : new LatencyHistogram();
+            target.record(elapsed);
+            return target;
+        });
+    }
+    
+    @Scheduled(fixedDelayString = "${system-log.latency.flush-interval:60000}")
+    public void scheduledFlush() {
+        try {
+            flush(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("耗时汇总写入失败: {}", e.getMessage());
+        }
+    }
+    
+    @Scheduled(cron = "${system-log.latency.rollup-cron:0 10 * * * ?}")
+    public void scheduledRollup() {
+        try {
+            rollup(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.warn("耗时汇总合并失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 写入 now 所在分钟之前的全部分钟汇总，返回写入行数；写库失败时放回内存下次重试
+     */
+    public synchronized int flush(LocalDateTime now) {
+        long current = epochMinute(now);
+        Map<Key, LatencyHistogram> due = new HashMap<>();
+        for (Key key : minutes.keySet()) {
+            if (key.minute < current) {
+                LatencyHistogram histogram = minutes.remove(key);
+                if (histogram != null) {
+                    due.put(key, histogram);
+                }
+            }
+        }
+        List<SystemLogLatency> rows = new ArrayList<>(due.size());
+        due.forEach((key, histogram) -> rows.add(toRow(toTime(key.minute), MINUTE, key.operationCode, key.method,
+                histogram)));
+        try {
+            for (int i = 0; i < rows.size(); i += INSERT_CHUNK) {
+                latencyMapper.insertBatch(rows.subList(i, Math.min(i + INSERT_CHUNK, rows.size())));
+            }
+        } catch (RuntimeException e) {
+            due.forEach((key, histogram) -> minutes.merge(key, histogram, (a, b) -> {
+                a.merge(b);
+                return a;
+            }));
+            throw e;
+        }
+        return rows.size();
+    }
+    
+    /**
+     * 把早于保留期的细粒度汇总合并为粗粒度，返回生成的粗粒度区间数
+     */
+    public synchronized int rollup(LocalDateTime now) {
+        return rollup(MINUTE, HOUR, align(now.minusDays(hourlyAfterDays), HOUR))
+                + rollup(HOUR, DAY, align(now.minusDays(dailyAfterDays), DAY));
+    }
+    
+    /**
+     * 窗口 [start, end) 内的耗时统计，按 p99 降序
+     *
+     * @param groupBy        operation（默认）或 method
+     * @param operationCodes 只统计这些操作编码，null 表示不限
+     */
+    public List<LatencySummary> query(LocalDateTime start, LocalDateTime end, String groupBy,
+                                      Collection<Integer> operationCodes, int limit) {
+        boolean byMethod = "method".equalsIgnoreCase(groupBy);
+        Map<Object, Group> groups = new HashMap<>();
+        LambdaQueryWrapper<SystemLogLatency> wrapper = new LambdaQueryWrapper<SystemLogLatency>()
+                .ge(SystemLogLatency::getBucketTime, start.minusMinutes(DAY))
+                .lt(SystemLogLatency::getBucketTime, end);
+        if (operationCodes != null) {
+            if (operationCodes.isEmpty()) {
+                return Collections.emptyList();
+            }
+            wrapper.in(SystemLogLatency::getOperationCode, operationCodes);
+        }
+        for (SystemLogLatency row : latencyMapper.selectList(wrapper)) {
+            if (!row.getBucketTime().plusMinutes(row.getResolution()).isAfter(start)) {
+                continue;
+            }
+            group(groups, byMethod, row.getOperationCode(), row.getMethod())
+                    .histogram.merge(LatencyHistogram.decode(row.getHistogram()));
+        }
+        long from = epochMinute(start);
+        long to = epochMinute(end);
+        for (Key key : minutes.keySet()) {
+            if (key.minute >= from && key.minute < to
+                    && (operationCodes == null
+                    || key.operationCode != null && operationCodes.contains(key.operationCode))) {
+                Group group = group(groups, byMethod, key.operationCode, key.method);
+                minutes.computeIfPresent(key, (k, histogram) -> {
+                    group.histogram.merge(histogram);
+                    return histogram;
+                });
+            }
+        }
+        List<LatencySummary> result = new ArrayList<>(groups.size());
+        for (Group group : groups.values()) {
+            LatencyHistogram h = group.histogram;
+            if (h.count() > 0) {
+                String operation = group.operationCode == null ? null : operationDictionary.nameOf(group.operationCode);
+                result.add(new LatencySummary(operation, group.method, h.count(), Math.round(h.mean() * 100) / 100.0,
+                        h.percentile(50), h.percentile(90), h.percentile(99), h.max()));
+            }
+        }
+        result.sort(Comparator.comparingLong(LatencySummary::p99).reversed()
+                .thenComparing(Comparator.comparingLong(LatencySummary::count).reversed()));
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+    
+    /**
+     * 每个粗粒度区间一个事务：锁定区间内的细粒度行，合并后写入并删除原行；多节点同时执行时后到者读不到已删除的行
+     */
+    private int rollup(int from, int to, LocalDateTime cutoff) {
+        int buckets = 0;
+        while (true) {
+            SystemLogLatency first = latencyMapper.selectOne(new LambdaQueryWrapper<SystemLogLatency>()
+                    .eq(SystemLogLatency::getResolution, from)
+                    .lt(SystemLogLatency::getBucketTime, cutoff)
+                    .orderByAsc(SystemLogLatency::getBucketTime)
+                    .last("LIMIT 1"));
+            if (first == null) {
+                return buckets;
+            }
+            LocalDateTime bucketStart = align(first.getBucketTime(), to);
+            LocalDateTime bucketEnd = bucketStart.plusMinutes(to);
+            transactionTemplate.executeWithoutResult(status -> {
+                List<SystemLogLatency> rows = latencyMapper.selectList(new LambdaQueryWrapper<SystemLogLatency>()
+                        .eq(SystemLogLatency::getResolution, from)
+                        .ge(SystemLogLatency::getBucketTime, bucketStart)
+                        .lt(SystemLogLatency::getBucketTime, bucketEnd)
+                        .last("FOR UPDATE"));
+                if (rows.isEmpty()) {
+                    return;
+                }
+                Map<List<Object>, LatencyHistogram> merged = new HashMap<>();
+                List<Long> ids = new ArrayList<>(rows.size());
+                for (SystemLogLatency row : rows) {
+                    merged.computeIfAbsent(Arrays.asList(row.getOperationCode(), row.getMethod()),
+                            k -> new LatencyHistogram()).merge(LatencyHistogram.decode(row.getHistogram()));
+                    ids.add(row.getId());
+                }
+                List<SystemLogLatency> coarse = new ArrayList<>(merged.size());
+                merged.forEach((k, histogram) -> coarse.add(toRow(bucketStart, to, (Integer) k.get(0),
+                        (String) k.get(1), histogram)));
+                latencyMapper.insertBatch(coarse);
+                latencyMapper.deleteBatchIds(ids);
+            });
+            buckets++;
+        }
+    }
+    
+    private Group group(Map<Object, Group> groups, boolean byMethod, Integer operationCode, String method) {
+        Object key = byMethod ? "m:" + method : operationCode;
+        return groups.computeIfAbsent(key, k -> new Group(byMethod ? null : operationCode, byMethod ? method : null));
+    }
+    
+    private static SystemLogLatency toRow(LocalDateTime bucketTime, int resolution, Integer operationCode,
+                                          String method, LatencyHistogram histogram) {
+        SystemLogLatency row = new SystemLogLatency();
+        row.setBucketTime(bucketTime);
+        row.setResolution(resolution);
+        row.setOperationCode(operationCode);
+        row.setMethod(method);
+        row.setCallCount(histogram.count());
+        row.setTotalTime(histogram.total());
+        row.setMaxTime(histogram.max());
+        row.setHistogram(histogram.encode());
+        return row;
+    }
+    
+    private static long epochMinute(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+    
+    private static LocalDateTime toTime(long epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60, 0, ZoneOffset.UTC);
+    }
+    
+    /**
+     * 按本地时间对齐到整小时/整天
+     */
+    private static LocalDateTime align(LocalDateTime time, int resolution) {
+        return toTime(Math.floorDiv(epochMinute(time), resolution) * resolution);
+    }
+    
+    public record LatencySummary(String operation, String method, long count, double avg,
+                                 long p50, long p90, long p99, long max) {
+    }
+    
+    private record Key(long minute, Integer operationCode, String method) {
+    }
+    
+    private static final class Group {
+        
+        private final Integer operationCode;
+        private final String method;
+        private final LatencyHistogram histogram = new LatencyHistogram();
+        
+        private Group(Integer operationCode, String method) {
+            this.operationCode = operationCode;
+            this.method = method;
+        }
+    }
+}
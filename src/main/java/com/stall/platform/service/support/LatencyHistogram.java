@@ -0,0 +1,159 @@
+package com.stall.platform.service.support;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+
+/**
+ * 耗时直方图（对数-线性分桶，与 HDR Histogram 相同思路）
+ * 0~127 毫秒每毫秒一个桶；之后每个2的幂区间再均分为64个桶，相对误差不超过 1/64，
+ * 桶数组按记录到的最大值按需扩展，常见耗时（一分钟以内）不超过约 700 个桶
+ * 同构分桶可直接逐桶相加合并，按分钟汇总后再合并成任意时间窗口；非线程安全，由调用方保证
+ */
+public final class LatencyHistogram {
+    
+    private static final int SUB_BUCKET_BITS = 6;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int LINEAR_LIMIT = SUB_BUCKETS * 2;
+    
+    private long[] counts = new long[0];
+    private long count;
+    private long total;
+    private long max;
+    
+    public void record(long value) {
+        long v = Math.max(value, 0);
+        int index = indexOf(v);
+        if (index >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(index + 1, counts.length + counts.length / 2));
+        }
+        counts[index]++;
+        count++;
+        total += v;
+        max = Math.max(max, v);
+    }
+    
+    public void merge(LatencyHistogram other) {
+        if (other.counts.length > counts.length) {
+            counts = Arrays.copyOf(counts, other.counts.length);
+        }
+        for (int i = 0; i < other.counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+    
+    public long count() {
+        return count;
+    }
+    
+    public long total() {
+        return total;
+    }
+    
+    public long max() {
+        return max;
+    }
+    
+    public double mean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+    
+    /**
+     * 第 percentile 百分位的耗时（取所在桶的上界，不超过最大值）；没有记录时为0
+     */
+    public long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(percentile, 0), 100) / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestValueAt(i), max);
+            }
+        }
+        return max;
+    }
+    
+    /**
+     * 稀疏编码：总数、总耗时、最大值，之后每个非空桶为（与上一个非空桶的下标差, 计数），均为变长整数
+     */
+    public byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32);
+        writeVarLong(out, count);
+        writeVarLong(out, total);
+        writeVarLong(out, max);
+        int last = -1;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                writeVarLong(out, i - last);
+                writeVarLong(out, counts[i]);
+                last = i;
+            }
+        }
+        return out.toByteArray();
+    }
+    
+    public static LatencyHistogram decode(byte[] bytes) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        int[] pos = {0};
+        histogram.count = readVarLong(bytes, pos);
+        histogram.total = readVarLong(bytes, pos);
+        histogram.max = readVarLong(bytes, pos);
+        histogram.counts = new long[indexOf(histogram.max) + 1];
+        int index = -1;
+        while (pos[0] < bytes.length) {
+            index += (int) readVarLong(bytes, pos);
+            if (index >= histogram.counts.length) {
+                throw new IllegalArgumentException("直方图数据损坏");
+            }
+            histogram.counts[index] = readVarLong(bytes, pos);
+        }
+        return histogram;
+    }
+    
+    static int indexOf(long value) {
+        if (value < LINEAR_LIMIT) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) - SUB_BUCKETS;
+        return LINEAR_LIMIT + (exponent - SUB_BUCKET_BITS - 1) * SUB_BUCKETS + sub;
+    }
+    
+    static long highestValueAt(int index) {
+        if (index < LINEAR_LIMIT) {
+            return index;
+        }
+        int exponent = (index - LINEAR_LIMIT) / SUB_BUCKETS + SUB_BUCKET_BITS + 1;
+        int sub = (index - LINEAR_LIMIT) % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        return ((long) (SUB_BUCKETS + sub + 1) << shift) - 1;
+    }
+    
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+    
+    private static long readVarLong(byte[] bytes, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= bytes.length) {
+                throw new IllegalArgumentException("直方图数据损坏");
+            }
+            byte b = bytes[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("直方图数据损坏");
+    }
+}
@@ -0,0 +1,95 @@
+package com.stall.platform.service.support;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 有界无锁环形队列（多生产者、单消费者）
+ * 每个槽位带一个序号：序号等于写入位置时可写，等于写入位置+1时可读；
+ * 生产者CAS抢占写入位置，消费者读取后把序号推进一圈，满时 offer 立即返回false
+ */
+public class LogRingBuffer<E> {
+    
+    private final int capacity;
+    private final int mask;
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong head = new AtomicLong();
+    
+    /**
+     * @param capacity 容量，向上取整为2的幂
+     */
+    public LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.capacity = size;
+        this.mask = size - 1;
+        this.items = new Object[size];
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+    
+    public boolean offer(E item) {
+        while (true) {
+            long position = tail.get();
+            int index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[index] = item;
+                    // 发布：消费者看到新序号时一定能看到上面写入的元素
+                    sequences.set(index, position + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+            // diff > 0：其他生产者已抢占该位置，重读 tail
+        }
+    }
+    
+    /**
+     * 仅限消费者线程调用
+     */
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long position = head.get();
+        int index = (int) (position & mask);
+        if (sequences.get(index) != position + 1) {
+            return null;
+        }
+        E item = (E) items[index];
+        items[index] = null;
+        sequences.set(index, position + capacity);
+        head.set(position + 1);
+        return item;
+    }
+    
+    /**
+     * 仅限消费者线程调用，最多取出 max 个元素，返回取出数量
+     */
+    public int drainTo(List<? super E> target, int max) {
+        int count = 0;
+        E item;
+        while (count < max && (item = poll()) != null) {
+            target.add(item);
+            count++;
+        }
+        return count;
+    }
+    
+    /**
+     * 近似元素数量
+     */
+    public int size() {
+        long size = tail.get() - head.get();
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+    
+    public int capacity() {
+        return capacity;
+    }
+}
@@ -0,0 +1,137 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.entity.SystemLogOperation;
+import com.stall.platform.mapper.SystemLogOperationMapper;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+/**
+ * 操作名称字典：system_log 按整数编码 operation_code 建索引和过滤
+ * 操作名称由代码中的 @OperationLog 决定，数量少且固定，整表常驻内存（按名称排序，支持前缀查找）
+ * 新名称在独立事务中登记（唯一约束兜底并发登记），登记后广播，其他节点重新加载
+ */
+@Component
+public class OperationDictionary {
+    
+    private static final String RELOAD_MESSAGE = "catalog|operation";
+    
+    private final SystemLogOperationMapper operationMapper;
+    private final SharedCache sharedCache;
+    private final TransactionTemplate requiresNew;
+    
+    private volatile NavigableMap<String, Integer> codes;
+    
+    public OperationDictionary(SystemLogOperationMapper operationMapper, SharedCache sharedCache,
+                               PlatformTransactionManager transactionManager) {
+        this.operationMapper = operationMapper;
+        this.sharedCache = sharedCache;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        sharedCache.subscribe(message -> {
+            if (RELOAD_MESSAGE.equals(message)) {
+                synchronized (this) {
+                    codes = null;
+                }
+            }
+        });
+    }
+    
+    /**
+     * 名称对应的编码，未登记时登记；名称为空返回null
+     */
+    public Integer codeOf(String name) {
+        if (name == null || name.isEmpty()) {
+            return null;
+        }
+        Integer code = current().get(name);
+        return code != null ? code : register(name);
+    }
+    
+    /**
+     * 只查不登记；本地没有时重新加载一次（可能是其他节点刚登记的）
+     */
+    public Integer find(String name) {
+        Integer code = current().get(name);
+        if (code == null) {
+            code = reload().get(name);
+        }
+        return code;
+    }
+    
+    /**
+     * 以 prefix 开头的全部操作编码
+     */
+    public List<Integer> codesWithPrefix(String prefix) {
+        return new ArrayList<>(current().subMap(prefix, true, prefix + Character.MAX_VALUE, false).values());
+    }
+    
+    /**
+     * 编码对应的名称（遍历字典，只用于统计结果展示）
+     */
+    public String nameOf(Integer code) {
+        for (Map.Entry<String, Integer> entry : current().entrySet()) {
+            if (entry.getValue().equals(code)) {
+                return entry.getKey();
+            }
+        }
+        return null;
+    }
+    
+    public int size() {
+        return current().size();
+    }
+    
+    private synchronized Integer register(String name) {
+        Integer code = current().get(name);
+        if (code != null) {
+            return code;
+        }
+        // 独立事务登记并读取：调用方事务回滚不会留下指向不存在字典行的编码，可重复读快照也不影响读到新行
+        try {
+            code = requiresNew.execute(status -> {
+                SystemLogOperation existing = selectByName(name);
+                if (existing != null) {
+                    return existing.getId();
+                }
+                SystemLogOperation operation = new SystemLogOperation();
+                operation.setName(name);
+                operationMapper.insert(operation);
+                return operation.getId();
+            });
+        } catch (DuplicateKeyException e) {
+            // 其他节点同时登记
+            code = requiresNew.execute(status -> selectByName(name).getId());
+        }
+        NavigableMap<String, Integer> next = new TreeMap<>(current());
+        next.put(name, code);
+        codes = Collections.unmodifiableNavigableMap(next);
+        sharedCache.publish(RELOAD_MESSAGE);
+        return code;
+    }
+    
+    private SystemLogOperation selectByName(String name) {
+        return operationMapper.selectOne(new LambdaQueryWrapper<SystemLogOperation>()
+                .eq(SystemLogOperation::getName, name));
+    }
+    
+    private NavigableMap<String, Integer> current() {
+        NavigableMap<String, Integer> current = codes;
+        return current != null ? current : reload();
+    }
+    
+    private synchronized NavigableMap<String, Integer> reload() {
+        NavigableMap<String, Integer> next = new TreeMap<>();
+        for (SystemLogOperation operation : operationMapper.selectList(null)) {
+            next.put(operation.getName(), operation.getId());
+        }
+        codes = Collections.unmodifiableNavigableMap(next);
+        return codes;
+    }
+}
@@ -0,0 +1,180 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CountedPage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 分页查询的总数统计策略
+ * 缓存的总数按“表+代数+归一化筛选条件”存放，表有写入时代数加一使该表全部缓存失效
+ */
+@Slf4j
+@Component
+public class PageCounter {
+    
+    private static final String MESSAGE_TYPE = "count";
+    private static final String ESTIMATE_SQL = "SELECT TABLE_ROWS FROM information_schema.TABLES " +
+            "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ?";
+    
+    @Value("${cache.count.ttl:30}")
+    private long ttlSeconds;
+    
+    @Value("${cache.count.max-entries:10000}")
+    private int maxEntries;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final SharedCache sharedCache;
+    private final Map<String, AtomicLong> generations = new ConcurrentHashMap<>();
+    private final Map<String, Entry> counts = new ConcurrentHashMap<>();
+    
+    /**
+     * 数据库不支持表统计信息（如H2）时不再重复尝试
+     */
+    private volatile boolean estimateSupported = true;
+    
+    public PageCounter(JdbcTemplate jdbcTemplate, SharedCache sharedCache) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sharedCache = sharedCache;
+        sharedCache.subscribe(message -> {
+            String[] parts = message.split("\\|", 2);
+            if (parts.length == 2 && MESSAGE_TYPE.equals(parts[0])) {
+                generation(parts[1]).incrementAndGet();
+            }
+        });
+    }
+    
+    /**
+     * 按统计方式执行分页查询
+     *
+     * @param table   主表名，用于缓存失效和估算
+     * @param query   实际的分页查询，传入的Page决定是否执行COUNT
+     * @param filters 查询条件，参与缓存键；全部为空时视为无筛选
+     */
+    public <T> IPage<T> page(String table, CountMode mode, Integer pageNum, Integer pageSize,
+                             Function<Page<T>, IPage<T>> query, Object... filters) {
+        CountedPage<T> page = new CountedPage<>(pageNum, pageSize, mode);
+        switch (mode) {
+            case NONE -> {
+                page.beginProbe();
+                query.apply(page);
+                page.endProbe();
+            }
+            case CACHED, ESTIMATED -> {
+                String filterKey = filterKey(filters);
+                Long total = mode == CountMode.ESTIMATED && filterKey.isEmpty() ? estimate(table) : null;
+                if (total == null) {
+                    total = cachedCount(table, filterKey, page, query);
+                } else {
+                    page.setSearchCount(false);
+                    query.apply(page);
+                    page.setTotal(total);
+                }
+                page.setHasMore(page.getCurrent() < page.getPages());
+            }
+            default -> {
+                query.apply(page);
+                page.setHasMore(page.getCurrent() < page.getPages());
+            }
+        }
+        return page;
+    }
+    
+    /**
+     * 表发生写入：本节点立即失效，事务结束后再失效一次并通知其他节点
+     */
+    public void invalidate(String table) {
+        generation(table).incrementAndGet();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    generation(table).incrementAndGet();
+                    sharedCache.publish(MESSAGE_TYPE + "|" + table);
+                }
+            });
+        } else {
+            sharedCache.publish(MESSAGE_TYPE + "|" + table);
+        }
+    }
+    
+    private <T> long cachedCount(String table, String filterKey, CountedPage<T> page,
+                                 Function<Page<T>, IPage<T>> query) {
+        // 写事务中可能有未提交的写入，不读也不写缓存
+        boolean cacheable = !inWriteTransaction();
+        long loadGeneration = generation(table).get();
+        String key = table + ":" + loadGeneration + ":" + filterKey;
+        Entry entry = cacheable ? counts.get(key) : null;
+        if (entry != null && entry.expireAt > System.currentTimeMillis()) {
+            page.setSearchCount(false);
+            query.apply(page);
+            page.setTotal(entry.total);
+            return entry.total;
+        }
+        query.apply(page);
+        if (cacheable && generation(table).get() == loadGeneration) {
+            if (counts.size() >= maxEntries) {
+                // 条目数到上限时整体清空，过期和失效的旧代数条目随之回收
+                counts.clear();
+            }
+            counts.put(key, new Entry(page.getTotal(), System.currentTimeMillis() + ttlSeconds * 1000));
+        }
+        return page.getTotal();
+    }
+    
+    private Long estimate(String table) {
+        if (!estimateSupported) {
+            return null;
+        }
+        try {
+            return jdbcTemplate.queryForObject(ESTIMATE_SQL, Long.class, table);
+        } catch (BadSqlGrammarException e) {
+            estimateSupported = false;
+            log.warn("当前数据库不支持表行数估算，改用缓存计数: {}", e.getMessage());
+            return null;
+        } catch (DataAccessException e) {
+            return null;
+        }
+    }
+    
+    private AtomicLong generation(String table) {
+        return generations.computeIfAbsent(table, t -> new AtomicLong());
+    }
+    
+    /**
+     * 归一化筛选条件：空值与空白串等价，字符串去除首尾空白
+     */
+    private static String filterKey(Object... filters) {
+        StringJoiner joiner = new StringJoiner("|");
+        boolean filtered = false;
+        for (Object filter : filters) {
+            Object value = filter instanceof String s ? (s.isBlank() ? null : s.trim()) : filter;
+            filtered |= value != null;
+            joiner.add(String.valueOf(value));
+        }
+        return filtered ? joiner.toString() : "";
+    }
+    
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+    
+    private record Entry(long total, long expireAt) {
+    }
+}
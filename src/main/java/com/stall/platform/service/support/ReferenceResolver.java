@@ -0,0 +1,63 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.Stall;
+import com.stall.platform.entity.User;
+import com.stall.platform.mapper.StallMapper;
+import com.stall.platform.mapper.UserMapper;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * 关联数据批量解析
+ * 汇总一页记录引用的用户/摊位ID，每种实体只发一次 IN 查询，避免逐行回表
+ */
+@Component
+public class ReferenceResolver {
+    
+    private final UserMapper userMapper;
+    private final StallMapper stallMapper;
+    
+    public ReferenceResolver(UserMapper userMapper, StallMapper stallMapper) {
+        this.userMapper = userMapper;
+        this.stallMapper = stallMapper;
+    }
+    
+    /**
+     * 批量查询记录中引用的用户，可同时传入多个ID字段（如提交人、处理人）
+     */
+    @SafeVarargs
+    public final <T> Map<Long, User> users(Collection<T> records, Function<T, Long>... idGetters) {
+        Set<Long> ids = collectIds(records, idGetters);
+        return ids.isEmpty() ? Collections.emptyMap() : toMap(userMapper.selectBatchIds(ids), User::getId);
+    }
+    
+    @SafeVarargs
+    public final <T> Map<Long, Stall> stalls(Collection<T> records, Function<T, Long>... idGetters) {
+        Set<Long> ids = collectIds(records, idGetters);
+        return ids.isEmpty() ? Collections.emptyMap() : toMap(stallMapper.selectBatchIds(ids), Stall::getId);
+    }
+    
+    @SafeVarargs
+    private static <T> Set<Long> collectIds(Collection<T> records, Function<T, Long>... idGetters) {
+        Set<Long> ids = new HashSet<>();
+        for (T record : records) {
+            for (Function<T, Long> getter : idGetters) {
+                Long id = getter.apply(record);
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+        }
+        return ids;
+    }
+    
+    private static <E> Map<Long, E> toMap(List<E> list, Function<E, Long> idGetter) {
+        Map<Long, E> map = new HashMap<>(list.size() * 2);
+        for (E e : list) {
+            map.put(idGetter.apply(e), e);
+        }
+        return map;
+    }
+}
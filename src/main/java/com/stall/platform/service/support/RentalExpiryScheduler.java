@@ -0,0 +1,222 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.mapper.RentalRecordMapper;
+import com.stall.platform.service.StallService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 租赁到期处理
+ * 租赁中记录的到期日（结束日期的次日）放在按天计时的分层时间轮中，每天零点推进时间轮，
+ * 到期的记录分批（每批一个事务）改为已到期，摊位没有其他租赁中记录时从已租用改回空闲
+ * 启动时按 (status, end_date) 索引重建时间轮，停机期间错过的到期在启动后立即处理；
+ * 新的租赁记录提交后加入本节点时间轮并广播给其他节点
+ * 每批先 FOR UPDATE 锁定仍为租赁中的记录再更新，多个节点同时处理同一批时后到者读到已到期的状态直接跳过
+ */
+@Slf4j
+@Component
+public class RentalExpiryScheduler {
+    
+    private static final String MESSAGE_PREFIX = "expiry|rental|";
+    
+    private final RentalRecordMapper rentalRecordMapper;
+    private final StallService stallService;
+    private final StallCalendar calendar;
+    private final SharedCache sharedCache;
+    private final TransactionTemplate transactionTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    
+    /**
+     * 首次处理前为 null，此时新增的记录不需要单独加入（重建时会从库中读到）
+     */
+    private TimingWheel wheel;
+    
+    public RentalExpiryScheduler(RentalRecordMapper rentalRecordMapper, @Lazy StallService stallService,
+                                 StallCalendar calendar, SharedCache sharedCache,
+                                 PlatformTransactionManager transactionManager,
+                                 @Value("${rental.expiry.enabled:true}") boolean enabled,
+                                 @Value("${rental.expiry.batch-size:200}") int batchSize) {
+        this.rentalRecordMapper = rentalRecordMapper;
+        this.stallService = stallService;
+        this.calendar = calendar;
+        this.sharedCache = sharedCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = Math.max(batchSize, 1);
+        sharedCache.subscribe(message -> {
+            if (message.startsWith(MESSAGE_PREFIX)) {
+                String[] parts = message.substring(MESSAGE_PREFIX.length()).split("\\|");
+                addLocal(Long.valueOf(parts[0]), LocalDate.ofEpochDay(Long.parseLong(parts[1])));
+            }
+        });
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int expired = expire(LocalDate.now());
+            if (expired > 0) {
+                log.info("启动时处理停机期间到期的租赁记录 {} 条", expired);
+            }
+        } catch (RuntimeException e) {
+            // 失败不影响启动，零点任务再处理
+            log.warn("租赁到期时间轮预加载失败: {}", e.getMessage());
+        }
+    }
+    
+    @Scheduled(cron = "${rental.expiry.cron:5 0 0 * * ?}")
+    public void scheduledExpire() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            int expired = expire(LocalDate.now());
+            log.info("租赁到期处理完成，共 {} 条", expired);
+        } catch (RuntimeException e) {
+            log.error("租赁到期处理失败", e);
+        }
+    }
+    
+    /**
+     * 新的租赁记录：事务提交后加入时间轮并通知其他节点
+     */
+    public void schedule(Long recordId, LocalDate endDate) {
+        if (recordId == null || endDate == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addLocal(recordId, endDate);
+                    sharedCache.publish(MESSAGE_PREFIX + recordId + "|" + endDate.toEpochDay());
+                }
+            });
+        } else {
+            addLocal(recordId, endDate);
+            sharedCache.publish(MESSAGE_PREFIX + recordId + "|" + endDate.toEpochDay());
+        }
+    }
+    
+    /**
+     * 从租赁中记录重建时间轮，当前刻度为 today；已过结束日期的记录在下次推进时立即到期
+     */
+    public synchronized void rebuild(LocalDate today) {
+        TimingWheel rebuilt = new TimingWheel(today.toEpochDay());
+        List<RentalRecord> rows = rentalRecordMapper.selectList(new LambdaQueryWrapper<RentalRecord>()
+                .select(RentalRecord::getId, RentalRecord::getEndDate)
+                .eq(RentalRecord::getStatus, 1));
+        for (RentalRecord row : rows) {
+            rebuilt.add(row.getId(), dueTick(row.getEndDate()));
+        }
+        wheel = rebuilt;
+    }
+    
+    /**
+     * 把时间轮推进到 today 并处理期间到期的记录，返回改为已到期的条数
+     */
+    public synchronized int expire(LocalDate today) {
+        if (wheel == null) {
+            rebuild(today);
+        }
+        List<Long> due = wheel.advanceTo(today.toEpochDay());
+        int expired = 0;
+        for (int i = 0; i < due.size(); i += batchSize) {
+            List<Long> chunk = due.subList(i, Math.min(i + batchSize, due.size()));
+            try {
+                expired += expireChunk(chunk, today);
+            } catch (RuntimeException e) {
+                // 整批回滚，放回时间轮下次重试
+                chunk.forEach(id -> wheel.add(id, today.toEpochDay()));
+                log.warn("租赁到期批次处理失败，{} 条记录下次重试: {}", chunk.size(), e.getMessage());
+            }
+        }
+        return expired;
+    }
+    
+    public synchronized int size() {
+        return wheel == null ? 0 : wheel.size();
+    }
+    
+    private int expireChunk(List<Long> ids, LocalDate today) {
+        List<RentalRecord> later = new ArrayList<>();
+        Integer expired = transactionTemplate.execute(status -> {
+            List<RentalRecord> rows = rentalRecordMapper.selectList(new LambdaQueryWrapper<RentalRecord>()
+                    .select(RentalRecord::getId, RentalRecord::getStallId, RentalRecord::getEndDate)
+                    .in(RentalRecord::getId, ids)
+                    .eq(RentalRecord::getStatus, 1)
+                    .orderByAsc(RentalRecord::getId)
+                    .last("FOR UPDATE"));
+            List<Long> expiredIds = new ArrayList<>(rows.size());
+            List<Long> stallIds = new ArrayList<>(rows.size());
+            for (RentalRecord row : rows) {
+                if (row.getEndDate().isBefore(today)) {
+                    expiredIds.add(row.getId());
+                    stallIds.add(row.getStallId());
+                } else {
+                    later.add(row);
+                }
+            }
+            if (expiredIds.isEmpty()) {
+                return 0;
+            }
+            rentalRecordMapper.update(null, new LambdaUpdateWrapper<RentalRecord>()
+                    .set(RentalRecord::getStatus, 2) // 已到期
+                    .set(RentalRecord::getUpdateTime, LocalDateTime.now())
+                    .in(RentalRecord::getId, expiredIds)
+                    .eq(RentalRecord::getStatus, 1));
+            // 锁定摊位后再查，仍有其他租赁（已批准的后续日期）的保持已租用；摊位已被改为其他状态（如维护中）时保持不变
+            stallService.lockByIds(stallIds);
+            Set<Long> rented = calendar.rentedStalls(stallIds);
+            List<Long> releasable = stallIds.stream().distinct().filter(id -> !rented.contains(id)).toList();
+            boolean[] released = stallService.compareAndSetStatusBatch(releasable, StallStateMachine.RENTED,
+                    StallStateMachine.IDLE);
+            for (int i = 0; i < released.length; i++) {
+                if (!released[i]) {
+                    log.info("租赁到期时摊位 {} 不是已租用状态，未释放", releasable.get(i));
+                }
+            }
+            stallIds.forEach(calendar::markDirty);
+            return expiredIds.size();
+        });
+        // 结束日期尚未过去的（时间轮中的到期日与库中不一致）按库中日期重新排入
+        later.forEach(row -> wheel.add(row.getId(), dueTick(row.getEndDate())));
+        return expired == null ? 0 : expired;
+    }
+    
+    private synchronized void addLocal(Long recordId, LocalDate endDate) {
+        if (wheel != null) {
+            wheel.add(recordId, dueTick(endDate));
+        }
+    }
+    
+    /**
+     * 结束日期当天仍在租期内，次日零点到期
+     */
+    private static long dueTick(LocalDate endDate) {
+        return endDate.toEpochDay() + 1;
+    }
+}
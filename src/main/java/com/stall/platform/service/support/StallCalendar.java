@@ -0,0 +1,287 @@
+package com.stall.platform.service.support;
+
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.entity.StallApplication;
+import com.stall.platform.mapper.RentalRecordMapper;
+import com.stall.platform.mapper.StallApplicationMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 摊位占用日历（内存区间树）
+ * 租赁中的记录和待审核的申请按 [开始日期, 结束日期]（闭区间）建索引：
+ * 每个摊位一棵树回答“某摊位某段日期是否空闲”，全局一棵树回答“某段日期哪些摊位被占用”
+ * 首次使用时全量加载，之后申请/审核/取消/终止时标记摊位待刷新，查询前按摊位回表重建；
+ * 写事务中可能有未提交的变更，直接查库
+ */
+@Component
+public class StallCalendar {
+    
+    private static final String MESSAGE_PREFIX = "index|calendar|";
+    
+    private final RentalRecordMapper rentalRecordMapper;
+    private final StallApplicationMapper applicationMapper;
+    private final SharedCache sharedCache;
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IntervalTree all = new IntervalTree();
+    private final Map<Long, IntervalTree> byStall = new HashMap<>();
+    /**
+     * 区间 key：租赁记录为 id*2，待审核申请为 id*2+1
+     */
+    private final Map<Long, Booking> bookings = new HashMap<>();
+    private final Map<Long, List<Long>> stallKeys = new HashMap<>();
+    private final Set<Long> dirtyIds = ConcurrentHashMap.newKeySet();
+    private final Object refreshLock = new Object();
+    private volatile boolean loaded;
+    
+    public StallCalendar(RentalRecordMapper rentalRecordMapper, StallApplicationMapper applicationMapper,
+                         SharedCache sharedCache) {
+        this.rentalRecordMapper = rentalRecordMapper;
+        this.applicationMapper = applicationMapper;
+        this.sharedCache = sharedCache;
+        sharedCache.subscribe(message -> {
+            if (message.startsWith(MESSAGE_PREFIX)) {
+                dirtyIds.add(Long.valueOf(message.substring(MESSAGE_PREFIX.length())));
+            }
+        });
+    }
+    
+    /**
+     * 摊位在 [start, end] 内是否没有租赁（includePending 时待审核申请也算占用）
+     */
+    public boolean isFree(Long stallId, LocalDate start, LocalDate end, boolean includePending) {
+        checkRange(start, end);
+        if (inWriteTransaction()) {
+            return rentalCount(stallId, start, end) == 0
+                    && (!includePending || pendingCount(stallId, start, end) == 0);
+        }
+        refresh();
+        lock.readLock().lock();
+        try {
+            IntervalTree tree = byStall.get(stallId);
+            return tree == null || !tree.overlaps(start.toEpochDay(), end.toEpochDay(),
+                    key -> includePending || isRental(key));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * [start, end] 内有占用的摊位ID
+     */
+    public Set<Long> busyStalls(LocalDate start, LocalDate end, boolean includePending) {
+        checkRange(start, end);
+        Set<Long> busy = new HashSet<>();
+        if (inWriteTransaction()) {
+            rentalRecordMapper.selectList(overlappingRentals(null, start, end).select(RentalRecord::getStallId))
+                    .forEach(r -> busy.add(r.getStallId()));
+            if (includePending) {
+                applicationMapper.selectList(overlappingPending(null, start, end)
+                        .select(StallApplication::getStallId)).forEach(a -> busy.add(a.getStallId()));
+            }
+            return busy;
+        }
+        refresh();
+        lock.readLock().lock();
+        try {
+            all.forEachOverlap(start.toEpochDay(), end.toEpochDay(), key -> {
+                if (includePending || isRental(key)) {
+                    busy.add(bookings.get(key).stallId());
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+        return busy;
+    }
+    
+    /**
+     * 摊位的租赁或申请有变化：立即及事务结束后各标记一次待刷新，并通知其他节点
+     */
+    public void markDirty(Long stallId) {
+        if (stallId == null) {
+            return;
+        }
+        dirtyIds.add(stallId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    dirtyIds.add(stallId);
+                    sharedCache.publish(MESSAGE_PREFIX + stallId);
+                }
+            });
+        } else {
+            sharedCache.publish(MESSAGE_PREFIX + stallId);
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return bookings.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 首次使用时全量加载，之后按待刷新的摊位批量回表替换；串行执行，避免先读到旧数据的线程后写入
+     */
+    private void refresh() {
+        if (loaded && dirtyIds.isEmpty()) {
+            return;
+        }
+        synchronized (refreshLock) {
+            if (!loaded) {
+                dirtyIds.clear();
+                Map<Long, List<Booking>> loadedBookings = load(null);
+                lock.writeLock().lock();
+                try {
+                    loadedBookings.forEach(this::replace);
+                } finally {
+                    lock.writeLock().unlock();
+                }
+                loaded = true;
+                return;
+            }
+            if (dirtyIds.isEmpty()) {
+                return;
+            }
+            List<Long> ids = new ArrayList<>(dirtyIds);
+            dirtyIds.removeAll(ids);
+            Map<Long, List<Booking>> loadedBookings = load(ids);
+            lock.writeLock().lock();
+            try {
+                for (Long id : ids) {
+                    replace(id, loadedBookings.getOrDefault(id, Collections.emptyList()));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+    
+    private Map<Long, List<Booking>> load(Collection<Long> stallIds) {
+        Map<Long, List<Booking>> result = new HashMap<>();
+        LambdaQueryWrapper<RentalRecord> rentals = new LambdaQueryWrapper<RentalRecord>()
+                .select(RentalRecord::getId, RentalRecord::getStallId, RentalRecord::getStartDate,
+                        RentalRecord::getEndDate)
+                .eq(RentalRecord::getStatus, 1)
+                .in(stallIds != null, RentalRecord::getStallId, stallIds);
+        for (RentalRecord r : rentalRecordMapper.selectList(rentals)) {
+            result.computeIfAbsent(r.getStallId(), k -> new ArrayList<>())
+                    .add(new Booking(r.getId() * 2, r.getStallId(), r.getStartDate(), r.getEndDate()));
+        }
+        LambdaQueryWrapper<StallApplication> pending = new LambdaQueryWrapper<StallApplication>()
+                .select(StallApplication::getId, StallApplication::getStallId, StallApplication::getStartDate,
+                        StallApplication::getEndDate)
+                .eq(StallApplication::getStatus, 0)
+                .in(stallIds != null, StallApplication::getStallId, stallIds);
+        for (StallApplication a : applicationMapper.selectList(pending)) {
+            result.computeIfAbsent(a.getStallId(), k -> new ArrayList<>())
+                    .add(new Booking(a.getId() * 2 + 1, a.getStallId(), a.getStartDate(), a.getEndDate()));
+        }
+        return result;
+    }
+    
+    /**
+     * 替换一个摊位的全部区间（持有写锁）
+     */
+    private void replace(Long stallId, List<Booking> list) {
+        List<Long> old = stallKeys.remove(stallId);
+        if (old != null) {
+            for (Long key : old) {
+                Booking booking = bookings.remove(key);
+                all.remove(booking.start().toEpochDay(), key);
+            }
+        }
+        byStall.remove(stallId);
+        List<Long> keys = new ArrayList<>(list.size());
+        IntervalTree tree = new IntervalTree();
+        for (Booking booking : list) {
+            if (booking.start() == null || booking.end() == null || booking.end().isBefore(booking.start())) {
+                continue;
+            }
+            long start = booking.start().toEpochDay();
+            long end = booking.end().toEpochDay();
+            tree.add(start, end, booking.key());
+            all.add(start, end, booking.key());
+            bookings.put(booking.key(), booking);
+            keys.add(booking.key());
+        }
+        if (!keys.isEmpty()) {
+            byStall.put(stallId, tree);
+            stallKeys.put(stallId, keys);
+        }
+    }
+    
+    /**
+     * stallIds 中仍有租赁中记录（含尚未开始的）的摊位，直接查库；租赁结束时在锁定摊位后调用，判断能否释放
+     */
+    public Set<Long> rentedStalls(Collection<Long> stallIds) {
+        if (stallIds.isEmpty()) {
+            return Collections.emptySet();
+        }
+        Set<Long> rented = new HashSet<>();
+        for (RentalRecord row : rentalRecordMapper.selectList(new LambdaQueryWrapper<RentalRecord>()
+                .select(RentalRecord::getStallId)
+                .in(RentalRecord::getStallId, stallIds)
+                .eq(RentalRecord::getStatus, 1))) {
+            rented.add(row.getStallId());
+        }
+        return rented;
+    }
+    
+    private long rentalCount(Long stallId, LocalDate start, LocalDate end) {
+        return rentalRecordMapper.selectCount(overlappingRentals(stallId, start, end));
+    }
+    
+    private long pendingCount(Long stallId, LocalDate start, LocalDate end) {
+        return applicationMapper.selectCount(overlappingPending(stallId, start, end));
+    }
+    
+    private static LambdaQueryWrapper<RentalRecord> overlappingRentals(Long stallId, LocalDate start, LocalDate end) {
+        return new LambdaQueryWrapper<RentalRecord>()
+                .eq(stallId != null, RentalRecord::getStallId, stallId)
+                .eq(RentalRecord::getStatus, 1)
+                .le(RentalRecord::getStartDate, end)
+                .ge(RentalRecord::getEndDate, start);
+    }
+    
+    private static LambdaQueryWrapper<StallApplication> overlappingPending(Long stallId, LocalDate start,
+                                                                          LocalDate end) {
+        return new LambdaQueryWrapper<StallApplication>()
+                .eq(stallId != null, StallApplication::getStallId, stallId)
+                .eq(StallApplication::getStatus, 0)
+                .le(StallApplication::getStartDate, end)
+                .ge(StallApplication::getEndDate, start);
+    }
+    
+    private static void checkRange(LocalDate start, LocalDate end) {
+        if (start == null || end == null || end.isBefore(start)) {
+            throw new IllegalArgumentException("日期范围无效");
+        }
+    }
+    
+    private static boolean isRental(long key) {
+        return (key & 1) == 0;
+    }
+    
+    private static boolean inWriteTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+    
+    private record Booking(long key, Long stallId, LocalDate start, LocalDate end) {
+    }
+}
@@ -0,0 +1,295 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.Stall;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 摊位经纬度网格索引（内存）
+ * 按固定边长（度）把平面划分为网格，每个网格保存落在其中的摊位；
+ * 半径查询只检查外接矩形覆盖的网格，最近K个查询从中心网格按圈向外扩展（限定最大搜索距离），
+ * 已找到K个且下一圈的最近可能距离超过当前第K名时停止；两种查询访问的网格数都不超过非空网格数
+ * 面向城市范围的数据，不处理跨越180度经线的情况
+ */
+public class StallGeoIndex {
+    
+    private static final double EARTH_RADIUS = 6_371_008.8;
+    private static final double METERS_PER_DEGREE = Math.PI * EARTH_RADIUS / 180;
+    
+    private final double cellDegrees;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, List<Point>> cells = new HashMap<>();
+    private final Map<Long, Point> points = new HashMap<>();
+    
+    /**
+     * 出现过点的网格行列范围，只扩不缩，用于限定最近K个查询的扩展圈数
+     */
+    private int minRow = Integer.MAX_VALUE;
+    private int maxRow = Integer.MIN_VALUE;
+    private int minCol = Integer.MAX_VALUE;
+    private int maxCol = Integer.MIN_VALUE;
+    
+    /**
+     * @param cellMeters 网格边长（米，按纬度方向换算为度）
+     */
+    public StallGeoIndex(double cellMeters) {
+        this.cellDegrees = cellMeters / METERS_PER_DEGREE;
+    }
+    
+    /**
+     * 新增或更新摊位，没有坐标的摊位不参与索引
+     */
+    public void put(Stall stall) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(stall.getId());
+            if (stall.getLatitude() != null && stall.getLongitude() != null) {
+                Point point = new Point(stall.getId(), stall.getLatitude().doubleValue(),
+                        stall.getLongitude().doubleValue(), stall.getTypeId(), stall.getStatus());
+                int r = row(point.lat);
+                int c = col(point.lng);
+                points.put(point.id, point);
+                cells.computeIfAbsent(cellKey(r, c), k -> new ArrayList<>()).add(point);
+                minRow = Math.min(minRow, r);
+                maxRow = Math.max(maxRow, r);
+                minCol = Math.min(minCol, c);
+                maxCol = Math.max(maxCol, c);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void rebuild(Collection<Stall> stalls) {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            points.clear();
+            minRow = Integer.MAX_VALUE;
+            maxRow = Integer.MIN_VALUE;
+            minCol = Integer.MAX_VALUE;
+            maxCol = Integer.MIN_VALUE;
+            stalls.forEach(this::put);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return points.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    /**
+     * 半径范围内的摊位，按距离由近到远，最多返回limit个
+     */
+    public List<Hit> withinRadius(double lat, double lng, double radiusMeters, Long typeId, Integer status, int limit) {
+        double dLat = radiusMeters / METERS_PER_DEGREE;
+        double dLng = radiusMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 1e-6));
+        int fromRow = row(lat - dLat);
+        int toRow = row(lat + dLat);
+        int fromCol = col(lng - dLng);
+        int toCol = col(lng + dLng);
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            long boxCells = (long) (toRow - fromRow + 1) * (toCol - fromCol + 1);
+            if (boxCells > cells.size()) {
+                // 半径很大时直接遍历非空网格，比遍历外接矩形更省
+                for (List<Point> cell : cells.values()) {
+                    collect(cell, lat, lng, radiusMeters, typeId, status, hits);
+                }
+            } else {
+                for (int r = fromRow; r <= toRow; r++) {
+                    for (int c = fromCol; c <= toCol; c++) {
+                        List<Point> cell = cells.get(cellKey(r, c));
+                        if (cell != null) {
+                            collect(cell, lat, lng, radiusMeters, typeId, status, hits);
+                        }
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distance));
+        return hits.size() > limit ? new ArrayList<>(hits.subList(0, limit)) : hits;
+    }
+    
+    /**
+     * maxDistanceMeters 范围内距离最近的k个摊位，按距离由近到远
+     * 按圈扩展时访问的网格数超过非空网格数后改为遍历全部非空网格，最坏情况下的开销与摊位数成正比
+     */
+    public List<Hit> nearest(double lat, double lng, int k, double maxDistanceMeters, Long typeId, Integer status) {
+        if (k <= 0 || !(maxDistanceMeters > 0)) {
+            return Collections.emptyList();
+        }
+        // 大顶堆，堆顶为当前第k近
+        PriorityQueue<Hit> heap = new PriorityQueue<>(Comparator.comparingDouble(Hit::distance).reversed());
+        int centerRow = row(lat);
+        int centerCol = col(lng);
+        lock.readLock().lock();
+        try {
+            if (points.isEmpty()) {
+                return Collections.emptyList();
+            }
+            int maxRing = Math.min(maxRing(centerRow, centerCol), ringsWithin(lat, maxDistanceMeters));
+            if (minRing(centerRow, centerCol) > maxRing) {
+                // 全部摊位都在最大搜索距离之外
+                return Collections.emptyList();
+            }
+            for (int ring = 0; ring <= maxRing; ring++) {
+                long side = 2L * ring + 1;
+                if (side * side > cells.size()) {
+                    // 剩余圈数中空网格居多（查询点远离摊位或筛选后匹配很少），直接遍历非空网格
+                    heap.clear();
+                    for (List<Point> cell : cells.values()) {
+                        offer(cell, lat, lng, k, maxDistanceMeters, typeId, status, heap);
+                    }
+                    break;
+                }
+                for (int r = centerRow - ring; r <= centerRow + ring; r++) {
+                    boolean edgeRow = r == centerRow - ring || r == centerRow + ring;
+                    int step = edgeRow ? 1 : Math.max(2 * ring, 1);
+                    for (int c = centerCol - ring; c <= centerCol + ring; c += step) {
+                        List<Point> cell = cells.get(cellKey(r, c));
+                        if (cell != null) {
+                            offer(cell, lat, lng, k, maxDistanceMeters, typeId, status, heap);
+                        }
+                    }
+                }
+                // 下一圈中任意点到查询点至少相隔 ring 个完整网格
+                if (heap.size() == k && heap.peek().distance() <= ring * minCellMeters(lat, ring + 1)) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        List<Hit> hits = new ArrayList<>(heap);
+        hits.sort(Comparator.comparingDouble(Hit::distance));
+        return hits;
+    }
+    
+    /**
+     * 球面距离（米）
+     */
+    public static double distance(double lat1, double lng1, double lat2, double lng2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLng = Math.toRadians(lng2 - lng1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2)) * Math.sin(dLng / 2) * Math.sin(dLng / 2);
+        return 2 * EARTH_RADIUS * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+    
+    private void collect(List<Point> cell, double lat, double lng, double radiusMeters, Long typeId, Integer status,
+                         List<Hit> hits) {
+        for (Point point : cell) {
+            if (point.matches(typeId, status)) {
+                double d = distance(lat, lng, point.lat, point.lng);
+                if (d <= radiusMeters) {
+                    hits.add(new Hit(point.id, d));
+                }
+            }
+        }
+    }
+    
+    private void offer(List<Point> cell, double lat, double lng, int k, double maxDistanceMeters, Long typeId,
+                       Integer status, PriorityQueue<Hit> heap) {
+        for (Point point : cell) {
+            if (point.matches(typeId, status)) {
+                double d = distance(lat, lng, point.lat, point.lng);
+                if (d > maxDistanceMeters) {
+                    continue;
+                }
+                if (heap.size() < k) {
+                    heap.add(new Hit(point.id, d));
+                } else if (d < heap.peek().distance()) {
+                    heap.poll();
+                    heap.add(new Hit(point.id, d));
+                }
+            }
+        }
+    }
+    
+    /**
+     * 覆盖全部已索引点所需的最大圈数
+     */
+    private int maxRing(int centerRow, int centerCol) {
+        return Math.max(Math.max(Math.abs(minRow - centerRow), Math.abs(maxRow - centerRow)),
+                Math.max(Math.abs(minCol - centerCol), Math.abs(maxCol - centerCol)));
+    }
+    
+    /**
+     * 到达最近一个出现过点的网格所需的圈数
+     */
+    private int minRing(int centerRow, int centerCol) {
+        return Math.max(Math.max(Math.max(minRow - centerRow, centerRow - maxRow), 0),
+                Math.max(minCol - centerCol, centerCol - maxCol));
+    }
+    
+    /**
+     * 覆盖以查询点为中心、distanceMeters 为半径的外接矩形所需的圈数
+     */
+    private int ringsWithin(double lat, double distanceMeters) {
+        double dLat = distanceMeters / METERS_PER_DEGREE;
+        double dLng = distanceMeters / (METERS_PER_DEGREE * Math.max(Math.cos(Math.toRadians(lat)), 1e-6));
+        return (int) Math.min(Integer.MAX_VALUE - 1, Math.ceil(Math.max(dLat, dLng) / cellDegrees) + 1);
+    }
+    
+    /**
+     * 网格在经度方向随纬度变窄，取扩展范围内最高纬度处的宽度作为下界
+     */
+    private double minCellMeters(double lat, int rings) {
+        double maxLat = Math.min(89.9, Math.abs(lat) + rings * cellDegrees);
+        return cellDegrees * METERS_PER_DEGREE * Math.cos(Math.toRadians(maxLat));
+    }
+    
+    private void removeInternal(Long id) {
+        Point old = points.remove(id);
+        if (old != null) {
+            long key = cellKey(row(old.lat), col(old.lng));
+            List<Point> cell = cells.get(key);
+            cell.remove(old);
+            if (cell.isEmpty()) {
+                cells.remove(key);
+            }
+        }
+    }
+    
+    private int row(double lat) {
+        return (int) Math.floor((lat + 90) / cellDegrees);
+    }
+    
+    private int col(double lng) {
+        return (int) Math.floor((lng + 180) / cellDegrees);
+    }
+    
+    private static long cellKey(int row, int col) {
+        return ((long) row << 32) | (col & 0xffffffffL);
+    }
+    
+    public record Hit(Long id, double distance) {
+    }
+    
+    private record Point(Long id, double lat, double lng, Long typeId, Integer status) {
+        
+        private boolean matches(Long typeId, Integer status) {
+            return (typeId == null || typeId.equals(this.typeId)) && (status == null || status.equals(this.status));
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.Stall;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 摊位关键词倒排索引（内存）
+ * 对名称、编号、位置三个字段按字符切分1~3元组（中文按单字），关键词不超过3个字符时直接取倒排表，
+ * 更长的关键词取各三元组倒排表的交集后再逐条校验子串，结果与 LIKE '%kw%' 一致
+ * 倒排表存放文档序号（int，递增追加）；更新时旧序号作废、分配新序号，作废过多时整体重建
+ */
+public class StallSearchIndex {
+    
+    private static final int MAX_GRAM = 3;
+    private static final Comparator<Doc> ORDER = Comparator
+            .comparing((Doc d) -> d.stallNo, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(d -> d.id);
+    
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Map<String, IntList> postings = new HashMap<>();
+    private List<Doc> docs = new ArrayList<>();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private int deadCount;
+    
+    /**
+     * 新增或更新摊位
+     */
+    public void put(Stall stall) {
+        Doc doc = new Doc(stall);
+        lock.writeLock().lock();
+        try {
+            removeInternal(doc.id);
+            append(doc);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeInternal(id);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 用全量数据替换索引
+     */
+    public void rebuild(Collection<Stall> stalls) {
+        lock.writeLock().lock();
+        try {
+            postings = new HashMap<>();
+            docs = new ArrayList<>(stalls.size());
+            ordinals.clear();
+            deadCount = 0;
+            for (Stall stall : stalls) {
+                append(new Doc(stall));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+    
+    /**
+     * 查询匹配关键词并满足类型/状态条件的摊位ID，按摊位编号升序
+     */
+    public List<Long> search(String keyword, Long typeId, Integer status) {
+        String kw = normalize(keyword);
+        lock.readLock().lock();
+        try {
+            List<Doc> matched = new ArrayList<>();
+            if (kw.isEmpty()) {
+                for (Doc doc : docs) {
+                    if (doc != null && doc.matches(typeId, status)) {
+                        matched.add(doc);
+                    }
+                }
+            } else {
+                IntList candidates = candidates(kw);
+                boolean verify = kw.length() > MAX_GRAM;
+                for (int i = 0; i < candidates.size; i++) {
+                    Doc doc = docs.get(candidates.values[i]);
+                    if (doc != null && doc.matches(typeId, status) && (!verify || doc.contains(kw))) {
+                        matched.add(doc);
+                    }
+                }
+            }
+            matched.sort(ORDER);
+            List<Long> ids = new ArrayList<>(matched.size());
+            for (Doc doc : matched) {
+                ids.add(doc.id);
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+    
+    private IntList candidates(String kw) {
+        if (kw.length() <= MAX_GRAM) {
+            IntList list = postings.get(kw);
+            return list == null ? IntList.EMPTY : list;
+        }
+        // 取各三元组的倒排表，从最短的开始求交集
+        List<IntList> lists = new ArrayList<>();
+        for (int i = 0; i + MAX_GRAM <= kw.length(); i++) {
+            IntList list = postings.get(kw.substring(i, i + MAX_GRAM));
+            if (list == null) {
+                return IntList.EMPTY;
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(l -> l.size));
+        IntList result = lists.get(0);
+        for (int i = 1; i < lists.size() && result.size > 0; i++) {
+            result = result.intersect(lists.get(i));
+        }
+        return result;
+    }
+    
+    private void append(Doc doc) {
+        int ordinal = docs.size();
+        docs.add(doc);
+        ordinals.put(doc.id, ordinal);
+        for (String gram : doc.grams()) {
+            postings.computeIfAbsent(gram, g -> new IntList()).add(ordinal);
+        }
+    }
+    
+    private void removeInternal(Long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal != null) {
+            docs.set(ordinal, null);
+            deadCount++;
+        }
+    }
+    
+    private void compactIfNeeded() {
+        if (deadCount > 1024 && deadCount > ordinals.size()) {
+            compact();
+        }
+    }
+    
+    private void compact() {
+        List<Doc> live = new ArrayList<>(ordinals.size());
+        for (Doc doc : docs) {
+            if (doc != null) {
+                live.add(doc);
+            }
+        }
+        postings = new HashMap<>();
+        docs = new ArrayList<>(live.size());
+        ordinals.clear();
+        deadCount = 0;
+        live.forEach(this::append);
+    }
+    
+    private static String normalize(String text) {
+        return text == null ? "" : text.trim().toLowerCase(Locale.ROOT);
+    }
+    
+    private static final class Doc {
+        
+        private final Long id;
+        private final String stallNo;
+        private final Long typeId;
+        private final Integer status;
+        private final String[] fields;
+        
+        private Doc(Stall stall) {
+            this.id = stall.getId();
+            this.stallNo = stall.getStallNo();
+            this.typeId = stall.getTypeId();
+            this.status = stall.getStatus();
+            this.fields = new String[]{normalize(stall.getName()), normalize(stall.getStallNo()),
+                    normalize(stall.getLocation())};
+        }
+        
+        private boolean matches(Long typeId, Integer status) {
+            return (typeId == null || typeId.equals(this.typeId)) && (status == null || status.equals(this.status));
+        }
+        
+        private boolean contains(String kw) {
+            for (String field : fields) {
+                if (field.contains(kw)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        
+        /**
+         * 各字段分别切分，不产生跨字段的元组
+         */
+        private Set<String> grams() {
+            Set<String> grams = new HashSet<>();
+            for (String field : fields) {
+                for (int n = 1; n <= MAX_GRAM; n++) {
+                    for (int i = 0; i + n <= field.length(); i++) {
+                        grams.add(field.substring(i, i + n));
+                    }
+                }
+            }
+            return grams;
+        }
+    }
+    
+    /**
+     * 升序int数组，序号只递增追加，天然有序
+     */
+    private static final class IntList {
+        
+        private static final IntList EMPTY = new IntList();
+        
+        private int[] values = new int[4];
+        private int size;
+        
+        private void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+        
+        private IntList intersect(IntList other) {
+            IntList result = new IntList();
+            int i = 0;
+            int j = 0;
+            while (i < size && j < other.size) {
+                int a = values[i];
+                int b = other.values[j];
+                if (a == b) {
+                    result.add(a);
+                    i++;
+                    j++;
+                } else if (a < b) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return result;
+        }
+    }
+}
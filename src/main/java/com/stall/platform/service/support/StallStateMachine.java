@@ -0,0 +1,167 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.mapper.StallMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.CannotAcquireLockException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 摊位状态机
+ * 状态：0-空闲 1-已租用 2-维护中；只能出租空闲摊位，维护中需先恢复空闲
+ * 每次转换是一条带期望状态的条件更新（UPDATE ... WHERE status = 期望状态），影响行数为0即有其他请求抢先；
+ * 同一摊位的转换先在进程内按ID分段加锁排队，避免大量并发请求同时等待同一行的数据库锁；行锁等待超时时短暂退避后重试
+ */
+@Slf4j
+@Component
+public class StallStateMachine {
+    
+    public static final int IDLE = 0;
+    public static final int RENTED = 1;
+    public static final int MAINTENANCE = 2;
+    
+    /**
+     * 下标为当前状态，值为允许转换到的状态
+     */
+    private static final int[][] TRANSITIONS = {
+            {RENTED, MAINTENANCE},
+            {IDLE, MAINTENANCE},
+            {IDLE}
+    };
+    
+    private static final String CAS_SQL =
+            "UPDATE stall SET status = ?, update_time = NOW() WHERE id = ? AND status = ? AND deleted = 0";
+    
+    private final StallMapper stallMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReentrantLock[] stripes;
+    private final int maxRetries;
+    private final long retryBackoffMillis;
+    
+    public StallStateMachine(StallMapper stallMapper, JdbcTemplate jdbcTemplate,
+                             @Value("${stall.state.lock-stripes:64}") int stripes,
+                             @Value("${stall.state.max-retries:3}") int maxRetries,
+                             @Value("${stall.state.retry-backoff:20}") long retryBackoffMillis) {
+        this.stallMapper = stallMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.stripes = new ReentrantLock[Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1)];
+        for (int i = 0; i < this.stripes.length; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.maxRetries = Math.max(maxRetries, 0);
+        this.retryBackoffMillis = retryBackoffMillis;
+    }
+    
+    public static boolean isValid(Integer status) {
+        return status != null && status >= 0 && status < TRANSITIONS.length;
+    }
+    
+    public static boolean canTransition(Integer from, Integer to) {
+        if (!isValid(from) || !isValid(to)) {
+            return false;
+        }
+        for (int allowed : TRANSITIONS[from]) {
+            if (allowed == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * 摊位当前为 expected 时改为 target；转换不合法抛出 IllegalArgumentException，被抢先返回false
+     * 在事务中调用时行锁保持到事务结束，后续请求在该事务提交后才会看到新状态并失败
+     */
+    public boolean compareAndSet(Long stallId, int expected, int target) {
+        if (!canTransition(expected, target)) {
+            throw new IllegalArgumentException("摊位状态不能从 " + expected + " 变为 " + target);
+        }
+        ReentrantLock lock = stripes[stripe(stallId)];
+        lock.lock();
+        try {
+            for (int attempt = 0; ; attempt++) {
+                try {
+                    return stallMapper.compareAndSetStatus(stallId, expected, target) == 1;
+                } catch (CannotAcquireLockException e) {
+                    if (attempt >= maxRetries) {
+                        throw e;
+                    }
+                    log.debug("摊位 {} 状态更新等待行锁超时，第 {} 次重试", stallId, attempt + 1);
+                    sleep(retryBackoffMillis * (attempt + 1));
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+    
+    /**
+     * 批量转换：一条 JDBC 批量语句逐个执行条件更新，返回各摊位是否成功
+     * 涉及的分段锁按下标顺序加锁，避免与其他批量调用互相等待
+     * 要求驱动返回每条语句的影响行数，返回 SUCCESS_NO_INFO 时抛出 IllegalStateException，调用方需在事务中执行以便整批回滚
+     */
+    public boolean[] compareAndSetAll(List<Long> stallIds, int expected, int target) {
+        if (!canTransition(expected, target)) {
+            throw new IllegalArgumentException("摊位状态不能从 " + expected + " 变为 " + target);
+        }
+        boolean[] result = new boolean[stallIds.size()];
+        if (stallIds.isEmpty()) {
+            return result;
+        }
+        SortedSet<Integer> locked = new TreeSet<>();
+        for (Long stallId : stallIds) {
+            locked.add(stripe(stallId));
+        }
+        locked.forEach(i -> stripes[i].lock());
+        try {
+            int[] counts = jdbcTemplate.batchUpdate(CAS_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    ps.setInt(1, target);
+                    ps.setLong(2, stallIds.get(i));
+                    ps.setInt(3, expected);
+                }
+                
+                @Override
+                public int getBatchSize() {
+                    return stallIds.size();
+                }
+            });
+            for (int i = 0; i < counts.length; i++) {
+                // 需要逐行影响行数才能区分成功与被抢先；驱动不返回时中止，由调用方事务回滚整批
+                if (counts[i] == Statement.SUCCESS_NO_INFO) {
+                    throw new IllegalStateException("数据库驱动未返回批量更新的逐行影响行数，无法判断摊位状态转换结果");
+                }
+                result[i] = counts[i] == 1;
+            }
+            return result;
+        } finally {
+            locked.forEach(i -> stripes[i].unlock());
+        }
+    }
+    
+    int stripe(Long stallId) {
+        long h = stallId * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & (stripes.length - 1);
+    }
+    
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CannotAcquireLockException("等待重试时被中断", e);
+        }
+    }
+}
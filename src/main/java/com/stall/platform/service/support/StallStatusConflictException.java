@@ -0,0 +1,11 @@
+package com.stall.platform.service.support;
+
+/**
+ * 摊位状态已被其他请求改变，本次操作整体回滚
+ */
+public class StallStatusConflictException extends RuntimeException {
+    
+    public StallStatusConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,60 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.StallType;
+
+import java.util.*;
+
+/**
+ * 摊位类型目录快照（不可变）
+ * 类型数据量小且极少变动，整表加载后按ID建索引并预先排序，写操作时整体替换新快照
+ * 快照中的对象由所有读线程共享，调用方不得修改
+ */
+public final class StallTypeCatalog {
+    
+    private static final Comparator<StallType> ORDER = Comparator
+            .comparing(StallType::getSortOrder, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(StallType::getId, Comparator.nullsLast(Comparator.naturalOrder()));
+    
+    private final long version;
+    private final Map<Long, StallType> byId;
+    private final List<StallType> ordered;
+    
+    private StallTypeCatalog(long version, Map<Long, StallType> byId, List<StallType> ordered) {
+        this.version = version;
+        this.byId = byId;
+        this.ordered = ordered;
+    }
+    
+    public static StallTypeCatalog of(long version, Collection<StallType> types) {
+        List<StallType> sorted = new ArrayList<>(types);
+        sorted.sort(ORDER);
+        Map<Long, StallType> byId = new HashMap<>(sorted.size() * 2);
+        for (StallType type : sorted) {
+            byId.put(type.getId(), type);
+        }
+        return new StallTypeCatalog(version, Collections.unmodifiableMap(byId), List.copyOf(sorted));
+    }
+    
+    public long version() {
+        return version;
+    }
+    
+    public StallType get(Long id) {
+        return id == null ? null : byId.get(id);
+    }
+    
+    /**
+     * 按 sort_order 升序排列的全部类型
+     */
+    public List<StallType> list() {
+        return ordered;
+    }
+    
+    public Map<Long, StallType> asMap() {
+        return byId;
+    }
+    
+    public int size() {
+        return ordered.size();
+    }
+}
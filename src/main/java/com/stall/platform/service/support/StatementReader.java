@@ -0,0 +1,131 @@
+package com.stall.platform.service.support;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 银行流水 CSV 逐行读取
+ * 第一行非空行为表头，按列名识别参考号列和金额列（中英文别名，大小写不敏感），其余列忽略；
+ * 之后每读一行回调一次，不把整个文件读入内存。支持双引号包裹的字段（"" 转义），不支持字段内换行
+ */
+public final class StatementReader {
+    
+    private static final Set<String> REFERENCE_HEADERS = Set.of("reference", "ref", "memo", "remark",
+            "摘要", "附言", "备注", "用途", "交易附言");
+    private static final Set<String> AMOUNT_HEADERS = Set.of("amount", "credit", "金额", "交易金额", "收入金额",
+            "贷方金额", "贷方发生额");
+    
+    private StatementReader() {
+    }
+    
+    /**
+     * 依次回调每个数据行，返回数据行数（不含表头和空行）
+     */
+    public static int read(Reader reader, Consumer<Line> consumer) throws IOException {
+        BufferedReader in = reader instanceof BufferedReader b ? b : new BufferedReader(reader);
+        int referenceColumn = -1;
+        int amountColumn = -1;
+        boolean header = true;
+        int lineNo = 0;
+        int count = 0;
+        String text;
+        while ((text = in.readLine()) != null) {
+            lineNo++;
+            if (lineNo == 1 && !text.isEmpty() && text.charAt(0) == '\uFEFF') {
+                text = text.substring(1);
+            }
+            if (text.isBlank()) {
+                continue;
+            }
+            List<String> fields = split(text);
+            if (header) {
+                for (int i = 0; i < fields.size(); i++) {
+                    String name = fields.get(i).trim().toLowerCase(Locale.ROOT);
+                    if (referenceColumn < 0 && REFERENCE_HEADERS.contains(name)) {
+                        referenceColumn = i;
+                    } else if (amountColumn < 0 && AMOUNT_HEADERS.contains(name)) {
+                        amountColumn = i;
+                    }
+                }
+                if (referenceColumn < 0 || amountColumn < 0) {
+                    throw new IllegalArgumentException("流水文件表头缺少参考号列（reference/摘要/附言）或金额列（amount/金额）");
+                }
+                header = false;
+                continue;
+            }
+            count++;
+            String reference = referenceColumn < fields.size() ? fields.get(referenceColumn).trim() : "";
+            String amountText = amountColumn < fields.size() ? fields.get(amountColumn) : "";
+            BigDecimal amount = parseAmount(amountText);
+            consumer.accept(new Line(lineNo, reference, amount, amount == null ? "金额格式错误: " + amountText : null));
+        }
+        if (header) {
+            throw new IllegalArgumentException("流水文件为空");
+        }
+        return count;
+    }
+    
+    /**
+     * 去掉千分位、货币符号和空白后解析，无法解析时返回 null
+     */
+    static BigDecimal parseAmount(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != ',' && c != '¥' && c != '￥' && c != '+' && !Character.isWhitespace(c)) {
+                sb.append(c);
+            }
+        }
+        if (sb.isEmpty()) {
+            return null;
+        }
+        try {
+            return new BigDecimal(sb.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    static List<String> split(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+    
+    /**
+     * 数据行；amount 无法解析时为 null，error 为原因
+     */
+    public record Line(int lineNo, String reference, BigDecimal amount, String error) {
+    }
+}
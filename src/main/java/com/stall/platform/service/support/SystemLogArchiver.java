@@ -0,0 +1,225 @@
+package com.stall.platform.service.support;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Clob;
+import java.sql.ResultSetMetaData;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 系统日志按月滚动与归档
+ * MySQL按月分区时：提前创建后续月份分区（从 pmax 拆出），超过保留期的分区导出为 gzip 压缩的 JSON Lines 文件后 DROP PARTITION；
+ * 未分区（如H2）时按月导出后分批 DELETE
+ * 导出先写临时文件再改名，删除在导出成功之后；该月已有归档时加序号另存（system_log-yyyyMM-1.jsonl.gz …），
+ * 分批删除中途失败后重跑只导出剩余的行，不会覆盖之前的归档
+ * 多节点部署时只需在一个节点开启
+ */
+@Slf4j
+@Component
+public class SystemLogArchiver {
+    
+    private static final String TABLE = "system_log";
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final int DELETE_CHUNK = 5000;
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final PageCounter pageCounter;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int retentionMonths;
+    private final int premakeMonths;
+    private final Path archiveDir;
+    
+    public SystemLogArchiver(JdbcTemplate jdbcTemplate, PageCounter pageCounter, ObjectMapper objectMapper,
+                             @Value("${system-log.retention.enabled:false}") boolean enabled,
+                             @Value("${system-log.retention.months:6}") int retentionMonths,
+                             @Value("${system-log.retention.premake-months:2}") int premakeMonths,
+                             @Value("${system-log.retention.archive-dir:archive/system_log}") String archiveDir) {
+        // 独立的 JdbcTemplate：导出大分区时按批次取数（MySQL需在连接串开启 useCursorFetch）
+        this.jdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.jdbcTemplate.setFetchSize(1000);
+        this.pageCounter = pageCounter;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.retentionMonths = Math.max(retentionMonths, 1);
+        this.premakeMonths = Math.max(premakeMonths, 0);
+        this.archiveDir = Paths.get(archiveDir);
+    }
+    
+    @Scheduled(cron = "${system-log.retention.cron:0 30 3 * * ?}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            List<Path> archived = run(YearMonth.now());
+            if (!archived.isEmpty()) {
+                log.info("系统日志归档完成: {}", archived);
+            }
+        } catch (RuntimeException e) {
+            log.error("系统日志归档失败", e);
+        }
+    }
+    
+    /**
+     * 以 current 为当前月执行一次滚动与归档，早于 current - 保留月数 的月份被归档，返回生成的归档文件
+     */
+    public synchronized List<Path> run(YearMonth current) {
+        YearMonth cutoff = current.minusMonths(retentionMonths);
+        NavigableMap<YearMonth, String> partitions = partitions();
+        List<Path> archived = new ArrayList<>();
+        if (!partitions.isEmpty()) {
+            ensurePartitions(partitions, current);
+            for (Map.Entry<YearMonth, String> partition : partitions.entrySet()) {
+                if (partition.getKey().isBefore(cutoff)) {
+                    Path file = export(partition.getKey(),
+                            "SELECT * FROM " + TABLE + " PARTITION (" + partition.getValue() + ") ORDER BY id");
+                    if (file != null) {
+                        archived.add(file);
+                    }
+                    jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP PARTITION " + partition.getValue());
+                    pageCounter.invalidate(TABLE);
+                }
+            }
+            return archived;
+        }
+        for (YearMonth month : unpartitionedMonthsBefore(cutoff)) {
+            LocalDateTime from = month.atDay(1).atStartOfDay();
+            LocalDateTime to = month.plusMonths(1).atDay(1).atStartOfDay();
+            Path file = export(month, "SELECT * FROM " + TABLE + " WHERE create_time >= ? AND create_time < ? ORDER BY id",
+                    Timestamp.valueOf(from), Timestamp.valueOf(to));
+            if (file == null) {
+                continue;
+            }
+            archived.add(file);
+            int deleted;
+            do {
+                deleted = jdbcTemplate.update("DELETE FROM " + TABLE + " WHERE create_time >= ? AND create_time < ? LIMIT "
+                        + DELETE_CHUNK, Timestamp.valueOf(from), Timestamp.valueOf(to));
+            } while (deleted == DELETE_CHUNK);
+            pageCounter.invalidate(TABLE);
+        }
+        return archived;
+    }
+    
+    /**
+     * 按月分区：月份 -> 分区名（pmax 等非月份分区不在其中）；未分区或非MySQL时为空
+     */
+    private NavigableMap<YearMonth, String> partitions() {
+        List<String> names;
+        try {
+            names = jdbcTemplate.queryForList("SELECT PARTITION_NAME FROM information_schema.PARTITIONS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND PARTITION_NAME IS NOT NULL", String.class, TABLE);
+        } catch (DataAccessException e) {
+            return Collections.emptyNavigableMap();
+        }
+        NavigableMap<YearMonth, String> partitions = new TreeMap<>();
+        for (String name : names) {
+            if (name.matches("p\\d{6}")) {
+                partitions.put(YearMonth.parse(name.substring(1), PARTITION_FORMAT), name);
+            } else if (!"pmax".equals(name)) {
+                log.warn("忽略无法识别的系统日志分区: {}", name);
+            }
+        }
+        if (partitions.isEmpty() && !names.isEmpty()) {
+            log.warn("system_log 已分区但没有按月命名的分区，跳过归档");
+        }
+        return partitions;
+    }
+    
+    /**
+     * 从 pmax 拆出当前及之后 premakeMonths 个月的分区，避免新数据都落入 pmax
+     */
+    private void ensurePartitions(NavigableMap<YearMonth, String> partitions, YearMonth current) {
+        YearMonth last = partitions.lastKey();
+        for (YearMonth month = last.plusMonths(1); !month.isAfter(current.plusMonths(premakeMonths)); month = month.plusMonths(1)) {
+            LocalDate upper = month.plusMonths(1).atDay(1);
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " REORGANIZE PARTITION pmax INTO (" +
+                    "PARTITION p" + month.format(PARTITION_FORMAT) + " VALUES LESS THAN (TO_DAYS('" + upper + "')), " +
+                    "PARTITION pmax VALUES LESS THAN MAXVALUE)");
+            log.info("已创建系统日志分区 p{}", month.format(PARTITION_FORMAT));
+        }
+    }
+    
+    private List<YearMonth> unpartitionedMonthsBefore(YearMonth cutoff) {
+        Timestamp oldest = jdbcTemplate.queryForObject("SELECT MIN(create_time) FROM " + TABLE, Timestamp.class);
+        List<YearMonth> months = new ArrayList<>();
+        if (oldest != null) {
+            for (YearMonth month = YearMonth.from(oldest.toLocalDateTime()); month.isBefore(cutoff); month = month.plusMonths(1)) {
+                months.add(month);
+            }
+        }
+        return months;
+    }
+    
+    /**
+     * 逐行导出为 gzip 压缩的 JSON Lines 文件，没有数据时不生成文件并返回 null
+     */
+    private Path export(YearMonth month, String sql, Object... args) {
+        try {
+            Files.createDirectories(archiveDir);
+            String name = TABLE + "-" + month.format(PARTITION_FORMAT);
+            Path temp = archiveDir.resolve(name + ".jsonl.gz.tmp");
+            int[] rows = new int[1];
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(Files.newOutputStream(temp)), StandardCharsets.UTF_8))) {
+                jdbcTemplate.query(sql, rs -> {
+                    ResultSetMetaData meta = rs.getMetaData();
+                    Map<String, Object> row = new LinkedHashMap<>();
+                    for (int i = 1; i <= meta.getColumnCount(); i++) {
+                        Object value = rs.getObject(i);
+                        if (value instanceof Timestamp ts) {
+                            value = ts.toLocalDateTime().toString();
+                        } else if (value instanceof Clob clob) {
+                            value = clob.getSubString(1, (int) clob.length());
+                        }
+                        row.put(meta.getColumnLabel(i).toLowerCase(Locale.ROOT), value);
+                    }
+                    try {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.newLine();
+                        rows[0]++;
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, args);
+            }
+            if (rows[0] == 0) {
+                Files.delete(temp);
+                return null;
+            }
+            // 不带 REPLACE_EXISTING 的改名在目标已存在时失败，换下一个序号
+            for (int run = 0; ; run++) {
+                Path target = archiveDir.resolve(name + (run == 0 ? "" : "-" + run) + ".jsonl.gz");
+                try {
+                    return Files.move(temp, target);
+                } catch (FileAlreadyExistsException e) {
+                    log.info("系统日志归档 {} 已存在，另存为下一个序号", target.getFileName());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("系统日志归档文件写入失败: " + month, e);
+        }
+    }
+}
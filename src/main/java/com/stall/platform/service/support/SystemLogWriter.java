@@ -0,0 +1,149 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.SystemLog;
+import com.stall.platform.mapper.SystemLogMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 系统日志批量写入器
+ * 请求线程只把日志放入环形队列；后台单线程攒批后一条多行 INSERT 写库，
+ * 队列满时按策略丢弃（drop）或短暂等待后再丢弃（block）；关闭时写完队列中剩余日志
+ */
+@Slf4j
+@Component
+public class SystemLogWriter {
+    
+    private final SystemLogMapper systemLogMapper;
+    private final LogRingBuffer<SystemLog> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final boolean blockWhenFull;
+    private final long blockTimeoutNanos;
+    private final Thread worker;
+    private volatile boolean running = true;
+    
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    
+    public SystemLogWriter(SystemLogMapper systemLogMapper,
+                           @Value("${system-log.writer.capacity:8192}") int capacity,
+                           @Value("${system-log.writer.batch-size:200}") int batchSize,
+                           @Value("${system-log.writer.flush-interval:200}") long flushIntervalMillis,
+                           @Value("${system-log.writer.overflow-policy:drop}") String overflowPolicy,
+                           @Value("${system-log.writer.block-timeout:50}") long blockTimeoutMillis) {
+        this.systemLogMapper = systemLogMapper;
+        this.buffer = new LogRingBuffer<>(capacity);
+        this.batchSize = Math.max(batchSize, 1);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.blockWhenFull = "block".equalsIgnoreCase(overflowPolicy);
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMillis);
+        this.worker = new Thread(this::runLoop, "system-log-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+    
+    /**
+     * 提交一条日志，不访问数据库；返回false表示队列已满被丢弃
+     */
+    public boolean submit(SystemLog entry) {
+        if (entry.getCreateTime() == null) {
+            entry.setCreateTime(LocalDateTime.now());
+        }
+        boolean offered = buffer.offer(entry);
+        if (!offered && blockWhenFull && running) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            while (!offered && System.nanoTime() < deadline) {
+                LockSupport.unpark(worker);
+                LockSupport.parkNanos(50_000);
+                offered = buffer.offer(entry);
+            }
+        }
+        if (!offered) {
+            dropped.increment();
+            return false;
+        }
+        accepted.increment();
+        if (buffer.size() >= batchSize) {
+            LockSupport.unpark(worker);
+        }
+        return true;
+    }
+    
+    /**
+     * 等待队列中已提交的日志全部写入（供关闭和测试使用）
+     */
+    public void flush(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (pending() > 0 && System.nanoTime() < deadline) {
+            LockSupport.unpark(worker);
+            LockSupport.parkNanos(1_000_000);
+        }
+    }
+    
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queueDepth", buffer.size());
+        stats.put("capacity", buffer.capacity());
+        stats.put("accepted", accepted.sum());
+        stats.put("written", written.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("failed", failed.sum());
+        stats.put("batches", batches.sum());
+        return stats;
+    }
+    
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        LockSupport.unpark(worker);
+        worker.join(TimeUnit.SECONDS.toMillis(10));
+    }
+    
+    /**
+     * 已提交但尚未写完（含写入中）的日志数
+     */
+    private long pending() {
+        return accepted.sum() - written.sum() - failed.sum();
+    }
+    
+    private void runLoop() {
+        List<SystemLog> batch = new ArrayList<>(batchSize);
+        while (running) {
+            if (buffer.size() < batchSize) {
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            }
+            drainAndWrite(batch);
+        }
+        // 关闭时写完剩余日志
+        drainAndWrite(batch);
+    }
+    
+    private void drainAndWrite(List<SystemLog> batch) {
+        while (buffer.drainTo(batch, batchSize) > 0) {
+            try {
+                systemLogMapper.insertBatch(batch);
+                written.add(batch.size());
+                batches.increment();
+            } catch (RuntimeException e) {
+                failed.add(batch.size());
+                log.warn("系统日志批量写入失败，丢弃 {} 条: {}", batch.size(), e.getMessage());
+            }
+            batch.clear();
+        }
+    }
+}
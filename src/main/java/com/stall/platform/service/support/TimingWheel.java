@@ -0,0 +1,120 @@
+package com.stall.platform.service.support;
+
+import java.util.*;
+
+/**
+ * 分层时间轮（以整数刻度计时，租赁到期按天）
+ * 共4层、每层64格：第0层每格1刻度，第 l 层每格 64^l 刻度；到期刻度与当前刻度处在同一个 64^(l+1) 窗口内的最低层 l
+ * 放入对应格子，推进到某层格子的起点时把该格整体下放到更低层；超出最高层的放在溢出表，跨越最高层窗口时重新分层
+ * 增加/删除 O(1)，推进一个刻度均摊 O(1)；删除和重复增加采用惰性方式，以 dueByKey 为准
+ * 非线程安全，由调用方保证
+ */
+public final class TimingWheel {
+    
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    
+    private final List<List<Entry>> slots = new ArrayList<>(LEVELS * SLOTS);
+    private final List<Entry> overflow = new ArrayList<>();
+    private final Map<Long, Long> dueByKey = new HashMap<>();
+    private List<Long> ready = new ArrayList<>();
+    private long current;
+    
+    public TimingWheel(long startTick) {
+        this.current = startTick;
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+    
+    public long currentTick() {
+        return current;
+    }
+    
+    /**
+     * 加入或更新 key 的到期刻度；不晚于当前刻度的在下次推进时立即返回
+     */
+    public void add(long key, long dueTick) {
+        dueByKey.put(key, dueTick);
+        place(new Entry(key, dueTick));
+    }
+    
+    public boolean remove(long key) {
+        return dueByKey.remove(key) != null;
+    }
+    
+    public boolean contains(long key) {
+        return dueByKey.containsKey(key);
+    }
+    
+    public int size() {
+        return dueByKey.size();
+    }
+    
+    /**
+     * 推进到 tick，返回期间到期的 key（从时间轮中移除）
+     */
+    public List<Long> advanceTo(long tick) {
+        while (current < tick) {
+            current++;
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((current & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    if (level == LEVELS - 1 && (current & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                        cascade(overflow);
+                    }
+                    cascade(slots.get(index(level, current)));
+                }
+            }
+            cascade(slots.get(index(0, current)));
+        }
+        List<Long> due = new ArrayList<>(ready.size());
+        for (Long key : ready) {
+            // 同一 key 可能因更新而有多个条目，只取与最新到期刻度一致且已到期的
+            Long dueTick = dueByKey.get(key);
+            if (dueTick != null && dueTick <= current) {
+                dueByKey.remove(key);
+                due.add(key);
+            }
+        }
+        ready = new ArrayList<>();
+        return due;
+    }
+    
+    private void cascade(List<Entry> slot) {
+        if (slot.isEmpty()) {
+            return;
+        }
+        List<Entry> entries = new ArrayList<>(slot);
+        slot.clear();
+        for (Entry entry : entries) {
+            place(entry);
+        }
+    }
+    
+    private void place(Entry entry) {
+        Long latest = dueByKey.get(entry.key());
+        if (latest == null || latest != entry.due()) {
+            return;
+        }
+        if (entry.due() <= current) {
+            ready.add(entry.key());
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * (level + 1);
+            if (entry.due() >>> shift == current >>> shift) {
+                slots.get(index(level, entry.due())).add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+    
+    private static int index(int level, long tick) {
+        return level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1));
+    }
+    
+    private record Entry(long key, long due) {
+    }
+}
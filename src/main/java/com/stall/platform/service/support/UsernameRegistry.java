@@ -0,0 +1,130 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.cache.SharedCache;
+import com.stall.platform.common.BloomFilter;
+import com.stall.platform.mapper.UserMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * 已注册用户名的布隆过滤器
+ * 判定不存在时一定未被占用，可直接回答查重、注册时跳过查库；判定可能存在时仍需查库确认
+ * 启动时全量加载，本节点注册成功后加入，并广播给其他节点；元素数超过容量时丢弃重建
+ */
+@Slf4j
+@Component
+public class UsernameRegistry {
+    
+    private static final String MESSAGE_TYPE = "username";
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+    
+    private final UserMapper userMapper;
+    private final SharedCache sharedCache;
+    private final int expectedUsers;
+    
+    private volatile Snapshot snapshot;
+    
+    public UsernameRegistry(UserMapper userMapper, SharedCache sharedCache,
+                            @Value("${auth.username-filter.expected-users:100000}") int expectedUsers) {
+        this.userMapper = userMapper;
+        this.sharedCache = sharedCache;
+        this.expectedUsers = expectedUsers;
+        sharedCache.subscribe(message -> {
+            String[] parts = message.split("\\|", 2);
+            if (parts.length == 2 && MESSAGE_TYPE.equals(parts[0])) {
+                addLocal(parts[1]);
+            }
+        });
+    }
+    
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        try {
+            current();
+        } catch (RuntimeException e) {
+            // 加载失败不影响启动，首次使用时再加载
+            log.warn("用户名过滤器预加载失败: {}", e.getMessage());
+        }
+    }
+    
+    /**
+     * 用户名可能已被占用；返回false时一定未被占用
+     */
+    public boolean mightExist(String username) {
+        return current().filter.mightContain(username);
+    }
+    
+    /**
+     * 注册成功后调用
+     */
+    public void add(String username) {
+        addLocal(username);
+        sharedCache.publish(MESSAGE_TYPE + "|" + username);
+    }
+    
+    public synchronized void reload() {
+        snapshot = load();
+    }
+    
+    private void addLocal(String username) {
+        Snapshot current = current();
+        current.filter.add(username);
+        if (++current.count > current.capacity) {
+            synchronized (this) {
+                if (snapshot == current) {
+                    snapshot = null;
+                }
+            }
+        }
+    }
+    
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        if (current != null) {
+            return current;
+        }
+        synchronized (this) {
+            if (snapshot == null) {
+                snapshot = load();
+            }
+            return snapshot;
+        }
+    }
+    
+    /**
+     * 加载期间并发注册的用户名可能漏加；漏加只会让查重多报“可用”，注册时由唯一约束兜底
+     */
+    private Snapshot load() {
+        long start = System.currentTimeMillis();
+        Long total = userMapper.selectCount(null);
+        int capacity = (int) Math.max(expectedUsers, (total == null ? 0 : total) * 2);
+        Snapshot next = new Snapshot(new BloomFilter(capacity, FALSE_POSITIVE_RATE), capacity);
+        userMapper.scanUsernames(context -> {
+            if (context.getResultObject() != null) {
+                next.filter.add(context.getResultObject());
+                next.count++;
+            }
+        });
+        log.info("用户名过滤器加载完成: {} 个, 耗时 {} ms", next.count, System.currentTimeMillis() - start);
+        return next;
+    }
+    
+    private static final class Snapshot {
+        
+        private final BloomFilter filter;
+        private final int capacity;
+        
+        /**
+         * 只用于判断是否需要扩容，并发下少计几个无妨
+         */
+        private volatile int count;
+        
+        private Snapshot(BloomFilter filter, int capacity) {
+            this.filter = filter;
+            this.capacity = capacity;
+        }
+    }
+}
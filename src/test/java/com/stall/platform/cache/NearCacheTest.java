@@ -0,0 +1,111 @@
+package com.stall.platform.cache;
+
+import com.stall.platform.entity.Stall;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 本地缓存单元测试
+ * 测试：命中统计、容量淘汰、TTL过期、失效期间不回填旧值
+ */
+class NearCacheTest {
+    
+    @Test
+    @DisplayName("命中与未命中统计")
+    void testHitAndMiss() {
+        NearCache<Stall> cache = newCache(10, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        
+        cache.get(1L, id -> load(id, loads));
+        cache.get(1L, id -> load(id, loads));
+        cache.get(1L, id -> load(id, loads));
+        
+        assertEquals(1, loads.get(), "只应加载一次");
+        Map<String, Object> stats = cache.stats();
+        assertEquals(2L, stats.get("hits"));
+        assertEquals(1L, stats.get("misses"));
+    }
+    
+    @Test
+    @DisplayName("返回副本-修改不影响缓存")
+    void testReturnsCopy() {
+        NearCache<Stall> cache = newCache(10, 60_000);
+        cache.get(1L, id -> load(id, new AtomicInteger()));
+        
+        Stall first = cache.get(1L, id -> null);
+        first.setStatus(2);
+        Stall second = cache.get(1L, id -> null);
+        assertEquals(0, second.getStatus(), "调用方修改返回对象不应污染缓存");
+    }
+    
+    @Test
+    @DisplayName("超出容量按LRU淘汰")
+    void testSizeEviction() {
+        NearCache<Stall> cache = newCache(2, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, id -> load(id, loads));
+        cache.get(2L, id -> load(id, loads));
+        cache.get(1L, id -> load(id, loads));
+        cache.get(3L, id -> load(id, loads));
+        
+        assertEquals(2, cache.size());
+        assertEquals(1L, cache.stats().get("evictions"));
+        cache.get(1L, id -> load(id, loads));
+        assertEquals(3, loads.get(), "最近访问的1不应被淘汰");
+    }
+    
+    @Test
+    @DisplayName("TTL过期后重新加载")
+    void testTtlExpiry() throws InterruptedException {
+        NearCache<Stall> cache = newCache(10, 20);
+        AtomicInteger loads = new AtomicInteger();
+        cache.get(1L, id -> load(id, loads));
+        Thread.sleep(40);
+        cache.get(1L, id -> load(id, loads));
+        
+        assertEquals(2, loads.get(), "过期后应重新加载");
+        assertEquals(1L, cache.stats().get("evictions"));
+    }
+    
+    @Test
+    @DisplayName("加载期间发生失效-不回填旧值")
+    void testInvalidateDuringLoad() {
+        NearCache<Stall> cache = newCache(10, 60_000);
+        cache.get(1L, id -> {
+            Stall stale = load(id, new AtomicInteger());
+            // 模拟加载过程中另一线程更新了状态并失效缓存
+            cache.invalidate(1L);
+            return stale;
+        });
+        
+        assertEquals(0, cache.size(), "失效期间加载的旧值不应写入缓存");
+        Stall fresh = cache.get(1L, id -> {
+            Stall stall = load(id, new AtomicInteger());
+            stall.setStatus(1);
+            return stall;
+        });
+        assertEquals(1, fresh.getStatus());
+    }
+    
+    private NearCache<Stall> newCache(int maxSize, long ttlMillis) {
+        return new NearCache<>("stall", maxSize, ttlMillis, s -> {
+            Stall copy = new Stall();
+            copy.setId(s.getId());
+            copy.setStatus(s.getStatus());
+            return copy;
+        });
+    }
+    
+    private Stall load(Object id, AtomicInteger loads) {
+        loads.incrementAndGet();
+        Stall stall = new Stall();
+        stall.setId(Long.valueOf(id.toString()));
+        stall.setStatus(0);
+        return stall;
+    }
+}
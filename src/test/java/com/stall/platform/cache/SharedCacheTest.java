@@ -0,0 +1,183 @@
+package com.stall.platform.cache;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.stall.platform.entity.Stall;
+import com.stall.platform.entity.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 共享二级缓存测试（使用进程内替身代替Redis）
+ * 测试：编解码与压缩、跨节点读取、失效后不回填旧值、二级缓存不含密码、列表版本失效、Redis不可达时降级
+ */
+class SharedCacheTest {
+    
+    private final CacheCodec codec = new CacheCodec(512);
+    
+    @Test
+    @DisplayName("编解码-大结果压缩后仍可还原")
+    void testCodecCompression() {
+        List<Stall> stalls = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            Stall stall = new Stall();
+            stall.setId((long) i);
+            stall.setStallNo("A-" + i);
+            stall.setName("中心广场摊位" + i);
+            stall.setRentPrice(new BigDecimal("1200.00"));
+            stalls.add(stall);
+        }
+        byte[] small = codec.encode(stalls.get(0));
+        byte[] large = codec.encode(stalls);
+        
+        assertEquals(0, small[0], "小对象不压缩");
+        assertEquals(1, large[0], "大对象应压缩");
+        List<Stall> decoded = codec.decode(large, new TypeReference<List<Stall>>() {});
+        assertEquals(100, decoded.size());
+        assertEquals("中心广场摊位99", decoded.get(99).getName());
+        assertEquals(0, new BigDecimal("1200.00").compareTo(decoded.get(0).getRentPrice()));
+    }
+    
+    @Test
+    @DisplayName("二级缓存-其他节点可直接读取，失效后重新加载")
+    void testSecondLevelSharedAcrossNodes() {
+        LocalSharedCache shared = new LocalSharedCache();
+        NearCache<User> nodeA = newManager(shared).getCache("user", User.class);
+        NearCache<User> nodeB = newManager(shared).getCache("user", User.class);
+        AtomicInteger loads = new AtomicInteger();
+        
+        nodeA.get(1L, id -> loadUser(id, loads));
+        User fromB = nodeB.get(1L, id -> loadUser(id, loads));
+        assertEquals(1, loads.get(), "节点B应从二级缓存读取");
+        assertEquals("user1", fromB.getUsername());
+        
+        nodeA.invalidate(1L);
+        nodeA.get(1L, id -> loadUser(id, loads));
+        assertEquals(2, loads.get(), "失效后应回源");
+    }
+    
+    @Test
+    @DisplayName("二级缓存-回源期间其他节点失效，回填的旧值不再被读到；空值按未命中处理")
+    void testSecondLevelStaleFillAfterEvict() {
+        LocalSharedCache shared = new LocalSharedCache();
+        NearCache<User> nodeA = newManager(shared).getCache("user", User.class);
+        NearCache<User> nodeB = newManager(shared).getCache("user", User.class);
+        AtomicInteger loads = new AtomicInteger();
+        
+        // 节点A读到旧行后、回填前，节点B修改并失效
+        nodeA.get(1L, id -> {
+            User stale = loadUser(id, loads);
+            stale.setUsername("stale");
+            nodeB.invalidate(1L);
+            return stale;
+        });
+        User fromB = nodeB.get(1L, id -> loadUser(id, loads));
+        assertEquals("user1", fromB.getUsername(), "失效后写入的旧值不应被其他节点读到");
+        assertEquals(2, loads.get());
+        
+        shared.set("stall:entity:user:2:0", new byte[0], 60);
+        assertEquals("user2", nodeB.get(2L, id -> loadUser(id, loads)).getUsername());
+        assertThrows(UncheckedIOException.class, () -> codec.decode(new byte[0], User.class));
+    }
+    
+    @Test
+    @DisplayName("二级缓存-写入前清除密码哈希，本地缓存不受影响")
+    void testSecondLevelRedactsPassword() {
+        LocalSharedCache shared = new LocalSharedCache();
+        NearCache<User> nodeA = newManager(shared).getCache("user", User.class, user -> user.setPassword(null));
+        NearCache<User> nodeB = newManager(shared).getCache("user", User.class, user -> user.setPassword(null));
+        AtomicInteger loads = new AtomicInteger();
+        
+        User loaded = nodeA.get(1L, id -> {
+            User user = loadUser(id, loads);
+            user.setPassword("$2a$10$hashhashhashhashhashha");
+            return user;
+        });
+        assertEquals("$2a$10$hashhashhashhashhashha", loaded.getPassword());
+        assertEquals("$2a$10$hashhashhashhashhashha", nodeA.get(1L, id -> loadUser(id, loads)).getPassword());
+        
+        byte[] bytes = shared.get("stall:entity:user:1:0");
+        assertNotNull(bytes);
+        User stored = codec.decode(bytes, User.class);
+        assertEquals("user1", stored.getUsername());
+        assertNull(stored.getPassword(), "密码哈希不应写入共享缓存");
+        
+        User fromB = nodeB.get(1L, id -> loadUser(id, loads));
+        assertEquals(1, loads.get());
+        assertNull(fromB.getPassword());
+    }
+    
+    @Test
+    @DisplayName("列表缓存-递增版本后旧结果失效")
+    void testListCacheVersioning() {
+        ListCache listCache = new ListCache(new LocalSharedCache(), codec);
+        ReflectionTestUtils.setField(listCache, "ttlSeconds", 60L);
+        AtomicInteger loads = new AtomicInteger();
+        TypeReference<List<String>> type = new TypeReference<>() {};
+        
+        listCache.get("stall", "available", type, () -> List.of("v" + loads.incrementAndGet()));
+        List<String> cached = listCache.get("stall", "available", type, () -> List.of("v" + loads.incrementAndGet()));
+        assertEquals(List.of("v1"), cached);
+        
+        listCache.evict("stall");
+        List<String> reloaded = listCache.get("stall", "available", type, () -> List.of("v" + loads.incrementAndGet()));
+        assertEquals(List.of("v2"), reloaded);
+    }
+    
+    @Test
+    @DisplayName("Redis不可达-降级且不抛异常")
+    void testRedisUnavailableFallback() {
+        LettuceConnectionFactory connectionFactory = new LettuceConnectionFactory(
+                new RedisStandaloneConfiguration("127.0.0.1", 1));
+        connectionFactory.afterPropertiesSet();
+        RedisTemplate<String, byte[]> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+        template.setKeySerializer(RedisSerializer.string());
+        template.setValueSerializer(RedisSerializer.byteArray());
+        template.afterPropertiesSet();
+        RedisSharedCache cache = new RedisSharedCache(template, 60_000);
+        
+        try {
+            assertNull(cache.get("stall:entity:stall:1"));
+            assertFalse(cache.isAvailable(), "连接失败后应进入熔断");
+            cache.set("k", new byte[]{0}, 60);
+            assertEquals(-1, cache.incrementCounter("k"));
+            
+            // 熔断期间加载器照常回源
+            NearCacheManager manager = newManager(cache);
+            AtomicInteger loads = new AtomicInteger();
+            User user = manager.getCache("user", User.class).get(1L, id -> loadUser(id, loads));
+            assertEquals("user1", user.getUsername());
+        } finally {
+            connectionFactory.destroy();
+        }
+    }
+    
+    private NearCacheManager newManager(SharedCache shared) {
+        NearCacheManager manager = new NearCacheManager(shared, codec);
+        ReflectionTestUtils.setField(manager, "maxSize", 100);
+        ReflectionTestUtils.setField(manager, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(manager, "sharedTtlSeconds", 60L);
+        return manager;
+    }
+    
+    private User loadUser(Object id, AtomicInteger loads) {
+        loads.incrementAndGet();
+        User user = new User();
+        user.setId(Long.valueOf(id.toString()));
+        user.setUsername("user" + id);
+        return user;
+    }
+}
@@ -144,4 +144,24 @@ class AuthControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.code").value(200));
     }
+    
+    @Test
+    @Order(7)
+    @DisplayName("用户名查重接口（无需登录）")
+    void testCheckUsername() throws Exception {
+        String username = "check_" + System.currentTimeMillis();
+        mockMvc.perform(get("/auth/check-username").param("username", username))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data.available").value(true));
+        
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("test123");
+        userService.register(user);
+        
+        mockMvc.perform(get("/auth/check-username").param("username", username))
+                .andExpect(jsonPath("$.data.available").value(false));
+        mockMvc.perform(get("/auth/check-username").param("username", " "))
+                .andExpect(jsonPath("$.code").value(400));
+    }
 }
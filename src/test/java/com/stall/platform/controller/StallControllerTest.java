@@ -207,6 +207,69 @@ class StallControllerTest {
                 .andExpect(status().isUnauthorized());
     }
     
+    @Test
+    @Order(10)
+    @DisplayName("公开接口-附近摊位（半径与最近K个）")
+    void testNearby_Public() throws Exception {
+        // 偏远坐标，避免与其他测试数据混在一起
+        Stall near = createTestStall();
+        near.setLatitude(new BigDecimal("60.0000000"));
+        near.setLongitude(new BigDecimal("100.0000000"));
+        stallService.save(near);
+        Stall far = createTestStall();
+        far.setStallNo(far.getStallNo() + "_far");
+        far.setLatitude(new BigDecimal("60.0100000"));
+        far.setLongitude(new BigDecimal("100.0000000"));
+        stallService.save(far);
+        
+        mockMvc.perform(get("/stall/nearby")
+                .param("lat", "60.0005")
+                .param("lng", "100.0")
+                .param("radius", "200")
+                .param("typeId", String.valueOf(testTypeId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(200))
+                .andExpect(jsonPath("$.data.length()").value(1))
+                .andExpect(jsonPath("$.data[0].id").value(near.getId()))
+                .andExpect(jsonPath("$.data[0].distance").isNumber());
+        
+        mockMvc.perform(get("/stall/nearby")
+                .param("lat", "60.02")
+                .param("lng", "100.0")
+                .param("limit", "2")
+                .param("typeId", String.valueOf(testTypeId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.data[0].id").value(far.getId()))
+                .andExpect(jsonPath("$.data[1].id").value(near.getId()));
+    }
+    
+    @Test
+    @Order(11)
+    @DisplayName("公开接口-附近摊位参数非法返回400")
+    void testNearby_InvalidParams() throws Exception {
+        mockMvc.perform(get("/stall/nearby")
+                .param("lat", "60.0")
+                .param("lng", "100.0")
+                .param("radius", "200")
+                .param("limit", "-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("数量必须大于0"));
+        
+        mockMvc.perform(get("/stall/nearby")
+                .param("lat", "60.0")
+                .param("lng", "100.0")
+                .param("radius", "0"))
+                .andExpect(jsonPath("$.code").value(400))
+                .andExpect(jsonPath("$.message").value("半径必须大于0"));
+        
+        mockMvc.perform(get("/stall/nearby")
+                .param("lat", "60.0")
+                .param("lng", "100.0")
+                .param("limit", "0"))
+                .andExpect(jsonPath("$.code").value(400));
+    }
+    
     private Stall createTestStall() {
         Stall stall = new Stall();
         stall.setStallNo("API_" + System.currentTimeMillis());
@@ -0,0 +1,129 @@
+package com.stall.platform.security;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * JWT验签与已验签缓存单元测试
+ * 测试：一次解析取出全部声明、篡改/过期Token、缓存容量、每请求认证耗时对比（perf，mvn test -Pperf 执行）
+ */
+class JwtUtilTest {
+    
+    private static final String SECRET = "test-secret-key-for-unit-testing-purposes-only-2024-must-be-long-enough";
+    
+    @Test
+    @DisplayName("验签并提取全部声明")
+    void testVerify() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3600, 100, 300);
+        String token = jwtUtil.generateToken("alice", 42L, "USER");
+        
+        JwtClaims claims = jwtUtil.verify(token);
+        assertNotNull(claims);
+        assertEquals("alice", claims.username());
+        assertEquals(42L, claims.userId());
+        assertEquals("USER", claims.role());
+        assertTrue(claims.expiresAt() > System.currentTimeMillis());
+        assertSame(claims, jwtUtil.verify(token), "第二次应命中缓存");
+        assertEquals(1, jwtUtil.cacheSize());
+    }
+    
+    @Test
+    @DisplayName("篡改、过期和空Token不通过且不进入缓存")
+    void testInvalidTokens() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3600, 100, 300);
+        String token = jwtUtil.generateToken("alice", 42L, "USER");
+        
+        assertNull(jwtUtil.verify(token.substring(0, token.length() - 2) + "xx"));
+        assertNull(jwtUtil.verify(null));
+        assertNull(jwtUtil.verify(""));
+        assertNull(new JwtUtil(SECRET.replace('t', 'x'), 3600, 100, 300).verify(token), "密钥不同应验签失败");
+        
+        JwtUtil expired = new JwtUtil(SECRET, -1, 100, 300);
+        assertNull(expired.verify(expired.generateToken("bob", 1L, "USER")));
+        assertEquals(0, jwtUtil.cacheSize());
+        assertEquals(0, expired.cacheSize());
+    }
+    
+    @Test
+    @DisplayName("缓存容量有上限，TTL为0时每次重新验签")
+    void testCacheBounds() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3600, 3, 300);
+        for (long i = 0; i < 10; i++) {
+            assertNotNull(jwtUtil.verify(jwtUtil.generateToken("user" + i, i, "USER")));
+        }
+        assertEquals(3, jwtUtil.cacheSize());
+        
+        JwtUtil noTtl = new JwtUtil(SECRET, 3600, 100, 0);
+        String token = noTtl.generateToken("alice", 1L, "USER");
+        JwtClaims first = noTtl.verify(token);
+        assertNotSame(first, noTtl.verify(token), "条目立即过期，应重新解析");
+        assertEquals(first, noTtl.verify(token));
+    }
+    
+    @Test
+    @Tag("perf")
+    @DisplayName("每请求认证耗时对比：原四次解析 / 一次解析 / 缓存命中")
+    void testAuthCost() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3600, 10000, 300);
+        JwtUtil uncached = new JwtUtil(SECRET, 3600, 0, 300);
+        int tokens = 1000;
+        String[] pool = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            pool[i] = jwtUtil.generateToken("user" + i, (long) i, "USER");
+        }
+        int rounds = 20_000;
+        // 原实现每次重建解析器，单次耗时高，只跑少量轮次
+        int legacyRounds = 1_000;
+        // 预热
+        for (int i = 0; i < legacyRounds; i++) {
+            legacyAuth(pool[i % tokens]);
+        }
+        for (int i = 0; i < rounds; i++) {
+            uncached.verify(pool[i % tokens]);
+            jwtUtil.verify(pool[i % tokens]);
+        }
+        
+        long start = System.nanoTime();
+        for (int i = 0; i < legacyRounds; i++) {
+            assertNotNull(legacyAuth(pool[i % tokens]));
+        }
+        long legacy = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            assertNotNull(uncached.verify(pool[i % tokens]));
+        }
+        long parseOnce = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            assertNotNull(jwtUtil.verify(pool[i % tokens]));
+        }
+        long cached = System.nanoTime() - start;
+        
+        System.out.printf("每请求认证: 原四次解析 %.2f us, 一次解析 %.2f us, 缓存命中 %.2f us%n",
+                legacy / 1e3 / legacyRounds, parseOnce / 1e3 / rounds, cached / 1e3 / rounds);
+        assertTrue(cached / rounds < legacy / legacyRounds, "缓存命中应快于原实现");
+    }
+    
+    /**
+     * 原过滤器的调用方式：每次重新生成密钥和解析器，共验签四次
+     */
+    private static String legacyAuth(String token) {
+        Claims claims = null;
+        for (int i = 0; i < 4; i++) {
+            SecretKey key = Keys.hmacShaKeyFor(SECRET.getBytes(StandardCharsets.UTF_8));
+            claims = Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        }
+        return claims.getSubject();
+    }
+}
@@ -0,0 +1,173 @@
+package com.stall.platform.security;
+
+import com.stall.platform.entity.User;
+import com.stall.platform.service.UserService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 登录校验单元测试
+ * 测试：用户只查一次、密码错误/禁用、强度升级后重新哈希、队列满时快速拒绝、并发登录吞吐与延迟（perf，mvn test -Pperf 执行）
+ */
+class LoginProcessorTest {
+    
+    @Test
+    @DisplayName("登录成功只查询一次用户，密码错误或禁用时拒绝")
+    void testAuthenticate() {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(4);
+        UserService userService = mock(UserService.class);
+        when(userService.findByUsername("alice")).thenReturn(user(1L, encoder.encode("secret"), 1));
+        when(userService.findByUsername("bob")).thenReturn(user(2L, encoder.encode("secret"), 0));
+        LoginProcessor processor = new LoginProcessor(userService, encoder, 2, 8, 5000);
+        
+        assertEquals(1L, processor.authenticate("alice", "secret").getId());
+        verify(userService, times(1)).findByUsername("alice");
+        assertThrows(BadCredentialsException.class, () -> processor.authenticate("alice", "wrong"));
+        assertThrows(BadCredentialsException.class, () -> processor.authenticate("bob", "secret"), "禁用用户不能登录");
+        assertThrows(BadCredentialsException.class, () -> processor.authenticate("nobody", "secret"));
+        verify(userService, never()).upgradePasswordHash(any(), any(), any());
+        processor.shutdown();
+    }
+    
+    @Test
+    @DisplayName("配置强度提高后登录成功时重新哈希")
+    void testRehashOnStrengthUpgrade() {
+        String oldHash = new BCryptPasswordEncoder(4).encode("secret");
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(6);
+        UserService userService = mock(UserService.class);
+        when(userService.findByUsername("alice")).thenReturn(user(1L, oldHash, 1));
+        when(userService.upgradePasswordHash(eq(1L), eq(oldHash), anyString())).thenReturn(true);
+        LoginProcessor processor = new LoginProcessor(userService, encoder, 1, 8, 5000);
+        
+        User user = processor.authenticate("alice", "secret");
+        assertTrue(user.getPassword().startsWith("$2a$06$"), "应升级为当前强度");
+        assertTrue(encoder.matches("secret", user.getPassword()));
+        verify(userService).upgradePasswordHash(eq(1L), eq(oldHash), eq(user.getPassword()));
+        assertEquals(1, processor.rehashedCount());
+        processor.shutdown();
+    }
+    
+    @Test
+    @DisplayName("线程池队列满时快速拒绝")
+    void testRejectWhenSaturated() throws Exception {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(10);
+        UserService userService = mock(UserService.class);
+        when(userService.findByUsername("alice")).thenReturn(user(1L, encoder.encode("secret"), 1));
+        LoginProcessor processor = new LoginProcessor(userService, encoder, 1, 2, 10_000);
+        
+        int callers = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        long[] rejectNanos = new long[callers];
+        List<Future<?>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            int index = i;
+            futures.add(pool.submit(() -> {
+                start.await();
+                long begin = System.nanoTime();
+                try {
+                    processor.authenticate("alice", "secret");
+                    succeeded.incrementAndGet();
+                } catch (LoginBusyException e) {
+                    rejectNanos[index] = System.nanoTime() - begin;
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        processor.shutdown();
+        
+        assertEquals(callers, succeeded.get() + rejected.get());
+        assertTrue(succeeded.get() >= 1 && rejected.get() >= 1, "应有成功也有被拒绝的请求");
+        long slowestReject = Arrays.stream(rejectNanos).max().orElse(0);
+        assertTrue(slowestReject < TimeUnit.MILLISECONDS.toNanos(50), "拒绝应立即返回");
+    }
+    
+    @Test
+    @Tag("perf")
+    @DisplayName("并发登录吞吐与延迟：请求线程直接校验 / 有界线程池")
+    void testConcurrentLoginBenchmark() throws Exception {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(8);
+        UserService userService = mock(UserService.class);
+        when(userService.findByUsername("alice")).thenReturn(user(1L, encoder.encode("secret"), 1));
+        int workers = Runtime.getRuntime().availableProcessors();
+        LoginProcessor processor = new LoginProcessor(userService, encoder, workers, 1024, 60_000);
+        int callers = 32;
+        int loginsPerCaller = 2;
+        
+        double[] direct = run(callers, loginsPerCaller, () -> {
+            User user = userService.findByUsername("alice");
+            assertTrue(encoder.matches("secret", user.getPassword()));
+        });
+        double[] pooled = run(callers, loginsPerCaller, () -> processor.authenticate("alice", "secret"));
+        processor.shutdown();
+        
+        System.out.printf("并发登录(%d调用方/%d工作线程): 直接校验 %.0f次/秒 p50=%.1fms p99=%.1fms; "
+                        + "线程池 %.0f次/秒 p50=%.1fms p99=%.1fms%n", callers, workers,
+                direct[0], direct[1], direct[2], pooled[0], pooled[1], pooled[2]);
+        assertTrue(pooled[0] > 0);
+    }
+    
+    /**
+     * 返回 [吞吐(次/秒), p50(ms), p99(ms)]
+     */
+    private double[] run(int callers, int loginsPerCaller, Runnable login) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(callers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                long[] latencies = new long[loginsPerCaller];
+                for (int j = 0; j < loginsPerCaller; j++) {
+                    long begin = System.nanoTime();
+                    login.run();
+                    latencies[j] = System.nanoTime() - begin;
+                }
+                return latencies;
+            }));
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        long[] all = new long[callers * loginsPerCaller];
+        int k = 0;
+        for (Future<long[]> future : futures) {
+            for (long latency : future.get()) {
+                all[k++] = latency;
+            }
+        }
+        long elapsed = System.nanoTime() - begin;
+        pool.shutdown();
+        Arrays.sort(all);
+        return new double[]{all.length / (elapsed / 1e9), all[all.length / 2] / 1e6, all[all.length * 99 / 100] / 1e6};
+    }
+    
+    private User user(Long id, String hash, Integer status) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername("user" + id);
+        user.setPassword(hash);
+        user.setStatus(status);
+        return user;
+    }
+}
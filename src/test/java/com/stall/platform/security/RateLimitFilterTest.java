@@ -0,0 +1,153 @@
+package com.stall.platform.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.stall.platform.config.RateLimitProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 限流过滤器单元测试
+ * 测试：按IP/按用户限流、429响应格式、未匹配的接口不受影响、统计、经反向代理时按真实客户端IP限流
+ */
+class RateLimitFilterTest {
+    
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ClientIpResolver clientIpResolver = new ClientIpResolver(List.of("127.0.0.1", "::1"), "X-Real-IP");
+    
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+    
+    @Test
+    @DisplayName("按IP限流，超出返回429")
+    void testLimitByIp() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(properties(rule("login", "/auth/login", "POST", "ip", 2)),
+                objectMapper, clientIpResolver);
+        
+        assertEquals(200, call(filter, "POST", "/auth/login", "10.0.0.1").getStatus());
+        assertEquals(200, call(filter, "POST", "/auth/login", "10.0.0.1").getStatus());
+        MockHttpServletResponse rejected = call(filter, "POST", "/auth/login", "10.0.0.1");
+        assertEquals(429, rejected.getStatus());
+        assertNotNull(rejected.getHeader("Retry-After"));
+        Map<?, ?> body = objectMapper.readValue(rejected.getContentAsString(), Map.class);
+        assertEquals(429, body.get("code"));
+        
+        assertEquals(200, call(filter, "POST", "/auth/login", "10.0.0.2").getStatus(), "其他IP不受影响");
+        assertEquals(200, call(filter, "GET", "/auth/login", "10.0.0.1").getStatus(), "方法不匹配不限流");
+        assertEquals(200, call(filter, "POST", "/stall/list", "10.0.0.1").getStatus(), "路径不匹配不限流");
+        
+        Map<?, ?> login = (Map<?, ?>) ((Map<?, ?>) filter.stats().get("rules")).get("login");
+        assertEquals(3L, login.get("allowed"));
+        assertEquals(1L, login.get("rejected"));
+    }
+    
+    @Test
+    @DisplayName("按用户限流，同一IP下不同用户互不影响")
+    void testLimitByUser() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(
+                properties(rule("feedback", "/feedback/submit", "POST", "user", 1)), objectMapper, clientIpResolver);
+        
+        login(1L);
+        assertEquals(200, call(filter, "POST", "/feedback/submit", "10.0.0.1").getStatus());
+        assertEquals(429, call(filter, "POST", "/feedback/submit", "10.0.0.1").getStatus());
+        login(2L);
+        assertEquals(200, call(filter, "POST", "/feedback/submit", "10.0.0.1").getStatus());
+    }
+    
+    @Test
+    @DisplayName("关闭限流时全部放行")
+    void testDisabled() throws Exception {
+        RateLimitProperties properties = properties(rule("login", "/auth/login", "POST", "ip", 1));
+        properties.setEnabled(false);
+        RateLimitFilter filter = new RateLimitFilter(properties, objectMapper, clientIpResolver);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, call(filter, "POST", "/auth/login", "10.0.0.1").getStatus());
+        }
+    }
+    
+    @Test
+    @DisplayName("经同一反向代理的不同客户端按 X-Real-IP 分别限流，非代理来源伪造的请求头被忽略")
+    void testLimitBehindProxy() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(properties(rule("login", "/auth/login", "POST", "ip", 1)),
+                objectMapper, clientIpResolver);
+        
+        assertEquals(200, call(filter, "POST", "/auth/login", "127.0.0.1", "203.0.113.1").getStatus());
+        assertEquals(429, call(filter, "POST", "/auth/login", "127.0.0.1", "203.0.113.1").getStatus());
+        assertEquals(200, call(filter, "POST", "/auth/login", "127.0.0.1", "203.0.113.2").getStatus(),
+                "同一代理后的其他客户端不受影响");
+        
+        // 直连客户端自带 X-Real-IP 不能换桶
+        assertEquals(200, call(filter, "POST", "/auth/login", "198.51.100.7", "203.0.113.3").getStatus());
+        assertEquals(429, call(filter, "POST", "/auth/login", "198.51.100.7", "203.0.113.4").getStatus());
+    }
+    
+    @Test
+    @DisplayName("X-Forwarded-For 从右往左跳过受信任代理，非IP值回退到直连地址")
+    void testResolveForwardedFor() {
+        ClientIpResolver resolver = new ClientIpResolver(List.of("127.0.0.1", "10.0.0.0/8"), "X-Forwarded-For");
+        assertEquals("203.0.113.5", resolver.resolve(request("127.0.0.1", "X-Forwarded-For",
+                "1.2.3.4, 203.0.113.5, 10.1.2.3")), "最左侧为客户端自填，不可信");
+        assertEquals("127.0.0.1", resolver.resolve(request("127.0.0.1", "X-Forwarded-For", "evil.example.com")));
+        assertEquals("198.51.100.7", resolver.resolve(request("198.51.100.7", "X-Forwarded-For", "203.0.113.5")));
+        assertEquals("127.0.0.1", clientIpResolver.resolve(request("127.0.0.1", "X-Real-IP", "not-an-ip")));
+    }
+    
+    private MockHttpServletResponse call(RateLimitFilter filter, String method, String path, String ip) throws Exception {
+        return call(filter, method, path, ip, null);
+    }
+    
+    private MockHttpServletResponse call(RateLimitFilter filter, String method, String path, String ip,
+                                         String realIp) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setRemoteAddr(ip);
+        if (realIp != null) {
+            request.addHeader("X-Real-IP", realIp);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+    
+    private static MockHttpServletRequest request(String remoteAddr, String header, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/auth/login");
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader(header, value);
+        return request;
+    }
+    
+    private void login(Long userId) {
+        LoginUser loginUser = new LoginUser(userId, "user" + userId, "USER");
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(loginUser, null, Collections.emptyList()));
+    }
+    
+    private RateLimitProperties properties(RateLimitProperties.Rule rule) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setRules(List.of(rule));
+        return properties;
+    }
+    
+    private RateLimitProperties.Rule rule(String name, String path, String method, String key, int capacity) {
+        RateLimitProperties.Rule rule = new RateLimitProperties.Rule();
+        rule.setName(name);
+        rule.setPath(path);
+        rule.setMethod(method);
+        rule.setKey(key);
+        rule.setCapacity(capacity);
+        rule.setRefillPerMinute(1);
+        return rule;
+    }
+}
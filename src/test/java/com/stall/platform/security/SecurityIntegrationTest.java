@@ -320,4 +320,51 @@ class SecurityIntegrationTest {
                 .andExpect(jsonPath("$.data.current").value(1))
                 .andExpect(jsonPath("$.data.size").value(10));
     }
+    
+    @Test
+    @Order(19)
+    @DisplayName("C1-登出后Token立即失效")
+    void testLogoutRevokesToken() throws Exception {
+        User user = userService.findByUsername(testUsername);
+        String token = "Bearer " + jwtUtil.generateToken(testUsername, user.getId(), "USER");
+        String otherToken = "Bearer " + jwtUtil.generateToken(testUsername, user.getId(), "USER");
+        
+        mockMvc.perform(get("/user/profile").header("Authorization", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(post("/auth/logout").header("Authorization", token))
+                .andExpect(jsonPath("$.code").value(200));
+        
+        mockMvc.perform(get("/user/profile").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+        // 只吊销登出的那个Token，同一用户的其他会话不受影响
+        mockMvc.perform(get("/user/profile").header("Authorization", otherToken))
+                .andExpect(status().isOk());
+    }
+    
+    @Test
+    @Order(20)
+    @DisplayName("C2-禁用用户后已签发Token立即失效")
+    void testDisableUserRevokesTokens() throws Exception {
+        User user = userService.findByUsername(testUsername);
+        String token = "Bearer " + jwtUtil.generateToken(testUsername, user.getId(), "USER");
+        User admin = new User();
+        admin.setUsername("admin_revoke_" + System.currentTimeMillis());
+        admin.setPassword("admin123");
+        admin.setRole("ADMIN");
+        userService.register(admin);
+        admin = userService.findByUsername(admin.getUsername());
+        String adminToken = "Bearer " + jwtUtil.generateToken(admin.getUsername(), admin.getId(), "ADMIN");
+        
+        mockMvc.perform(get("/user/profile").header("Authorization", token))
+                .andExpect(status().isOk());
+        mockMvc.perform(put("/user/admin/" + user.getId() + "/status")
+                .header("Authorization", adminToken)
+                .param("status", "0"))
+                .andExpect(jsonPath("$.code").value(200));
+        
+        mockMvc.perform(get("/user/profile").header("Authorization", token))
+                .andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/user/profile").header("Authorization", adminToken))
+                .andExpect(status().isOk());
+    }
 }
@@ -0,0 +1,85 @@
+package com.stall.platform.security;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无锁令牌桶单元测试
+ * 测试：突发容量、按时间补充、并发下不超发、桶数量上限
+ */
+class TokenBucketStoreTest {
+    
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    
+    @Test
+    @DisplayName("突发容量用完后拒绝，并按间隔补充")
+    void testBurstAndRefill() {
+        TokenBucketStore store = new TokenBucketStore(100, SECOND);
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryAcquire("k", 3, SECOND, now));
+        }
+        long wait = store.tryAcquire("k", 3, SECOND, now);
+        assertEquals(SECOND, wait, "应等待一个补充间隔");
+        assertEquals(0, store.tryAcquire("k", 3, SECOND, now + SECOND));
+        assertTrue(store.tryAcquire("k", 3, SECOND, now + SECOND) > 0);
+        // 长时间空闲后最多恢复到容量
+        long later = now + 100 * SECOND;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, store.tryAcquire("k", 3, SECOND, later));
+        }
+        assertTrue(store.tryAcquire("k", 3, SECOND, later) > 0);
+        assertEquals(0, store.tryAcquire("other", 3, SECOND, later), "不同来源互不影响");
+    }
+    
+    @Test
+    @DisplayName("并发取令牌不超发")
+    void testConcurrentAcquire() throws Exception {
+        TokenBucketStore store = new TokenBucketStore(100, SECOND);
+        long now = 1_000 * SECOND;
+        int threads = 16;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < 1000; i++) {
+                    if (store.tryAcquire("shared", 500, SECOND, now) == 0) {
+                        granted.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertEquals(500, granted.get());
+    }
+    
+    @Test
+    @DisplayName("桶数量有上限，空闲且已回满的桶被清理")
+    void testBoundedStorage() {
+        TokenBucketStore store = new TokenBucketStore(10, SECOND);
+        long now = 1_000 * SECOND;
+        for (int i = 0; i < 50; i++) {
+            store.tryAcquire("r|ip:" + i, 1, SECOND, now);
+        }
+        assertTrue(store.size() <= 11, "超出上限的来源应共用溢出桶");
+        assertTrue(store.tryAcquire("r|ip:999", 1, SECOND, now) > 0, "溢出桶已被用完");
+        
+        assertEquals(store.size(), store.evictIdle(now + 10 * SECOND));
+        assertEquals(0, store.tryAcquire("r|ip:999", 1, SECOND, now + 10 * SECOND), "清理后新来源拿到独立的桶");
+    }
+}
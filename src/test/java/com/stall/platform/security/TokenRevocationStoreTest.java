@@ -0,0 +1,84 @@
+package com.stall.platform.security;
+
+import com.stall.platform.cache.CacheCodec;
+import com.stall.platform.cache.LocalSharedCache;
+import com.stall.platform.cache.SharedCache;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Token吊销表单元测试
+ * 测试：按Token/按用户吊销、过期清理、节点重启后从快照恢复
+ */
+class TokenRevocationStoreTest {
+    
+    private final SharedCache sharedCache = new LocalSharedCache();
+    private final CacheCodec cacheCodec = new CacheCodec(512);
+    
+    @Test
+    @DisplayName("按Token吊销只影响该Token")
+    void testRevokeToken() {
+        TokenRevocationStore store = new TokenRevocationStore(sharedCache, cacheCodec, 3600, 1000);
+        long now = System.currentTimeMillis();
+        JwtClaims a = claims("a", 1L, now - 1000, now + 60_000);
+        JwtClaims b = claims("b", 1L, now - 1000, now + 60_000);
+        
+        store.revokeToken(a);
+        assertTrue(store.isRevoked(a));
+        assertFalse(store.isRevoked(b));
+        
+        // 已过期的Token不必记录
+        store.revokeToken(claims("c", 1L, now - 2000, now - 1000));
+        assertEquals(1, store.revokedTokenCount());
+    }
+    
+    @Test
+    @DisplayName("按用户吊销只影响之前签发的Token")
+    void testRevokeUser() {
+        TokenRevocationStore store = new TokenRevocationStore(sharedCache, cacheCodec, 3600, 1000);
+        long now = System.currentTimeMillis();
+        JwtClaims before = claims("a", 7L, now - 5000, now + 60_000);
+        JwtClaims otherUser = claims("b", 8L, now - 5000, now + 60_000);
+        
+        store.revokeUser(7L);
+        assertTrue(store.isRevoked(before));
+        assertFalse(store.isRevoked(otherUser));
+        assertFalse(store.isRevoked(claims("c", 7L, now + 2000, now + 60_000)), "之后签发的Token应有效");
+    }
+    
+    @Test
+    @DisplayName("清理过期条目后过滤器重建，未过期的仍有效")
+    void testPrune() throws InterruptedException {
+        TokenRevocationStore store = new TokenRevocationStore(sharedCache, cacheCodec, 3600, 1000);
+        long now = System.currentTimeMillis();
+        JwtClaims shortLived = claims("short", 1L, now - 1000, now + 50);
+        JwtClaims longLived = claims("long", 1L, now - 1000, now + 60_000);
+        store.revokeToken(shortLived);
+        store.revokeToken(longLived);
+        
+        Thread.sleep(100);
+        store.prune();
+        assertEquals(1, store.revokedTokenCount());
+        assertTrue(store.isRevoked(longLived));
+    }
+    
+    @Test
+    @DisplayName("重启后从共享快照恢复")
+    void testRestoreFromSnapshot() {
+        TokenRevocationStore store = new TokenRevocationStore(sharedCache, cacheCodec, 3600, 1000);
+        long now = System.currentTimeMillis();
+        JwtClaims token = claims("a", 1L, now - 1000, now + 60_000);
+        store.revokeToken(token);
+        store.revokeUser(9L);
+        
+        TokenRevocationStore restarted = new TokenRevocationStore(sharedCache, cacheCodec, 3600, 1000);
+        assertTrue(restarted.isRevoked(token));
+        assertTrue(restarted.isRevoked(claims("b", 9L, now - 1000, now + 60_000)));
+    }
+    
+    private JwtClaims claims(String tokenId, Long userId, long issuedAt, long expiresAt) {
+        return new JwtClaims(tokenId, "user" + userId, userId, "USER", issuedAt, expiresAt);
+    }
+}
@@ -1,5 +1,8 @@
 package com.stall.platform.service;
 
+import com.stall.platform.common.CountMode;
+import com.stall.platform.common.CountedPage;
+import com.stall.platform.common.CursorPage;
 import com.stall.platform.entity.*;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -7,6 +10,12 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -148,6 +157,100 @@ class FeedbackServiceTest {
         assertNotNull(detail.getUsername(), "应该包含用户名");
     }
     
+    @Test
+    @Order(9)
+    @DisplayName("游标分页-逐页读取不重不漏")
+    void testCursorList() {
+        Set<Long> submitted = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            Feedback feedback = createTestFeedback(1);
+            feedbackService.submit(feedback);
+            submitted.add(feedback.getId());
+        }
+        
+        List<Feedback> all = new ArrayList<>();
+        String cursor = "";
+        int pages = 0;
+        while (cursor != null) {
+            CursorPage<Feedback> page = feedbackService.cursorList(cursor, 10, testUserId, null, null);
+            all.addAll(page.getRecords());
+            assertEquals(page.getHasMore(), page.getNextCursor() != null, "有下一页时才返回游标");
+            cursor = page.getNextCursor();
+            pages++;
+        }
+        
+        assertEquals(3, pages, "25条按每页10条应分3页");
+        assertEquals(submitted, all.stream().map(Feedback::getId).collect(Collectors.toSet()),
+                "应该完整读到全部记录");
+        assertEquals(25, all.size(), "不应有重复记录");
+        for (int i = 0; i < all.size() - 1; i++) {
+            Feedback current = all.get(i);
+            Feedback next = all.get(i + 1);
+            int cmp = current.getCreateTime().compareTo(next.getCreateTime());
+            assertTrue(cmp > 0 || (cmp == 0 && current.getId() > next.getId()), "应按创建时间、ID倒序排列");
+        }
+        assertNotNull(all.get(0).getUsername(), "游标分页结果也应包含用户名");
+    }
+    
+    @Test
+    @Order(10)
+    @DisplayName("游标分页-无效游标")
+    void testCursorListInvalidCursor() {
+        assertThrows(IllegalArgumentException.class,
+                () -> feedbackService.cursorList("not-a-cursor", 10, testUserId, null, null));
+    }
+    
+    @Test
+    @Order(11)
+    @DisplayName("分页总数-不统计时用hasMore判断下一页")
+    void testPageListWithoutCount() {
+        for (int i = 0; i < 5; i++) {
+            feedbackService.submit(createTestFeedback(2));
+        }
+        var exact = feedbackService.pageListForAdmin(1, 1000, 2, 0, CountMode.EXACT);
+        long total = exact.getTotal();
+        assertTrue(total >= 5, "应该至少有5条记录");
+        
+        // 倒数第二页有下一页，最后一页没有，且记录与精确分页一致
+        long lastPage = (total + 1) / 2;
+        var beforeLast = feedbackService.pageListForAdmin((int) lastPage - 1, 2, 2, 0, CountMode.NONE);
+        var last = feedbackService.pageListForAdmin((int) lastPage, 2, 2, 0, CountMode.NONE);
+        var lastExact = feedbackService.pageListForAdmin((int) lastPage, 2, 2, 0, CountMode.EXACT);
+        assertEquals(Boolean.TRUE, ((CountedPage<?>) beforeLast).getHasMore());
+        assertEquals(Boolean.FALSE, ((CountedPage<?>) last).getHasMore());
+        assertEquals(2, beforeLast.getRecords().size(), "不统计总数时每页条数不变");
+        assertEquals(lastExact.getRecords().stream().map(Feedback::getId).toList(),
+                last.getRecords().stream().map(Feedback::getId).toList(), "探测查询的偏移量应与精确分页一致");
+    }
+    
+    @Test
+    @Order(12)
+    @DisplayName("分页总数-缓存与估算方式结果一致")
+    void testPageListCachedCount() {
+        for (int i = 0; i < 3; i++) {
+            feedbackService.submit(createTestFeedback(3));
+        }
+        long exact = feedbackService.pageListForAdmin(1, 10, 3, null, CountMode.EXACT).getTotal();
+        assertEquals(exact, feedbackService.pageListForAdmin(1, 10, 3, null, CountMode.CACHED).getTotal());
+        assertEquals(exact, feedbackService.pageListForAdmin(1, 10, 3, null, CountMode.ESTIMATED).getTotal(),
+                "有筛选条件时估算方式退化为缓存计数");
+        assertThrows(IllegalArgumentException.class, () -> CountMode.of("approx"));
+    }
+    
+    @Test
+    @Order(13)
+    @DisplayName("游标分页-每页条数限制在 1 到上限之间")
+    void testCursorListPageSizeClamped() {
+        for (int i = 0; i < CursorPage.MAX_PAGE_SIZE + 5; i++) {
+            feedbackService.submit(createTestFeedback(2));
+        }
+        
+        CursorPage<Feedback> page = feedbackService.cursorList("", Integer.MAX_VALUE, testUserId, null, null);
+        assertEquals(CursorPage.MAX_PAGE_SIZE, page.getRecords().size());
+        assertTrue(page.getHasMore());
+        assertEquals(1, feedbackService.cursorList("", -5, testUserId, null, null).getRecords().size());
+    }
+    
     private Feedback createTestFeedback(int type) {
         Feedback feedback = new Feedback();
         feedback.setUserId(testUserId);
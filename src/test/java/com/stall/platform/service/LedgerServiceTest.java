@@ -0,0 +1,193 @@
+package com.stall.platform.service;
+
+import com.stall.platform.entity.LedgerEntry;
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.entity.Stall;
+import com.stall.platform.entity.User;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 租户账务测试
+ * 测试：租赁入账、登记/撤销支付、退还押金、借贷平衡、余额快照与历史余额回放
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class LedgerServiceTest {
+    
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private RentalRecordService rentalRecordService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private StallService stallService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Long testUserId;
+    private Long testStallId;
+    private RentalRecord testRecord;
+    
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername("ledger_user_" + System.nanoTime());
+        user.setPassword("test123");
+        userService.register(user);
+        testUserId = userService.findByUsername(user.getUsername()).getId();
+        
+        Stall stall = new Stall();
+        stall.setStallNo("LEDGER_" + System.nanoTime());
+        stall.setName("账务测试摊位");
+        stall.setRentPrice(new BigDecimal("1000.00"));
+        stall.setStatus(1);
+        stallService.save(stall);
+        testStallId = stall.getId();
+        
+        testRecord = rental();
+        rentalRecordService.save(testRecord);
+    }
+    
+    @Test
+    @Order(1)
+    @DisplayName("租赁入账后应付租金和押金，重复入账不重复记账，各科目借贷平衡")
+    void testChargeRentals() {
+        ledgerService.chargeRentals(List.of(testRecord));
+        ledgerService.chargeRentals(List.of(testRecord));
+        
+        LedgerService.TenantBalance balance = ledgerService.getBalance(testUserId);
+        assertAmount("4000.00", balance.outstanding());
+        assertAmount("3000.00", balance.rentOutstanding());
+        assertAmount("1000.00", balance.depositOutstanding());
+        assertAmount("0.00", balance.depositHeld());
+        assertAmount("0.00", balance.accounts().values().stream().reduce(BigDecimal.ZERO, BigDecimal::add));
+        assertEquals(4, entryCount());
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("登记已支付时结清应收，改回未支付时追加冲销分录而不修改原分录")
+    void testPaymentAndReversal() {
+        ledgerService.chargeRentals(List.of(testRecord));
+        assertTrue(rentalRecordService.updatePaymentStatus(testRecord.getId(), 1));
+        
+        LedgerService.TenantBalance paid = ledgerService.getBalance(testUserId);
+        assertAmount("0.00", paid.outstanding());
+        assertAmount("1000.00", paid.depositHeld());
+        assertAmount("4000.00", paid.accounts().get(LedgerService.CASH));
+        // 重复登记不重复记账
+        assertTrue(rentalRecordService.updatePaymentStatus(testRecord.getId(), 1));
+        assertEquals(7, entryCount());
+        
+        assertTrue(rentalRecordService.updatePaymentStatus(testRecord.getId(), 0));
+        LedgerService.TenantBalance reversed = ledgerService.getBalance(testUserId);
+        assertAmount("4000.00", reversed.outstanding());
+        assertAmount("0.00", reversed.depositHeld());
+        assertAmount("0.00", reversed.accounts().get(LedgerService.CASH));
+        assertEquals(10, entryCount());
+    }
+    
+    @Test
+    @Order(3)
+    @DisplayName("未入账的租赁登记支付时先补记应收")
+    void testSettleUncharged() {
+        assertTrue(rentalRecordService.updatePaymentStatus(testRecord.getId(), 1));
+        LedgerService.TenantBalance balance = ledgerService.getBalance(testUserId);
+        assertAmount("0.00", balance.outstanding());
+        assertAmount("1000.00", balance.depositHeld());
+        assertAmount("-3000.00", balance.accounts().get(LedgerService.RENT_INCOME));
+    }
+    
+    @Test
+    @Order(4)
+    @DisplayName("退还押金：租赁中不能退，结束后退还已收部分，不能重复退")
+    void testRefundDeposit() {
+        ledgerService.chargeRentals(List.of(testRecord));
+        ledgerService.recordPayments(List.of(new LedgerService.Payment(testRecord.getId(),
+                new BigDecimal("3000.00"), new BigDecimal("600.00"), "RENT-" + testRecord.getId())));
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.refundDeposit(testRecord.getId()));
+        
+        assertTrue(rentalRecordService.terminate(testRecord.getId()));
+        assertAmount("600.00", ledgerService.refundDeposit(testRecord.getId()));
+        LedgerService.TenantBalance balance = ledgerService.getBalance(testUserId);
+        assertAmount("0.00", balance.outstanding());
+        assertAmount("0.00", balance.depositHeld());
+        assertAmount("3000.00", balance.accounts().get(LedgerService.CASH));
+        assertThrows(IllegalArgumentException.class, () -> ledgerService.refundDeposit(testRecord.getId()));
+    }
+    
+    @Test
+    @Order(5)
+    @DisplayName("分录数达到快照间隔时写快照，历史余额从最近快照回放后与当时的余额一致")
+    void testSnapshotAndHistory() throws InterruptedException {
+        LocalDateTime beforeAll = LocalDateTime.now();
+        Thread.sleep(5);
+        List<RentalRecord> records = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            records.add(rental());
+        }
+        rentalRecordService.saveBatch(records);
+        ledgerService.chargeRentals(records);
+        Integer snapshots = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM ledger_snapshot WHERE user_id = ?",
+                Integer.class, testUserId);
+        assertEquals(LedgerService.ACCOUNTS.size(), snapshots, "120 条分录应触发一次快照");
+        
+        Thread.sleep(5);
+        LocalDateTime afterCharge = LocalDateTime.now();
+        LedgerService.TenantBalance charged = ledgerService.getBalance(testUserId);
+        Thread.sleep(5);
+        for (int i = 0; i < 5; i++) {
+            rentalRecordService.updatePaymentStatus(records.get(i).getId(), 1);
+        }
+        LedgerService.TenantBalance current = ledgerService.getBalance(testUserId);
+        assertAmount("100000.00", current.outstanding());
+        
+        assertEquals(charged.accounts(), ledgerService.getBalanceAt(testUserId, afterCharge).accounts());
+        assertEquals(current.accounts(), ledgerService.getBalanceAt(testUserId, LocalDateTime.now()).accounts());
+        assertAmount("0.00", ledgerService.getBalanceAt(testUserId, beforeAll).outstanding());
+        
+        assertEquals(entryCount(), ledgerService.pageEntries(1, 10, testUserId, null).getTotal());
+    }
+    
+    private RentalRecord rental() {
+        RentalRecord record = new RentalRecord();
+        record.setApplicationId(1L);
+        record.setUserId(testUserId);
+        record.setStallId(testStallId);
+        record.setStartDate(LocalDate.now());
+        record.setEndDate(LocalDate.now().plusMonths(3));
+        record.setRentAmount(new BigDecimal("3000.00"));
+        record.setDeposit(new BigDecimal("1000.00"));
+        record.setPaymentStatus(0);
+        record.setStatus(1);
+        return record;
+    }
+    
+    private long entryCount() {
+        return ledgerService.lambdaQuery().eq(LedgerEntry::getUserId, testUserId).count();
+    }
+    
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "期望 " + expected + "，实际 " + actual);
+    }
+}
@@ -0,0 +1,171 @@
+package com.stall.platform.service;
+
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.entity.*;
+import org.apache.ibatis.executor.statement.StatementHandler;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 关联数据批量解析测试
+ * 测试：列表页的SQL条数不随每页行数增长
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class ReferenceResolverTest {
+    
+    @Autowired
+    private RentalRecordService rentalRecordService;
+    
+    @Autowired
+    private FeedbackService feedbackService;
+    
+    @Autowired
+    private StallService stallService;
+    
+    @Autowired
+    private UserService userService;
+    
+    @Autowired
+    private QueryCounter queryCounter;
+    
+    private Long testStallId;
+    
+    @BeforeEach
+    void setUp() {
+        // 每条记录使用不同的用户和摊位，逐行查询时SQL条数会线性增长
+        for (int i = 0; i < 10; i++) {
+            User user = new User();
+            user.setUsername("resolver_user_" + i + "_" + System.nanoTime());
+            user.setPassword("test123");
+            user.setNickname("处理人" + i);
+            user.setRole("USER");
+            user.setStatus(1);
+            userService.save(user);
+            
+            Stall stall = new Stall();
+            stall.setStallNo("RESOLVER_" + i + "_" + System.nanoTime());
+            stall.setName("批量解析摊位" + i);
+            stall.setRentPrice(new BigDecimal("1000.00"));
+            stall.setStatus(1);
+            stallService.save(stall);
+            testStallId = stall.getId();
+            
+            RentalRecord record = new RentalRecord();
+            record.setApplicationId(1L);
+            record.setUserId(user.getId());
+            record.setStallId(stall.getId());
+            record.setStartDate(LocalDate.now());
+            record.setEndDate(LocalDate.now().plusMonths(1));
+            record.setRentAmount(new BigDecimal("1000.00"));
+            record.setPaymentStatus(0);
+            record.setStatus(1);
+            rentalRecordService.save(record);
+            
+            Feedback feedback = new Feedback();
+            feedback.setUserId(user.getId());
+            feedback.setStallId(stall.getId());
+            feedback.setHandlerId(user.getId());
+            feedback.setType(2);
+            feedback.setTitle("批量解析反馈" + i);
+            feedback.setContent("内容");
+            feedback.setStatus(2);
+            feedbackService.save(feedback);
+        }
+    }
+    
+    @Test
+    @Order(1)
+    @DisplayName("租赁列表-SQL条数与页大小无关")
+    void testRentalPageQueryCountIsConstant() {
+        queryCounter.reset();
+        IPage<RentalRecord> small = rentalRecordService.pageListForAdmin(1, 2, null, 1);
+        int smallQueries = queryCounter.get();
+        
+        queryCounter.reset();
+        IPage<RentalRecord> large = rentalRecordService.pageListForAdmin(1, 10, null, 1);
+        int largeQueries = queryCounter.get();
+        
+        assertTrue(smallQueries > 0, "应统计到SQL执行");
+        assertEquals(2, small.getRecords().size());
+        assertEquals(10, large.getRecords().size());
+        // 同一事务内相同的COUNT可能命中一级缓存，因此只要求不增长
+        assertTrue(largeQueries <= smallQueries, "每页行数增加不应增加SQL条数");
+        assertTrue(large.getRecords().stream().allMatch(r -> r.getUsername() != null && r.getStallNo() != null),
+                "每行都应填充用户名和摊位编号");
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("反馈列表-提交人与处理人合并查询")
+    void testFeedbackPageQueryCountIsConstant() {
+        queryCounter.reset();
+        IPage<Feedback> page = feedbackService.pageListForAdmin(1, 10, 2, 2);
+        
+        assertEquals(10, page.getRecords().size());
+        // 连接查询 + COUNT，不随行数增长
+        assertTrue(queryCounter.get() <= 2, "反馈列表SQL条数应为常数，实际: " + queryCounter.get());
+        assertTrue(page.getRecords().stream().allMatch(f -> f.getHandlerName() != null && f.getStallName() != null),
+                "每行都应填充处理人和摊位名称");
+    }
+    
+    @Test
+    @Order(3)
+    @DisplayName("详情查询-单条记录同样可用")
+    void testDetailUsesResolver() {
+        IPage<RentalRecord> page = rentalRecordService.pageList(1, 10, null, testStallId);
+        RentalRecord detail = rentalRecordService.getDetailById(page.getRecords().get(0).getId());
+        assertNotNull(detail.getUsername());
+        assertEquals("批量解析摊位9", detail.getStallName());
+    }
+    
+    @TestConfiguration
+    static class QueryCounterConfig {
+        
+        @Bean
+        QueryCounter queryCounter() {
+            return new QueryCounter();
+        }
+    }
+    
+    /**
+     * 统计预编译的SQL条数
+     */
+    @Intercepts(@Signature(type = StatementHandler.class, method = "prepare", args = {Connection.class, Integer.class}))
+    static class QueryCounter implements Interceptor {
+        
+        private final AtomicInteger count = new AtomicInteger();
+        
+        @Override
+        public Object intercept(Invocation invocation) throws Throwable {
+            count.incrementAndGet();
+            return invocation.proceed();
+        }
+        
+        void reset() {
+            count.set(0);
+        }
+        
+        int get() {
+            return count.get();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.stall.platform.service;
+
+import com.stall.platform.entity.BillingRun;
+import com.stall.platform.entity.RentalInvoice;
+import com.stall.platform.service.support.BillingEngine;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 月度账单生成测试
+ * 测试：按账期流式生成账单（按天分摊/排除终止和无交集的记录）、重复执行幂等、失败或中断后从断点续跑
+ * 账单按批在独立事务中提交，本类不使用测试事务，数据在每个用例后清理
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class RentalInvoiceServiceTest {
+    
+    private static final long USER_ID = 992_001L;
+    private static final long STALL_ID = 992_100L;
+    private static final YearMonth PERIOD = YearMonth.of(2035, 7);
+    private static final int FULL = 2400;
+    private static final int PARTIAL = 300;
+    
+    @Autowired
+    private RentalInvoiceService invoiceService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @BeforeEach
+    void setUp() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < FULL; i++) {
+            rows.add(rental(LocalDate.of(2035, 1, 1), LocalDate.of(2035, 12, 31), "36500.00", 1));  // 365 天，每天 100
+        }
+        for (int i = 0; i < PARTIAL; i++) {
+            rows.add(rental(LocalDate.of(2035, 7, 16), LocalDate.of(2036, 7, 15), "36600.00", 2));  // 366 天，每天 100
+        }
+        rows.add(rental(LocalDate.of(2035, 1, 1), LocalDate.of(2035, 12, 31), "36500.00", 3));  // 提前终止
+        rows.add(rental(LocalDate.of(2035, 8, 1), LocalDate.of(2036, 7, 31), "36600.00", 1));  // 与账期无交集
+        jdbcTemplate.batchUpdate("INSERT INTO rental_record (application_id, user_id, stall_id, start_date, end_date, "
+                + "rent_amount, deposit, payment_status, status) VALUES (0, ?, ?, ?, ?, ?, 1000, 0, ?)", rows);
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM rental_invoice WHERE period = ?", PERIOD.toString());
+        jdbcTemplate.update("DELETE FROM billing_run WHERE period = ?", PERIOD.toString());
+        jdbcTemplate.update("DELETE FROM rental_record WHERE user_id = ?", USER_ID);
+    }
+    
+    @Test
+    @Order(1)
+    @DisplayName("生成账期账单，租金总额按天分摊到账期，重复执行不重复生成")
+    void testRunBilling() {
+        long started = System.currentTimeMillis();
+        BillingRun run = invoiceService.runBilling(PERIOD);
+        long elapsed = System.currentTimeMillis() - started;
+        
+        assertEquals(BillingEngine.COMPLETED, run.getStatus());
+        assertEquals(FULL + PARTIAL, run.getTotalCount());
+        assertEquals(FULL + PARTIAL, run.getProcessedCount());
+        assertEquals(FULL + PARTIAL, run.getInvoiceCount());
+        assertEquals(FULL + PARTIAL, countInvoices());
+        assertTrue(elapsed < 30_000, "生成 " + (FULL + PARTIAL) + " 张账单耗时 " + elapsed + "ms");
+        
+        List<RentalInvoice> partial = invoiceService.lambdaQuery()
+                .eq(RentalInvoice::getPeriod, PERIOD.toString())
+                .eq(RentalInvoice::getPeriodStart, LocalDate.of(2035, 7, 16))
+                .list();
+        assertEquals(PARTIAL, partial.size());
+        assertEquals(0, new BigDecimal("1600.00").compareTo(partial.get(0).getAmount()), "账期内 16 天");
+        RentalInvoice full = invoiceService.lambdaQuery()
+                .eq(RentalInvoice::getPeriod, PERIOD.toString())
+                .eq(RentalInvoice::getPeriodStart, PERIOD.atDay(1))
+                .last("LIMIT 1").one();
+        assertEquals(0, new BigDecimal("3100.00").compareTo(full.getAmount()), "账期内 31 天");
+        assertEquals(PERIOD.atEndOfMonth(), full.getPeriodEnd());
+        assertEquals("INV203507-" + full.getRentalId(), full.getInvoiceNo());
+        assertEquals(0, full.getStatus());
+        
+        BillingRun again = invoiceService.runBilling(PERIOD);
+        assertEquals(run.getId(), again.getId());
+        assertEquals(FULL + PARTIAL, countInvoices(), "已完成的账期不应重复生成");
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("失败或租约过期的批次从断点续跑，断点之后的账单补齐且不重复")
+    void testResume() {
+        BillingRun run = invoiceService.runBilling(PERIOD);
+        Long checkpoint = jdbcTemplate.queryForObject("SELECT MIN(id) + 1000 FROM rental_record WHERE user_id = ?",
+                Long.class, USER_ID);
+        // 模拟在断点之后宕机：断点之后的账单未提交，批次停留在执行中且长时间没有进度
+        jdbcTemplate.update("DELETE FROM rental_invoice WHERE period = ? AND rental_id > ?", PERIOD.toString(),
+                checkpoint);
+        jdbcTemplate.update("UPDATE billing_run SET status = 0, last_rental_id = ?, update_time = ? WHERE id = ?",
+                checkpoint, LocalDateTime.now().minusHours(1), run.getId());
+        
+        BillingRun resumed = invoiceService.runBilling(PERIOD);
+        assertEquals(BillingEngine.COMPLETED, resumed.getStatus());
+        assertEquals(FULL + PARTIAL, countInvoices());
+        assertEquals(FULL + PARTIAL, resumed.getInvoiceCount());
+        
+        // 失败的批次同样可续跑；断点之前已存在的账单被忽略
+        jdbcTemplate.update("UPDATE billing_run SET status = 2, last_rental_id = 0 WHERE id = ?", run.getId());
+        assertEquals(BillingEngine.COMPLETED, invoiceService.runBilling(PERIOD).getStatus());
+        assertEquals(FULL + PARTIAL, countInvoices());
+        
+        // 执行中且租约未过期的批次不会被接管
+        jdbcTemplate.update("UPDATE billing_run SET status = 0, update_time = ? WHERE id = ?",
+                LocalDateTime.now(), run.getId());
+        assertEquals(BillingEngine.RUNNING, invoiceService.runBilling(PERIOD).getStatus());
+    }
+    
+    private long countInvoices() {
+        return invoiceService.lambdaQuery().eq(RentalInvoice::getPeriod, PERIOD.toString()).count();
+    }
+    
+    private static Object[] rental(LocalDate start, LocalDate end, String rentAmount, int status) {
+        return new Object[]{USER_ID, STALL_ID, Date.valueOf(start), Date.valueOf(end), new BigDecimal(rentAmount),
+                status};
+    }
+}
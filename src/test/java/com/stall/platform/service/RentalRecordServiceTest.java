@@ -1,14 +1,22 @@
 package com.stall.platform.service;
 
+import com.stall.platform.cache.SharedCache;
 import com.stall.platform.entity.*;
+import com.stall.platform.mapper.RentalRecordMapper;
+import com.stall.platform.service.support.RentalExpiryScheduler;
+import com.stall.platform.service.support.StallCalendar;
 import org.junit.jupiter.api.*;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -34,6 +42,27 @@ class RentalRecordServiceTest {
     @Autowired
     private StallApplicationService applicationService;
     
+    @Autowired
+    private RentalInvoiceService invoiceService;
+    
+    @Autowired
+    private LedgerService ledgerService;
+    
+    @Autowired
+    private RentalExpiryScheduler expiryScheduler;
+    
+    @Autowired
+    private RentalRecordMapper rentalRecordMapper;
+    
+    @Autowired
+    private StallCalendar calendar;
+    
+    @Autowired
+    private SharedCache sharedCache;
+    
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    
     private Long testUserId;
     private Long testStallId;
     private Long testRecordId;
@@ -190,4 +219,111 @@ class RentalRecordServiceTest {
         assertTrue(record.getEndDate().isAfter(record.getStartDate()), 
                 "结束日期应该在开始日期之后");
     }
+    
+    @Test
+    @Order(10)
+    @DisplayName("租赁到期-结束日期次日改为已到期并释放摊位，另一节点不重复处理")
+    void testExpire() {
+        LocalDate endDate = rentalRecordService.getById(testRecordId).getEndDate();
+        expiryScheduler.rebuild(LocalDate.now());
+        // 模拟另一个节点：同样从库中重建时间轮
+        RentalExpiryScheduler otherNode = new RentalExpiryScheduler(rentalRecordMapper, stallService, calendar,
+                sharedCache, transactionManager, false, 200);
+        otherNode.rebuild(LocalDate.now());
+        
+        expiryScheduler.expire(endDate);
+        assertEquals(1, rentalRecordService.getById(testRecordId).getStatus(), "结束日期当天仍在租期内");
+        
+        assertTrue(expiryScheduler.expire(endDate.plusDays(1)) >= 1);
+        assertEquals(2, rentalRecordService.getById(testRecordId).getStatus(), "应为已到期");
+        assertEquals(0, stallService.getById(testStallId).getStatus(), "摊位应释放为空闲");
+        assertEquals(0, otherNode.expire(endDate.plusDays(1)), "已处理的记录不应再次处理");
+    }
+    
+    @Test
+    @Order(11)
+    @DisplayName("银行流水对账-按参考号和金额匹配并批量登记支付，返回未匹配/有歧义/已支付的异常行")
+    void testReconcilePayments() throws Exception {
+        RentalInvoice first = invoice("2099-01");
+        RentalInvoice second = invoice("2099-02");
+        RentalInvoice third = invoice("2099-03");
+        RentalRecord paid = rentalRecordService.getById(testRecordId);
+        paid.setId(null);
+        paid.setPaymentStatus(1);
+        rentalRecordService.save(paid);
+        
+        String csv = "\uFEFF交易日期,摘要,金额,对方户名\n"
+                + "2099-01-05,\"租金 " + first.getInvoiceNo() + "\",\"1,000.00\",张三\n"
+                + "2099-01-05," + second.getInvoiceNo().toLowerCase() + ",999.00,张三\n"
+                + "2099-01-06,RENT-" + testRecordId + " 租金及押金,4000,张三\n"
+                + "\n"
+                + "2099-01-06,转账,500.00,李四\n"
+                + "2099-01-07," + third.getInvoiceNo() + ",abc,张三\n"
+                + "2099-01-07," + third.getInvoiceNo() + ",1000.00,张三\n"
+                + "2099-01-08,付款 " + third.getInvoiceNo() + ",1000.00,张三\n"
+                + "2099-01-08,RENT-" + paid.getId() + ",3000.00,王五\n"
+                + "2099-01-09,INV209912-999999999,1000.00,赵六\n";
+        RentalRecordService.ReconcileReport report = rentalRecordService.reconcilePayments(new StringReader(csv));
+        
+        assertEquals(9, report.totalLines());
+        assertEquals(2, report.matchedLines());
+        assertEquals(1, report.invoicesPaid());
+        assertEquals(1, report.rentalsPaid());
+        assertEquals(0, new BigDecimal("5000.00").compareTo(report.matchedAmount()));
+        Map<Integer, RentalRecordService.ReconcileIssueType> issues = report.issues().stream()
+                .collect(Collectors.toMap(RentalRecordService.ReconcileIssue::lineNo,
+                        RentalRecordService.ReconcileIssue::type));
+        assertEquals(Map.of(
+                3, RentalRecordService.ReconcileIssueType.UNMATCHED,
+                6, RentalRecordService.ReconcileIssueType.UNMATCHED,
+                7, RentalRecordService.ReconcileIssueType.INVALID,
+                8, RentalRecordService.ReconcileIssueType.AMBIGUOUS,
+                9, RentalRecordService.ReconcileIssueType.AMBIGUOUS,
+                10, RentalRecordService.ReconcileIssueType.PAID,
+                11, RentalRecordService.ReconcileIssueType.UNMATCHED), issues);
+        
+        assertEquals(1, invoiceService.getById(first.getId()).getStatus());
+        assertEquals(0, invoiceService.getById(second.getId()).getStatus(), "金额不符不应登记");
+        assertEquals(0, invoiceService.getById(third.getId()).getStatus(), "多行对应同一账单不应登记");
+        assertEquals(1, rentalRecordService.getById(testRecordId).getPaymentStatus());
+        assertEquals(0, new BigDecimal("5000.00").compareTo(
+                ledgerService.getBalance(testUserId).accounts().get(LedgerService.CASH)), "收款应记入账务");
+        
+        // 再次导入同一文件：已登记的行列为已支付，不重复登记
+        RentalRecordService.ReconcileReport again = rentalRecordService.reconcilePayments(new StringReader(csv));
+        assertEquals(0, again.matchedLines());
+        assertEquals(RentalRecordService.ReconcileIssueType.PAID, again.issues().get(0).type());
+        
+        // 按块匹配时跨块的同一账单也列为有歧义
+        StringBuilder chunked = new StringBuilder("摘要,金额\n" + third.getInvoiceNo() + ",1000.00\n");
+        for (int i = 0; i < 1000; i++) {
+            chunked.append("转账,1.00\n");
+        }
+        chunked.append(third.getInvoiceNo()).append(",1000.00\n");
+        RentalRecordService.ReconcileReport split = rentalRecordService.reconcilePayments(
+                new StringReader(chunked.toString()));
+        assertEquals(1002, split.totalLines());
+        assertEquals(0, split.matchedLines());
+        assertEquals(RentalRecordService.ReconcileIssueType.AMBIGUOUS, split.issues().get(0).type());
+        assertEquals(RentalRecordService.ReconcileIssueType.AMBIGUOUS, split.issues().get(1001).type());
+        assertEquals(0, invoiceService.getById(third.getId()).getStatus());
+        
+        assertThrows(IllegalArgumentException.class,
+                () -> rentalRecordService.reconcilePayments(new StringReader("日期,对方户名\n2099-01-01,张三\n")));
+    }
+    
+    private RentalInvoice invoice(String period) {
+        RentalInvoice invoice = new RentalInvoice();
+        invoice.setInvoiceNo("INV" + period.replace("-", "") + "-" + testRecordId);
+        invoice.setRentalId(testRecordId);
+        invoice.setUserId(testUserId);
+        invoice.setStallId(testStallId);
+        invoice.setPeriod(period);
+        invoice.setPeriodStart(LocalDate.parse(period + "-01"));
+        invoice.setPeriodEnd(LocalDate.parse(period + "-28"));
+        invoice.setAmount(new BigDecimal("1000.00"));
+        invoice.setStatus(0);
+        invoiceService.save(invoice);
+        return invoice;
+    }
 }
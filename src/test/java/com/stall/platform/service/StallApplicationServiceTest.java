@@ -9,6 +9,8 @@ import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -213,6 +215,82 @@ class StallApplicationServiceTest {
         assertFalse(result, "不能审核已处理的申请");
     }
     
+    @Test
+    @Order(9)
+    @DisplayName("批量审核-混合通过/拒绝，同批次同一摊位只通过第一个，无效条目单独失败")
+    void testReviewBatch() {
+        Stall otherStall = new Stall();
+        otherStall.setStallNo("APPTEST_B_" + System.nanoTime());
+        otherStall.setName("批量审核摊位");
+        otherStall.setRentPrice(new BigDecimal("500.00"));
+        otherStall.setStatus(0);
+        stallService.save(otherStall);
+        
+        StallApplication first = createTestApplication();
+        StallApplication second = createTestApplication();
+        StallApplication rejected = createTestApplication();
+        StallApplication cancelled = createTestApplication();
+        StallApplication other = createTestApplication();
+        other.setStallId(otherStall.getId());
+        for (StallApplication application : List.of(first, second, rejected, cancelled, other)) {
+            applicationService.submit(application);
+        }
+        applicationService.cancel(cancelled.getId(), testUserId);
+        
+        List<StallApplicationService.ReviewResult> results = applicationService.reviewBatch(List.of(
+                new StallApplicationService.ReviewItem(first.getId(), 1, "通过"),
+                new StallApplicationService.ReviewItem(second.getId(), 1, "通过"),
+                new StallApplicationService.ReviewItem(rejected.getId(), 2, "拒绝"),
+                new StallApplicationService.ReviewItem(cancelled.getId(), 1, "通过"),
+                new StallApplicationService.ReviewItem(-1L, 1, "通过"),
+                new StallApplicationService.ReviewItem(first.getId(), 2, "重复"),
+                new StallApplicationService.ReviewItem(other.getId(), 1, "通过")), testAdminId);
+        
+        assertEquals(7, results.size());
+        assertTrue(results.get(0).success());
+        assertFalse(results.get(1).success(), "同一摊位只能通过一个申请");
+        assertTrue(results.get(2).success());
+        assertEquals("申请已处理", results.get(3).message());
+        assertEquals("申请不存在", results.get(4).message());
+        assertEquals("重复的申请", results.get(5).message());
+        assertTrue(results.get(6).success());
+        
+        assertEquals(1, applicationService.getById(first.getId()).getStatus());
+        assertEquals(testAdminId, applicationService.getById(first.getId()).getReviewerId());
+        assertEquals(0, applicationService.getById(second.getId()).getStatus());
+        assertEquals(2, applicationService.getById(rejected.getId()).getStatus());
+        assertEquals(1, stallService.getById(testStallId).getStatus());
+        assertEquals(1, stallService.getById(otherStall.getId()).getStatus());
+        RentalRecord record = rentalRecordService.lambdaQuery()
+                .eq(RentalRecord::getApplicationId, other.getId()).one();
+        assertNotNull(record, "通过的申请应生成租赁记录");
+        assertEquals(0, new BigDecimal("1000.00").compareTo(record.getRentAmount()));
+        assertEquals(2, rentalRecordService.lambdaQuery()
+                .in(RentalRecord::getApplicationId, first.getId(), other.getId()).count());
+    }
+    
+    @Test
+    @Order(10)
+    @DisplayName("批量审核-摊位非空闲时失败且申请保持待审核，超过上限报错")
+    void testReviewBatch_StallUnavailable() {
+        StallApplication application = createTestApplication();
+        applicationService.submit(application);
+        stallService.updateStatus(testStallId, 2);
+        
+        List<StallApplicationService.ReviewResult> results = applicationService.reviewBatch(
+                List.of(new StallApplicationService.ReviewItem(application.getId(), 1, "通过")), testAdminId);
+        assertFalse(results.get(0).success());
+        assertEquals(0, applicationService.getById(application.getId()).getStatus());
+        assertEquals(0, rentalRecordService.lambdaQuery()
+                .eq(RentalRecord::getApplicationId, application.getId()).count());
+        
+        List<StallApplicationService.ReviewItem> tooMany = new ArrayList<>();
+        for (long i = 0; i <= 500; i++) {
+            tooMany.add(new StallApplicationService.ReviewItem(i, 2, null));
+        }
+        assertThrows(IllegalArgumentException.class, () -> applicationService.reviewBatch(tooMany, testAdminId));
+    }
+    
     private StallApplication createTestApplication() {
         StallApplication application = new StallApplication();
         application.setUserId(testUserId);
@@ -0,0 +1,169 @@
+package com.stall.platform.service;
+
+import com.stall.platform.common.CursorPage;
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.entity.Stall;
+import com.stall.platform.entity.StallApplication;
+import com.stall.platform.service.support.StallCalendar;
+import com.stall.platform.service.support.StallStatusConflictException;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 摊位占用日历测试
+ * 测试：提交时拒绝与租赁重叠的申请、空闲摊位搜索、审核/取消/终止后日历随之更新、已出租摊位按日期审核后续申请
+ * 日历只在事务外使用内存索引，本类不使用测试事务，数据在每个用例后清理
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class StallCalendarTest {
+    
+    private static final long USER_ID = 991_001L;
+    private static final long REVIEWER_ID = 991_002L;
+    private static final LocalDate BASE = LocalDate.of(2031, 3, 1);
+    
+    @Autowired
+    private StallService stallService;
+    
+    @Autowired
+    private StallApplicationService applicationService;
+    
+    @Autowired
+    private RentalRecordService rentalRecordService;
+    
+    @Autowired
+    private StallCalendar calendar;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Long stallId;
+    private Long otherStallId;
+    
+    @BeforeEach
+    void setUp() {
+        stallId = createStall();
+        otherStallId = createStall();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        for (Long id : List.of(stallId, otherStallId)) {
+            jdbcTemplate.update("DELETE FROM rental_record WHERE stall_id = ?", id);
+            jdbcTemplate.update("DELETE FROM stall_application WHERE stall_id = ?", id);
+            jdbcTemplate.update("DELETE FROM stall WHERE id = ?", id);
+            calendar.markDirty(id);
+        }
+    }
+    
+    @Test
+    @Order(1)
+    @DisplayName("审核通过后重叠日期的申请被拒绝，不重叠的仍可提交")
+    void testRejectOverlappingSubmission() {
+        StallApplication first = submit(stallId, BASE, BASE.plusDays(30));
+        assertTrue(stallService.isFree(stallId, BASE, BASE.plusDays(30), false), "待审核申请不算占用");
+        assertFalse(stallService.isFree(stallId, BASE, BASE.plusDays(30), true));
+        
+        assertTrue(applicationService.review(first.getId(), 1, "通过", REVIEWER_ID));
+        assertFalse(stallService.isFree(stallId, BASE.plusDays(30), BASE.plusDays(40), false), "结束日期当天仍占用");
+        assertTrue(stallService.isFree(stallId, BASE.plusDays(31), BASE.plusDays(40), false));
+        assertThrows(StallStatusConflictException.class, () -> submit(stallId, BASE.minusDays(5), BASE));
+        assertThrows(IllegalArgumentException.class, () -> submit(stallId, BASE.plusDays(50), BASE.plusDays(40)));
+        assertNotNull(submit(stallId, BASE.plusDays(31), BASE.plusDays(60)).getId());
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("空闲摊位搜索，终止租赁和取消申请后恢复可选")
+    void testListFree() {
+        StallApplication rented = submit(stallId, BASE, BASE.plusDays(30));
+        applicationService.review(rented.getId(), 1, "通过", REVIEWER_ID);
+        StallApplication pending = submit(otherStallId, BASE.plusDays(10), BASE.plusDays(20));
+        
+        assertEquals(List.of(otherStallId), freeIds(BASE.plusDays(5), BASE.plusDays(15), false));
+        assertEquals(List.of(), freeIds(BASE.plusDays(5), BASE.plusDays(15), true));
+        assertEquals(List.of(stallId, otherStallId), freeIds(BASE.plusDays(40), BASE.plusDays(50), true));
+        // 被占用的摊位不占页内名额，同一页继续取其后的空闲摊位
+        CursorPage<Stall> page = stallService.listFree(BASE.plusDays(5), BASE.plusDays(15), null, false,
+                String.valueOf(stallId - 1), 1);
+        assertEquals(List.of(otherStallId), page.getRecords().stream().map(Stall::getId).toList());
+        
+        Long recordId = rentalRecordService.lambdaQuery().eq(RentalRecord::getStallId, stallId).one().getId();
+        assertTrue(rentalRecordService.terminate(recordId));
+        assertTrue(applicationService.cancel(pending.getId(), USER_ID));
+        assertEquals(List.of(stallId, otherStallId), freeIds(BASE.plusDays(5), BASE.plusDays(15), true));
+        assertThrows(IllegalArgumentException.class,
+                () -> stallService.listFree(BASE, BASE.plusDays(1), null, false, "abc", 10));
+    }
+    
+    @Test
+    @Order(3)
+    @DisplayName("已出租摊位的后续日期申请可以通过，最后一个租赁结束才恢复空闲")
+    void testApproveLaterBooking() {
+        StallApplication current = submit(stallId, BASE, BASE.plusDays(30));
+        assertTrue(applicationService.review(current.getId(), 1, "通过", REVIEWER_ID));
+        StallApplication later = submit(stallId, BASE.plusDays(31), BASE.plusDays(60));
+        StallApplication overlapping = submit(stallId, BASE.plusDays(50), BASE.plusDays(70));
+        
+        assertTrue(applicationService.review(later.getId(), 1, "通过", REVIEWER_ID));
+        assertEquals(1, stallService.getById(stallId).getStatus());
+        assertThrows(StallStatusConflictException.class,
+                () -> applicationService.review(overlapping.getId(), 1, "通过", REVIEWER_ID));
+        assertEquals(0, applicationService.getById(overlapping.getId()).getStatus(), "冲突的审核整体回滚");
+        
+        List<RentalRecord> records = rentalRecordService.lambdaQuery().eq(RentalRecord::getStallId, stallId)
+                .orderByAsc(RentalRecord::getStartDate).list();
+        assertEquals(2, records.size());
+        assertTrue(rentalRecordService.terminate(records.get(0).getId()));
+        assertEquals(1, stallService.getById(stallId).getStatus(), "还有后续租赁，保持已租用");
+        assertTrue(rentalRecordService.terminate(records.get(1).getId()));
+        assertEquals(0, stallService.getById(stallId).getStatus());
+    }
+    
+    private List<Long> freeIds(LocalDate start, LocalDate end, boolean includePending) {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            CursorPage<Stall> page = stallService.listFree(start, end, null, includePending, cursor, 2);
+            assertTrue(page.getRecords().size() <= 2);
+            page.getRecords().stream()
+                    .map(Stall::getId)
+                    .filter(id -> id.equals(stallId) || id.equals(otherStallId))
+                    .forEach(ids::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+        return ids;
+    }
+    
+    private StallApplication submit(Long stall, LocalDate start, LocalDate end) {
+        StallApplication application = new StallApplication();
+        application.setUserId(USER_ID);
+        application.setStallId(stall);
+        application.setStartDate(start);
+        application.setEndDate(end);
+        application.setBusinessType("餐饮");
+        applicationService.submit(application);
+        return application;
+    }
+    
+    private Long createStall() {
+        Stall stall = new Stall();
+        stall.setStallNo("CAL_" + System.nanoTime());
+        stall.setName("日历测试摊位");
+        stall.setRentPrice(new BigDecimal("600.00"));
+        stall.setStatus(0);
+        stallService.save(stall);
+        return stall.getId();
+    }
+}
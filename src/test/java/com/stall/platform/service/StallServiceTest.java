@@ -160,6 +160,19 @@ class StallServiceTest {
         assertNull(deleted, "删除后不应能查到(逻辑删除)");
     }
     
+    @Test
+    @Order(9)
+    @DisplayName("关键字匹配位置-连接查询带出类型名称")
+    void testPageListByLocationKeyword() {
+        Stall stall = createTestStall("LOC_" + System.currentTimeMillis());
+        stall.setLocation("东门广场北侧");
+        stallService.save(stall);
+        
+        var page = stallService.pageList(1, 10, testTypeId, null, "东门广场");
+        assertEquals(1, page.getTotal(), "应该按位置关键字匹配到摊位");
+        assertNotNull(page.getRecords().get(0).getTypeName(), "列表应包含类型名称");
+    }
+    
     private Stall createTestStall(String stallNo) {
         Stall stall = new Stall();
         stall.setStallNo(stallNo);
@@ -0,0 +1,197 @@
+package com.stall.platform.service;
+
+import com.stall.platform.entity.RentalRecord;
+import com.stall.platform.entity.Stall;
+import com.stall.platform.entity.StallApplication;
+import com.stall.platform.service.support.StallStateMachine;
+import com.stall.platform.service.support.StallStatusConflictException;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * 摊位状态机测试
+ * 测试：并发审核同一摊位的多个申请只有一个成功、并发终止租赁、状态转换规则、批量转换缺少影响行数时报错
+ * 并发场景需要各线程独立提交事务，本类不使用测试事务，数据在每个用例后清理
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class StallStateMachineTest {
+    
+    private static final long USER_ID = 990_001L;
+    private static final long REVIEWER_ID = 990_002L;
+    
+    @Autowired
+    private StallService stallService;
+    
+    @Autowired
+    private StallApplicationService applicationService;
+    
+    @Autowired
+    private RentalRecordService rentalRecordService;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    private Long stallId;
+    
+    @BeforeEach
+    void setUp() {
+        Stall stall = new Stall();
+        stall.setStallNo("FSM_" + System.nanoTime());
+        stall.setName("状态机测试摊位");
+        stall.setRentPrice(new BigDecimal("800.00"));
+        stall.setStatus(StallStateMachine.IDLE);
+        stallService.save(stall);
+        stallId = stall.getId();
+    }
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM rental_record WHERE stall_id = ?", stallId);
+        jdbcTemplate.update("DELETE FROM stall_application WHERE stall_id = ?", stallId);
+        jdbcTemplate.update("DELETE FROM stall WHERE id = ?", stallId);
+    }
+    
+    @Test
+    @Order(1)
+    @DisplayName("200个申请并发审核通过同一摊位，只有一个成功，只生成一条租赁记录")
+    void testConcurrentApprovalsSingleWinner() throws Exception {
+        int count = 200;
+        List<Long> applicationIds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            StallApplication application = new StallApplication();
+            application.setUserId(USER_ID + i);
+            application.setStallId(stallId);
+            application.setStartDate(LocalDate.now().plusDays(1));
+            application.setEndDate(LocalDate.now().plusMonths(3));
+            application.setBusinessType("餐饮");
+            application.setReason("并发审核测试");
+            applicationService.submit(application);
+            applicationIds.add(application.getId());
+        }
+        
+        AtomicInteger winners = new AtomicInteger();
+        AtomicInteger conflicts = new AtomicInteger();
+        List<Throwable> unexpected = new CopyOnWriteArrayList<>();
+        runConcurrently(32, applicationIds, id -> {
+            try {
+                if (applicationService.review(id, 1, "并发通过", REVIEWER_ID)) {
+                    winners.incrementAndGet();
+                }
+            } catch (StallStatusConflictException e) {
+                conflicts.incrementAndGet();
+            } catch (Throwable e) {
+                unexpected.add(e);
+            }
+        });
+        
+        assertTrue(unexpected.isEmpty(), "不应有其他异常: " + unexpected);
+        assertEquals(1, winners.get(), "只能有一个审核成功");
+        assertEquals(count - 1, conflicts.get());
+        assertEquals(StallStateMachine.RENTED, stallService.getById(stallId).getStatus());
+        assertEquals(1, rentalRecordService.lambdaQuery().eq(RentalRecord::getStallId, stallId).count());
+        // 失败的审核整体回滚，申请仍为待审核
+        assertEquals(1, applicationService.lambdaQuery().eq(StallApplication::getStallId, stallId)
+                .eq(StallApplication::getStatus, 1).count());
+        assertEquals(count - 1, applicationService.lambdaQuery().eq(StallApplication::getStallId, stallId)
+                .eq(StallApplication::getStatus, 0).count());
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("并发终止同一租赁记录，只有一个成功，摊位恢复空闲")
+    void testConcurrentTerminate() throws Exception {
+        StallApplication application = new StallApplication();
+        application.setUserId(USER_ID);
+        application.setStallId(stallId);
+        application.setStartDate(LocalDate.now());
+        application.setEndDate(LocalDate.now().plusMonths(1));
+        applicationService.submit(application);
+        assertTrue(applicationService.review(application.getId(), 1, "通过", REVIEWER_ID));
+        Long recordId = rentalRecordService.lambdaQuery().eq(RentalRecord::getStallId, stallId).one().getId();
+        
+        AtomicInteger terminated = new AtomicInteger();
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(recordId);
+        }
+        runConcurrently(16, ids, id -> {
+            if (rentalRecordService.terminate(id)) {
+                terminated.incrementAndGet();
+            }
+        });
+        
+        assertEquals(1, terminated.get());
+        assertEquals(3, rentalRecordService.getById(recordId).getStatus());
+        assertEquals(StallStateMachine.IDLE, stallService.getById(stallId).getStatus());
+    }
+    
+    @Test
+    @Order(3)
+    @DisplayName("状态转换规则：维护中不能直接出租，相同状态幂等，无效状态报错")
+    void testTransitionRules() {
+        assertTrue(stallService.updateStatus(stallId, StallStateMachine.MAINTENANCE));
+        assertTrue(stallService.updateStatus(stallId, StallStateMachine.MAINTENANCE));
+        assertFalse(stallService.updateStatus(stallId, StallStateMachine.RENTED));
+        assertFalse(stallService.compareAndSetStatus(stallId, StallStateMachine.IDLE, StallStateMachine.RENTED));
+        assertThrows(IllegalArgumentException.class,
+                () -> stallService.compareAndSetStatus(stallId, StallStateMachine.MAINTENANCE, StallStateMachine.RENTED));
+        assertThrows(IllegalArgumentException.class, () -> stallService.updateStatus(stallId, 9));
+        assertEquals(StallStateMachine.MAINTENANCE, stallService.getById(stallId).getStatus());
+        
+        assertTrue(stallService.updateStatus(stallId, StallStateMachine.IDLE));
+        assertTrue(stallService.compareAndSetStatus(stallId, StallStateMachine.IDLE, StallStateMachine.RENTED));
+        assertEquals(StallStateMachine.RENTED, stallService.getById(stallId).getStatus());
+        assertFalse(stallService.updateStatus(-1L, StallStateMachine.IDLE));
+    }
+    
+    @Test
+    @Order(4)
+    @DisplayName("批量转换：驱动不返回逐行影响行数时报错，而不是当作失败")
+    void testBatchWithoutRowCounts() {
+        JdbcTemplate noInfo = mock(JdbcTemplate.class);
+        when(noInfo.batchUpdate(anyString(), any(BatchPreparedStatementSetter.class)))
+                .thenReturn(new int[]{Statement.SUCCESS_NO_INFO, Statement.SUCCESS_NO_INFO});
+        StallStateMachine stateMachine = new StallStateMachine(null, noInfo, 4, 0, 0);
+        
+        assertThrows(IllegalStateException.class, () -> stateMachine.compareAndSetAll(List.of(1L, 2L),
+                StallStateMachine.IDLE, StallStateMachine.RENTED));
+    }
+    
+    private static void runConcurrently(int threads, List<Long> ids, Consumer<Long> task)
+            throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (Long id : ids) {
+                executor.submit(() -> {
+                    start.await();
+                    task.accept(id);
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            executor.shutdown();
+        }
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS), "并发任务超时");
+    }
+}
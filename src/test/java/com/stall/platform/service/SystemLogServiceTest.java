@@ -0,0 +1,315 @@
+package com.stall.platform.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.baomidou.mybatisplus.core.metadata.IPage;
+import com.stall.platform.common.CountMode;
+import com.stall.platform.entity.SystemLog;
+import com.stall.platform.service.support.LatencyAggregator;
+import com.stall.platform.service.support.OperationDictionary;
+import com.stall.platform.service.support.PageCounter;
+import com.stall.platform.service.support.SystemLogArchiver;
+import com.stall.platform.service.support.SystemLogWriter;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * 系统日志服务测试
+ * 测试：批量写入、操作日志切面、与逐条写入的耗时对比（perf，mvn test -Pperf 执行）、按月归档、时间范围查询、操作编码过滤、耗时分析
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class SystemLogServiceTest {
+    
+    @Autowired
+    private SystemLogService systemLogService;
+    
+    @Autowired
+    private SystemLogWriter systemLogWriter;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @Autowired
+    private PageCounter pageCounter;
+    
+    @Autowired
+    private OperationDictionary operationDictionary;
+    
+    @Autowired
+    private LatencyAggregator latencyAggregator;
+    
+    @Autowired
+    private MockMvc mockMvc;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Test
+    @Order(1)
+    @DisplayName("saveLog批量写入")
+    void testSaveLogBatched() {
+        String marker = "batch_" + System.currentTimeMillis();
+        long batchesBefore = (long) systemLogWriter.stats().get("batches");
+        for (int i = 0; i < 500; i++) {
+            systemLogService.saveLog(log(marker, i));
+        }
+        systemLogWriter.flush(10_000);
+        
+        assertEquals(500, systemLogService.lambdaQuery().eq(SystemLog::getOperation, marker).count());
+        long batches = (long) systemLogWriter.stats().get("batches") - batchesBefore;
+        assertTrue(batches > 0 && batches < 500, "应合并为少量批次写入，实际批次: " + batches);
+        assertEquals(0, systemLogWriter.stats().get("queueDepth"));
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("操作日志切面记录用户、参数、IP和耗时，密码打码")
+    void testOperationLogAspect() throws Exception {
+        String username = "oplog_" + System.currentTimeMillis();
+        Map<String, String> request = Map.of("username", username, "password", "secret123");
+        mockMvc.perform(post("/auth/register")
+                .with(r -> {
+                    r.setRemoteAddr("10.1.2.3");
+                    return r;
+                })
+                .header("X-Forwarded-For", "6.6.6.6")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isOk());
+        systemLogWriter.flush(10_000);
+        
+        List<SystemLog> logs = systemLogService.lambdaQuery()
+                .eq(SystemLog::getOperation, "用户注册")
+                .like(SystemLog::getParams, username)
+                .list();
+        assertEquals(1, logs.size());
+        SystemLog entry = logs.get(0);
+        assertEquals("AuthController.register", entry.getMethod());
+        assertEquals("10.1.2.3", entry.getIp(), "非受信任代理发来的转发头应被忽略");
+        assertNotNull(entry.getTime());
+        assertNotNull(entry.getCreateTime());
+        assertFalse(entry.getParams().contains("secret123"), "密码不应写入日志");
+    }
+    
+    @Test
+    @Order(3)
+    @Tag("perf")
+    @DisplayName("耗时对比：逐条INSERT / 队列批量写入")
+    void testThroughput() {
+        int count = 2000;
+        String marker = "perf_" + System.currentTimeMillis();
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            systemLogService.save(log(marker + "_single", i));
+        }
+        long single = System.nanoTime() - start;
+        
+        start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            systemLogService.saveLog(log(marker + "_batch", i));
+        }
+        long enqueue = System.nanoTime() - start;
+        systemLogWriter.flush(30_000);
+        long batched = System.nanoTime() - start;
+        
+        System.out.printf("写入%d条日志: 逐条INSERT %.1f ms; 入队 %.1f ms（请求线程耗时）, 批量写完 %.1f ms%n",
+                count, single / 1e6, enqueue / 1e6, batched / 1e6);
+        assertEquals(count, systemLogService.lambdaQuery().eq(SystemLog::getOperation, marker + "_batch").count());
+    }
+    
+    @Test
+    @Order(4)
+    @DisplayName("超过保留期的月份导出为gzip归档后删除，重跑不覆盖已有归档")
+    void testArchiveExpiredMonths(@TempDir Path dir) throws IOException {
+        String marker = "archive_" + System.currentTimeMillis();
+        insertAt(marker, LocalDateTime.of(2001, 1, 5, 10, 0));
+        insertAt(marker, LocalDateTime.of(2001, 1, 31, 23, 59, 59));
+        insertAt(marker, LocalDateTime.of(2001, 2, 1, 0, 0));
+        insertAt(marker, LocalDateTime.of(2001, 6, 15, 8, 0));
+        SystemLogArchiver archiver = new SystemLogArchiver(jdbcTemplate, pageCounter, objectMapper,
+                true, 3, 2, dir.toString());
+        
+        List<Path> archived = archiver.run(YearMonth.of(2001, 6));
+        
+        assertEquals(List.of(dir.resolve("system_log-200101.jsonl.gz"), dir.resolve("system_log-200102.jsonl.gz")),
+                archived);
+        List<String> january = readLines(archived.get(0));
+        assertEquals(2, january.size());
+        Map<?, ?> first = objectMapper.readValue(january.get(0), Map.class);
+        assertEquals(marker, first.get("operation"));
+        assertEquals("2001-01-05T10:00", first.get("create_time"));
+        assertEquals(1, readLines(archived.get(1)).size());
+        List<SystemLog> remaining = systemLogService.lambdaQuery().eq(SystemLog::getOperation, marker).list();
+        assertEquals(1, remaining.size());
+        assertEquals(LocalDateTime.of(2001, 6, 15, 8, 0), remaining.get(0).getCreateTime());
+        
+        // 再次执行没有可归档的月份
+        assertTrue(archiver.run(YearMonth.of(2001, 6)).isEmpty());
+        assertFalse(Files.exists(dir.resolve("system_log-200106.jsonl.gz")));
+        
+        // 上次删除中途失败留下的行：重跑另存为带序号的归档，不覆盖已有归档
+        insertAt(marker, LocalDateTime.of(2001, 1, 20, 9, 0));
+        assertEquals(List.of(dir.resolve("system_log-200101-1.jsonl.gz")), archiver.run(YearMonth.of(2001, 6)));
+        assertEquals(2, readLines(dir.resolve("system_log-200101.jsonl.gz")).size());
+        assertEquals(1, readLines(dir.resolve("system_log-200101-1.jsonl.gz")).size());
+    }
+    
+    @Test
+    @Order(5)
+    @DisplayName("按时间范围查询日志，左闭右开")
+    void testTimeRangeQuery() {
+        String marker = "range_" + System.currentTimeMillis();
+        insertAt(marker, LocalDateTime.of(2002, 3, 1, 0, 0));
+        insertAt(marker, LocalDateTime.of(2002, 3, 20, 12, 0));
+        insertAt(marker, LocalDateTime.of(2002, 4, 1, 0, 0));
+        LocalDateTime start = LocalDateTime.of(2002, 3, 1, 0, 0);
+        LocalDateTime end = LocalDateTime.of(2002, 4, 1, 0, 0);
+        
+        IPage<SystemLog> page = systemLogService.pageList(1, 10, null, marker, null, start, end, CountMode.EXACT);
+        assertEquals(2, page.getTotal());
+        assertEquals(LocalDateTime.of(2002, 3, 20, 12, 0), page.getRecords().get(0).getCreateTime());
+        assertEquals(2, systemLogService.cursorList("", 10, null, marker, null, start, end).getRecords().size());
+        assertEquals(3, systemLogService.pageList(1, 10, null, marker).getTotal());
+        assertThrows(IllegalArgumentException.class,
+                () -> systemLogService.pageList(1, 10, null, marker, null, end, start, CountMode.EXACT));
+    }
+    
+    @Test
+    @Order(6)
+    @DisplayName("操作编码：精确匹配、前缀匹配、未登记操作")
+    void testOperationCodeFilter() {
+        String prefix = "dict_" + System.currentTimeMillis() + "_";
+        for (int i = 0; i < 3; i++) {
+            systemLogService.saveLog(log(prefix + "create", i));
+        }
+        systemLogService.saveLog(log(prefix + "update", 0));
+        systemLogService.saveLog(log(prefix + "updateAll", 0));
+        systemLogService.saveLog(log("other_" + prefix, 0));
+        systemLogWriter.flush(10_000);
+        
+        Integer createCode = operationDictionary.codeOf(prefix + "create");
+        assertNotNull(createCode);
+        assertEquals(createCode, operationDictionary.find(prefix + "create"));
+        assertNotEquals(createCode, operationDictionary.codeOf(prefix + "update"));
+        IPage<SystemLog> exact = systemLogService.pageList(1, 10, null, prefix + "create");
+        assertEquals(3, exact.getTotal());
+        assertTrue(exact.getRecords().stream().allMatch(l -> createCode.equals(l.getOperationCode())));
+        // 精确匹配不包含以其为前缀的其他操作
+        assertEquals(1, systemLogService.pageList(1, 10, null, prefix + "update").getTotal());
+        assertEquals(5, systemLogService.pageList(1, 10, null, null, prefix, null, null, CountMode.EXACT).getTotal());
+        assertEquals(2, systemLogService.pageList(1, 10, null, null, prefix + "update", null, null, CountMode.EXACT)
+                .getTotal());
+        assertEquals(3, systemLogService.cursorList("", 10, 0L, null, prefix, null, null).getRecords().size());
+        assertEquals(0, systemLogService.pageList(1, 10, null, prefix + "missing").getTotal());
+        assertNull(operationDictionary.find(prefix + "missing"));
+        assertEquals(0, systemLogService.pageList(1, 10, null, null, prefix + "x", null, null, CountMode.EXACT)
+                .getTotal());
+    }
+    
+    @Test
+    @Order(7)
+    @DisplayName("耗时分析：分钟汇总写库、合并为小时/天后分位数不变，含内存中未写入部分")
+    void testLatencyAnalytics() {
+        String prefix = "latency_" + System.currentTimeMillis() + "_";
+        LocalDateTime base = LocalDateTime.of(2003, 5, 10, 9, 0);
+        // 慢操作：每分钟100次，耗时100~1099ms；快操作：耗时0~9ms
+        for (int minute = 0; minute < 90; minute++) {
+            for (int i = 0; i < 100; i++) {
+                latencyAggregator.record(timed(prefix + "slow", "Slow.call", base.plusMinutes(minute), 100 + i * 10L));
+                latencyAggregator.record(timed(prefix + "fast", "Fast.call", base.plusMinutes(minute), i % 10));
+            }
+        }
+        LocalDateTime start = base.minusHours(1);
+        LocalDateTime end = base.plusDays(1);
+        
+        List<LatencyAggregator.LatencySummary> inMemory = systemLogService.latency(start, end, "operation", null,
+                prefix, 10);
+        assertEquals(2, inMemory.size());
+        LatencyAggregator.LatencySummary slow = inMemory.get(0);
+        assertEquals(prefix + "slow", slow.operation());
+        assertEquals(9000, slow.count());
+        assertEquals(1090, slow.max());
+        assertTrue(Math.abs(slow.p99() - 1090) <= 1090 / 64, "p99: " + slow.p99());
+        assertTrue(Math.abs(slow.p50() - 590) <= 590 / 64, "p50: " + slow.p50());
+        assertEquals(9, inMemory.get(1).max());
+        
+        assertTrue(latencyAggregator.flush(base.plusDays(1)) >= 180);
+        assertEquals(inMemory, systemLogService.latency(start, end, "operation", null, prefix, 10));
+        
+        // 一年后：分钟汇总合并为小时，再合并为天
+        assertTrue(latencyAggregator.rollup(base.plusYears(1)) >= 3);
+        assertEquals(inMemory, systemLogService.latency(start, end, "operation", null, prefix, 10));
+        
+        List<LatencyAggregator.LatencySummary> byMethod = systemLogService.latency(start, end, "method",
+                prefix + "fast", null, 10);
+        assertEquals(1, byMethod.size());
+        assertEquals("Fast.call", byMethod.get(0).method());
+        assertNull(byMethod.get(0).operation());
+        assertTrue(systemLogService.latency(start, end, "operation", prefix + "missing", null, 10).isEmpty());
+        assertTrue(systemLogService.latency(base.plusYears(2), base.plusYears(3), "operation", null, prefix, 10)
+                .isEmpty());
+    }
+    
+    private SystemLog timed(String operation, String method, LocalDateTime at, long elapsed) {
+        SystemLog entry = new SystemLog();
+        entry.setOperation(operation);
+        entry.setOperationCode(operationDictionary.codeOf(operation));
+        entry.setMethod(method);
+        entry.setCreateTime(at);
+        entry.setTime(elapsed);
+        return entry;
+    }
+    
+    private void insertAt(String operation, LocalDateTime createTime) {
+        jdbcTemplate.update("INSERT INTO system_log (user_id, username, operation, operation_code, method, params, ip, "
+                        + "time, create_time) VALUES (1, 'admin', ?, ?, 'Test.method', '{}', '127.0.0.1', 1, ?)",
+                operation, operationDictionary.codeOf(operation), Timestamp.valueOf(createTime));
+    }
+    
+    private static List<String> readLines(Path file) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            return reader.lines().toList();
+        }
+    }
+    
+    private SystemLog log(String operation, int i) {
+        SystemLog entry = new SystemLog();
+        entry.setUserId((long) i);
+        entry.setUsername("user" + i);
+        entry.setOperation(operation);
+        entry.setMethod("Test.method");
+        entry.setParams("{\"i\":" + i + "}");
+        entry.setIp("127.0.0.1");
+        entry.setTime(1L);
+        return entry;
+    }
+}
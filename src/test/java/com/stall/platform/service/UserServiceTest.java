@@ -158,4 +158,31 @@ class UserServiceTest {
         assertNotNull(page, "分页结果不应为null");
         assertTrue(page.getRecords().size() >= 3, "应该至少有3条记录");
     }
+    
+    @Test
+    @Order(8)
+    @DisplayName("注册-绕过查重的同名用户由唯一约束拦截")
+    void testRegister_UniqueConstraint() {
+        String username = "unique_" + System.currentTimeMillis();
+        assertTrue(userService.isUsernameAvailable(username), "未注册的用户名应可用");
+        
+        // 直接插入，不经过注册流程，过滤器中没有该用户名
+        User existing = new User();
+        existing.setUsername(username);
+        existing.setPassword("x");
+        existing.setRole("USER");
+        existing.setStatus(1);
+        userService.save(existing);
+        
+        User user = new User();
+        user.setUsername(username);
+        user.setPassword("test123");
+        assertFalse(userService.register(user), "重名注册应返回失败而不是抛出异常");
+        
+        User other = new User();
+        other.setUsername(username + "_b");
+        other.setPassword("test123");
+        assertTrue(userService.register(other));
+        assertFalse(userService.isUsernameAvailable(other.getUsername()), "注册后用户名应不可用");
+    }
 }
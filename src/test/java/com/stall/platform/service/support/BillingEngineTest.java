@@ -0,0 +1,131 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.BillingRun;
+import com.stall.platform.entity.RentalRecord;
+import org.junit.jupiter.api.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 账单生成引擎测试
+ * 测试：同一租赁各账期账单之和等于租金总额、租约过期被接管后原执行者不覆盖新执行者的批次
+ * 账单按批在独立事务中提交，本类不使用测试事务，数据在每个用例后清理
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
+class BillingEngineTest {
+    
+    private static final long USER_ID = 992_002L;
+    private static final YearMonth PERIOD = YearMonth.of(2036, 2);
+    private static final int RENTALS = 5;
+    
+    @Autowired
+    private BillingEngine billingEngine;
+    
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM rental_invoice WHERE period = ?", PERIOD.toString());
+        jdbcTemplate.update("DELETE FROM billing_run WHERE period = ?", PERIOD.toString());
+        jdbcTemplate.update("DELETE FROM rental_record WHERE user_id = ?", USER_ID);
+    }
+    
+    @Test
+    @Order(1)
+    @DisplayName("同一租赁各账期账单之和等于租金总额")
+    void testInvoicesSumToRentAmount() {
+        assertSum(LocalDate.of(2035, 1, 15), LocalDate.of(2035, 3, 14), "1000.00");
+        assertSum(LocalDate.of(2035, 1, 31), LocalDate.of(2035, 3, 1), "999.99");
+        assertSum(LocalDate.of(2035, 7, 16), LocalDate.of(2036, 7, 15), "12000.00");
+        assertSum(LocalDate.of(2036, 2, 10), LocalDate.of(2036, 2, 12), "100.00");
+        assertSum(LocalDate.of(2035, 11, 3), LocalDate.of(2037, 5, 27), "77777.77");
+        
+        // 1月15日至3月14日共 59 天：1月 17 天、2月 28 天、3月 14 天
+        RentalRecord record = record(LocalDate.of(2035, 1, 15), LocalDate.of(2035, 3, 14), "5900.00");
+        assertEquals(new BigDecimal("1700.00"),
+                BillingEngine.amount(record, LocalDate.of(2035, 1, 15), LocalDate.of(2035, 1, 31)));
+        assertEquals(new BigDecimal("2800.00"),
+                BillingEngine.amount(record, LocalDate.of(2035, 2, 1), LocalDate.of(2035, 2, 28)));
+        assertEquals(new BigDecimal("1400.00"),
+                BillingEngine.amount(record, LocalDate.of(2035, 3, 1), LocalDate.of(2035, 3, 14)));
+    }
+    
+    @Test
+    @Order(2)
+    @DisplayName("租约过期被接管后，原执行者整批回滚退出，不覆盖新执行者的批次")
+    void testStaleLeaseTakeover() {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < RENTALS; i++) {
+            rows.add(new Object[]{USER_ID, Date.valueOf(LocalDate.of(2036, 1, 15)),
+                    Date.valueOf(LocalDate.of(2036, 3, 14)), new BigDecimal("3000.00")});
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO rental_record (application_id, user_id, stall_id, start_date, end_date, "
+                + "rent_amount, deposit, payment_status, status) VALUES (0, ?, 992200, ?, ?, ?, 1000, 0, 1)", rows);
+        
+        BillingEngine.Claim first = billingEngine.claim(PERIOD);
+        assertTrue(first.owned());
+        // 原执行者长时间没有进度，被其他节点接管
+        jdbcTemplate.update("UPDATE billing_run SET update_time = ? WHERE id = ?",
+                LocalDateTime.now().minusHours(1), first.run().getId());
+        BillingEngine.Claim second = billingEngine.claim(PERIOD);
+        assertTrue(second.owned());
+        assertEquals(first.run().getId(), second.run().getId());
+        assertNotEquals(first.run().getClaimToken(), second.run().getClaimToken());
+        
+        BillingRun stale = billingEngine.process(first.run(), PERIOD);
+        assertEquals(BillingEngine.RUNNING, stale.getStatus(), "被接管的执行者不应把批次标记为失败");
+        assertEquals(second.run().getClaimToken(), stale.getClaimToken());
+        assertNull(stale.getErrorMessage());
+        assertEquals(0, countInvoices(), "被接管后写入的一批应回滚");
+        
+        BillingRun completed = billingEngine.process(second.run(), PERIOD);
+        assertEquals(BillingEngine.COMPLETED, completed.getStatus());
+        assertEquals(RENTALS, completed.getInvoiceCount());
+        assertEquals(RENTALS, countInvoices());
+        
+        assertEquals(BillingEngine.COMPLETED, billingEngine.process(first.run(), PERIOD).getStatus());
+    }
+    
+    private void assertSum(LocalDate start, LocalDate end, String rentAmount) {
+        RentalRecord record = record(start, end, rentAmount);
+        BigDecimal sum = BigDecimal.ZERO;
+        YearMonth last = YearMonth.from(end);
+        for (YearMonth period = YearMonth.from(start); !period.isAfter(last); period = period.plusMonths(1)) {
+            LocalDate from = start.isAfter(period.atDay(1)) ? start : period.atDay(1);
+            LocalDate to = end.isBefore(period.atEndOfMonth()) ? end : period.atEndOfMonth();
+            BigDecimal amount = BillingEngine.amount(record, from, to);
+            assertTrue(amount.signum() >= 0, period + " 账单金额为负");
+            sum = sum.add(amount);
+        }
+        assertEquals(new BigDecimal(rentAmount), sum, start + " 至 " + end);
+    }
+    
+    private long countInvoices() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM rental_invoice WHERE period = ?", Long.class,
+                PERIOD.toString());
+        return count == null ? 0 : count;
+    }
+    
+    private static RentalRecord record(LocalDate start, LocalDate end, String rentAmount) {
+        RentalRecord record = new RentalRecord();
+        record.setStartDate(start);
+        record.setEndDate(end);
+        record.setRentAmount(new BigDecimal(rentAmount));
+        return record;
+    }
+}
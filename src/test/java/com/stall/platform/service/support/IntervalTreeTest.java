@@ -0,0 +1,75 @@
+package com.stall.platform.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 区间树单元测试
+ * 测试：闭区间边界、删除、随机增删后与逐条比较结果一致
+ */
+class IntervalTreeTest {
+    
+    @Test
+    @DisplayName("闭区间重叠判断与删除")
+    void testOverlapAndRemove() {
+        IntervalTree tree = new IntervalTree();
+        tree.add(10, 20, 1);
+        tree.add(30, 40, 2);
+        tree.add(15, 35, 3);
+        
+        assertEquals(List.of(1L, 3L), keys(tree, 20, 20));
+        assertEquals(List.of(), keys(tree, 41, 50));
+        assertEquals(List.of(1L), keys(tree, 0, 10));
+        assertTrue(tree.overlaps(36, 38, key -> key == 2));
+        assertFalse(tree.overlaps(36, 38, key -> key == 1));
+        
+        assertTrue(tree.remove(15, 3));
+        assertFalse(tree.remove(15, 3));
+        assertEquals(2, tree.size());
+        assertEquals(List.of(), keys(tree, 21, 29));
+        assertThrows(IllegalArgumentException.class, () -> tree.add(5, 4, 9));
+    }
+    
+    @Test
+    @DisplayName("随机增删10万次后与逐条比较结果一致")
+    void testRandomAgainstBruteForce() {
+        Random random = new Random(42);
+        IntervalTree tree = new IntervalTree();
+        Map<Long, long[]> live = new HashMap<>();
+        long nextKey = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (live.isEmpty() || random.nextInt(3) != 0) {
+                long start = random.nextInt(3650);
+                long end = start + random.nextInt(180);
+                tree.add(start, end, nextKey);
+                live.put(nextKey++, new long[]{start, end});
+            } else {
+                Long key = live.keySet().iterator().next();
+                assertTrue(tree.remove(live.remove(key)[0], key));
+            }
+        }
+        assertEquals(live.size(), tree.size());
+        for (int q = 0; q < 200; q++) {
+            long from = random.nextInt(3800);
+            long to = from + random.nextInt(60);
+            Set<Long> expected = new HashSet<>();
+            live.forEach((key, range) -> {
+                if (range[0] <= to && range[1] >= from) {
+                    expected.add(key);
+                }
+            });
+            assertEquals(expected, new HashSet<>(keys(tree, from, to)));
+            assertEquals(!expected.isEmpty(), tree.overlaps(from, to, key -> true));
+        }
+    }
+    
+    private static List<Long> keys(IntervalTree tree, long from, long to) {
+        List<Long> keys = new ArrayList<>();
+        tree.forEachOverlap(from, to, keys::add);
+        return keys;
+    }
+}
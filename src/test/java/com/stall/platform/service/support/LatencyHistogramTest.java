@@ -0,0 +1,79 @@
+package com.stall.platform.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 耗时直方图测试
+ * 测试：分位数误差、合并、编解码
+ */
+class LatencyHistogramTest {
+    
+    @Test
+    @DisplayName("分桶上界与下标互逆，相对误差不超过1/64")
+    void testBucketBounds() {
+        for (long v : new long[]{0, 1, 127, 128, 129, 255, 256, 1000, 65_535, 3_600_000, Long.MAX_VALUE / 2}) {
+            int index = LatencyHistogram.indexOf(v);
+            long high = LatencyHistogram.highestValueAt(index);
+            assertTrue(high >= v, "上界应不小于值: " + v);
+            assertEquals(index, LatencyHistogram.indexOf(high));
+            assertTrue(high - v <= v / 64, "误差过大: " + v + " -> " + high);
+        }
+    }
+    
+    @Test
+    @DisplayName("分位数与精确排序结果的相对误差不超过1/64")
+    void testPercentileAccuracy() {
+        Random random = new Random(42);
+        long[] values = new long[100_000];
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < values.length; i++) {
+            // 对数正态分布，模拟长尾耗时
+            values[i] = (long) Math.exp(3 + 1.5 * random.nextGaussian());
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+        for (double p : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(p / 100 * values.length) - 1];
+            long estimate = histogram.percentile(p);
+            assertTrue(estimate >= exact && estimate - exact <= exact / 64,
+                    "p" + p + " 精确值 " + exact + " 估计值 " + estimate);
+        }
+        assertEquals(values[values.length - 1], histogram.max());
+        assertEquals(histogram.max(), histogram.percentile(100));
+        assertEquals(values.length, histogram.count());
+    }
+    
+    @Test
+    @DisplayName("按分钟分别记录后合并，与整体记录结果一致；编解码后不变")
+    void testMergeAndEncode() {
+        Random random = new Random(7);
+        LatencyHistogram whole = new LatencyHistogram();
+        LatencyHistogram merged = new LatencyHistogram();
+        for (int minute = 0; minute < 60; minute++) {
+            LatencyHistogram part = new LatencyHistogram();
+            for (int i = 0; i < 100; i++) {
+                long v = random.nextInt(minute == 30 ? 60_000 : 500);
+                whole.record(v);
+                part.record(v);
+            }
+            merged.merge(LatencyHistogram.decode(part.encode()));
+        }
+        assertEquals(whole.count(), merged.count());
+        assertEquals(whole.total(), merged.total());
+        assertEquals(whole.max(), merged.max());
+        for (double p : new double[]{50, 90, 99}) {
+            assertEquals(whole.percentile(p), merged.percentile(p));
+        }
+        LatencyHistogram decoded = LatencyHistogram.decode(whole.encode());
+        assertEquals(whole.percentile(99), decoded.percentile(99));
+        assertTrue(whole.encode().length < 2000, "稀疏编码应远小于桶数组");
+        assertEquals(0, new LatencyHistogram().percentile(99));
+        assertEquals(0, LatencyHistogram.decode(new LatencyHistogram().encode()).count());
+    }
+}
@@ -0,0 +1,85 @@
+package com.stall.platform.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 无锁环形队列单元测试
+ * 测试：容量取整、满时拒绝、先进先出、多生产者并发不丢不重
+ */
+class LogRingBufferTest {
+    
+    @Test
+    @DisplayName("容量向上取整为2的幂，满时offer返回false")
+    void testCapacityAndFull() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(5);
+        assertEquals(8, buffer.capacity());
+        for (int i = 0; i < 8; i++) {
+            assertTrue(buffer.offer(i));
+        }
+        assertFalse(buffer.offer(8));
+        assertEquals(8, buffer.size());
+        
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(8), "取走一个后可以继续写入");
+        List<Integer> drained = new ArrayList<>();
+        assertEquals(8, buffer.drainTo(drained, 100));
+        assertEquals(List.of(1, 2, 3, 4, 5, 6, 7, 8), drained);
+        assertNull(buffer.poll());
+    }
+    
+    @Test
+    @DisplayName("多生产者并发写入、单消费者读取，元素不丢不重")
+    void testConcurrentProducers() throws Exception {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(1024);
+        int producers = 4;
+        int perProducer = 100_000;
+        ExecutorService pool = Executors.newFixedThreadPool(producers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < perProducer; i++) {
+                    while (!buffer.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        
+        BitSet seen = new BitSet(producers * perProducer);
+        int[] lastPerProducer = new int[producers];
+        java.util.Arrays.fill(lastPerProducer, -1);
+        int received = 0;
+        while (received < producers * perProducer) {
+            Integer value = buffer.poll();
+            if (value == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            assertFalse(seen.get(value), "元素重复: " + value);
+            seen.set(value);
+            int producer = value / perProducer;
+            assertTrue(value > lastPerProducer[producer], "同一生产者的元素应保持顺序");
+            lastPerProducer[producer] = value;
+            received++;
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        pool.shutdown();
+        assertEquals(producers * perProducer, seen.cardinality());
+        assertNull(buffer.poll());
+    }
+}
@@ -0,0 +1,210 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.Stall;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 摊位经纬度网格索引单元测试
+ * 测试：半径查询、最近K个及其最坏情况、增量更新、10万摊位下与逐条计算对比（耗时为 perf，mvn test -Pperf 执行）
+ */
+class StallGeoIndexTest {
+    
+    private static final double BASE_LAT = 30.25;
+    private static final double BASE_LNG = 120.16;
+    private static final double MAX_DISTANCE = 50_000;
+    
+    @Test
+    @DisplayName("半径查询按距离排序并支持筛选")
+    void testWithinRadius() {
+        StallGeoIndex index = new StallGeoIndex(200);
+        index.put(stall(1L, BASE_LAT, BASE_LNG, 1L, 0));
+        index.put(stall(2L, BASE_LAT + 0.001, BASE_LNG, 1L, 0));   // 约111米
+        index.put(stall(3L, BASE_LAT + 0.003, BASE_LNG, 2L, 0));   // 约334米
+        index.put(stall(4L, BASE_LAT + 0.0005, BASE_LNG, 1L, 1));  // 已租用
+        
+        List<StallGeoIndex.Hit> hits = index.withinRadius(BASE_LAT, BASE_LNG, 200, null, 0, 10);
+        assertEquals(List.of(1L, 2L), ids(hits));
+        assertEquals(111, hits.get(1).distance(), 1.0);
+        assertEquals(List.of(1L, 4L, 2L, 3L), ids(index.withinRadius(BASE_LAT, BASE_LNG, 500, null, null, 10)));
+        assertEquals(List.of(3L), ids(index.withinRadius(BASE_LAT, BASE_LNG, 500, 2L, null, 10)));
+        assertEquals(List.of(1L), ids(index.withinRadius(BASE_LAT, BASE_LNG, 500, null, null, 1)));
+    }
+    
+    @Test
+    @DisplayName("最近K个-跨越多圈网格")
+    void testNearest() {
+        StallGeoIndex index = new StallGeoIndex(200);
+        index.put(stall(1L, BASE_LAT + 0.05, BASE_LNG, 1L, 0));  // 约5.6公里
+        index.put(stall(2L, BASE_LAT, BASE_LNG + 0.02, 1L, 0));  // 约1.9公里
+        index.put(stall(3L, BASE_LAT - 0.1, BASE_LNG, 1L, 0));   // 约11公里
+        
+        assertEquals(List.of(2L, 1L), ids(index.nearest(BASE_LAT, BASE_LNG, 2, MAX_DISTANCE, null, null)));
+        assertEquals(List.of(2L, 1L, 3L), ids(index.nearest(BASE_LAT, BASE_LNG, 5, MAX_DISTANCE, null, null)));
+        assertEquals(List.of(2L, 1L), ids(index.nearest(BASE_LAT, BASE_LNG, 5, 6_000, null, null)), "超出最大距离的不返回");
+        assertTrue(index.nearest(BASE_LAT, BASE_LNG, 3, MAX_DISTANCE, 9L, null).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("最近K个-筛选无匹配或查询点远离全部摊位时不逐圈扫描到最远处")
+    void testNearestWorstCase() {
+        List<Stall> stalls = cluster(100);
+        StallGeoIndex index = new StallGeoIndex(200);
+        index.rebuild(stalls);
+        
+        assertTimeoutPreemptively(Duration.ofSeconds(1), () -> {
+            assertTrue(index.nearest(40, 130, 10, Double.MAX_VALUE, 99L, null).isEmpty());
+            assertTrue(index.nearest(-10, 100, 10, Double.MAX_VALUE, 99L, null).isEmpty());
+            assertTrue(index.nearest(-10, 100, 10, MAX_DISTANCE, null, null).isEmpty(), "最大距离内没有摊位");
+            assertEquals(bruteForce(stalls, -10, 100, Double.MAX_VALUE, 3L, null, 10),
+                    ids(index.nearest(-10, 100, 10, Double.MAX_VALUE, 3L, null)), "不限距离时仍找到最近的摊位");
+            assertEquals(bruteForce(stalls, 40, 130, Double.MAX_VALUE, null, null, 5),
+                    ids(index.nearest(40, 130, 5, Double.MAX_VALUE, null, null)));
+        });
+    }
+    
+    @Test
+    @DisplayName("移动与删除摊位")
+    void testUpdateAndRemove() {
+        StallGeoIndex index = new StallGeoIndex(200);
+        index.put(stall(1L, BASE_LAT, BASE_LNG, 1L, 0));
+        index.put(stall(1L, BASE_LAT + 0.01, BASE_LNG, 1L, 0));
+        
+        assertTrue(index.withinRadius(BASE_LAT, BASE_LNG, 100, null, null, 10).isEmpty(), "移动后旧位置不应命中");
+        assertEquals(List.of(1L), ids(index.withinRadius(BASE_LAT + 0.01, BASE_LNG, 100, null, null, 10)));
+        
+        Stall noLocation = stall(1L, 0, 0, 1L, 0);
+        noLocation.setLatitude(null);
+        index.put(noLocation);
+        assertEquals(0, index.size(), "坐标清空后应移出索引");
+    }
+    
+    @Test
+    @DisplayName("10万摊位-结果与逐条计算一致")
+    void testAgainstBruteForce100k() {
+        List<Stall> stalls = city100k();
+        StallGeoIndex index = new StallGeoIndex(200);
+        index.rebuild(stalls);
+        
+        Random random = new Random(11);
+        for (int i = 0; i < 10; i++) {
+            double lat = BASE_LAT + (random.nextDouble() - 0.5) * 0.36;
+            double lng = BASE_LNG + (random.nextDouble() - 0.5) * 0.42;
+            assertEquals(bruteForce(stalls, lat, lng, 500, null, 0, 1000),
+                    ids(index.withinRadius(lat, lng, 500, null, 0, 1000)), "半径查询结果应一致");
+            assertEquals(bruteForce(stalls, lat, lng, MAX_DISTANCE, 3L, null, 10),
+                    ids(index.nearest(lat, lng, 10, MAX_DISTANCE, 3L, null)), "最近K个结果应一致");
+        }
+    }
+    
+    @Test
+    @Tag("perf")
+    @DisplayName("10万摊位-查询耗时（含筛选无匹配、查询点远离全部摊位的最坏情况）")
+    void testBenchmark100k() {
+        List<Stall> stalls = city100k();
+        StallGeoIndex index = new StallGeoIndex(200);
+        index.rebuild(stalls);
+        
+        Random random = new Random(11);
+        int queries = 200;
+        long radiusNanos = 0;
+        long nearestNanos = 0;
+        for (int i = 0; i < queries; i++) {
+            double lat = BASE_LAT + (random.nextDouble() - 0.5) * 0.36;
+            double lng = BASE_LNG + (random.nextDouble() - 0.5) * 0.42;
+            
+            long start = System.nanoTime();
+            index.withinRadius(lat, lng, 500, null, 0, 1000);
+            radiusNanos += System.nanoTime() - start;
+            
+            start = System.nanoTime();
+            index.nearest(lat, lng, 10, MAX_DISTANCE, 3L, null);
+            nearestNanos += System.nanoTime() - start;
+        }
+        
+        double[][] worst = {{BASE_LAT, BASE_LNG}, {40, 130}, {-10, 100}};
+        int worstRounds = 10;
+        long worstNanos = 0;
+        for (int round = 0; round <= worstRounds; round++) {
+            for (double[] point : worst) {
+                long start = System.nanoTime();
+                assertTrue(index.nearest(point[0], point[1], 10, MAX_DISTANCE, 99L, null).isEmpty());
+                assertTrue(index.nearest(point[0], point[1], 10, Double.MAX_VALUE, 99L, null).isEmpty());
+                // 第一轮为预热，不计入
+                if (round > 0) {
+                    worstNanos += System.nanoTime() - start;
+                }
+            }
+        }
+        
+        double radiusMillis = radiusNanos / 1e6 / queries;
+        double nearestMillis = nearestNanos / 1e6 / queries;
+        double worstMillis = worstNanos / 1e6 / (worstRounds * worst.length * 2);
+        System.out.printf("10万摊位: 半径500米平均 %.3f ms, 最近10个平均 %.3f ms, 无匹配最近10个平均 %.2f ms%n",
+                radiusMillis, nearestMillis, worstMillis);
+        assertTrue(radiusMillis < 1 && nearestMillis < 1, "城市范围内的查询应在1毫秒内");
+        assertTrue(worstMillis < 50, "无匹配时最多遍历一次全部摊位，耗时不随距离增长");
+    }
+    
+    /**
+     * 约 40km x 40km 的城市范围内随机分布的摊位
+     */
+    private List<Stall> city100k() {
+        Random random = new Random(7);
+        List<Stall> stalls = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            stalls.add(stall(id, BASE_LAT + (random.nextDouble() - 0.5) * 0.36,
+                    BASE_LNG + (random.nextDouble() - 0.5) * 0.42, (long) random.nextInt(8) + 1, random.nextInt(3)));
+        }
+        return stalls;
+    }
+    
+    /**
+     * 集中在约 2km 范围内的少量摊位
+     */
+    private List<Stall> cluster(int count) {
+        Random random = new Random(3);
+        List<Stall> stalls = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            stalls.add(stall(id, 30 + random.nextDouble() * 0.02, 120 + random.nextDouble() * 0.02,
+                    (long) random.nextInt(8) + 1, 0));
+        }
+        return stalls;
+    }
+    
+    private List<Long> bruteForce(List<Stall> stalls, double lat, double lng, double radius, Long typeId,
+                                  Integer status, int limit) {
+        List<StallGeoIndex.Hit> hits = new ArrayList<>();
+        for (Stall s : stalls) {
+            if ((typeId == null || typeId.equals(s.getTypeId())) && (status == null || status.equals(s.getStatus()))) {
+                double d = StallGeoIndex.distance(lat, lng, s.getLatitude().doubleValue(), s.getLongitude().doubleValue());
+                if (d <= radius) {
+                    hits.add(new StallGeoIndex.Hit(s.getId(), d));
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(StallGeoIndex.Hit::distance));
+        return ids(hits.subList(0, Math.min(limit, hits.size())));
+    }
+    
+    private List<Long> ids(List<StallGeoIndex.Hit> hits) {
+        return hits.stream().map(StallGeoIndex.Hit::id).toList();
+    }
+    
+    private Stall stall(Long id, double lat, double lng, Long typeId, Integer status) {
+        Stall stall = new Stall();
+        stall.setId(id);
+        stall.setLatitude(BigDecimal.valueOf(lat));
+        stall.setLongitude(BigDecimal.valueOf(lng));
+        stall.setTypeId(typeId);
+        stall.setStatus(status);
+        return stall;
+    }
+}
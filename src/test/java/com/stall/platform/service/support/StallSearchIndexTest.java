@@ -0,0 +1,163 @@
+package com.stall.platform.service.support;
+
+import com.stall.platform.entity.Stall;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 摊位关键词索引单元测试
+ * 测试：中文/编号匹配、长关键词校验、增量更新与删除、筛选排序、10万摊位下与全表扫描对比（耗时对比为 perf，mvn test -Pperf 执行）
+ */
+class StallSearchIndexTest {
+    
+    private static final String[] NAMES = {"水果摊", "海鲜档口", "小吃铺", "服装店", "蔬菜摊", "烧烤摊", "饮品店", "日用百货"};
+    private static final String[] AREAS = {"东区", "西区", "南区", "北区", "中心广场"};
+    private static final String[] KEYWORDS = {"海", "海鲜", "中心广场", "k-0", "水果摊42", "12号", "南区烧烤摊7"};
+    
+    @Test
+    @DisplayName("中文单字、多字与编号匹配")
+    void testChineseAndStallNo() {
+        StallSearchIndex index = new StallSearchIndex();
+        index.put(stall(1L, "A-001", "新鲜水果摊", "东区一排", 1L, 0));
+        index.put(stall(2L, "A-002", "海鲜档口", "东区二排", 2L, 0));
+        index.put(stall(3L, "B-001", "水果批发", "西区", 1L, 1));
+        
+        assertEquals(List.of(1L, 3L), index.search("水", null, null));
+        assertEquals(List.of(1L, 3L), index.search("水果", null, null));
+        assertEquals(List.of(1L, 2L), index.search("东区", null, null));
+        assertEquals(List.of(3L), index.search("b-0", null, null), "编号匹配应忽略大小写");
+        assertEquals(List.of(1L), index.search("新鲜水果摊", null, null), "长关键词取三元组交集后校验");
+        assertTrue(index.search("鲜水果批", null, null).isEmpty(), "三元组都存在但不连续时不应命中");
+        assertTrue(index.search("果摊东", null, null).isEmpty(), "不应跨字段匹配");
+    }
+    
+    @Test
+    @DisplayName("按类型/状态筛选并按编号排序")
+    void testFilterAndOrder() {
+        StallSearchIndex index = new StallSearchIndex();
+        index.put(stall(1L, "C-003", "小吃铺", "南区", 1L, 0));
+        index.put(stall(2L, "C-001", "小吃铺", "南区", 2L, 0));
+        index.put(stall(3L, "C-002", "小吃铺", "南区", 1L, 1));
+        
+        assertEquals(List.of(2L, 3L, 1L), index.search("小吃", null, null));
+        assertEquals(List.of(3L, 1L), index.search("小吃", 1L, null));
+        assertEquals(List.of(1L), index.search("小吃", 1L, 0));
+        assertEquals(List.of(2L, 1L), index.search("", null, 0), "无关键词时只按条件筛选");
+    }
+    
+    @Test
+    @DisplayName("增量更新与删除")
+    void testUpdateAndRemove() {
+        StallSearchIndex index = new StallSearchIndex();
+        index.put(stall(1L, "D-001", "服装店", "北区", 1L, 0));
+        index.put(stall(1L, "D-001", "饮品店", "北区", 1L, 0));
+        
+        assertTrue(index.search("服装", null, null).isEmpty(), "更新后旧名称不应命中");
+        assertEquals(List.of(1L), index.search("饮品", null, null));
+        
+        index.remove(1L);
+        assertTrue(index.search("饮品", null, null).isEmpty(), "删除后不应命中");
+        assertEquals(0, index.size());
+    }
+    
+    @Test
+    @DisplayName("反复更新触发重建后结果不变")
+    void testCompaction() {
+        StallSearchIndex index = new StallSearchIndex();
+        for (int round = 0; round < 5; round++) {
+            for (long id = 1; id <= 500; id++) {
+                index.put(stall(id, String.format("E-%04d", id), "蔬菜摊" + round, "西区", 1L, 0));
+            }
+        }
+        assertEquals(500, index.size());
+        assertEquals(500, index.search("蔬菜摊4", null, null).size());
+        assertTrue(index.search("蔬菜摊3", null, null).isEmpty());
+    }
+    
+    @Test
+    @DisplayName("10万摊位-结果与全表扫描一致")
+    void testAgainstScan100k() {
+        List<Stall> stalls = catalog100k();
+        StallSearchIndex index = new StallSearchIndex();
+        index.rebuild(stalls);
+        
+        for (String keyword : KEYWORDS) {
+            assertEquals(scan(stalls, keyword, 0), index.search(keyword, null, 0), "索引结果应与全表扫描一致: " + keyword);
+        }
+    }
+    
+    @Test
+    @Tag("perf")
+    @DisplayName("10万摊位-索引查询与全表扫描耗时对比")
+    void testBenchmark100k() {
+        List<Stall> stalls = catalog100k();
+        StallSearchIndex index = new StallSearchIndex();
+        long buildStart = System.nanoTime();
+        index.rebuild(stalls);
+        long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+        
+        long indexNanos = 0;
+        long scanNanos = 0;
+        for (int round = 0; round < 5; round++) {
+            for (String keyword : KEYWORDS) {
+                long start = System.nanoTime();
+                List<Long> fromIndex = index.search(keyword, null, 0);
+                indexNanos += System.nanoTime() - start;
+                
+                start = System.nanoTime();
+                List<Long> fromScan = scan(stalls, keyword, 0);
+                scanNanos += System.nanoTime() - start;
+                
+                assertEquals(fromScan, fromIndex, "索引结果应与全表扫描一致: " + keyword);
+            }
+        }
+        System.out.printf("10万摊位: 构建索引 %d ms, 索引查询 %.2f ms, 全表扫描 %.2f ms%n",
+                buildMillis, indexNanos / 1e6, scanNanos / 1e6);
+        assertTrue(indexNanos < scanNanos, "索引查询应快于全表扫描");
+    }
+    
+    private List<Stall> catalog100k() {
+        Random random = new Random(42);
+        List<Stall> stalls = new ArrayList<>();
+        for (long id = 1; id <= 100_000; id++) {
+            String area = AREAS[random.nextInt(AREAS.length)];
+            stalls.add(stall(id, String.format("%s-%05d", (char) ('A' + random.nextInt(26)), id),
+                    area + NAMES[random.nextInt(NAMES.length)] + id % 97,
+                    area + (random.nextInt(50) + 1) + "号", (long) random.nextInt(8) + 1, random.nextInt(3)));
+        }
+        return stalls;
+    }
+    
+    /**
+     * 等价于 LIKE '%kw%' 的全表扫描，按编号排序
+     */
+    private List<Long> scan(List<Stall> stalls, String keyword, Integer status) {
+        String kw = keyword.toLowerCase(Locale.ROOT);
+        List<Stall> matched = new ArrayList<>();
+        for (Stall s : stalls) {
+            if (status.equals(s.getStatus()) && (s.getName().toLowerCase(Locale.ROOT).contains(kw)
+                    || s.getStallNo().toLowerCase(Locale.ROOT).contains(kw)
+                    || s.getLocation().toLowerCase(Locale.ROOT).contains(kw))) {
+                matched.add(s);
+            }
+        }
+        matched.sort(Comparator.comparing(Stall::getStallNo).thenComparing(Stall::getId));
+        return matched.stream().map(Stall::getId).toList();
+    }
+    
+    private Stall stall(Long id, String stallNo, String name, String location, Long typeId, Integer status) {
+        Stall stall = new Stall();
+        stall.setId(id);
+        stall.setStallNo(stallNo);
+        stall.setName(name);
+        stall.setLocation(location);
+        stall.setTypeId(typeId);
+        stall.setStatus(status);
+        return stall;
+    }
+}
@@ -0,0 +1,59 @@
+package com.stall.platform.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 银行流水读取测试
+ * 测试：表头别名识别、引号字段、金额格式、缺少必需列
+ */
+class StatementReaderTest {
+    
+    @Test
+    @DisplayName("按表头识别参考号和金额列，支持BOM、引号字段和千分位金额")
+    void testRead() throws Exception {
+        String csv = "\uFEFFDate,Amount,Reference\n"
+                + "2099-01-01,\"1,234.50\",\"pay \"\"INV209901-1\"\", thanks\"\n"
+                + "\n"
+                + "2099-01-02, ¥ 88 ,RENT-2\n"
+                + "2099-01-03,n/a,RENT-3\n"
+                + "2099-01-04\n";
+        List<StatementReader.Line> lines = new ArrayList<>();
+        assertEquals(4, StatementReader.read(new StringReader(csv), lines::add));
+        
+        assertEquals(2, lines.get(0).lineNo());
+        assertEquals("pay \"INV209901-1\", thanks", lines.get(0).reference());
+        assertEquals(new BigDecimal("1234.50"), lines.get(0).amount());
+        assertEquals(4, lines.get(1).lineNo());
+        assertEquals(new BigDecimal("88"), lines.get(1).amount());
+        assertNull(lines.get(2).amount());
+        assertNotNull(lines.get(2).error());
+        assertEquals("", lines.get(3).reference());
+        assertNotNull(lines.get(3).error());
+    }
+    
+    @Test
+    @DisplayName("中文表头")
+    void testChineseHeader() throws Exception {
+        List<StatementReader.Line> lines = new ArrayList<>();
+        StatementReader.read(new StringReader("交易日期,收入金额,附言\n2099-01-01,100.00,RENT-1\n"), lines::add);
+        assertEquals("RENT-1", lines.get(0).reference());
+        assertEquals(new BigDecimal("100.00"), lines.get(0).amount());
+    }
+    
+    @Test
+    @DisplayName("缺少参考号或金额列、空文件应报错")
+    void testMissingColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> StatementReader.read(new StringReader("date,reference\n2099-01-01,RENT-1\n"), line -> { }));
+        assertThrows(IllegalArgumentException.class,
+                () -> StatementReader.read(new StringReader("\n\n"), line -> { }));
+    }
+}
@@ -0,0 +1,73 @@
+package com.stall.platform.service.support;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 分层时间轮单元测试
+ * 测试：到期顺序、删除与更新、跨层下放及溢出表，随机数据与逐条比较结果一致
+ */
+class TimingWheelTest {
+    
+    @Test
+    @DisplayName("到期、删除、更新到期时间")
+    void testAdvance() {
+        TimingWheel wheel = new TimingWheel(100);
+        wheel.add(1, 101);
+        wheel.add(2, 165);
+        wheel.add(3, 5000);
+        wheel.add(4, 90);
+        wheel.add(5, 120);
+        assertTrue(wheel.remove(5));
+        wheel.add(3, 102);
+        
+        assertEquals(List.of(4L), wheel.advanceTo(100));
+        assertEquals(List.of(1L, 3L), sorted(wheel.advanceTo(102)));
+        assertEquals(List.of(), wheel.advanceTo(164));
+        assertEquals(List.of(2L), wheel.advanceTo(200));
+        assertEquals(0, wheel.size());
+        assertEquals(List.of(), wheel.advanceTo(10_000));
+    }
+    
+    @Test
+    @DisplayName("随机到期时间（含超出最高层的）按步推进，结果与逐条比较一致")
+    void testRandomAgainstBruteForce() {
+        Random random = new Random(7);
+        long start = 19_000;
+        TimingWheel wheel = new TimingWheel(start);
+        Map<Long, Long> expected = new HashMap<>();
+        for (long key = 0; key < 20_000; key++) {
+            long due = key % 500 == 0
+                    ? start + 16_777_216L + random.nextInt(1000)
+                    : start + random.nextInt(key % 3 == 0 ? 300_000 : 400);
+            wheel.add(key, due);
+            expected.put(key, due);
+        }
+        long tick = start;
+        while (!expected.isEmpty()) {
+            tick += 1 + random.nextInt(tick < start + 400 ? 3 : 5000);
+            long now = tick;
+            Set<Long> due = new HashSet<>();
+            expected.forEach((key, at) -> {
+                if (at <= now) {
+                    due.add(key);
+                }
+            });
+            List<Long> actual = wheel.advanceTo(now);
+            assertEquals(due, new HashSet<>(actual), "刻度 " + now);
+            assertEquals(due.size(), actual.size());
+            due.forEach(expected::remove);
+            assertEquals(expected.size(), wheel.size());
+        }
+    }
+    
+    private static List<Long> sorted(List<Long> keys) {
+        List<Long> copy = new ArrayList<>(keys);
+        Collections.sort(copy);
+        return copy;
+    }
+}
@@ -140,6 +140,7 @@ CREATE TABLE IF NOT EXISTS system_log (
   user_id BIGINT,
   username VARCHAR(50),
   operation VARCHAR(100),
+  operation_code INT,
   method VARCHAR(200),
   params CLOB,
   ip VARCHAR(50),
@@ -147,3 +148,110 @@ CREATE TABLE IF NOT EXISTS system_log (
   time BIGINT,
   create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
 );
+
+-- 操作名称字典表
+CREATE TABLE IF NOT EXISTS system_log_operation (
+  id INT PRIMARY KEY AUTO_INCREMENT,
+  name VARCHAR(100) NOT NULL UNIQUE,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- 操作耗时汇总表
+CREATE TABLE IF NOT EXISTS system_log_latency (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  bucket_time TIMESTAMP NOT NULL,
+  resolution INT NOT NULL,
+  operation_code INT,
+  method VARCHAR(200),
+  call_count BIGINT NOT NULL,
+  total_time BIGINT NOT NULL,
+  max_time BIGINT NOT NULL,
+  histogram BLOB NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_latency_bucket_time ON system_log_latency (bucket_time);
+CREATE INDEX IF NOT EXISTS idx_latency_resolution_time ON system_log_latency (resolution, bucket_time);
+
+CREATE TABLE IF NOT EXISTS rental_invoice (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  invoice_no VARCHAR(50) NOT NULL,
+  rental_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  stall_id BIGINT NOT NULL,
+  period CHAR(7) NOT NULL,
+  period_start DATE NOT NULL,
+  period_end DATE NOT NULL,
+  amount DECIMAL(10,2) NOT NULL,
+  status INT DEFAULT 0,
+  billing_run_id BIGINT,
+  deleted INT DEFAULT 0,
+  create_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT uk_invoice_rental_period UNIQUE (rental_id, period),
+  CONSTRAINT uk_invoice_no UNIQUE (invoice_no)
+);
+CREATE INDEX IF NOT EXISTS idx_invoice_user_period ON rental_invoice (user_id, period);
+CREATE INDEX IF NOT EXISTS idx_invoice_period_status ON rental_invoice (period, status);
+
+CREATE TABLE IF NOT EXISTS billing_run (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  period CHAR(7) NOT NULL,
+  status INT NOT NULL DEFAULT 0,
+  total_count BIGINT NOT NULL DEFAULT 0,
+  processed_count BIGINT NOT NULL DEFAULT 0,
+  invoice_count BIGINT NOT NULL DEFAULT 0,
+  last_rental_id BIGINT NOT NULL DEFAULT 0,
+  claim_token VARCHAR(36),
+  error_message VARCHAR(500),
+  start_time TIMESTAMP,
+  finish_time TIMESTAMP,
+  update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT uk_billing_period UNIQUE (period)
+);
+
+CREATE TABLE IF NOT EXISTS ledger_entry (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  journal_id BIGINT NOT NULL,
+  user_id BIGINT NOT NULL,
+  stall_id BIGINT,
+  rental_id BIGINT,
+  account VARCHAR(32) NOT NULL,
+  amount DECIMAL(12,2) NOT NULL,
+  entry_type VARCHAR(32) NOT NULL,
+  reference VARCHAR(64),
+  create_time TIMESTAMP NOT NULL
+);
+CREATE INDEX IF NOT EXISTS idx_ledger_user_id ON ledger_entry (user_id, id);
+CREATE INDEX IF NOT EXISTS idx_ledger_rental ON ledger_entry (rental_id);
+CREATE INDEX IF NOT EXISTS idx_ledger_journal ON ledger_entry (journal_id);
+
+CREATE TABLE IF NOT EXISTS ledger_balance (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  user_id BIGINT NOT NULL,
+  account VARCHAR(32) NOT NULL,
+  balance DECIMAL(14,2) NOT NULL DEFAULT 0,
+  pending_entries INT NOT NULL DEFAULT 0,
+  last_entry_id BIGINT NOT NULL DEFAULT 0,
+  update_time TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+  CONSTRAINT uk_ledger_user_account UNIQUE (user_id, account)
+);
+
+CREATE TABLE IF NOT EXISTS ledger_snapshot (
+  id BIGINT PRIMARY KEY AUTO_INCREMENT,
+  user_id BIGINT NOT NULL,
+  account VARCHAR(32) NOT NULL,
+  balance DECIMAL(14,2) NOT NULL,
+  last_entry_id BIGINT NOT NULL,
+  create_time TIMESTAMP NOT NULL,
+  CONSTRAINT uk_snapshot_user_entry_account UNIQUE (user_id, last_entry_id, account)
+);
+CREATE INDEX IF NOT EXISTS idx_snapshot_user_time ON ledger_snapshot (user_id, create_time);
+
+-- 游标分页索引
+CREATE INDEX IF NOT EXISTS idx_feedback_user_time ON feedback (user_id, create_time, id);
+CREATE INDEX IF NOT EXISTS idx_feedback_create_time ON feedback (create_time, id);
+CREATE INDEX IF NOT EXISTS idx_rental_user_time ON rental_record (user_id, create_time, id);
+CREATE INDEX IF NOT EXISTS idx_rental_create_time ON rental_record (create_time, id);
+CREATE INDEX IF NOT EXISTS idx_rental_status_end ON rental_record (status, end_date);
+CREATE INDEX IF NOT EXISTS idx_log_user_time ON system_log (user_id, create_time, id);
+CREATE INDEX IF NOT EXISTS idx_log_create_time ON system_log (create_time, id);
+CREATE INDEX IF NOT EXISTS idx_log_operation_time ON system_log (operation_code, create_time, id);